@@ -3,19 +3,33 @@ package AudioPipeline;
 import javax.sound.sampled.*;
 
 import AudioProcessingRangler.AudioProcessingRangler;
+import LevelMeter.LevelMeter;
+import MetricsRegistry.Counter;
+import MetricsRegistry.Gauge;
+import MetricsRegistry.MetricsRegistry;
+import MetricsRegistry.Timer;
+import SpectrumAnalyzer.SpectrumAnalyzer;
 
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class AudioPipeline implements Runnable {
 
-    // --- Normalization Constants ---
-    private static final double NORM_8_BIT = 127.0;
-    private static final double NORM_16_BIT = 32767.0;
-    private static final double NORM_32_BIT_INT = 2147483647.0;
+    // --- Process-wide metrics, shared by every pipeline ---
+    private static final Counter BLOCKS_PROCESSED = MetricsRegistry.getDefault().counter(
+            "earcanvas_blocks_processed_total", "Blocks processed by all pipelines.");
+    private static final Timer BLOCK_TIME = MetricsRegistry.getDefault().timer(
+            "earcanvas_block_process_seconds", "Time spent processing each block, excluding device I/O.");
+    private static final Counter DEADLINE_MISSES = MetricsRegistry.getDefault().counter(
+            "earcanvas_deadline_misses_total", "Blocks whose processing took longer than their real-time duration.");
+    private static final Counter CAPTURE_XRUNS = MetricsRegistry.getDefault().counter(
+            "earcanvas_xruns_total", "Device buffer overruns (capture) and underruns (playback).", "direction", "capture");
+    private static final Counter PLAYBACK_XRUNS = MetricsRegistry.getDefault().counter(
+            "earcanvas_xruns_total", "Device buffer overruns (capture) and underruns (playback).", "direction", "playback");
+    private static final Gauge BLOCK_LOAD = MetricsRegistry.getDefault().gauge(
+            "earcanvas_block_load_ratio", "Processing time of the most recent block over its real-time duration.");
 
     private final AtomicBoolean running = new AtomicBoolean(false);
     private ExecutorService executorService; // Changed from final to allow recreation
@@ -23,6 +37,7 @@ public class AudioPipeline implements Runnable {
     private TargetDataLine targetLine;
     private SourceDataLine sourceLine;
     private AudioFormat format;
+    private int lineBufferBytes;
 
     protected float sampleRate;
     protected int bitDepth;
@@ -31,39 +46,79 @@ public class AudioPipeline implements Runnable {
     protected AudioFormat.Encoding encoding;
 
     private AudioProcessingRangler equalizer;
+    private volatile SpectrumAnalyzer spectrumAnalyzer;
+    private volatile LevelMeter levelMeter;
+    private volatile JitWarmup warmup;
+    private final PipelineStats stats = new PipelineStats();
 
     public AudioPipeline() {
+        this(FormatNegotiator.getDefault());
+    }
+
+    /**
+     * Opens its lines in the format and buffer size {@code negotiator} picks for the system's
+     * devices; see {@link FormatNegotiator}.
+     */
+    public AudioPipeline(FormatNegotiator negotiator) {
         try {
-            // Get default audio format from the system
-            DataLine.Info info = new DataLine.Info(TargetDataLine.class, null);
-            if (!AudioSystem.isLineSupported(info)) {
-                throw new RuntimeException("System data line does not support line access.");
-            }
-            
-            TargetDataLine tempLine = (TargetDataLine) AudioSystem.getLine(info);
-            tempLine.open();
-            
-            this.format = tempLine.getFormat();
+            NegotiatedFormat negotiated = negotiator.negotiate();
+            System.out.println("AudioPipeline: Using " + negotiated);
+
+            this.format = negotiated.getFormat();
+            this.lineBufferBytes = negotiated.getBufferBytes();
             this.sampleRate = format.getSampleRate();
             this.bitDepth = format.getSampleSizeInBits();
             this.channels = format.getChannels();
             this.bigEndian = format.isBigEndian();
             this.encoding = format.getEncoding();
-            
-            tempLine.close();
         } catch (LineUnavailableException e) {
             throw new RuntimeException("System line is currently unavailable...", e);
         }
     }
     
+    /**
+     * Processes each block through {@code equalizer}, and tells it the block layout so it can
+     * bypass filters on silent input.
+     */
     public void setEqualizer(AudioProcessingRangler equalizer) {
         this.equalizer = equalizer;
+        if (equalizer != null) {
+            equalizer.setChannels(this.channels);
+        }
+    }
+
+    /**
+     * Taps the post-rack samples into {@code analyzer}, or removes the tap when null.
+     * The analyzer's own thread does the FFT work; see {@link SpectrumAnalyzer}.
+     */
+    public void setSpectrumAnalyzer(SpectrumAnalyzer analyzer) {
+        this.spectrumAnalyzer = analyzer;
+    }
+
+    /**
+     * Meters the post-rack samples with {@code meter}, or removes the meter when null.
+     */
+    public void setLevelMeter(LevelMeter meter) {
+        this.levelMeter = meter;
+    }
+
+    /**
+     * Warms the equalizer with {@code warmup} each time {@link #start()} is called, before the
+     * audio lines open, or not at all when null.
+     */
+    public void setWarmup(JitWarmup warmup) {
+        this.warmup = warmup;
     }
 
     public AudioFormat getFormat() {
         return this.format;
     }
 
+    public SpectrumAnalyzer getSpectrumAnalyzer() { return this.spectrumAnalyzer; }
+    public LevelMeter getLevelMeter() { return this.levelMeter; }
+    public PipelineStats getStats() { return this.stats; }
+    public boolean isRunning() { return this.running.get(); }
+
     public void start() {
         // Check if already running
         if (running.get()) {
@@ -77,13 +132,19 @@ public class AudioPipeline implements Runnable {
                 executorService = Executors.newSingleThreadExecutor();
             }
 
+            // --- Warm Up the Rack ---
+            JitWarmup warmup = this.warmup;
+            if (warmup != null && equalizer != null) {
+                System.out.println("AudioPipeline: " + warmup.run(equalizer, format, blockBytes()));
+            }
+
             // --- Setup Input Line (Microphone) ---
             DataLine.Info targetInfo = new DataLine.Info(TargetDataLine.class, format);
             if (!AudioSystem.isLineSupported(targetInfo)) {
                 throw new RuntimeException("Target data line does not support " + format.toString() + ".");
             }
             this.targetLine = (TargetDataLine) AudioSystem.getLine(targetInfo);
-            this.targetLine.open(format, targetLine.getBufferSize());
+            this.targetLine.open(format, lineBufferSize(targetLine));
             this.targetLine.start();
 
             // --- Setup Output Line (Speakers) ---
@@ -92,7 +153,7 @@ public class AudioPipeline implements Runnable {
                 throw new RuntimeException("Source data line does not support " + format.toString() + ".");
             }
             this.sourceLine = (SourceDataLine) AudioSystem.getLine(sourceInfo);
-            this.sourceLine.open(format, sourceLine.getBufferSize());
+            this.sourceLine.open(format, lineBufferSize(sourceLine));
             this.sourceLine.start();
 
             running.set(true);
@@ -143,98 +204,123 @@ public class AudioPipeline implements Runnable {
     }
 
     public void run() {
-        int bufferSize = (int)(sampleRate * channels * (bitDepth / 8) * 0.015);
+        int bufferSize = blockBytes();
         byte[] buffer = new byte[bufferSize];
+        int bytesPerFrame = channels * (bitDepth / 8);
+        PcmCodec codec = new PcmCodec(bitDepth, encoding, bigEndian);
+
+        boolean playing = false;
 
         while (running.get()) {
             if (targetLine != null && sourceLine != null) {
+                // A full capture buffer before reading means input was dropped.
+                if (isFull(targetLine.available(), targetLine.getBufferSize())) {
+                    CAPTURE_XRUNS.increment();
+                }
+                BlockReadEvent readEvent = new BlockReadEvent();
+                readEvent.begin();
                 int bytesRead = targetLine.read(buffer, 0, buffer.length);
+                readEvent.end();
+                if (readEvent.shouldCommit()) {
+                    readEvent.bytes = bytesRead;
+                    readEvent.commit();
+                }
                 if (bytesRead > 0) {
+                    BlockProcessEvent processEvent = new BlockProcessEvent();
+                    processEvent.begin();
+                    long blockStart = System.nanoTime();
                     byte[] processedBytes;
-                    if (equalizer != null && !equalizer.isEmpty()) {
-                        double[] doubleBuffer = toDoubleArray(buffer, bytesRead);
-                        doubleBuffer = equalizer.processData(doubleBuffer);
-                        processedBytes = toByteArray(doubleBuffer, bytesRead);
+                    long bypassSavedNanos = 0;
+                    boolean equalize = equalizer != null && !equalizer.isEmpty();
+                    SpectrumAnalyzer analyzer = this.spectrumAnalyzer;
+                    LevelMeter meter = this.levelMeter;
+                    if (equalize || analyzer != null || meter != null) {
+                        double[] doubleBuffer = toDoubleArray(codec, buffer, bytesRead);
+                        if (equalize) {
+                            long savedBefore = equalizer.getBypassSavedNanos();
+                            doubleBuffer = equalizer.processData(doubleBuffer);
+                            bypassSavedNanos = equalizer.getBypassSavedNanos() - savedBefore;
+                            processedBytes = toByteArray(codec, doubleBuffer, bytesRead);
+                        } else {
+                            processedBytes = buffer;
+                        }
+                        if (analyzer != null) {
+                            analyzer.accept(doubleBuffer);
+                        }
+                        if (meter != null) {
+                            meter.accept(doubleBuffer);
+                        }
                     } else {
                         // If no equalizer, just pass the original audio through
                         processedBytes = buffer;
                     }
+                    int frames = bytesRead / bytesPerFrame;
+                    long processNanos = System.nanoTime() - blockStart;
+                    long budgetNanos = (long) (frames * 1e9 / sampleRate);
+                    stats.record(processNanos, frames, budgetNanos, bypassSavedNanos);
+                    BLOCKS_PROCESSED.increment();
+                    BLOCK_TIME.record(processNanos);
+                    BLOCK_LOAD.set((budgetNanos == 0) ? 0.0 : (double) processNanos / budgetNanos);
+                    if (processNanos > budgetNanos) {
+                        DEADLINE_MISSES.increment();
+                    }
+                    processEvent.end();
+                    if (processEvent.shouldCommit()) {
+                        processEvent.frames = frames;
+                        processEvent.budget = budgetNanos;
+                        processEvent.deadlineMissed = processNanos > budgetNanos;
+                        processEvent.commit();
+                    }
+
+                    // An empty playback buffer after the first write means the device ran dry.
+                    if (playing && isFull(sourceLine.available(), sourceLine.getBufferSize())) {
+                        PLAYBACK_XRUNS.increment();
+                    }
+
                     // Write the final audio (processed or not) to the speakers
+                    BlockWriteEvent writeEvent = new BlockWriteEvent();
+                    writeEvent.begin();
                     sourceLine.write(processedBytes, 0, bytesRead);
+                    writeEvent.end();
+                    if (writeEvent.shouldCommit()) {
+                        writeEvent.bytes = bytesRead;
+                        writeEvent.commit();
+                    }
+                    playing = true;
                 }
             }
         }
         System.out.println("AudioPipeline: Processing loop finished.");
     }
 
-    private double[] toDoubleArray(byte[] byteArray, int bytesRead) {
-        int bytesPerSample = bitDepth / 8;
-        int samples = bytesRead / bytesPerSample;
+    // available() counts readable bytes on a capture line and writable bytes on a playback line.
+    private static boolean isFull(int available, int bufferSize) {
+        return bufferSize > 0 && available >= bufferSize;
+    }
+
+    private int blockBytes() {
+        return blockBytes(format);
+    }
+
+    // 15 ms of audio per block.
+    static int blockBytes(AudioFormat format) {
+        return (int)(format.getSampleRate() * format.getChannels() * (format.getSampleSizeInBits() / 8) * 0.015);
+    }
+
+    private int lineBufferSize(DataLine line) {
+        return (lineBufferBytes != AudioSystem.NOT_SPECIFIED) ? lineBufferBytes : line.getBufferSize();
+    }
+
+    static double[] toDoubleArray(PcmCodec codec, byte[] byteArray, int bytesRead) {
+        int samples = bytesRead / codec.getBytesPerSample();
         double[] doubleArray = new double[samples];
-        ByteBuffer buffer = ByteBuffer.wrap(byteArray, 0, bytesRead);
-        buffer.order(this.bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
-
-        for (int i = 0; i < samples; i++) {
-            switch (bitDepth) {
-                case 8:
-                	doubleArray[i] = ((buffer.get() & 0xFF) - NORM_8_BIT) / NORM_8_BIT;
-                    break;
-                case 16:
-                    doubleArray[i] = buffer.getShort() / NORM_16_BIT;
-                    break;
-                case 32:
-                    if (encoding == AudioFormat.Encoding.PCM_FLOAT) {
-                        doubleArray[i] = buffer.getFloat();
-                    } else {
-                        doubleArray[i] = buffer.getInt() / NORM_32_BIT_INT;
-                    }
-                    break;
-                case 64:
-                     if (encoding == AudioFormat.Encoding.PCM_FLOAT) {
-                        doubleArray[i] = buffer.getDouble();
-                    } else {
-                         throw new UnsupportedOperationException("64-bit integer PCM is not supported.");
-                    }
-                    break;
-                default:
-                    throw new UnsupportedOperationException("Unsupported bit depth: " + bitDepth);
-            }
-        }
+        codec.decode(ByteBuffer.wrap(byteArray, 0, bytesRead), doubleArray, 0, samples);
         return doubleArray;
     }
 
-    private byte[] toByteArray(double[] doubleArray, int byteLength) {
+    static byte[] toByteArray(PcmCodec codec, double[] doubleArray, int byteLength) {
         ByteBuffer buffer = ByteBuffer.allocate(byteLength);
-        buffer.order(this.bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
-
-        for (double sample : doubleArray) {
-            double clampedSample = Math.max(-1.0, Math.min(1.0, sample));
-
-            switch (bitDepth) {
-                case 8:
-                    buffer.put((byte) ((clampedSample * NORM_8_BIT) + (NORM_8_BIT+1)));
-                    break;
-                case 16:
-                    buffer.putShort((short) (clampedSample * NORM_16_BIT));
-                    break;
-                case 32:
-                    if (encoding == AudioFormat.Encoding.PCM_FLOAT) {
-                        buffer.putFloat((float) clampedSample);
-                    } else {
-                        buffer.putInt((int) (clampedSample * NORM_32_BIT_INT));
-                    }
-                    break;
-                case 64:
-                    if (encoding == AudioFormat.Encoding.PCM_FLOAT) {
-                        buffer.putDouble(clampedSample);
-                    } else {
-                         throw new UnsupportedOperationException("64-bit integer PCM is not supported.");
-                    }
-                    break;
-                default:
-                     throw new UnsupportedOperationException("Unsupported bit depth: " + bitDepth);
-            }
-        }
+        codec.encode(doubleArray, 0, Math.min(doubleArray.length, byteLength / codec.getBytesPerSample()), buffer);
         return buffer.array();
     }
 }
\ No newline at end of file
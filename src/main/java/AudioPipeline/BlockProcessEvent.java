@@ -0,0 +1,33 @@
+package AudioPipeline;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for processing one block: sample conversion, the rack and the taps.
+ * The default threshold is a third of a 15 ms block.
+ */
+@Name("earcanvas.BlockProcess")
+@Label("Block Process")
+@Category({"EarCanvas", "Pipeline"})
+@Description("Conversion, rack processing and taps for one block")
+@Threshold("5 ms")
+@StackTrace(false)
+class BlockProcessEvent extends jdk.jfr.Event {
+
+    @Label("Frames")
+    int frames;
+
+    @Label("Budget")
+    @Description("Real-time duration of the block")
+    @Timespan(Timespan.NANOSECONDS)
+    long budget;
+
+    @Label("Deadline Missed")
+    boolean deadlineMissed;
+}
@@ -0,0 +1,26 @@
+package AudioPipeline;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for one blocking read from the capture line. A read normally lasts about
+ * one block; longer ones point at the device or at the thread not being scheduled.
+ */
+@Name("earcanvas.BlockRead")
+@Label("Block Read")
+@Category({"EarCanvas", "Pipeline"})
+@Description("Read of one block from the capture line")
+@Threshold("20 ms")
+@StackTrace(false)
+class BlockReadEvent extends jdk.jfr.Event {
+
+    @Label("Bytes Read")
+    @DataAmount
+    int bytes;
+}
@@ -0,0 +1,26 @@
+package AudioPipeline;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for one write to the playback line, which blocks while the device
+ * buffer is full.
+ */
+@Name("earcanvas.BlockWrite")
+@Label("Block Write")
+@Category({"EarCanvas", "Pipeline"})
+@Description("Write of one block to the playback line")
+@Threshold("20 ms")
+@StackTrace(false)
+class BlockWriteEvent extends jdk.jfr.Event {
+
+    @Label("Bytes Written")
+    @DataAmount
+    int bytes;
+}
@@ -0,0 +1,369 @@
+package AudioPipeline;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.Line;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.TargetDataLine;
+
+import ConfigParser.AtomicFiles;
+
+/**
+ * Picks the format and buffer size the pipeline opens its lines with.
+ *
+ * The default capture line's format sets the sample rate, the channel count and the least
+ * resolution to accept; a pipeline's presets are designed for that rate and layout. Among the
+ * formats the mixers offer for both capture and playback at that rate and layout, it prefers the
+ * one whose line buffer can be smallest, then the one {@link PcmCodec} converts fastest, then
+ * the platform's byte order. A block takes microseconds to convert but a buffer is milliseconds
+ * long, so latency comes first. The buffer holds {@value #BUFFER_BLOCKS} pipeline blocks where
+ * the lines allow it.
+ *
+ * Probing opens the default capture line, which can take a noticeable time on some systems, so
+ * the result is cached on disk per set of installed mixers and default capture format, and reused
+ * without opening any line for as long as Java Sound still reports the cached format as supported.
+ * An unopened line reports its default format, so switching the default device to one with
+ * another format misses the cache.
+ */
+public final class FormatNegotiator {
+
+    // Overrides the cache file, e.g. -Dearcanvas.format.cache=/var/cache/earcanvas/formats
+    public static final String CACHE_FILE_PROPERTY = "earcanvas.format.cache";
+
+    static final int BUFFER_BLOCKS = 4;
+    static final int MAX_CACHE_ENTRIES = 16;
+
+    private static final int CACHE_MAGIC = 0x4543464E; // "ECFN"
+    private static final short CACHE_VERSION = 1;
+
+    private final Path cacheFile;
+
+    /**
+     * @param cacheFile where to keep negotiated formats, or null to probe every time
+     */
+    public FormatNegotiator(Path cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /** A negotiator caching in {@link #defaultCacheFile()}. */
+    public static FormatNegotiator getDefault() {
+        return new FormatNegotiator(defaultCacheFile());
+    }
+
+    /**
+     * The value of {@value #CACHE_FILE_PROPERTY} if set, otherwise {@code earcanvas/formats} in
+     * {@code $XDG_CACHE_HOME} or {@code ~/.cache}.
+     */
+    public static Path defaultCacheFile() {
+        String override = System.getProperty(CACHE_FILE_PROPERTY);
+        if (override != null && !override.isBlank()) {
+            return Paths.get(override);
+        }
+        String xdgCache = System.getenv("XDG_CACHE_HOME");
+        if (xdgCache != null && !xdgCache.isBlank()) {
+            return Paths.get(xdgCache, "earcanvas", "formats");
+        }
+        return Paths.get(System.getProperty("user.home"), ".cache", "earcanvas", "formats");
+    }
+
+    /**
+     * Returns the cached format for the installed mixers and default capture format if Java Sound
+     * still supports it, and otherwise probes them. Where no mixer lists its lines, returns the
+     * default capture format with the lines' default buffer, and caches nothing.
+     *
+     * @throws LineUnavailableException if the default capture line cannot be opened to probe it
+     */
+    public NegotiatedFormat negotiate() throws LineUnavailableException {
+        List<DataLine.Info> capture = new ArrayList<>();
+        List<DataLine.Info> playback = new ArrayList<>();
+        TargetDataLine defaultLine = defaultCaptureLine();
+        String device = listLines(capture, playback);
+        if (device != null) {
+            device += "default=" + defaultLine.getFormat();
+        }
+
+        if (device != null && this.cacheFile != null) {
+            NegotiatedFormat cached = readCache().get(device);
+            if (cached != null && AudioSystem.isLineSupported(new DataLine.Info(TargetDataLine.class, cached.getFormat()))
+                    && AudioSystem.isLineSupported(new DataLine.Info(SourceDataLine.class, cached.getFormat()))) {
+                return cached;
+            }
+        }
+
+        AudioFormat preferred = probeFormat(defaultLine);
+        if (device == null) {
+            return new NegotiatedFormat(preferred, AudioSystem.NOT_SPECIFIED, false);
+        }
+        List<NegotiatedFormat> ranked = rank(preferred, capture, playback);
+        NegotiatedFormat best = ranked.isEmpty()
+                ? new NegotiatedFormat(preferred, AudioSystem.NOT_SPECIFIED, false) : ranked.get(0);
+        if (this.cacheFile != null) {
+            writeCache(device, best);
+        }
+        return best;
+    }
+
+    /**
+     * Every format both {@code capture} and {@code playback} offer at {@code preferred}'s rate and
+     * channel count, with at least its resolution, best first. Formats the lines leave
+     * unspecified take {@code preferred}'s values.
+     */
+    static List<NegotiatedFormat> rank(AudioFormat preferred, List<DataLine.Info> capture, List<DataLine.Info> playback) {
+        Map<String, NegotiatedFormat> candidates = new LinkedHashMap<>();
+        for (DataLine.Info captureInfo : capture) {
+            for (AudioFormat offered : captureInfo.getFormats()) {
+                AudioFormat format = concrete(offered, preferred);
+                if (format == null || resolutionBits(format) < resolutionBits(preferred)) {
+                    continue;
+                }
+                int bufferBytes = bufferBytes(format, captureInfo, playback);
+                if (bufferBytes == 0) {
+                    continue;
+                }
+                NegotiatedFormat candidate = new NegotiatedFormat(format, bufferBytes, false);
+                NegotiatedFormat seen = candidates.get(format.toString());
+                if (seen == null || seen.getBufferBytes() > bufferBytes) {
+                    candidates.put(format.toString(), candidate);
+                }
+            }
+        }
+        List<NegotiatedFormat> ranked = new ArrayList<>(candidates.values());
+        ranked.sort(Comparator.comparingDouble(NegotiatedFormat::getLatencyMillis)
+                .thenComparingDouble(NegotiatedFormat::getConversionNanos)
+                .thenComparing(candidate -> !isNativeOrder(candidate.getFormat()))
+                .thenComparing(candidate -> -resolutionBits(candidate.getFormat())));
+        return ranked;
+    }
+
+    /**
+     * Nanoseconds for {@link PcmCodec} to decode and encode one sample, as measured by the
+     * conversion benchmark in {@code FormatNegotiatorUnitTest} on x86-64. Byte order made no
+     * measurable difference.
+     */
+    static double conversionNanos(AudioFormat format) {
+        boolean floating = AudioFormat.Encoding.PCM_FLOAT.equals(format.getEncoding());
+        switch (format.getSampleSizeInBits()) {
+            case 8:
+                return 6.5;
+            case 16:
+                return 9.7;
+            case 24:
+                return 29.5;
+            case 32:
+                return floating ? 16.2 : 17.6;
+            default:
+                return 14.8;
+        }
+    }
+
+    // Bits of precision a sample keeps; a float's mantissa, not its width.
+    static int resolutionBits(AudioFormat format) {
+        int bits = format.getSampleSizeInBits();
+        if (AudioFormat.Encoding.PCM_FLOAT.equals(format.getEncoding())) {
+            return (bits == 32) ? 24 : 53;
+        }
+        return bits;
+    }
+
+    // --- Probing ---
+
+    // Fills in the data lines every mixer lists, and returns a key naming the mixers, or null if none list any.
+    private static String listLines(List<DataLine.Info> capture, List<DataLine.Info> playback) {
+        Mixer.Info[] mixers = AudioSystem.getMixerInfo();
+        if (mixers == null) {
+            return null;
+        }
+        StringBuilder device = new StringBuilder();
+        for (Mixer.Info mixerInfo : mixers) {
+            Mixer mixer = AudioSystem.getMixer(mixerInfo);
+            boolean listed = addDataLines(mixer.getTargetLineInfo(), TargetDataLine.class, capture);
+            listed |= addDataLines(mixer.getSourceLineInfo(), SourceDataLine.class, playback);
+            if (listed) {
+                device.append(mixerInfo.getName()).append('|').append(mixerInfo.getVendor()).append('|')
+                        .append(mixerInfo.getVersion()).append(';');
+            }
+        }
+        return (capture.isEmpty() || playback.isEmpty()) ? null : device.toString();
+    }
+
+    private static boolean addDataLines(Line.Info[] lines, Class<?> lineClass, List<DataLine.Info> target) {
+        boolean added = false;
+        for (Line.Info line : (lines == null) ? new Line.Info[0] : lines) {
+            if (line instanceof DataLine.Info && lineClass.isAssignableFrom(line.getLineClass())) {
+                target.add((DataLine.Info) line);
+                added = true;
+            }
+        }
+        return added;
+    }
+
+    // The default capture line, not yet opened.
+    private static TargetDataLine defaultCaptureLine() throws LineUnavailableException {
+        DataLine.Info info = new DataLine.Info(TargetDataLine.class, null);
+        if (!AudioSystem.isLineSupported(info)) {
+            throw new RuntimeException("System data line does not support line access.");
+        }
+        return (TargetDataLine) AudioSystem.getLine(info);
+    }
+
+    // Opens the line for the format it picks by itself.
+    private static AudioFormat probeFormat(TargetDataLine line) throws LineUnavailableException {
+        line.open();
+        try {
+            return line.getFormat();
+        } finally {
+            line.close();
+        }
+    }
+
+    // A packed PCM format PcmCodec reads correctly, at preferred's rate and layout; null if there is none.
+    private static AudioFormat concrete(AudioFormat offered, AudioFormat preferred) {
+        float rate = (offered.getSampleRate() == AudioSystem.NOT_SPECIFIED) ? preferred.getSampleRate() : offered.getSampleRate();
+        int channels = (offered.getChannels() == AudioSystem.NOT_SPECIFIED) ? preferred.getChannels() : offered.getChannels();
+        int bits = offered.getSampleSizeInBits();
+        if (rate != preferred.getSampleRate() || channels != preferred.getChannels() || bits == AudioSystem.NOT_SPECIFIED) {
+            return null;
+        }
+        AudioFormat.Encoding encoding = offered.getEncoding();
+        boolean readable = (bits == 8) ? AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding)
+                : AudioFormat.Encoding.PCM_SIGNED.equals(encoding) && bits <= 32
+                || AudioFormat.Encoding.PCM_FLOAT.equals(encoding) && (bits == 32 || bits == 64);
+        int frameSize = channels * (bits / 8);
+        if (!readable || bits % 8 != 0
+                || (offered.getFrameSize() != AudioSystem.NOT_SPECIFIED && offered.getFrameSize() != frameSize)) {
+            return null;
+        }
+        return new AudioFormat(encoding, rate, bits, channels, frameSize, rate, bits > 8 && offered.isBigEndian());
+    }
+
+    // The smallest buffer of at least BUFFER_BLOCKS blocks both directions allow, or 0 if playback cannot take format.
+    private static int bufferBytes(AudioFormat format, DataLine.Info captureInfo, List<DataLine.Info> playback) {
+        int playbackMin = Integer.MAX_VALUE;
+        int playbackMax = 0;
+        for (DataLine.Info info : playback) {
+            if (info.isFormatSupported(format)) {
+                playbackMin = Math.min(playbackMin, Math.max(0, info.getMinBufferSize()));
+                playbackMax = Math.max(playbackMax, limit(info.getMaxBufferSize()));
+            }
+        }
+        if (playbackMin == Integer.MAX_VALUE) {
+            return 0;
+        }
+        int min = Math.max(Math.max(0, captureInfo.getMinBufferSize()), playbackMin);
+        int max = Math.min(limit(captureInfo.getMaxBufferSize()), playbackMax);
+        int frame = format.getFrameSize();
+        int bytes = Math.max(BUFFER_BLOCKS * AudioPipeline.blockBytes(format), min);
+        bytes = Math.min(bytes, Math.max(max, min));
+        bytes -= bytes % frame;
+        return (bytes < min) ? bytes + frame : bytes;
+    }
+
+    private static int limit(int maxBufferSize) {
+        return (maxBufferSize == AudioSystem.NOT_SPECIFIED) ? Integer.MAX_VALUE : maxBufferSize;
+    }
+
+    private static boolean isNativeOrder(AudioFormat format) {
+        return format.getSampleSizeInBits() == 8 || format.isBigEndian() == (ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN);
+    }
+
+    // --- Cache ---
+
+    /*
+     * Layout, big-endian:
+     *   magic "ECFN", version (short), entry count (short), then per entry, most recent last:
+     *   device key (UTF), encoding (UTF), sample rate (float), bits, channels (ints),
+     *   big-endian (boolean), buffer bytes (int).
+     */
+
+    // An unreadable or foreign cache is treated as empty; it is rewritten on the next probe.
+    private Map<String, NegotiatedFormat> readCache() {
+        Map<String, NegotiatedFormat> entries = new LinkedHashMap<>();
+        if (!Files.isRegularFile(this.cacheFile)) {
+            return entries;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(this.cacheFile)))) {
+            if (in.readInt() != CACHE_MAGIC || in.readShort() != CACHE_VERSION) {
+                return entries;
+            }
+            int count = in.readShort();
+            for (int i = 0; i < count; i++) {
+                String device = in.readUTF();
+                AudioFormat.Encoding encoding = encoding(in.readUTF());
+                float rate = in.readFloat();
+                int bits = in.readInt();
+                int channels = in.readInt();
+                boolean bigEndian = in.readBoolean();
+                int bufferBytes = in.readInt();
+                if (encoding != null) {
+                    AudioFormat format = new AudioFormat(encoding, rate, bits, channels, channels * (bits / 8), rate, bigEndian);
+                    entries.put(device, new NegotiatedFormat(format, bufferBytes, true));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("FormatNegotiator: Ignoring unreadable cache " + this.cacheFile + ": " + e.getMessage());
+            entries.clear();
+        }
+        return entries;
+    }
+
+    private static AudioFormat.Encoding encoding(String name) {
+        for (AudioFormat.Encoding encoding : new AudioFormat.Encoding[] {
+                AudioFormat.Encoding.PCM_SIGNED, AudioFormat.Encoding.PCM_UNSIGNED, AudioFormat.Encoding.PCM_FLOAT}) {
+            if (encoding.toString().equals(name)) {
+                return encoding;
+            }
+        }
+        return null;
+    }
+
+    // Failing to write the cache only costs the next start a probe.
+    private void writeCache(String device, NegotiatedFormat negotiated) {
+        Map<String, NegotiatedFormat> entries = readCache();
+        entries.remove(device);
+        entries.put(device, negotiated);
+        while (entries.size() > MAX_CACHE_ENTRIES) {
+            entries.remove(entries.keySet().iterator().next());
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(CACHE_MAGIC);
+            out.writeShort(CACHE_VERSION);
+            out.writeShort(entries.size());
+            for (Map.Entry<String, NegotiatedFormat> entry : entries.entrySet()) {
+                AudioFormat format = entry.getValue().getFormat();
+                out.writeUTF(entry.getKey());
+                out.writeUTF(format.getEncoding().toString());
+                out.writeFloat(format.getSampleRate());
+                out.writeInt(format.getSampleSizeInBits());
+                out.writeInt(format.getChannels());
+                out.writeBoolean(format.isBigEndian());
+                out.writeInt(entry.getValue().getBufferBytes());
+            }
+            out.flush();
+
+            Files.createDirectories(this.cacheFile.toAbsolutePath().getParent());
+            AtomicFiles.write(this.cacheFile.toAbsolutePath(), bytes.toByteArray());
+        } catch (IOException e) {
+            System.err.println("FormatNegotiator: Could not write cache " + this.cacheFile + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package AudioPipeline;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Random;
+
+import javax.sound.sampled.AudioFormat;
+
+import AudioProcessingRangler.AudioProcessingRangler;
+
+/**
+ * Drives a rack with synthetic blocks before any audio line opens, so the first blocks of real
+ * audio run compiled code.
+ *
+ * Until a method has run a few thousand times the JVM interprets it or runs a quick C1 build;
+ * only then does C2 compile it at full speed. Left to real audio, that happens during the first
+ * second or so of a session, and shows up as glitches. The warm-up runs the same decode,
+ * {@link AudioProcessingRangler#processData} and encode path as the pipeline, on the same rack
+ * instances, with noise blocks of the pipeline's format and size, so the filters' JNI calls and
+ * the rack's type profiles are warmed too. Afterwards the rack is {@link
+ * AudioProcessingRangler#reset() reset}, so no warm-up audio leaks into the session.
+ *
+ * It stops after a number of blocks, after a time, or, with {@link #untilQuiet}, as soon as the
+ * JIT compiler has had nothing to do for {@value #QUIET_MILLIS} ms, which is when the hot methods
+ * have reached their final tier. Filter timers and the rack's silence counters include the
+ * warm-up blocks; the pipeline's own statistics do not.
+ */
+public final class JitWarmup {
+
+    public static final int DEFAULT_MAX_BLOCKS = 50_000;
+    public static final Duration DEFAULT_MAX_TIME = Duration.ofSeconds(3);
+
+    // Long enough to span a queued C2 compile of a large method on a loaded machine.
+    static final long QUIET_MILLIS = 200;
+    private static final int QUIET_MIN_BLOCKS = 1000;
+    private static final int VARIANTS = 8;
+
+    private final int maxBlocks;
+    private final long maxNanos;
+    private final boolean untilQuiet;
+
+    private JitWarmup(int maxBlocks, Duration maxTime, boolean untilQuiet) {
+        if (maxBlocks <= 0 || maxTime == null || maxTime.isNegative() || maxTime.isZero()) {
+            throw new IllegalArgumentException("Warm-up needs a positive block count and duration.");
+        }
+        this.maxBlocks = maxBlocks;
+        this.maxNanos = maxTime.toNanos();
+        this.untilQuiet = untilQuiet;
+    }
+
+    /** Runs exactly {@code blocks} blocks. */
+    public static JitWarmup blocks(int blocks) {
+        return new JitWarmup(blocks, Duration.ofNanos(Long.MAX_VALUE), false);
+    }
+
+    /** Runs blocks for {@code time}. */
+    public static JitWarmup time(Duration time) {
+        return new JitWarmup(Integer.MAX_VALUE, time, false);
+    }
+
+    /**
+     * Runs until the JIT compiler goes quiet, but at most {@code maxBlocks} blocks or
+     * {@code maxTime}. Where the JVM cannot report compilation time, runs to the limits.
+     */
+    public static JitWarmup untilQuiet(int maxBlocks, Duration maxTime) {
+        return new JitWarmup(maxBlocks, maxTime, true);
+    }
+
+    /** {@link #untilQuiet} with {@link #DEFAULT_MAX_BLOCKS} and {@link #DEFAULT_MAX_TIME}. */
+    public static JitWarmup untilQuiet() {
+        return untilQuiet(DEFAULT_MAX_BLOCKS, DEFAULT_MAX_TIME);
+    }
+
+    /**
+     * Warms {@code rack} with blocks of {@code blockBytes} bytes in {@code format}, then resets
+     * it. The rack must not be processing audio at the same time.
+     *
+     * @throws UnsupportedOperationException if {@code format} is not one {@link PcmCodec} handles
+     */
+    public WarmupReport run(AudioProcessingRangler rack, AudioFormat format, int blockBytes) {
+        PcmCodec codec = new PcmCodec(format);
+        int frameBytes = format.getChannels() * codec.getBytesPerSample();
+        int length = Math.max(frameBytes, blockBytes - blockBytes % frameBytes);
+        byte[][] blocks = noise(codec, length);
+
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean watchJit = this.untilQuiet && jit != null && jit.isCompilationTimeMonitoringSupported();
+        long compileStart = watchJit ? jit.getTotalCompilationTime() : 0;
+        long lastCompile = compileStart;
+        long quietSince = System.nanoTime();
+
+        long start = System.nanoTime();
+        long firstNanos = 0;
+        long recentNanos = 0;
+        int count = 0;
+        WarmupReport.StopReason reason;
+        while (true) {
+            long blockStart = System.nanoTime();
+            byte[] pcm = blocks[count % VARIANTS];
+            double[] samples = AudioPipeline.toDoubleArray(codec, pcm, pcm.length);
+            samples = rack.processData(samples);
+            AudioPipeline.toByteArray(codec, samples, pcm.length);
+            long now = System.nanoTime();
+            long blockNanos = now - blockStart;
+            firstNanos = (count == 0) ? blockNanos : firstNanos;
+            recentNanos = (count == 0) ? blockNanos : recentNanos + (blockNanos - recentNanos) / 64;
+            count++;
+
+            if (count >= this.maxBlocks) {
+                reason = WarmupReport.StopReason.Blocks;
+                break;
+            }
+            if (now - start >= this.maxNanos) {
+                reason = WarmupReport.StopReason.Time;
+                break;
+            }
+            if (watchJit && (count & 63) == 0) {
+                long compile = jit.getTotalCompilationTime();
+                if (compile != lastCompile) {
+                    lastCompile = compile;
+                    quietSince = now;
+                } else if (count >= QUIET_MIN_BLOCKS && now - quietSince >= QUIET_MILLIS * 1_000_000L) {
+                    reason = WarmupReport.StopReason.Quiet;
+                    break;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        rack.reset();
+        long compileMillis = watchJit ? jit.getTotalCompilationTime() - compileStart : 0;
+        return new WarmupReport(count, elapsed, firstNanos, recentNanos, compileMillis, reason);
+    }
+
+    // A few blocks of noise at different levels, so limiters and dynamics take both branches.
+    private static byte[][] noise(PcmCodec codec, int length) {
+        Random random = new Random(0x5EED);
+        int samples = length / codec.getBytesPerSample();
+        double[] block = new double[samples];
+        byte[][] blocks = new byte[VARIANTS][];
+        for (int v = 0; v < VARIANTS; v++) {
+            double level = (v % 4 == 0) ? 0.95 : 0.1 * (v + 1);
+            for (int i = 0; i < samples; i++) {
+                block[i] = level * (random.nextDouble() * 2.0 - 1.0);
+            }
+            ByteBuffer bytes = ByteBuffer.allocate(length);
+            codec.encode(block, 0, samples, bytes);
+            blocks[v] = bytes.array();
+        }
+        return blocks;
+    }
+}
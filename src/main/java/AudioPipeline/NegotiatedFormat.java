@@ -0,0 +1,47 @@
+package AudioPipeline;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+
+/**
+ * The format and line buffer size a {@link FormatNegotiator} picked for the audio lines.
+ */
+public final class NegotiatedFormat {
+
+    private final AudioFormat format;
+    private final int bufferBytes;
+    private final boolean cached;
+
+    NegotiatedFormat(AudioFormat format, int bufferBytes, boolean cached) {
+        this.format = format;
+        this.bufferBytes = bufferBytes;
+        this.cached = cached;
+    }
+
+    public AudioFormat getFormat() { return this.format; }
+    /** Bytes to open both lines with, or {@link AudioSystem#NOT_SPECIFIED} for the lines' default. */
+    public int getBufferBytes() { return this.bufferBytes; }
+    /** True if this came from the cache rather than from probing the devices. */
+    public boolean isCached() { return this.cached; }
+
+    /** Latency of one line buffer, or NaN if the buffer size is left to the line. */
+    public double getLatencyMillis() {
+        if (this.bufferBytes == AudioSystem.NOT_SPECIFIED) {
+            return Double.NaN;
+        }
+        return 1000.0 * this.bufferBytes / (this.format.getFrameSize() * (double) this.format.getFrameRate());
+    }
+
+    /** PcmCodec's cost to decode and encode one sample of this format. */
+    public double getConversionNanos() {
+        return FormatNegotiator.conversionNanos(this.format);
+    }
+
+    @Override
+    public String toString() {
+        String buffer = (this.bufferBytes == AudioSystem.NOT_SPECIFIED) ? "default buffer"
+                : String.format("%d-byte buffer (%.1f ms)", this.bufferBytes, getLatencyMillis());
+        return String.format("%s, %s, %.1f ns/sample to convert%s", this.format, buffer, getConversionNanos(),
+                this.cached ? " (cached)" : "");
+    }
+}
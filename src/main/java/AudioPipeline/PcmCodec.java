@@ -0,0 +1,189 @@
+package AudioPipeline;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Converts between interleaved PCM bytes and normalised doubles in [-1, 1].
+ *
+ * Supports 8-bit unsigned, 16-, 24- and 32-bit signed integer, and 32- and 64-bit float samples in
+ * either byte order. Integers are scaled by their positive full scale (8-bit samples around their
+ * midpoint of 128), and encoding clamps to [-1, 1] first, so a decode/encode round trip returns
+ * the original bytes, with one exception per integer width: the most negative code (8-bit 0,
+ * 16-bit -32768, and so on) decodes just below -1 and comes back one step up. The codec is
+ * immutable and can be shared between threads; the buffers passed in cannot.
+ */
+public final class PcmCodec {
+
+    // --- Normalization Constants ---
+    private static final double NORM_8_BIT = 127.0;
+    private static final double NORM_16_BIT = 32767.0;
+    private static final double NORM_24_BIT = 8388607.0;
+    private static final double NORM_32_BIT_INT = 2147483647.0;
+
+    private enum Layout {
+        Unsigned8, Signed16, Signed24, Signed32, Float32, Float64
+    }
+
+    private final int bitDepth;
+    private final AudioFormat.Encoding encoding;
+    private final ByteOrder order;
+    private final Layout layout;
+
+    public PcmCodec(AudioFormat format) {
+        this(format.getSampleSizeInBits(), format.getEncoding(), format.isBigEndian());
+    }
+
+    /**
+     * @throws UnsupportedOperationException for bit depths and encodings this codec cannot read
+     */
+    public PcmCodec(int bitDepth, AudioFormat.Encoding encoding, boolean bigEndian) {
+        this.bitDepth = bitDepth;
+        this.encoding = encoding;
+        this.order = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        boolean floating = AudioFormat.Encoding.PCM_FLOAT.equals(encoding);
+        switch (bitDepth) {
+            case 8:
+                this.layout = Layout.Unsigned8;
+                break;
+            case 16:
+                this.layout = Layout.Signed16;
+                break;
+            case 24:
+                this.layout = Layout.Signed24;
+                break;
+            case 32:
+                this.layout = floating ? Layout.Float32 : Layout.Signed32;
+                break;
+            case 64:
+                if (!floating) {
+                    throw new UnsupportedOperationException("64-bit integer PCM is not supported.");
+                }
+                this.layout = Layout.Float64;
+                break;
+            default:
+                throw new UnsupportedOperationException("Unsupported bit depth: " + bitDepth);
+        }
+    }
+
+    public int getBitDepth() { return this.bitDepth; }
+    public AudioFormat.Encoding getEncoding() { return this.encoding; }
+    public boolean isBigEndian() { return this.order == ByteOrder.BIG_ENDIAN; }
+    public int getBytesPerSample() { return this.bitDepth / 8; }
+
+    /**
+     * Reads {@code count} samples from {@code source}'s position, advancing it, into
+     * {@code target[offset...]}. Sets {@code source}'s byte order to this codec's.
+     *
+     * @throws BufferUnderflowException if {@code source} holds fewer than {@code count} samples
+     */
+    public void decode(ByteBuffer source, double[] target, int offset, int count) {
+        int bytes = count * getBytesPerSample();
+        if (source.remaining() < bytes) {
+            throw new BufferUnderflowException();
+        }
+        source.order(this.order);
+        // Absolute reads let the JIT hoist the bounds checks out of the loops; relative ones
+        // update the position on every sample and run several times slower on direct buffers.
+        int p = source.position();
+        int end = offset + count;
+        switch (this.layout) {
+            case Unsigned8:
+                for (int i = offset; i < end; i++, p++) {
+                    target[i] = ((source.get(p) & 0xFF) - (NORM_8_BIT + 1)) / NORM_8_BIT;
+                }
+                break;
+            case Signed16:
+                for (int i = offset; i < end; i++, p += 2) {
+                    target[i] = source.getShort(p) / NORM_16_BIT;
+                }
+                break;
+            case Signed24:
+                boolean bigEndian = isBigEndian();
+                for (int i = offset; i < end; i++, p += 3) {
+                    int value = bigEndian
+                            ? (source.get(p) << 16) | ((source.get(p + 1) & 0xFF) << 8) | (source.get(p + 2) & 0xFF)
+                            : (source.get(p + 2) << 16) | ((source.get(p + 1) & 0xFF) << 8) | (source.get(p) & 0xFF);
+                    target[i] = value / NORM_24_BIT;
+                }
+                break;
+            case Signed32:
+                for (int i = offset; i < end; i++, p += 4) {
+                    target[i] = source.getInt(p) / NORM_32_BIT_INT;
+                }
+                break;
+            case Float32:
+                for (int i = offset; i < end; i++, p += 4) {
+                    target[i] = source.getFloat(p);
+                }
+                break;
+            case Float64:
+                for (int i = offset; i < end; i++, p += 8) {
+                    target[i] = source.getDouble(p);
+                }
+                break;
+        }
+        source.position(p);
+    }
+
+    /**
+     * Writes {@code count} samples from {@code source[offset...]}, clamped to [-1, 1], at
+     * {@code target}'s position, advancing it. Sets {@code target}'s byte order to this codec's.
+     *
+     * @throws BufferOverflowException if {@code target} has room for fewer than {@code count} samples
+     */
+    public void encode(double[] source, int offset, int count, ByteBuffer target) {
+        int bytes = count * getBytesPerSample();
+        if (target.remaining() < bytes) {
+            throw new BufferOverflowException();
+        }
+        target.order(this.order);
+        int p = target.position();
+        int end = offset + count;
+        switch (this.layout) {
+            case Unsigned8:
+                for (int i = offset; i < end; i++, p++) {
+                    target.put(p, (byte) ((clamp(source[i]) * NORM_8_BIT) + (NORM_8_BIT + 1)));
+                }
+                break;
+            case Signed16:
+                for (int i = offset; i < end; i++, p += 2) {
+                    target.putShort(p, (short) (clamp(source[i]) * NORM_16_BIT));
+                }
+                break;
+            case Signed24:
+                boolean bigEndian = isBigEndian();
+                for (int i = offset; i < end; i++, p += 3) {
+                    int value = (int) (clamp(source[i]) * NORM_24_BIT);
+                    target.put(p + (bigEndian ? 2 : 0), (byte) value);
+                    target.put(p + 1, (byte) (value >> 8));
+                    target.put(p + (bigEndian ? 0 : 2), (byte) (value >> 16));
+                }
+                break;
+            case Signed32:
+                for (int i = offset; i < end; i++, p += 4) {
+                    target.putInt(p, (int) (clamp(source[i]) * NORM_32_BIT_INT));
+                }
+                break;
+            case Float32:
+                for (int i = offset; i < end; i++, p += 4) {
+                    target.putFloat(p, (float) clamp(source[i]));
+                }
+                break;
+            case Float64:
+                for (int i = offset; i < end; i++, p += 8) {
+                    target.putDouble(p, clamp(source[i]));
+                }
+                break;
+        }
+        target.position(p);
+    }
+
+    private static double clamp(double sample) {
+        return Math.max(-1.0, Math.min(1.0, sample));
+    }
+}
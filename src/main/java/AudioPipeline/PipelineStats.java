@@ -0,0 +1,73 @@
+package AudioPipeline;
+
+/**
+ * Per-block timing of an {@link AudioPipeline}'s processing loop.
+ *
+ * Written only by the audio thread and read lock-free by anyone: each field is a volatile long,
+ * so individual values are always consistent, though a reader may see one block's update to some
+ * fields and not yet to others.
+ */
+public class PipelineStats {
+
+    private volatile long blocks;
+    private volatile long frames;
+    private volatile long lastProcessNanos;
+    private volatile long maxProcessNanos;
+    private volatile long totalProcessNanos;
+    private volatile long lastBudgetNanos;
+    private volatile long overruns;
+    private volatile long bypassedBlocks;
+    private volatile long bypassSavedNanos;
+
+    /** Blocks processed since the pipeline was created. */
+    public long getBlocks() { return this.blocks; }
+    public long getFrames() { return this.frames; }
+    public long getLastProcessNanos() { return this.lastProcessNanos; }
+    public long getMaxProcessNanos() { return this.maxProcessNanos; }
+    /** Real-time duration of the most recent block. */
+    public long getLastBudgetNanos() { return this.lastBudgetNanos; }
+    /** Blocks whose processing took longer than their real-time duration. */
+    public long getOverruns() { return this.overruns; }
+
+    /** Blocks in which skipping filters on silent input saved processing time. */
+    public long getBypassedBlocks() { return this.bypassedBlocks; }
+    /** Estimated processing time saved by skipping filters on silent input. */
+    public long getBypassSavedNanos() { return this.bypassSavedNanos; }
+
+    /** Share of the processing time silence bypass saved: saved / (spent + saved). */
+    public double getBypassSavedRatio() {
+        long saved = this.bypassSavedNanos;
+        long total = this.totalProcessNanos + saved;
+        return (total == 0) ? 0.0 : (double) saved / total;
+    }
+
+    public long getAverageProcessNanos() {
+        long count = this.blocks;
+        return (count == 0) ? 0 : this.totalProcessNanos / count;
+    }
+
+    /** Processing time of the most recent block as a fraction of its real-time duration. */
+    public double getLoad() {
+        long budget = this.lastBudgetNanos;
+        return (budget == 0) ? 0.0 : (double) this.lastProcessNanos / budget;
+    }
+
+    // Audio thread only.
+    void record(long processNanos, int blockFrames, long budgetNanos, long savedNanos) {
+        this.lastProcessNanos = processNanos;
+        this.lastBudgetNanos = budgetNanos;
+        this.totalProcessNanos = this.totalProcessNanos + processNanos;
+        this.frames = this.frames + blockFrames;
+        if (processNanos > this.maxProcessNanos) {
+            this.maxProcessNanos = processNanos;
+        }
+        if (processNanos > budgetNanos) {
+            this.overruns = this.overruns + 1;
+        }
+        if (savedNanos > 0) {
+            this.bypassedBlocks = this.bypassedBlocks + 1;
+            this.bypassSavedNanos = this.bypassSavedNanos + savedNanos;
+        }
+        this.blocks = this.blocks + 1;
+    }
+}
@@ -0,0 +1,47 @@
+package AudioPipeline;
+
+/**
+ * What a {@link JitWarmup} did: how long it ran, why it stopped, and how much faster the last
+ * blocks were than the first.
+ */
+public final class WarmupReport {
+
+    public enum StopReason {
+        Blocks,
+        Time,
+        Quiet
+    }
+
+    private final int blocks;
+    private final long nanos;
+    private final long firstBlockNanos;
+    private final long lastBlockNanos;
+    private final long compileMillis;
+    private final StopReason stopReason;
+
+    WarmupReport(int blocks, long nanos, long firstBlockNanos, long lastBlockNanos, long compileMillis, StopReason stopReason) {
+        this.blocks = blocks;
+        this.nanos = nanos;
+        this.firstBlockNanos = firstBlockNanos;
+        this.lastBlockNanos = lastBlockNanos;
+        this.compileMillis = compileMillis;
+        this.stopReason = stopReason;
+    }
+
+    public int getBlocks() { return this.blocks; }
+    public long getNanos() { return this.nanos; }
+    /** Time the first warm-up block took, typically interpreted. */
+    public long getFirstBlockNanos() { return this.firstBlockNanos; }
+    /** Smoothed time of the last warm-up blocks, what the session should start at. */
+    public long getLastBlockNanos() { return this.lastBlockNanos; }
+    /** JIT compilation time during the warm-up, if it watched the compiler; otherwise 0. */
+    public long getCompileMillis() { return this.compileMillis; }
+    public StopReason getStopReason() { return this.stopReason; }
+
+    @Override
+    public String toString() {
+        return String.format("Warm-up: %d blocks in %.1f ms (stopped by %s), %.1f us -> %.1f us per block, %d ms compiling",
+                this.blocks, this.nanos / 1e6, this.stopReason, this.firstBlockNanos / 1e3, this.lastBlockNanos / 1e3,
+                this.compileMillis);
+    }
+}
@@ -1,19 +1,127 @@
 package AudioProcessingRangler;
 
-import NativeFilter.*;
+import MetricsRegistry.MetricsRegistry;
+import MetricsRegistry.Timer;
 import StandardFilter.StandardFilter;
-import uk.me.berndporr.iirj.Cascade;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Ordered rack of filters applied to each block.
+ *
+ * The rack is copy-on-write: the audio thread iterates an immutable snapshot without taking
+ * a lock, while control threads add, remove and replace filters concurrently. A mutation takes
+ * effect from the next block.
+ *
+ * Each filter's processing time is recorded in {@code earcanvas_filter_process_seconds},
+ * labelled by filter class, and slow filters emit an {@code earcanvas.FilterProcess} Flight
+ * Recorder event.
+ *
+ * {@link #swapRack} replaces the whole rack at once: the new filters are built beforehand by the
+ * caller, and the audio thread switches to them at the start of its next block, optionally
+ * crossfading from the old rack, with no lock and no partly built rack ever processed.
+ *
+ * Once {@link #setChannels} gives the block layout, silent input is bypassed: each block is
+ * checked against the silence threshold, and a filter is skipped once its input has been silent
+ * for longer than its {@link RackFilterInterface#getTailFrames() tail}. By then its output is
+ * silent and its state settled, so it resumes cleanly on the first block with signal. The time
+ * skipped filters would have taken, estimated from the smoothed recent block time of their rack
+ * position, is recorded in {@code earcanvas_filter_bypass_saved_seconds} and
+ * {@link #getBypassSavedNanos()}.
+ */
 public class AudioProcessingRangler implements ProcessRanglerInterface {
 
-    protected ArrayList<Object> filterRack;
+    // One timer per filter class, resolved once per class rather than per block.
+    private static final ClassValue<Timer> FILTER_TIMERS = new ClassValue<>() {
+        @Override
+        protected Timer computeValue(Class<?> type) {
+            return MetricsRegistry.getDefault().timer("earcanvas_filter_process_seconds",
+                    "Time spent in each rack filter.", "filter", type.getSimpleName());
+        }
+    };
+
+    private static final ClassValue<Timer> BYPASS_TIMERS = new ClassValue<>() {
+        @Override
+        protected Timer computeValue(Class<?> type) {
+            return MetricsRegistry.getDefault().timer("earcanvas_filter_bypass_saved_seconds",
+                    "Estimated processing time saved by skipping each rack filter on silent input.", "filter", type.getSimpleName());
+        }
+    };
+
+    // -120 dBFS sits below 24-bit dither, so digitally silent streams count as silent.
+    public static final double DEFAULT_SILENCE_THRESHOLD_DBFS = -120.0;
+
+    /**
+     * A pending or running whole-rack replacement, see {@link AudioProcessingRangler#swapRack}.
+     */
+    public static final class RackSwap {
+        private final CopyOnWriteArrayList<Object> incoming;
+        private final int crossfadeFrames;
+        private final int channels;
+        private final CompletableFuture<Void> applied = new CompletableFuture<>();
+        private final CompletableFuture<List<Object>> retired = new CompletableFuture<>();
+        private final long[] incomingNanos;
+
+        // Audio thread only.
+        private CopyOnWriteArrayList<Object> outgoing;
+        private long[] outgoingNanos;
+        private double[] scratch;
+        private int framesDone;
+
+        private RackSwap(List<Object> filters, int crossfadeFrames, int channels) {
+            this.incoming = new CopyOnWriteArrayList<>(filters);
+            this.incomingNanos = new long[filters.size()];
+            this.crossfadeFrames = crossfadeFrames;
+            this.channels = channels;
+        }
+
+        /**
+         * Completes once the new rack is processing blocks, or fails with a
+         * {@link CancellationException} if a later swap replaced this one before it was applied.
+         */
+        public CompletableFuture<Void> applied() { return this.applied; }
+
+        /**
+         * Completes with the filters taken out of service once no block uses them any more: the
+         * old rack after the crossfade, or this swap's own filters if a later swap replaced it
+         * before it was applied. Completed on the audio thread; attach only async stages.
+         */
+        public CompletableFuture<List<Object>> retired() { return this.retired; }
+
+        // Replaced before it was applied: its own filters never played.
+        private void supersede() {
+            this.applied.completeExceptionally(new CancellationException("Superseded by a later rack swap."));
+            this.retired.complete(List.copyOf(this.incoming));
+        }
+    }
+
+    protected volatile CopyOnWriteArrayList<Object> filterRack;
+    private final AtomicReference<RackSwap> pendingSwap = new AtomicReference<>();
+    private RackSwap activeSwap; // Audio thread only.
+
+    // --- Silence bypass ---
+    private volatile int channels;
+    private volatile boolean silenceBypass = true;
+    private volatile double silenceThresholdDbfs = DEFAULT_SILENCE_THRESHOLD_DBFS;
+    private volatile double silenceThreshold = Math.pow(10.0, DEFAULT_SILENCE_THRESHOLD_DBFS / 20.0);
+    private long silentFrames; // Audio thread only: silent frames before the current block.
+    private long[] positionNanos = new long[0]; // Audio thread only: smoothed block time per rack position.
+
+    // Written by the audio thread only, read lock-free by anyone.
+    private volatile long silentBlocks;
+    private volatile long bypassedFilterBlocks;
+    private volatile long bypassSavedNanos;
 
     public AudioProcessingRangler() {
-        this.filterRack = new ArrayList<>();
+        this.filterRack = new CopyOnWriteArrayList<>();
     }
 
     public void addFilter(Object filter, int rackPosition) {
+        adoptChannels(List.of(filter), this.channels);
         filterRack.add(rackPosition, filter);
     }
 
@@ -38,20 +146,283 @@ public class AudioProcessingRangler implements ProcessRanglerInterface {
         return filterRack.get(filterPosition);
     }
 
+    /**
+     * Swaps the filter at {@code filterPosition} for {@code filter} in one step, so no block
+     * is processed with the position empty.
+     *
+     * @return the filter that was replaced
+     */
+    public Object replaceFilter(int filterPosition, Object filter) throws EmptyFilterRackException, IndexOutOfBoundsException {
+        if (filterRack.isEmpty()) {
+            throw new EmptyFilterRackException("Filter position specified does not exist in the rack.");
+        }
+        if (filterPosition < 0 || filterPosition >= filterRack.size()) {
+            throw new IndexOutOfBoundsException("Filter position specified does not exist in the rack.");
+        }
+        adoptChannels(List.of(filter), this.channels);
+        return filterRack.set(filterPosition, filter);
+    }
+
+    /**
+     * Replaces every filter in the rack with {@code filters}, in order, from the next block.
+     *
+     * With {@code crossfadeFrames > 0} both racks run for that many frames and the output fades
+     * linearly from the old to the new one; {@code channels} is the interleaved channel count of
+     * the blocks, and the new filters must not be instances from the old rack, since both run
+     * during the fade. Filters added, removed or replaced on the old rack after this call are
+     * dropped with it. If the rack is not being processed, call {@link #applyIdle} to apply the swap from
+     * the calling thread instead.
+     */
+    public RackSwap swapRack(List<Object> filters, int crossfadeFrames, int channels) {
+        if (filters == null) {
+            throw new IllegalArgumentException("Filters must not be null.");
+        }
+        if (crossfadeFrames < 0 || (crossfadeFrames > 0 && channels <= 0)) {
+            throw new IllegalArgumentException("Crossfade needs a non-negative length and a positive channel count.");
+        }
+        adoptChannels(filters, (channels > 0) ? channels : this.channels);
+        RackSwap swap = new RackSwap(filters, crossfadeFrames, channels);
+        RackSwap superseded = this.pendingSwap.getAndSet(swap);
+        if (superseded != null) {
+            superseded.supersede();
+        }
+        return swap;
+    }
+
+    /**
+     * Applies {@code swap} immediately, without a crossfade, if the audio thread has not picked it
+     * up yet. For racks that are not currently being processed.
+     *
+     * @return false if the swap was already applied or superseded
+     */
+    public boolean applyIdle(RackSwap swap) {
+        if (!this.pendingSwap.compareAndSet(swap, null)) {
+            return false;
+        }
+        CopyOnWriteArrayList<Object> outgoing = this.filterRack;
+        this.filterRack = swap.incoming;
+        swap.applied.complete(null);
+        swap.retired.complete(List.copyOf(outgoing));
+        return true;
+    }
+
+    /**
+     * Interleaved channel count of the blocks passed to {@link #processData}. Silence bypass
+     * needs it to count frames; 0, the default, leaves every filter running on every block.
+     * Every {@link StandardFilter} in the rack, and added to it later, is set to this count, so
+     * each channel keeps its own filter history.
+     */
+    public void setChannels(int channels) {
+        if (channels < 0) {
+            throw new IllegalArgumentException("Channel count must not be negative.");
+        }
+        this.channels = channels;
+        adoptChannels(this.filterRack, channels);
+        RackSwap pending = this.pendingSwap.get();
+        if (pending != null) {
+            adoptChannels(pending.incoming, channels);
+        }
+    }
+
+    public void setSilenceBypass(boolean enabled) { this.silenceBypass = enabled; }
+
+    /** Blocks whose samples all lie at or below {@code dbfs} are treated as silent. */
+    public void setSilenceThreshold(double dbfs) {
+        if (Double.isNaN(dbfs) || dbfs > 0.0) {
+            throw new IllegalArgumentException("Silence threshold must be at most 0 dBFS, got " + dbfs);
+        }
+        this.silenceThresholdDbfs = dbfs;
+        this.silenceThreshold = Math.pow(10.0, dbfs / 20.0);
+    }
+
+    /**
+     * Clears every filter's history and the rack's silence tracking, and completes any crossfade
+     * in progress, so the next block is processed as if it were the first. Counters and metrics
+     * are kept. Call it from the audio thread, or while the rack is not being processed.
+     */
+    public void reset() {
+        if (this.activeSwap != null) {
+            finishSwap(this.activeSwap);
+        }
+        for (Object filter : this.filterRack) {
+            if (filter instanceof RackFilterInterface) {
+                ((RackFilterInterface) filter).reset();
+            }
+        }
+        this.silentFrames = 0;
+    }
+
+    public int getChannels() { return this.channels; }
+    public boolean isSilenceBypass() { return this.silenceBypass; }
+    public double getSilenceThreshold() { return this.silenceThresholdDbfs; }
+    /** Silent input blocks seen while bypass was active. */
+    public long getSilentBlocks() { return this.silentBlocks; }
+    /** Times a filter was skipped for one block. */
+    public long getBypassedFilterBlocks() { return this.bypassedFilterBlocks; }
+    /** Estimated processing time the skipped filters would have taken. */
+    public long getBypassSavedNanos() { return this.bypassSavedNanos; }
+
     public double[] processData(double[] buffer) {
-        for (Object filter : filterRack) {
-            if (filter instanceof StandardFilter) {
-                Cascade settings = ((StandardFilter)filter).getSettings();
-                for (int i = 0; i < buffer.length; i++) {
-                    buffer[i] = settings.filter(buffer[i]);
+        long settled = silence(buffer);
+        RackSwap swap = this.pendingSwap.getAndSet(null);
+        if (swap != null) {
+            beginSwap(swap);
+        }
+        RackSwap fading = this.activeSwap;
+        if (fading == null) {
+            return processRack(this.filterRack, buffer, settled);
+        }
+        if (fading.incoming != this.filterRack) {
+            // Replaced by applyIdle while the crossfade was paused; the old rack is no longer needed.
+            finishSwap(fading);
+            return processRack(this.filterRack, buffer, settled);
+        }
+        return crossfade(fading, buffer, settled);
+    }
+
+    /*
+     * Frames of silence the rack's input had seen before this block, if this block is silent too;
+     * -1 if it is not, or bypass is off.
+     */
+    private long silence(double[] buffer) {
+        int channels = this.channels;
+        if (channels <= 0 || !this.silenceBypass) {
+            this.silentFrames = 0;
+            return -1;
+        }
+        double threshold = this.silenceThreshold;
+        for (double sample : buffer) {
+            if (!(Math.abs(sample) <= threshold)) {
+                this.silentFrames = 0;
+                return -1;
+            }
+        }
+        long settled = this.silentFrames;
+        this.silentFrames = FilterTails.add(settled, buffer.length / channels);
+        this.silentBlocks = this.silentBlocks + 1;
+        return settled;
+    }
+
+    private void beginSwap(RackSwap swap) {
+        if (this.activeSwap != null) {
+            finishSwap(this.activeSwap);
+        }
+        swap.outgoing = this.filterRack;
+        swap.outgoingNanos = this.positionNanos;
+        this.filterRack = swap.incoming;
+        // Each rack keeps its own block times, so a crossfade never mixes the two racks' filters.
+        this.positionNanos = swap.incomingNanos;
+        swap.applied.complete(null);
+        if (swap.crossfadeFrames > 0) {
+            this.activeSwap = swap;
+        } else {
+            swap.retired.complete(List.copyOf(swap.outgoing));
+        }
+    }
+
+    private void finishSwap(RackSwap swap) {
+        this.activeSwap = null;
+        swap.retired.complete(List.copyOf(swap.outgoing));
+        swap.outgoing = null;
+        swap.outgoingNanos = null;
+        swap.scratch = null;
+    }
+
+    // Runs both racks on the block and blends them with a linear ramp across the crossfade.
+    private double[] crossfade(RackSwap swap, double[] buffer, long settled) {
+        if (swap.scratch == null || swap.scratch.length != buffer.length) {
+            swap.scratch = new double[buffer.length];
+        }
+        System.arraycopy(buffer, 0, swap.scratch, 0, buffer.length);
+        swap.outgoingNanos = fitTimings(swap.outgoingNanos, swap.outgoing.size());
+        double[] previous = processRack(swap.outgoing, swap.outgoingNanos, swap.scratch, settled);
+        double[] next = processRack(swap.incoming, buffer, settled);
+
+        int channels = swap.channels;
+        int frames = Math.min(next.length, previous.length) / channels;
+        for (int frame = 0; frame < frames; frame++) {
+            double gain = Math.min(1.0, (double) (swap.framesDone + frame + 1) / swap.crossfadeFrames);
+            for (int ch = 0, i = frame * channels; ch < channels; ch++, i++) {
+                next[i] = previous[i] + gain * (next[i] - previous[i]);
+            }
+        }
+        swap.framesDone += frames;
+        if (swap.framesDone >= swap.crossfadeFrames) {
+            finishSwap(swap);
+        }
+        return next;
+    }
+
+    /*
+     * settled: frames of silence before this block at the rack's input, or -1. Each filter delays
+     * the silence at its output by its tail, so the skipped filters are always a prefix of the rack.
+     */
+    private double[] processRack(List<Object> rack, double[] buffer, long settled) {
+        this.positionNanos = fitTimings(this.positionNanos, rack.size());
+        return processRack(rack, this.positionNanos, buffer, settled);
+    }
+
+    // nanos: the rack's own smoothed block time per position, at least as long as the rack.
+    private double[] processRack(List<Object> rack, long[] nanos, double[] buffer, long settled) {
+        int position = 0;
+        for (Object filter : rack) {
+            if (settled >= 0 && filter instanceof RackFilterInterface) {
+                long tail = ((RackFilterInterface) filter).getTailFrames();
+                if (settled >= tail) {
+                    settled -= tail;
+                    bypass(filter, nanos[position]);
+                    position++;
+                    continue;
                 }
-            } else if (filter instanceof NativeFilterInterface) {
-            	buffer = ((GraphicEqualizer)filter).process(buffer);
+                settled = -1;
+            }
+            FilterProcessEvent event = new FilterProcessEvent();
+            event.begin();
+            long filterStart = System.nanoTime();
+            if (filter instanceof RackFilterInterface) {
+                buffer = ((RackFilterInterface)filter).process(buffer);
+            }
+            long filterNanos = System.nanoTime() - filterStart;
+            FILTER_TIMERS.get(filter.getClass()).record(filterNanos);
+            long smoothed = nanos[position];
+            nanos[position] = (smoothed == 0) ? filterNanos : smoothed + (filterNanos - smoothed) / 8;
+            event.end();
+            if (event.shouldCommit()) {
+                event.filter = filter.getClass().getSimpleName();
+                event.position = position;
+                event.samples = buffer.length;
+                event.commit();
             }
+            position++;
         }
         return buffer;
     }
 
+    // A StandardFilter built without a channel count filters mono; given interleaved stereo, it
+    // would run left and right through one history.
+    private static void adoptChannels(List<Object> filters, int channels) {
+        if (channels <= 0) {
+            return;
+        }
+        for (Object filter : filters) {
+            if (filter instanceof StandardFilter) {
+                ((StandardFilter) filter).setChannels(channels);
+            }
+        }
+    }
+
+    private static long[] fitTimings(long[] nanos, int size) {
+        return (nanos.length < size) ? Arrays.copyOf(nanos, size) : nanos;
+    }
+
+    private void bypass(Object filter, long saved) {
+        BYPASS_TIMERS.get(filter.getClass()).record(saved);
+        this.bypassedFilterBlocks = this.bypassedFilterBlocks + 1;
+        this.bypassSavedNanos = this.bypassSavedNanos + saved;
+    }
+
+    /** Consistent snapshot of the rack in processing order. */
+    public List<Object> getFilters() { return List.copyOf(filterRack); }
     public boolean isEmpty() { return filterRack.isEmpty(); }
     public int size() { return filterRack.size(); }
     public boolean isFull() { return false; }
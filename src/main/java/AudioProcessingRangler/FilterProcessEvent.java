@@ -0,0 +1,29 @@
+package AudioProcessingRangler;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for one filter processing one block.
+ */
+@Name("earcanvas.FilterProcess")
+@Label("Filter Process")
+@Category({"EarCanvas", "Rack"})
+@Description("One rack filter processing one block")
+@Threshold("2 ms")
+@StackTrace(false)
+class FilterProcessEvent extends jdk.jfr.Event {
+
+    @Label("Filter")
+    String filter;
+
+    @Label("Rack Position")
+    int position;
+
+    @Label("Samples")
+    int samples;
+}
@@ -0,0 +1,65 @@
+package AudioProcessingRangler;
+
+/**
+ * Tail lengths for {@link RackFilterInterface#getTailFrames()}.
+ *
+ * A tail ends once whatever the filter remembers has decayed by {@value #SETTLED_DB} dB, below
+ * which skipping the filter, and later resuming it from the state it was left in, cannot be heard.
+ */
+public final class FilterTails {
+
+    public static final double SETTLED_DB = 120.0;
+
+    // The settling attenuation as a number of time constants: ln(10^(SETTLED_DB / 20)).
+    private static final double SETTLED_TIME_CONSTANTS = SETTLED_DB / 20.0 * Math.log(10.0);
+
+    private static final int COEFFICIENTS_PER_SECTION = 5;
+
+    private FilterTails() {
+    }
+
+    /**
+     * Tail of a cascade of second-order sections, {b0, b1, b2, a1, a2} each, normalised by a0.
+     * Each section rings for as long as its slowest pole takes to decay, and feeds the next, so
+     * the section tails add up. An unstable or marginally stable section has no bounded tail.
+     */
+    public static long ofSections(double[] coefficients, int sections) {
+        long frames = 0;
+        for (int section = 0; section < sections; section++) {
+            int c = section * COEFFICIENTS_PER_SECTION;
+            double radius = poleRadius(coefficients[c + 3], coefficients[c + 4]);
+            if (!(radius < 1.0)) {
+                return RackFilterInterface.UNBOUNDED_TAIL;
+            }
+            // Two frames of feed-forward memory, then the decay of the recursion.
+            double decay = (radius == 0.0) ? 0.0 : Math.ceil(SETTLED_TIME_CONSTANTS / -Math.log(radius));
+            frames = add(frames, add(2, (decay >= RackFilterInterface.UNBOUNDED_TAIL) ? RackFilterInterface.UNBOUNDED_TAIL : (long) decay));
+        }
+        return frames;
+    }
+
+    /**
+     * Tail of a one-pole smoother (an envelope follower's release, say) whose time constant is
+     * {@code millis}.
+     */
+    public static long ofTimeConstant(double millis, double sampleRate) {
+        return (long) Math.ceil(SETTLED_TIME_CONSTANTS * Math.max(0.0, millis) * sampleRate / 1000.0);
+    }
+
+    /** Saturating sum of two tails. */
+    public static long add(long tail, long other) {
+        long sum = tail + other;
+        return (sum < 0 || tail == RackFilterInterface.UNBOUNDED_TAIL || other == RackFilterInterface.UNBOUNDED_TAIL)
+                ? RackFilterInterface.UNBOUNDED_TAIL : sum;
+    }
+
+    // Largest magnitude among the roots of z^2 + a1 z + a2.
+    static double poleRadius(double a1, double a2) {
+        double discriminant = a1 * a1 - 4.0 * a2;
+        if (discriminant < 0.0) {
+            return Math.sqrt(a2);
+        }
+        double root = Math.sqrt(discriminant);
+        return Math.max(Math.abs(-a1 + root), Math.abs(-a1 - root)) / 2.0;
+    }
+}
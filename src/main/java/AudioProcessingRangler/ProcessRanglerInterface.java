@@ -5,6 +5,7 @@ public interface ProcessRanglerInterface {
     void addFilter(Object filter, int rackPosition);
     boolean removeFilter(int filterPosition) throws EmptyFilterRackException, IndexOutOfBoundsException;
     Object getFilter(int filterPosition) throws EmptyFilterRackException, IndexOutOfBoundsException;
+    Object replaceFilter(int filterPosition, Object filter) throws EmptyFilterRackException, IndexOutOfBoundsException;
 
     boolean isFull();
     boolean isEmpty();
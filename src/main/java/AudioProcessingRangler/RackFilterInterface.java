@@ -0,0 +1,25 @@
+package AudioProcessingRangler;
+
+/**
+ * A filter that can sit in the rack and process a whole interleaved block at once.
+ */
+public interface RackFilterInterface {
+
+    /** Tail of a filter that cannot bound it; such a filter is never bypassed. */
+    long UNBOUNDED_TAIL = Long.MAX_VALUE;
+
+    double[] process(double[] inputBuffer);
+
+    /**
+     * Frames of silent input after which this filter's output is silent and its state has settled
+     * (see {@link FilterTails}), so the rack may skip it on further silent blocks and resume it
+     * later without an audible difference.
+     */
+    default long getTailFrames() { return UNBOUNDED_TAIL; }
+
+    /**
+     * Clears the filter's history, as if it had never processed a block. Filters without state
+     * need not override it.
+     */
+    default void reset() { }
+}
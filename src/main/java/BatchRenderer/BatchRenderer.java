@@ -0,0 +1,169 @@
+package BatchRenderer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import AudioProcessingRangler.AudioProcessingRangler;
+import MetricsRegistry.Counter;
+import MetricsRegistry.MetricsRegistry;
+import Preset.InvalidPresetException;
+import Preset.Preset;
+import WavFile.WavReader;
+import WavFile.WavWriter;
+
+/**
+ * Renders a preset over every WAV file in a directory tree, as fast as the CPU allows.
+ *
+ * Files are spread over a fork-join pool. Each file gets a rack freshly built from the preset, so
+ * filter state never leaks from one file into the next and the output is bit-identical whatever
+ * the parallelism or scheduling order. Designs come from the shared design cache, so building a
+ * rack per file costs little next to rendering it.
+ *
+ * Files are streamed one block at a time through a {@link WavReader} and {@link WavWriter}, which
+ * work off-heap, so a worker holds one block of samples no matter how long the file is. The
+ * block is the preset's buffer size, or {@link #DEFAULT_BLOCK_FRAMES} frames if no filter fixes
+ * one; the last block is zero-padded, and only the file's own samples are written back. Outputs keep the input's sample format, mirror the input tree under the
+ * output root, and only appear once complete.
+ *
+ * A file that cannot be rendered (unreadable, an unsupported sample format, or a channel count or
+ * sample rate the preset was not built for) is reported and skipped; the rest of the batch goes on.
+ */
+public final class BatchRenderer {
+
+    public static final int DEFAULT_BLOCK_FRAMES = 4096;
+
+    private static final Counter RENDERED = MetricsRegistry.getDefault().counter("earcanvas_batch_files_total",
+            "Files processed by batch renders, by result.", "result", "rendered");
+    private static final Counter FAILED = MetricsRegistry.getDefault().counter("earcanvas_batch_files_total",
+            "Files processed by batch renders, by result.", "result", "failed");
+
+    private final Preset preset;
+    private final int parallelism;
+    private final int channels;
+    private final double sampleRate;
+    private final int blockFrames;
+
+    public BatchRenderer(Preset preset) throws InvalidPresetException {
+        this(preset, Runtime.getRuntime().availableProcessors(), DEFAULT_BLOCK_FRAMES);
+    }
+
+    /**
+     * @param blockFrames frames per block when no filter in the preset fixes a buffer size
+     * @throws InvalidPresetException if the preset's filters disagree on channels, buffer size or
+     *         sample rate, or cannot be built
+     */
+    public BatchRenderer(Preset preset, int parallelism, int blockFrames) throws InvalidPresetException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive.");
+        }
+        if (blockFrames <= 0) {
+            throw new IllegalArgumentException("Block size must be positive.");
+        }
+        int channels = preset.getChannels();
+        int bufferSize = preset.getBufferSize();
+        double sampleRate = preset.getSampleRate();
+        // Fail here rather than once per file.
+        preset.toFilters();
+
+        this.preset = preset;
+        this.parallelism = parallelism;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.blockFrames = (bufferSize > 0) ? bufferSize / Math.max(channels, 1) : blockFrames;
+    }
+
+    public Preset getPreset() { return this.preset; }
+    public int getParallelism() { return this.parallelism; }
+    public int getBlockFrames() { return this.blockFrames; }
+
+    /**
+     * Renders every {@code .wav} file under {@code inputRoot} into the same relative path under
+     * {@code outputRoot}, overwriting existing outputs. Files already under {@code outputRoot} are
+     * not inputs, so the output may live inside the input tree.
+     */
+    public BatchReport render(Path inputRoot, Path outputRoot) throws IOException {
+        Path in = inputRoot.toAbsolutePath().normalize();
+        Path out = outputRoot.toAbsolutePath().normalize();
+        List<Path> inputs;
+        try (Stream<Path> walk = Files.walk(in)) {
+            inputs = walk.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().toLowerCase().endsWith(".wav"))
+                    .filter(path -> !path.startsWith(out))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+        try {
+            List<ForkJoinTask<FileReport>> tasks = new ArrayList<>(inputs.size());
+            for (Path input : inputs) {
+                Path output = out.resolve(in.relativize(input));
+                tasks.add(pool.submit(() -> renderFile(input, output)));
+            }
+            List<FileReport> reports = new ArrayList<>(tasks.size());
+            for (ForkJoinTask<FileReport> task : tasks) {
+                reports.add(task.join());
+            }
+            return new BatchReport(reports, System.nanoTime() - start, this.parallelism);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Renders one file through a fresh rack. Never throws: failures are returned in the report.
+     */
+    public FileReport renderFile(Path input, Path output) {
+        long start = System.nanoTime();
+        long frames = 0;
+        double rate = 0.0;
+        int fileChannels = 0;
+        String error = null;
+        try (WavReader wav = WavReader.open(input)) {
+            rate = wav.getSampleRate();
+            fileChannels = wav.getChannels();
+            frames = render(wav, output);
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            error = e.getMessage();
+        } catch (IOException | InvalidPresetException e) {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        (error == null ? RENDERED : FAILED).increment();
+        return new FileReport(input, output, frames, rate, fileChannels, System.nanoTime() - start, error);
+    }
+
+    private long render(WavReader wav, Path output) throws IOException, InvalidPresetException {
+        int fileChannels = wav.getChannels();
+        if (this.channels > 0 && fileChannels != this.channels) {
+            throw new IllegalArgumentException("File has " + fileChannels + " channels; the preset expects " + this.channels + ".");
+        }
+        if (this.sampleRate > 0 && wav.getSampleRate() != this.sampleRate) {
+            throw new IllegalArgumentException("File is sampled at " + wav.getSampleRate() + " Hz; the preset expects " + this.sampleRate + " Hz.");
+        }
+
+        int blockSamples = this.blockFrames * fileChannels;
+        double[] samples = new double[blockSamples];
+
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        AudioProcessingRangler rack = this.preset.toRack();
+        rack.setChannels(fileChannels);
+        try (WavWriter out = WavWriter.create(output, wav.getFormat())) {
+            int read;
+            while ((read = wav.read(samples, 0, this.blockFrames)) > 0) {
+                Arrays.fill(samples, read * fileChannels, blockSamples, 0.0);
+                out.write(rack.processData(samples), 0, read);
+            }
+            out.commit();
+            return out.getFrames();
+        }
+    }
+}
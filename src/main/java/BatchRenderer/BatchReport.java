@@ -0,0 +1,46 @@
+package BatchRenderer;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch: one {@link FileReport} per input, in path order, and the batch throughput.
+ */
+public final class BatchReport {
+
+    private final List<FileReport> files;
+    private final long wallNanos;
+    private final int parallelism;
+
+    BatchReport(List<FileReport> files, long wallNanos, int parallelism) {
+        this.files = List.copyOf(files);
+        this.wallNanos = wallNanos;
+        this.parallelism = parallelism;
+    }
+
+    public List<FileReport> getFiles() { return this.files; }
+    public long getWallNanos() { return this.wallNanos; }
+    public int getParallelism() { return this.parallelism; }
+
+    public int getRendered() {
+        return (int) this.files.stream().filter(FileReport::isRendered).count();
+    }
+
+    public int getFailed() {
+        return this.files.size() - getRendered();
+    }
+
+    public double getAudioSeconds() {
+        return this.files.stream().filter(FileReport::isRendered).mapToDouble(FileReport::getAudioSeconds).sum();
+    }
+
+    /** Seconds of audio rendered per second of wall time, across all workers. */
+    public double getRealTimeFactor() {
+        return (this.wallNanos > 0) ? getAudioSeconds() / (this.wallNanos / 1e9) : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rendered, %d failed: %.1f s of audio in %.1f ms on %d workers (%.0fx real time)",
+                getRendered(), getFailed(), getAudioSeconds(), this.wallNanos / 1e6, this.parallelism, getRealTimeFactor());
+    }
+}
@@ -0,0 +1,53 @@
+package BatchRenderer;
+
+import java.nio.file.Path;
+
+/**
+ * Outcome of rendering one file: how much audio it held and how long it took, or why it failed.
+ */
+public final class FileReport {
+
+    private final Path input;
+    private final Path output;
+    private final long frames;
+    private final double sampleRate;
+    private final int channels;
+    private final long nanos;
+    private final String error;
+
+    FileReport(Path input, Path output, long frames, double sampleRate, int channels, long nanos, String error) {
+        this.input = input;
+        this.output = output;
+        this.frames = frames;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.nanos = nanos;
+        this.error = error;
+    }
+
+    public Path getInput() { return this.input; }
+    public Path getOutput() { return this.output; }
+    public long getFrames() { return this.frames; }
+    public double getSampleRate() { return this.sampleRate; }
+    public int getChannels() { return this.channels; }
+    public long getNanos() { return this.nanos; }
+    /** Why the file was not rendered, or null if it was. */
+    public String getError() { return this.error; }
+    public boolean isRendered() { return this.error == null; }
+
+    public double getAudioSeconds() {
+        return (this.sampleRate > 0) ? this.frames / this.sampleRate : 0.0;
+    }
+
+    /** Seconds of audio rendered per second of wall time on the worker. */
+    public double getRealTimeFactor() {
+        return (this.nanos > 0) ? getAudioSeconds() / (this.nanos / 1e9) : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return isRendered()
+                ? String.format("%s: %.1f s in %.1f ms (%.0fx real time)", this.input, getAudioSeconds(), this.nanos / 1e6, getRealTimeFactor())
+                : this.input + ": " + this.error;
+    }
+}
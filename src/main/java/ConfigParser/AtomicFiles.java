@@ -0,0 +1,55 @@
+package ConfigParser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Crash-safe file replacement: write a sibling temp file, sync it, rename it over the target and
+ * sync the directory. Readers see either the old contents or the new, never a partial file.
+ */
+public final class AtomicFiles {
+
+    static final String TEMP_SUFFIX = ".tmp";
+
+    private AtomicFiles() {
+    }
+
+    public static void write(Path target, ByteBuffer contents) throws IOException {
+        // A unique temp name: concurrent writers, or a sibling that is itself called "<target>.tmp",
+        // never share or clobber each other's file.
+        Path directory = target.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, target.getFileName() + ".", TEMP_SUFFIX);
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long position = 0;
+                while (contents.hasRemaining()) {
+                    position += out.write(contents, position);
+                }
+                out.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        syncDirectory(directory);
+    }
+
+    public static void write(Path target, byte[] contents) throws IOException {
+        write(target, ByteBuffer.wrap(contents));
+    }
+
+    // Makes a rename durable; not every platform can open a directory, so this is best effort.
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Rename durability then relies on the file system's own ordering.
+        }
+    }
+}
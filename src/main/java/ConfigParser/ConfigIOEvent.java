@@ -0,0 +1,32 @@
+package ConfigParser;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for reading, writing or deleting a tuning configuration file.
+ */
+@Name("earcanvas.ConfigIO")
+@Label("Config I/O")
+@Category({"EarCanvas", "Config"})
+@Description("Read, write or delete of a tuning configuration")
+@Threshold("1 ms")
+class ConfigIOEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Config")
+    String config;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Success")
+    boolean success;
+}
@@ -2,48 +2,146 @@ package ConfigParser;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
-public class ConfigParser implements ParserInterface {
-	
+import Preset.InvalidPresetException;
+import Preset.Preset;
+import Preset.PresetCodec;
+
+/**
+ * Reads and writes tuning configurations as JSON files in one directory.
+ *
+ * Parsed configurations are kept in an in-memory {@link PresetCache}, bounded by the total size
+ * of the cached files, so repeated lookups of the same preset do not touch the disk. A
+ * {@link WatchService} on the directory evicts an entry as soon as its file is created, modified
+ * or deleted, including by other processes, so external edits are seen on the next lookup.
+ * Lookups of missing files are cached as well, until the file appears.
+ *
+ * If the platform cannot watch the directory the cache is disabled and every call reads the
+ * file, as before. Callers always receive their own list; when it comes from the cache, the
+ * filter entries inside it are shared and read-only.
+ *
+ * All saves go through one background writer: the value is serialized off the caller's thread,
+ * written to a temporary file, synced and atomically renamed into place, so a crash never leaves
+ * a truncated file. The {@code Async} methods return as soon as the save is queued; a save that
+ * is still queued when the same file is saved again is coalesced into the newer one.
+ *
+ * Typed {@link Preset}s are stored in the binary {@link PresetCodec} format as
+ * {@code <name>.ecp}; {@link #getPreset(String)} also reads a hand-written {@code <name>.json}.
+ * Presets are immutable, so cached ones are returned as they are. Large collections belong in
+ * a {@link PresetBank} opened with {@link #openBank(String)}.
+ */
+public class ConfigParser implements ParserInterface, AutoCloseable {
+
+	public static final long DEFAULT_CACHE_BYTES = 8L * 1024 * 1024;
+
+	// Cached in place of a configuration whose file does not exist.
+	private static final ArrayList<Object> MISSING = new ArrayList<>();
+	private static final long MISSING_WEIGHT = 64;
+
+	public static final String PRESET_EXTENSION = ".ecp";
+	private static final long WRITER_SHUTDOWN_SECONDS = 10;
+
 	private ObjectMapper objectMapper;
 	private Path configDirectory;
 	private DateTimeFormatter dateTimeFormatter;
-	
+
+	private final PresetCache<ArrayList<Object>> cache;
+	private final PresetCache<Optional<Preset>> presetCache;
+	private volatile boolean watching;
+
+	// One writer thread keeps saves of the same file in order.
+	private final ExecutorService writer;
+	private final Map<String, PendingWrite> pendingWrites = new HashMap<>();
+	private long coalescedWrites;
+	private WatchService watchService;
+
 	public ConfigParser() {
+		this(Paths.get(System.getProperty("user.dir")).resolve("src/main/native/configs"), DEFAULT_CACHE_BYTES);
+	}
+
+	public ConfigParser(Path configDirectory, long maxCacheBytes) {
 		this.objectMapper = new ObjectMapper();
         this.objectMapper.configure(SerializationFeature.INDENT_OUTPUT, true);
 
         this.dateTimeFormatter = DateTimeFormatter.ofPattern("dd_MM_yy__hh_mm_a");
 
-        Path cwd = Paths.get(System.getProperty("user.dir"));
-        Path resourcePath = cwd.resolve("src/main/native/configs");
-        this.configDirectory = resourcePath.toAbsolutePath();
+        this.configDirectory = configDirectory.toAbsolutePath();
+        this.cache = new PresetCache<>(maxCacheBytes);
+        this.presetCache = new PresetCache<>(maxCacheBytes);
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "earcanvas-config-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
 
         System.out.println(configDirectory.toString());
         try {
             Files.createDirectories(configDirectory);
         } catch (IOException e) {
             throw new RuntimeException("Could not create config directory: " + configDirectory, e);
-        }	}
-	
+        }
+        startWatcher();
+	}
+
+	public Path getConfigDirectory() { return this.configDirectory; }
+	public boolean isCaching() { return this.watching; }
+	PresetCache<ArrayList<Object>> getCache() { return this.cache; }
+	ExecutorService getWriter() { return this.writer; }
+
+	public long getCoalescedWrites() {
+		synchronized (this.pendingWrites) {
+			return this.coalescedWrites;
+		}
+	}
+
+	/**
+	 * Saves {@code filterValues} and waits until the file is on disk. See {@link #addConfigAsync}.
+	 */
 	@Override
     public boolean addConfig(ArrayList<Object> filterValues, Optional<String> configName) throws IOException {
+        await(addConfigAsync(filterValues, configName));
+        return true;
+    }
+
+    /**
+     * Queues {@code filterValues} to be saved and returns at once. The list is copied, but the
+     * filter entries inside it must not be modified until the returned future completes. A
+     * save that is still queued when the same configuration is saved again is replaced by the
+     * newer one, and both futures complete when it is written.
+     */
+    @Override
+    public CompletableFuture<Path> addConfigAsync(ArrayList<Object> filterValues, Optional<String> configName) {
         String defaultName = String.format("tuning_configuration__%s", LocalDateTime.now().format(dateTimeFormatter));
         String fileName = sanitizeFileName(configName.orElse(defaultName));
-        
-        Path filePath = configDirectory.resolve(fileName);
-        objectMapper.writeValue(filePath.toFile(), filterValues);
-        return true;
+        ArrayList<Object> snapshot = new ArrayList<>(filterValues);
+        return enqueueWrite(fileName, () -> objectMapper.writeValueAsBytes(snapshot));
     }
 
     private String sanitizeFileName(String input) {
@@ -53,11 +151,23 @@ public class ConfigParser implements ParserInterface {
 
     @Override
     public boolean removeConfig(String configName) throws IOException {
+        String key = cacheKey(configName);
+        if (key != null && this.cache.get(key) == MISSING) {
+            return false;
+        }
+
         Path filePath = configDirectory.resolve(configName);
         File file = filePath.toFile();
 
         if (file.exists() && file.isFile()) {
-            return file.delete();
+            ConfigIOEvent event = startEvent("delete", configName);
+            event.bytes = file.length();
+            event.success = file.delete();
+            event.commit();
+            if (key != null) {
+                this.cache.invalidate(key);
+            }
+            return event.success;
         }
 
         return false;
@@ -65,27 +175,356 @@ public class ConfigParser implements ParserInterface {
 
     @Override
     public ArrayList<Object> getConfig(String configName) {
+        String key = cacheKey(configName);
+        if (key != null) {
+            ArrayList<Object> cached = this.cache.get(key);
+            if (cached != null) {
+                return new ArrayList<>(cached);
+            }
+        }
+
+        // Taken before the disk is read, so a concurrent change keeps this result out of the cache.
+        long generation = this.cache.generation();
         Path filePath = configDirectory.resolve(configName);
         File file = filePath.toFile();
 
         if (!file.exists() || !file.isFile()) {
+            if (key != null) {
+                this.cache.putIfCurrent(key, MISSING, MISSING_WEIGHT, generation);
+            }
             return new ArrayList<>();
         }
 
+        ConfigIOEvent event = startEvent("read", configName);
         try {
-            return objectMapper.readValue(
+            ArrayList<Object> config = objectMapper.readValue(
                 file,
                 objectMapper.getTypeFactory().constructCollectionType(ArrayList.class, Object.class)
             );
+            event.success = true;
+            if (key != null) {
+                ArrayList<Object> frozen = freezeConfig(config);
+                this.cache.putIfCurrent(key, frozen, file.length(), generation);
+                return new ArrayList<>(frozen);
+            }
+            return config;
         } catch (IOException e) {
         	throw new ConfigIOAccessException("Failed to read config: " + configName);
+        } finally {
+            commitEvent(event, filePath);
+        }
+    }
+
+    /**
+     * Writes {@code preset} as {@code <name>.ecp}, replacing any earlier version, and waits
+     * until it is on disk.
+     */
+    @Override
+    public Path addPreset(Preset preset) throws IOException, InvalidPresetException {
+        try {
+            return await(addPresetAsync(preset));
+        } catch (IOException e) {
+            if (e.getCause() instanceof InvalidPresetException) {
+                throw (InvalidPresetException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Queues {@code preset} to be written as {@code <name>.ecp}; coalesced like
+     * {@link #addConfigAsync}.
+     */
+    @Override
+    public CompletableFuture<Path> addPresetAsync(Preset preset) {
+        String fileName = sanitizeFileName(preset.getName()) + PRESET_EXTENSION;
+        return enqueueWrite(fileName, () -> PresetCodec.encode(preset));
+    }
+
+    /**
+     * Loads the preset saved under {@code presetName}, preferring the binary {@code .ecp} file
+     * over a {@code .json} one. Returns null if neither exists.
+     */
+    @Override
+    public Preset getPreset(String presetName) throws IOException, InvalidPresetException {
+        String baseName = sanitizeFileName(presetName);
+        Preset preset = readPreset(baseName + PRESET_EXTENSION);
+        return (preset != null) ? preset : readPreset(baseName + ".json");
+    }
+
+    private Preset readPreset(String fileName) throws IOException, InvalidPresetException {
+        String key = cacheKey(fileName);
+        if (key != null) {
+            Optional<Preset> cached = this.presetCache.get(key);
+            if (cached != null) {
+                return cached.orElse(null);
+            }
+        }
+
+        long generation = this.presetCache.generation();
+        Path filePath = configDirectory.resolve(fileName);
+        if (!Files.isRegularFile(filePath)) {
+            if (key != null) {
+                this.presetCache.putIfCurrent(key, Optional.empty(), MISSING_WEIGHT, generation);
+            }
+            return null;
         }
+
+        ConfigIOEvent event = startEvent("read", fileName);
+        try {
+            byte[] data = Files.readAllBytes(filePath);
+            Preset preset = PresetCodec.read(data);
+            event.success = true;
+            if (key != null) {
+                this.presetCache.putIfCurrent(key, Optional.of(preset), data.length, generation);
+            }
+            return preset;
+        } finally {
+            commitEvent(event, filePath);
+        }
+    }
+
+    /**
+     * Opens (or creates) the preset bank {@code <bankName>.ecb} in the config directory. The
+     * caller owns the bank and must close it.
+     */
+    public PresetBank openBank(String bankName) throws IOException {
+        return PresetBank.open(configDirectory.resolve(sanitizeFileName(bankName) + PresetBank.EXTENSION));
     }
 
     @Override
     public Path findConfig(Path configPath) {
         Path filePath = configDirectory.resolve(configPath.getFileName());
-        return Files.exists(filePath) ? filePath : null;
+        String key = cacheKey(configPath.getFileName().toString());
+        ArrayList<Object> cached = (key == null) ? null : this.cache.get(key);
+        if (cached != null) {
+            return (cached == MISSING) ? null : filePath;
+        }
+
+        long generation = this.cache.generation();
+        if (Files.exists(filePath)) {
+            return filePath;
+        }
+        if (key != null) {
+            this.cache.putIfCurrent(key, MISSING, MISSING_WEIGHT, generation);
+        }
+        return null;
     }
 
+    /**
+     * Finishes queued writes, then stops watching the config directory and disables the cache.
+     */
+    @Override
+    public void close() {
+        this.writer.shutdown();
+        try {
+            if (!this.writer.awaitTermination(WRITER_SHUTDOWN_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("ConfigParser: Gave up waiting for queued writes.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.watching = false;
+        this.cache.invalidateAll();
+        this.presetCache.invalidateAll();
+        if (this.watchService != null) {
+            try {
+                this.watchService.close();
+            } catch (IOException e) {
+                System.err.println("ConfigParser: Failed to close directory watch: " + e.getMessage());
+            }
+        }
+    }
+
+    // --- Write-behind ---
+
+    @FunctionalInterface
+    private interface Serializer {
+        byte[] serialize() throws IOException, InvalidPresetException;
+    }
+
+    private static final class PendingWrite {
+        final String fileName;
+        final CompletableFuture<Path> future = new CompletableFuture<>();
+        Serializer serializer; // Guarded by pendingWrites; replaced while the write is queued.
+
+        PendingWrite(String fileName, Serializer serializer) {
+            this.fileName = fileName;
+            this.serializer = serializer;
+        }
+    }
+
+    private CompletableFuture<Path> enqueueWrite(String fileName, Serializer serializer) {
+        PendingWrite write;
+        synchronized (this.pendingWrites) {
+            write = this.pendingWrites.get(fileName);
+            if (write != null) {
+                write.serializer = serializer;
+                this.coalescedWrites++;
+                return write.future;
+            }
+            write = new PendingWrite(fileName, serializer);
+            this.pendingWrites.put(fileName, write);
+        }
+        PendingWrite queued = write;
+        try {
+            this.writer.execute(() -> runWrite(queued));
+        } catch (RejectedExecutionException e) {
+            synchronized (this.pendingWrites) {
+                this.pendingWrites.remove(fileName);
+            }
+            queued.future.completeExceptionally(new IOException("ConfigParser is closed.", e));
+        }
+        return queued.future;
+    }
+
+    // Runs on the writer thread; later saves of the same file queue a new write from here on.
+    private void runWrite(PendingWrite write) {
+        Serializer serializer;
+        synchronized (this.pendingWrites) {
+            this.pendingWrites.remove(write.fileName);
+            serializer = write.serializer;
+        }
+
+        Path filePath = configDirectory.resolve(write.fileName);
+        ConfigIOEvent event = startEvent("write", write.fileName);
+        Exception failure = null;
+        try {
+            AtomicFiles.write(filePath, serializer.serialize());
+            event.success = true;
+        } catch (IOException | InvalidPresetException | RuntimeException e) {
+            failure = e;
+        } finally {
+            commitEvent(event, filePath);
+            this.cache.invalidate(write.fileName);
+            this.presetCache.invalidate(write.fileName);
+        }
+        // Only now: a caller that joins the future and reads straight away must not see the old entry.
+        if (failure == null) {
+            write.future.complete(filePath);
+        } else {
+            write.future.completeExceptionally(failure);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a config write.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Config write failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    // --- Cache ---
+
+    // Only files directly in the watched directory are cached; null means bypass the cache.
+    private String cacheKey(String configName) {
+        if (!this.watching || configName == null) {
+            return null;
+        }
+        Path name = Paths.get(configName);
+        return (name.getNameCount() == 1 && !name.isAbsolute()) ? name.toString() : null;
+    }
+
+    private void startWatcher() {
+        try {
+            this.watchService = configDirectory.getFileSystem().newWatchService();
+            configDirectory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("ConfigParser: Directory watch unavailable, config caching disabled: " + e.getMessage());
+            return;
+        }
+        this.watching = true;
+
+        Thread watcher = new Thread(this::watch, "earcanvas-config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch() {
+        while (this.watching) {
+            WatchKey key;
+            try {
+                key = this.watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    this.cache.invalidateAll();
+                    this.presetCache.invalidateAll();
+                } else {
+                    String fileName = ((Path) event.context()).toString();
+                    this.cache.invalidate(fileName);
+                    this.presetCache.invalidate(fileName);
+                }
+            }
+            if (!key.reset()) {
+                // The directory itself is gone; nothing cached can be trusted any more.
+                break;
+            }
+        }
+        this.watching = false;
+        this.cache.invalidateAll();
+        this.presetCache.invalidateAll();
+    }
+
+    // Nested lists and maps become read-only once cached, so a lookup only copies the top level.
+    @SuppressWarnings("unchecked")
+    private static Object freeze(Object node) {
+        if (node instanceof List) {
+            List<Object> source = (List<Object>) node;
+            ArrayList<Object> frozen = new ArrayList<>(source.size());
+            for (Object item : source) {
+                frozen.add(freeze(item));
+            }
+            return Collections.unmodifiableList(frozen);
+        }
+        if (node instanceof Map) {
+            Map<Object, Object> source = (Map<Object, Object>) node;
+            LinkedHashMap<Object, Object> frozen = new LinkedHashMap<>(source.size() * 2);
+            for (Map.Entry<Object, Object> entry : source.entrySet()) {
+                frozen.put(entry.getKey(), freeze(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(frozen);
+        }
+        return node;
+    }
+
+    private static ArrayList<Object> freezeConfig(ArrayList<Object> config) {
+        ArrayList<Object> frozen = new ArrayList<>(config.size());
+        for (Object item : config) {
+            frozen.add(freeze(item));
+        }
+        return frozen;
+    }
+
+    // --- Flight Recorder ---
+
+    private static ConfigIOEvent startEvent(String operation, String configName) {
+        ConfigIOEvent event = new ConfigIOEvent();
+        event.operation = operation;
+        event.config = configName;
+        event.begin();
+        return event;
+    }
+
+    private static void commitEvent(ConfigIOEvent event, Path filePath) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.bytes = filePath.toFile().length();
+            event.commit();
+        }
+    }
 }
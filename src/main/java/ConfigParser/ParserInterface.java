@@ -4,15 +4,24 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import Preset.InvalidPresetException;
+import Preset.Preset;
 
 public interface ParserInterface {
 
 	public boolean addConfig(ArrayList<Object> filterValues, Optional<String> configName) throws IOException;
+	public CompletableFuture<Path> addConfigAsync(ArrayList<Object> filterValues, Optional<String> configName);
 	public boolean removeConfig(String configName) throws IOException;
 	
 	public ArrayList<Object> getConfig(String configName);
 	
 	public Path findConfig(Path configPath);
+
+	public Path addPreset(Preset preset) throws IOException, InvalidPresetException;
+	public CompletableFuture<Path> addPresetAsync(Preset preset);
+	public Preset getPreset(String presetName) throws IOException, InvalidPresetException;
 	
 	
 }
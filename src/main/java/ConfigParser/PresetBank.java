@@ -0,0 +1,660 @@
+package ConfigParser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+
+import Preset.InvalidPresetException;
+import Preset.Preset;
+import Preset.PresetCodec;
+
+/**
+ * Many presets in one file, looked up by name through a memory-mapped, sorted index.
+ *
+ * A bank is two files. The data file ({@code <bank>.ecb}) is append-only: every save or delete
+ * adds a CRC-checked record and nothing is rewritten in place.
+ *
+ * <pre>
+ *   header:  magic "ECPB" i32, version u16, reserved u16, bank id i64
+ *   record:  body length i32, kind u8 (1 put, 2 delete), name (u16 length + UTF-8),
+ *            {@link PresetCodec} binary preset (puts only), CRC-32 of the body i32
+ * </pre>
+ *
+ * The index ({@code <bank>.ecb.idx}) holds one fixed-size slot per live preset, sorted by the
+ * UTF-8 bytes of the name, so a lookup is a binary search over the mapped file followed by one
+ * decode straight out of the mapped data file. No directory scan and no per-file parse.
+ *
+ * <pre>
+ *   header:  magic "ECPI" i32, version u16, reserved u16, bank id i64,
+ *            data length covered i64, dead bytes i64, slot count i32, names length i32
+ *   slots:   record offset i64, name offset i32, name length i32   (sorted by name)
+ *   names:   concatenated UTF-8 names
+ *   trailer: CRC-32 of everything above i32
+ * </pre>
+ *
+ * Writes since the last index update live in a small in-memory overlay; the index is rewritten
+ * from it every {@value #INDEX_FLUSH_THRESHOLD} changes and on {@link #close()}, always to a
+ * temporary file that is synced and then atomically renamed over the old one. Records are synced
+ * before a write returns, so after a crash {@link #open} finds a valid index covering a prefix
+ * of the data file and replays the records after it, dropping a torn final record. An index that
+ * is missing, corrupt or belongs to another data file is rebuilt by scanning the data file.
+ *
+ * Overwritten and deleted records stay in the data file as dead bytes until {@link #compact()},
+ * which also runs automatically once they outweigh the live presets. All methods are synchronized.
+ */
+public final class PresetBank implements AutoCloseable {
+
+    public static final String EXTENSION = ".ecb";
+    public static final String INDEX_EXTENSION = ".idx";
+
+    static final int INDEX_FLUSH_THRESHOLD = 256;
+    static final long COMPACT_MIN_DEAD_BYTES = 1L << 20;
+
+    private static final int DATA_MAGIC = 0x45435042;  // "ECPB"
+    private static final int INDEX_MAGIC = 0x45435049; // "ECPI"
+    private static final short VERSION = 1;
+    private static final int DATA_HEADER = 16;
+    private static final int INDEX_HEADER = 40;
+    private static final int SLOT = 16;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final long DELETED = -1L;
+
+    private static final Comparator<byte[]> NAME_ORDER = Arrays::compareUnsigned;
+
+    private final Path dataPath;
+    private final Path indexPath;
+
+    private FileChannel data;
+    private MappedByteBuffer dataMap;
+    private long bankId;
+    private long dataLength;
+    private long deadBytes;
+
+    private MappedByteBuffer indexMap;
+    private int indexCount;
+
+    // Changes since the index was last written: name -> record offset, or DELETED.
+    private final Map<String, Long> pending = new HashMap<>();
+    private int size;
+    private boolean closed;
+
+    private PresetBank(Path dataPath) {
+        this.dataPath = dataPath.toAbsolutePath();
+        this.indexPath = this.dataPath.resolveSibling(this.dataPath.getFileName() + INDEX_EXTENSION);
+    }
+
+    /**
+     * Opens the bank at {@code dataPath}, creating it if needed and recovering from an
+     * interrupted write.
+     */
+    public static PresetBank open(Path dataPath) throws IOException {
+        PresetBank bank = new PresetBank(dataPath);
+        try {
+            bank.load();
+        } catch (IOException | RuntimeException e) {
+            bank.closeChannel();
+            throw e;
+        }
+        return bank;
+    }
+
+    public Path getDataPath() { return this.dataPath; }
+    public Path getIndexPath() { return this.indexPath; }
+    public synchronized int size() { return this.size; }
+    public synchronized long getDataLength() { return this.dataLength; }
+    public synchronized long getDeadBytes() { return this.deadBytes; }
+
+    // --- Lookup ---
+
+    /**
+     * Returns the preset saved under {@code name}, or null if there is none.
+     */
+    public synchronized Preset get(String name) throws IOException, InvalidPresetException {
+        long offset = offsetOf(name);
+        return (offset < 0) ? null : readPreset(offset);
+    }
+
+    public synchronized boolean contains(String name) {
+        return offsetOf(name) >= 0;
+    }
+
+    /**
+     * Names of all presets starting with {@code prefix} (all presets for an empty prefix), in
+     * UTF-8 byte order.
+     */
+    public synchronized List<String> list(String prefix) {
+        byte[] key = utf8(prefix);
+        List<byte[]> names = new ArrayList<>();
+        for (int slot = lowerBound(key); slot < this.indexCount && startsWith(slot, key); slot++) {
+            byte[] name = slotName(slot);
+            if (!this.pending.containsKey(new String(name, StandardCharsets.UTF_8))) {
+                names.add(name);
+            }
+        }
+        for (Map.Entry<String, Long> entry : this.pending.entrySet()) {
+            if (entry.getValue() != DELETED && entry.getKey().startsWith(prefix)) {
+                names.add(utf8(entry.getKey()));
+            }
+        }
+        names.sort(NAME_ORDER);
+
+        List<String> result = new ArrayList<>(names.size());
+        for (byte[] name : names) {
+            result.add(new String(name, StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+
+    // --- Writes ---
+
+    /**
+     * Saves {@code preset} under its name, replacing any earlier version. The record is on disk
+     * when this returns.
+     */
+    public synchronized void put(Preset preset) throws IOException, InvalidPresetException {
+        putAll(List.of(preset));
+    }
+
+    /**
+     * Saves several presets with a single sync, for imports.
+     */
+    public synchronized void putAll(Collection<Preset> presets) throws IOException, InvalidPresetException {
+        ensureOpen();
+        List<ByteBuffer> records = new ArrayList<>(presets.size());
+        for (Preset preset : presets) {
+            records.add(record(PUT, preset.getName(), PresetCodec.encode(preset)));
+        }
+        long offset = this.dataLength;
+        for (ByteBuffer record : records) {
+            writeFully(record, offset);
+            offset += record.limit();
+        }
+        this.data.force(false);
+
+        offset = this.dataLength;
+        int i = 0;
+        for (Preset preset : presets) {
+            apply(preset.getName(), offset, records.get(i).limit());
+            offset += records.get(i++).limit();
+        }
+        this.dataLength = offset;
+        afterWrite();
+    }
+
+    /**
+     * Deletes the preset saved under {@code name}. Returns false if there was none.
+     */
+    public synchronized boolean remove(String name) throws IOException {
+        ensureOpen();
+        if (offsetOf(name) < 0) {
+            return false;
+        }
+        ByteBuffer record = record(DELETE, name, new byte[0]);
+        writeFully(record, this.dataLength);
+        this.data.force(false);
+        apply(name, DELETED, record.limit());
+        this.dataLength += record.limit();
+        afterWrite();
+        return true;
+    }
+
+    /**
+     * Writes the in-memory changes into the index file.
+     */
+    public synchronized void flush() throws IOException {
+        ensureOpen();
+        if (!this.pending.isEmpty()) {
+            writeIndex(this.indexPath, this.bankId, liveEntries(), this.dataLength, this.deadBytes);
+            mapIndex();
+            this.pending.clear();
+        }
+    }
+
+    /**
+     * Rewrites the data file with only the live presets, in name order, and a fresh index.
+     *
+     * The new data file gets a new bank id and is renamed into place before its index, so a crash
+     * between the two renames leaves an index that no longer matches and is rebuilt on open.
+     */
+    public synchronized void compact() throws IOException {
+        ensureOpen();
+        List<Entry> live = liveEntries();
+        long newId = ThreadLocalRandom.current().nextLong();
+        Path dataTemp = this.dataPath.resolveSibling(this.dataPath.getFileName() + ".tmp");
+
+        List<Entry> moved = new ArrayList<>(live.size());
+        long offset = DATA_HEADER;
+        try (FileChannel out = FileChannel.open(dataTemp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, dataHeader(newId), 0);
+            for (Entry entry : live) {
+                ByteBuffer record = recordAt(entry.offset);
+                int length = record.remaining();
+                writeFully(out, record, offset);
+                moved.add(new Entry(entry.name, offset));
+                offset += length;
+            }
+            out.force(true);
+        }
+
+        // Windows cannot rename over an open file, so the old one is closed first and reopened if
+        // the rename fails.
+        closeChannel();
+        try {
+            Files.move(dataTemp, this.dataPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            try {
+                this.data = FileChannel.open(this.dataPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                Files.deleteIfExists(dataTemp);
+            } catch (IOException reopen) {
+                e.addSuppressed(reopen);
+                this.closed = true;
+            }
+            throw e;
+        }
+        this.data = FileChannel.open(this.dataPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        writeIndex(this.indexPath, newId, moved, offset, 0);
+        AtomicFiles.syncDirectory(this.dataPath.getParent());
+
+        this.bankId = newId;
+        this.dataLength = offset;
+        this.deadBytes = 0;
+        this.dataMap = null;
+        this.pending.clear();
+        mapIndex();
+    }
+
+    /**
+     * Writes pending index changes and closes the data file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            this.closed = true;
+            closeChannel();
+            this.dataMap = null;
+            this.indexMap = null;
+        }
+    }
+
+    // --- Open and recovery ---
+
+    private void load() throws IOException {
+        this.data = FileChannel.open(this.dataPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (this.data.size() == 0) {
+            this.bankId = ThreadLocalRandom.current().nextLong();
+            writeFully(dataHeader(this.bankId), 0);
+            this.data.force(true);
+        }
+        ByteBuffer header = ByteBuffer.allocate(DATA_HEADER);
+        if (this.data.read(header, 0) != DATA_HEADER || header.getInt(0) != DATA_MAGIC) {
+            throw new IOException("Not a preset bank: " + this.dataPath);
+        }
+        if (header.getShort(4) != VERSION) {
+            throw new IOException("Unsupported preset bank version " + header.getShort(4) + ": " + this.dataPath);
+        }
+        this.bankId = header.getLong(8);
+
+        long fileLength = this.data.size();
+        long replayFrom = DATA_HEADER;
+        if (loadIndex(fileLength)) {
+            replayFrom = this.dataLength;
+            this.size = this.indexCount;
+        } else {
+            this.indexMap = null;
+            this.indexCount = 0;
+            this.deadBytes = 0;
+            this.size = 0;
+        }
+        this.dataLength = replayFrom;
+        replay(fileLength);
+        if (!this.pending.isEmpty() || this.indexMap == null) {
+            writeIndex(this.indexPath, this.bankId, liveEntries(), this.dataLength, this.deadBytes);
+            mapIndex();
+            this.pending.clear();
+        }
+    }
+
+    private boolean loadIndex(long fileLength) throws IOException {
+        if (!Files.isRegularFile(this.indexPath)) {
+            return false;
+        }
+        try {
+            mapIndex();
+            ByteBuffer index = this.indexMap;
+            long covered = index.getLong(16);
+            if (index.getInt(0) != INDEX_MAGIC || index.getShort(4) != VERSION || index.getLong(8) != this.bankId
+                    || covered < DATA_HEADER || covered > fileLength) {
+                return false;
+            }
+            this.dataLength = covered;
+            this.deadBytes = index.getLong(24);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("PresetBank: Rebuilding unreadable index " + this.indexPath + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Applies every complete record after the index; a torn or corrupt tail is cut off.
+    private void replay(long fileLength) throws IOException {
+        ByteBuffer view = mapData(fileLength);
+        long offset = this.dataLength;
+        while (offset < fileLength) {
+            int length = validRecordLength(view, offset, fileLength);
+            if (length < 0) {
+                System.err.println("PresetBank: Discarding " + (fileLength - offset) + " bytes of incomplete records at "
+                        + offset + " in " + this.dataPath);
+                this.data.truncate(offset);
+                this.data.force(true);
+                this.dataMap = null;
+                break;
+            }
+            int position = (int) offset;
+            byte kind = view.get(position + 4);
+            String name = readName(view, position + 5);
+            apply(name, (kind == PUT) ? offset : DELETED, length);
+            offset += length;
+        }
+        this.dataLength = offset;
+    }
+
+    // Total record length if a complete, intact record starts at offset, else -1.
+    private static int validRecordLength(ByteBuffer view, long offset, long end) {
+        if (offset + 11 > end) {
+            return -1;
+        }
+        int position = (int) offset;
+        int body = view.getInt(position);
+        if (body < 3 || offset + 8 + body > end) {
+            return -1;
+        }
+        byte kind = view.get(position + 4);
+        if ((kind != PUT && kind != DELETE) || 3 + (view.getShort(position + 5) & 0xFFFF) > body) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(view.slice(position + 4, body));
+        return ((int) crc.getValue() == view.getInt(position + 4 + body)) ? body + 8 : -1;
+    }
+
+    // --- Index ---
+
+    private static final class Entry {
+        final byte[] name;
+        final long offset;
+
+        Entry(byte[] name, long offset) {
+            this.name = name;
+            this.offset = offset;
+        }
+    }
+
+    private long offsetOf(String name) {
+        if (name == null) {
+            return -1;
+        }
+        Long change = this.pending.get(name);
+        if (change != null) {
+            return change;
+        }
+        byte[] key = utf8(name);
+        int slot = lowerBound(key);
+        if (slot < this.indexCount && compareSlot(slot, key) == 0) {
+            return this.indexMap.getLong(INDEX_HEADER + slot * SLOT);
+        }
+        return -1;
+    }
+
+    // First slot whose name is not less than key.
+    private int lowerBound(byte[] key) {
+        int low = 0;
+        int high = this.indexCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareSlot(mid, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compareSlot(int slot, byte[] key) {
+        int base = INDEX_HEADER + slot * SLOT;
+        int nameOffset = this.indexMap.getInt(base + 8);
+        int nameLength = this.indexMap.getInt(base + 12);
+        int common = Math.min(nameLength, key.length);
+        for (int i = 0; i < common; i++) {
+            int diff = (this.indexMap.get(nameOffset + i) & 0xFF) - (key[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return nameLength - key.length;
+    }
+
+    private boolean startsWith(int slot, byte[] prefix) {
+        int base = INDEX_HEADER + slot * SLOT;
+        int nameOffset = this.indexMap.getInt(base + 8);
+        if (this.indexMap.getInt(base + 12) < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (this.indexMap.get(nameOffset + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] slotName(int slot) {
+        int base = INDEX_HEADER + slot * SLOT;
+        byte[] name = new byte[this.indexMap.getInt(base + 12)];
+        this.indexMap.get(this.indexMap.getInt(base + 8), name);
+        return name;
+    }
+
+    // Index slots overridden by the pending changes, sorted by name.
+    private List<Entry> liveEntries() {
+        List<Entry> entries = new ArrayList<>(this.size);
+        for (int slot = 0; slot < this.indexCount; slot++) {
+            byte[] name = slotName(slot);
+            if (!this.pending.containsKey(new String(name, StandardCharsets.UTF_8))) {
+                entries.add(new Entry(name, this.indexMap.getLong(INDEX_HEADER + slot * SLOT)));
+            }
+        }
+        for (Map.Entry<String, Long> change : this.pending.entrySet()) {
+            if (change.getValue() != DELETED) {
+                entries.add(new Entry(utf8(change.getKey()), change.getValue()));
+            }
+        }
+        entries.sort((a, b) -> NAME_ORDER.compare(a.name, b.name));
+        return entries;
+    }
+
+    private static void writeIndex(Path path, long bankId, List<Entry> entries, long dataLength, long deadBytes) throws IOException {
+        int namesLength = 0;
+        for (Entry entry : entries) {
+            namesLength += entry.name.length;
+        }
+        int namesStart = INDEX_HEADER + entries.size() * SLOT;
+        ByteBuffer index = ByteBuffer.allocate(namesStart + namesLength + 4);
+        index.putInt(INDEX_MAGIC).putShort(VERSION).putShort((short) 0).putLong(bankId)
+                .putLong(dataLength).putLong(deadBytes).putInt(entries.size()).putInt(namesLength);
+        int nameOffset = namesStart;
+        for (Entry entry : entries) {
+            index.putLong(entry.offset).putInt(nameOffset).putInt(entry.name.length);
+            nameOffset += entry.name.length;
+        }
+        for (Entry entry : entries) {
+            index.put(entry.name);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(index.array(), 0, index.position());
+        index.putInt((int) crc.getValue());
+        index.flip();
+
+        AtomicFiles.write(path, index);
+    }
+
+    private void mapIndex() throws IOException {
+        try (FileChannel channel = FileChannel.open(this.indexPath, StandardOpenOption.READ)) {
+            MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int length = index.capacity();
+            if (length < INDEX_HEADER + 4) {
+                throw new IOException("Index too short");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(index.slice(0, length - 4));
+            if ((int) crc.getValue() != index.getInt(length - 4)) {
+                throw new IOException("Index checksum mismatch");
+            }
+            int count = index.getInt(32);
+            if (count < 0 || INDEX_HEADER + (long) count * SLOT + index.getInt(36) + 4 != length) {
+                throw new IOException("Index size mismatch");
+            }
+            this.indexMap = index;
+            this.indexCount = count;
+        }
+    }
+
+    // --- Records ---
+
+    private void apply(String name, long offset, int recordLength) {
+        long previous = offsetOf(name);
+        if (previous >= 0) {
+            this.deadBytes += recordLengthAt(previous);
+            this.size--;
+        }
+        if (offset == DELETED) {
+            this.deadBytes += recordLength;
+        } else {
+            this.size++;
+        }
+        this.pending.put(name, offset);
+    }
+
+    private void afterWrite() throws IOException {
+        if (this.pending.size() >= INDEX_FLUSH_THRESHOLD) {
+            flush();
+        }
+        long liveBytes = this.dataLength - DATA_HEADER - this.deadBytes;
+        if (this.deadBytes >= COMPACT_MIN_DEAD_BYTES && this.deadBytes > liveBytes) {
+            compact();
+        }
+    }
+
+    private Preset readPreset(long offset) throws IOException, InvalidPresetException {
+        ByteBuffer record = recordAt(offset);
+        int start = record.position();
+        int body = record.getInt(start);
+        CRC32 crc = new CRC32();
+        crc.update(record.slice(start + 4, body));
+        if ((int) crc.getValue() != record.getInt(start + 4 + body)) {
+            throw new IOException("Corrupt preset record at " + offset + " in " + this.dataPath);
+        }
+        int payload = start + 7 + (record.getShort(start + 5) & 0xFFFF);
+        return PresetCodec.decode(record.slice(payload, start + 4 + body - payload));
+    }
+
+    // The whole record at offset, as a view of the mapped data file.
+    private ByteBuffer recordAt(long offset) throws IOException {
+        ByteBuffer view = mapData(this.dataLength);
+        int position = (int) offset;
+        int length = view.getInt(position) + 8;
+        return view.duplicate().position(position).limit(position + length);
+    }
+
+    private int recordLengthAt(long offset) {
+        try {
+            return mapData(this.dataLength).getInt((int) offset) + 8;
+        } catch (IOException e) {
+            throw new ConfigIOAccessException("Failed to read preset bank: " + this.dataPath, e);
+        }
+    }
+
+    private ByteBuffer mapData(long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Preset bank exceeds 2 GiB: " + this.dataPath);
+        }
+        if (this.dataMap == null || this.dataMap.capacity() < length) {
+            this.dataMap = this.data.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+        return this.dataMap;
+    }
+
+    private static ByteBuffer record(byte kind, String name, byte[] payload) {
+        byte[] nameBytes = utf8(name);
+        if (nameBytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Preset name is too long.");
+        }
+        int body = 3 + nameBytes.length + payload.length;
+        ByteBuffer record = ByteBuffer.allocate(body + 8);
+        record.putInt(body).put(kind).putShort((short) nameBytes.length).put(nameBytes).put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, body);
+        record.putInt((int) crc.getValue());
+        return record.flip();
+    }
+
+    private static ByteBuffer dataHeader(long bankId) {
+        return ByteBuffer.allocate(DATA_HEADER).putInt(DATA_MAGIC).putShort(VERSION).putShort((short) 0).putLong(bankId).flip();
+    }
+
+    private static String readName(ByteBuffer view, int position) {
+        byte[] name = new byte[view.getShort(position) & 0xFFFF];
+        view.get(position + 2, name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    // --- Helpers ---
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        writeFully(this.data, buffer, position);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (this.closed) {
+            throw new IOException("Preset bank is closed: " + this.dataPath);
+        }
+    }
+
+    private void closeChannel() throws IOException {
+        if (this.data != null) {
+            this.data.close();
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,99 @@
+package ConfigParser;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of parsed presets, bounded by total weight (the size of the files
+ * the entries were parsed from) rather than by entry count.
+ *
+ * Invalidation bumps a generation counter. A loader reads the generation before touching the
+ * disk and stores its result with {@link #putIfCurrent}, which refuses the value if the file
+ * changed in the meantime, so a parse racing an external edit can never cache stale contents.
+ */
+class PresetCache<V> {
+
+    private static final class Entry<V> {
+        final V value;
+        final long weight;
+
+        Entry(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private final long maxWeight;
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long generation;
+    private long hits;
+    private long misses;
+
+    PresetCache(long maxWeight) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Cache weight must not be negative.");
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    synchronized boolean contains(String key) {
+        return this.entries.containsKey(key);
+    }
+
+    /**
+     * @return the cached value, or null on a miss; check {@link #contains} to tell a miss from a
+     *         cached null
+     */
+    synchronized V get(String key) {
+        Entry<V> entry = this.entries.get(key);
+        if (entry == null) {
+            this.misses++;
+            return null;
+        }
+        this.hits++;
+        return entry.value;
+    }
+
+    synchronized long generation() {
+        return this.generation;
+    }
+
+    synchronized boolean putIfCurrent(String key, V value, long weight, long expectedGeneration) {
+        if (expectedGeneration != this.generation || weight > this.maxWeight) {
+            return false;
+        }
+        Entry<V> previous = this.entries.put(key, new Entry<>(value, weight));
+        if (previous != null) {
+            this.weight -= previous.weight;
+        }
+        this.weight += weight;
+
+        Iterator<Map.Entry<String, Entry<V>>> eldest = this.entries.entrySet().iterator();
+        while (this.weight > this.maxWeight && eldest.hasNext()) {
+            this.weight -= eldest.next().getValue().weight;
+            eldest.remove();
+        }
+        return true;
+    }
+
+    synchronized void invalidate(String key) {
+        this.generation++;
+        Entry<V> removed = this.entries.remove(key);
+        if (removed != null) {
+            this.weight -= removed.weight;
+        }
+    }
+
+    synchronized void invalidateAll() {
+        this.generation++;
+        this.entries.clear();
+        this.weight = 0;
+    }
+
+    synchronized int size() { return this.entries.size(); }
+    synchronized long weight() { return this.weight; }
+    synchronized long hits() { return this.hits; }
+    synchronized long misses() { return this.misses; }
+}
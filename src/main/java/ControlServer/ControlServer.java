@@ -0,0 +1,382 @@
+package ControlServer;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import AudioPipeline.AudioPipeline;
+import AudioProcessingRangler.AudioProcessingRangler;
+import AudioProcessingRangler.EmptyFilterRackException;
+import ConfigParser.ParserInterface;
+import MetricsRegistry.MetricsRegistry;
+import Preset.FilterSpec;
+import Preset.InvalidPresetException;
+import Preset.Preset;
+import Preset.PresetCodec;
+import Preset.PresetLoader;
+import io.javalin.Javalin;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+import io.javalin.http.NotFoundResponse;
+import io.javalin.json.JsonMapper;
+import io.javalin.websocket.WsContext;
+
+/**
+ * Embedded HTTP/WebSocket control plane for running racks and pipelines.
+ *
+ * <pre>
+ *   GET    /racks                              rack ids and sizes
+ *   GET    /racks/{rack}/filters               filters in rack order
+ *   POST   /racks/{rack}/filters?position=N    add a filter (appends without position)
+ *   PUT    /racks/{rack}/filters/{position}    replace a filter
+ *   DELETE /racks/{rack}/filters/{position}    remove a filter
+ *   PUT    /racks/{rack}/presets/{name}        save the rack as a preset (needs a preset store)
+ *   POST   /racks/{rack}/presets/{name}/load   load a stored preset into the running rack,
+ *          ?crossfadeFrames=N&channels=C       optionally crossfading from the current filters
+ *   GET    /pipelines                          telemetry of every pipeline
+ *   GET    /pipelines/{pipeline}               telemetry of one pipeline
+ *   POST   /pipelines/{pipeline}/start|stop    start or stop a pipeline
+ *   WS     /telemetry                          telemetry of every pipeline, pushed periodically
+ *   GET    /metrics                            {@link MetricsRegistry} in Prometheus text format
+ * </pre>
+ *
+ * Filter bodies are a single {@link FilterSpec} in preset JSON. Filters are built on the request thread and
+ * handed to the rack with a single copy-on-write update, and telemetry only reads the lock-free
+ * values published by each pipeline's {@code PipelineStats} and {@code LevelMeter}, so request
+ * handling never makes the audio thread wait. Preset saves are written by the store's
+ * background writer and answered asynchronously, so they do not hold a request thread either;
+ * preset loads are built by a {@link PresetLoader} and swapped in at a block boundary.
+ */
+public class ControlServer {
+
+    public static final long DEFAULT_TELEMETRY_INTERVAL_MS = 100;
+
+    // Nulls are kept so clients see undefined levels explicitly.
+    private final Gson gson = new GsonBuilder().serializeNulls().create();
+    private final Map<String, AudioProcessingRangler> racks = new ConcurrentHashMap<>();
+    private final Map<String, AudioPipeline> pipelines = new ConcurrentHashMap<>();
+    private final Set<WsContext> telemetryClients = ConcurrentHashMap.newKeySet();
+    private final long telemetryIntervalMs;
+
+    private volatile ParserInterface presetStore;
+    private Javalin app;
+    private ScheduledExecutorService telemetryExecutor;
+    private PresetLoader presetLoader;
+
+    public ControlServer() {
+        this(DEFAULT_TELEMETRY_INTERVAL_MS);
+    }
+
+    public ControlServer(long telemetryIntervalMs) {
+        if (telemetryIntervalMs <= 0) {
+            throw new IllegalArgumentException("Telemetry interval must be positive.");
+        }
+        this.telemetryIntervalMs = telemetryIntervalMs;
+    }
+
+    public void registerRack(String id, AudioProcessingRangler rack) {
+        this.racks.put(id, rack);
+    }
+
+    public void registerPipeline(String id, AudioPipeline pipeline) {
+        this.pipelines.put(id, pipeline);
+    }
+
+    public void setPresetStore(ParserInterface presetStore) { this.presetStore = presetStore; }
+    public void unregisterRack(String id) { this.racks.remove(id); }
+    public void unregisterPipeline(String id) { this.pipelines.remove(id); }
+
+    public int getPort() { return (this.app == null) ? -1 : this.app.port(); }
+    public int getTelemetryClientCount() { return this.telemetryClients.size(); }
+
+    // --- Lifecycle ---
+
+    /**
+     * Starts listening on {@code host:port}; port 0 picks a free port, see {@link #getPort()}.
+     */
+    public synchronized void start(String host, int port) {
+        if (this.app != null) {
+            return;
+        }
+        this.app = Javalin.create(config -> {
+            config.showJavalinBanner = false;
+            config.jsonMapper(new GsonMapper(this.gson));
+        });
+        this.presetLoader = new PresetLoader();
+        registerRoutes(this.app);
+        this.app.start(host, port);
+
+        this.telemetryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "earcanvas-telemetry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.telemetryExecutor.scheduleAtFixedRate(this::broadcastTelemetry,
+                this.telemetryIntervalMs, this.telemetryIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (this.app == null) {
+            return;
+        }
+        this.telemetryExecutor.shutdownNow();
+        this.telemetryExecutor = null;
+        this.app.stop();
+        this.app = null;
+        this.presetLoader.close();
+        this.presetLoader = null;
+        this.telemetryClients.clear();
+    }
+
+    // --- Routes ---
+
+    private void registerRoutes(Javalin javalin) {
+        javalin.get("/racks", this::listRacks);
+        javalin.get("/racks/{rack}/filters", this::listFilters);
+        javalin.post("/racks/{rack}/filters", this::addFilter);
+        javalin.put("/racks/{rack}/filters/{position}", this::replaceFilter);
+        javalin.delete("/racks/{rack}/filters/{position}", this::removeFilter);
+        javalin.put("/racks/{rack}/presets/{name}", this::savePreset);
+        javalin.post("/racks/{rack}/presets/{name}/load", this::loadPreset);
+
+        javalin.get("/pipelines", ctx -> ctx.json(allTelemetry()));
+        javalin.get("/pipelines/{pipeline}", ctx -> ctx.json(Telemetry.of(ctx.pathParam("pipeline"), pipeline(ctx))));
+        javalin.post("/pipelines/{pipeline}/start", ctx -> {
+            AudioPipeline pipeline = pipeline(ctx);
+            try {
+                pipeline.start();
+            } catch (RuntimeException e) {
+                // Audio lines unavailable or unsupported on this device.
+                error(ctx, HttpStatus.CONFLICT, e.getMessage());
+                return;
+            }
+            ctx.json(Telemetry.of(ctx.pathParam("pipeline"), pipeline));
+        });
+        javalin.post("/pipelines/{pipeline}/stop", ctx -> {
+            AudioPipeline pipeline = pipeline(ctx);
+            pipeline.stop();
+            ctx.json(Telemetry.of(ctx.pathParam("pipeline"), pipeline));
+        });
+
+        javalin.get("/metrics", ctx -> ctx.contentType(MetricsRegistry.CONTENT_TYPE)
+                .result(MetricsRegistry.getDefault().scrape()));
+
+        javalin.ws("/telemetry", ws -> {
+            ws.onConnect(ctx -> {
+                this.telemetryClients.add(ctx);
+                ctx.send(this.gson.toJson(allTelemetry()));
+            });
+            ws.onClose(ctx -> this.telemetryClients.remove(ctx));
+            ws.onError(ctx -> this.telemetryClients.remove(ctx));
+        });
+
+        javalin.exception(InvalidRequestException.class, (e, ctx) -> error(ctx, HttpStatus.BAD_REQUEST, e.getMessage()));
+        javalin.exception(InvalidPresetException.class, (e, ctx) -> error(ctx, HttpStatus.BAD_REQUEST, e.getMessage()));
+        javalin.exception(JsonParseException.class, (e, ctx) -> error(ctx, HttpStatus.BAD_REQUEST, "Malformed JSON body."));
+        javalin.exception(EmptyFilterRackException.class, (e, ctx) -> error(ctx, HttpStatus.NOT_FOUND, e.getMessage()));
+        javalin.exception(IndexOutOfBoundsException.class, (e, ctx) -> error(ctx, HttpStatus.NOT_FOUND, e.getMessage()));
+    }
+
+    private void listRacks(Context ctx) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        this.racks.forEach((id, rack) -> result.add(Map.of("rack", id, "size", rack.size())));
+        ctx.json(result);
+    }
+
+    private void listFilters(Context ctx) {
+        AudioProcessingRangler rack = rack(ctx);
+        List<Map<String, Object>> result = new ArrayList<>();
+        // Index loop against a copy-on-write rack: a concurrent removal ends the listing early.
+        for (int position = 0; position < rack.size(); position++) {
+            try {
+                Object filter = rack.getFilter(position);
+                result.add(Map.of("position", position, "type", filter.getClass().getSimpleName()));
+            } catch (EmptyFilterRackException | IndexOutOfBoundsException e) {
+                break;
+            }
+        }
+        ctx.json(result);
+    }
+
+    private void addFilter(Context ctx) throws InvalidRequestException, InvalidPresetException {
+        AudioProcessingRangler rack = rack(ctx);
+        Object filter = filterRequest(ctx).toFilter();
+        String positionParam = ctx.queryParam("position");
+        int position = (positionParam == null) ? rack.size() : parsePosition(positionParam);
+        if (position < 0 || position > rack.size()) {
+            throw new IndexOutOfBoundsException("Filter position specified does not exist in the rack.");
+        }
+        rack.addFilter(filter, position);
+        ctx.status(HttpStatus.CREATED).json(Map.of("position", position, "type", filter.getClass().getSimpleName()));
+    }
+
+    private void replaceFilter(Context ctx) throws InvalidRequestException, InvalidPresetException, EmptyFilterRackException {
+        AudioProcessingRangler rack = rack(ctx);
+        int position = parsePosition(ctx.pathParam("position"));
+        Object filter = filterRequest(ctx).toFilter();
+        Object previous = rack.replaceFilter(position, filter);
+        ctx.json(Map.of("position", position, "type", filter.getClass().getSimpleName(),
+                "replaced", previous.getClass().getSimpleName()));
+    }
+
+    private void removeFilter(Context ctx) throws EmptyFilterRackException {
+        rack(ctx).removeFilter(parsePosition(ctx.pathParam("position")));
+        ctx.status(HttpStatus.NO_CONTENT);
+    }
+
+    private void savePreset(Context ctx) throws InvalidPresetException {
+        ParserInterface store = this.presetStore;
+        if (store == null) {
+            error(ctx, HttpStatus.SERVICE_UNAVAILABLE, "No preset store is configured.");
+            return;
+        }
+        Preset preset = Preset.of(ctx.pathParam("name"), rack(ctx));
+        ctx.future(() -> store.addPresetAsync(preset).handle((path, failure) -> {
+            if (failure != null) {
+                Throwable cause = (failure instanceof CompletionException) ? failure.getCause() : failure;
+                error(ctx, HttpStatus.INTERNAL_SERVER_ERROR, "Failed to save preset: " + cause.getMessage());
+            } else {
+                ctx.status(HttpStatus.CREATED).json(Map.of("preset", preset.getName(), "filters", preset.size(),
+                        "file", path.getFileName().toString()));
+            }
+            return null;
+        }));
+    }
+
+    private void loadPreset(Context ctx) throws Exception {
+        ParserInterface store = this.presetStore;
+        if (store == null) {
+            error(ctx, HttpStatus.SERVICE_UNAVAILABLE, "No preset store is configured.");
+            return;
+        }
+        AudioProcessingRangler rack = rack(ctx);
+        int crossfadeFrames = intQueryParam(ctx, "crossfadeFrames", 0);
+        int channels = intQueryParam(ctx, "channels", 2);
+        Preset preset = store.getPreset(ctx.pathParam("name"));
+        if (preset == null) {
+            throw new NotFoundResponse("Unknown preset: " + ctx.pathParam("name"));
+        }
+        PresetLoader loader = this.presetLoader;
+        ctx.future(() -> loader.load(preset, rack, crossfadeFrames, channels).handle((loaded, failure) -> {
+            if (failure != null) {
+                Throwable cause = (failure instanceof CompletionException) ? failure.getCause() : failure;
+                HttpStatus status = (cause instanceof InvalidPresetException || cause instanceof IllegalArgumentException)
+                        ? HttpStatus.BAD_REQUEST
+                        : (cause instanceof CancellationException) ? HttpStatus.CONFLICT : HttpStatus.INTERNAL_SERVER_ERROR;
+                error(ctx, status, "Failed to load preset: " + cause.getMessage());
+            } else {
+                ctx.json(Map.of("preset", loaded.getName(), "filters", loaded.size(), "crossfadeFrames", crossfadeFrames));
+            }
+            return null;
+        }));
+    }
+
+    // --- Telemetry ---
+
+    private List<Telemetry> allTelemetry() {
+        List<Telemetry> result = new ArrayList<>();
+        this.pipelines.forEach((id, pipeline) -> result.add(Telemetry.of(id, pipeline)));
+        return result;
+    }
+
+    private void broadcastTelemetry() {
+        if (this.telemetryClients.isEmpty()) {
+            return;
+        }
+        try {
+            String message = this.gson.toJson(allTelemetry());
+            for (WsContext client : this.telemetryClients) {
+                if (client.session.isOpen()) {
+                    client.send(message);
+                } else {
+                    this.telemetryClients.remove(client);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; one failed push must not stop telemetry for good.
+            System.err.println("ControlServer: Telemetry broadcast failed: " + e.getMessage());
+        }
+    }
+
+    // --- Helpers ---
+
+    private AudioProcessingRangler rack(Context ctx) {
+        AudioProcessingRangler rack = this.racks.get(ctx.pathParam("rack"));
+        if (rack == null) {
+            throw new NotFoundResponse("Unknown rack: " + ctx.pathParam("rack"));
+        }
+        return rack;
+    }
+
+    private AudioPipeline pipeline(Context ctx) {
+        AudioPipeline pipeline = this.pipelines.get(ctx.pathParam("pipeline"));
+        if (pipeline == null) {
+            throw new NotFoundResponse("Unknown pipeline: " + ctx.pathParam("pipeline"));
+        }
+        return pipeline;
+    }
+
+    // Parsed and built on the request thread, so design work never lands on the audio thread.
+    private FilterSpec filterRequest(Context ctx) throws InvalidRequestException, InvalidPresetException {
+        String body = ctx.body();
+        if (body.isBlank()) {
+            throw new InvalidRequestException("Request body is required.");
+        }
+        return PresetCodec.filterFromJson(body);
+    }
+
+    private static int intQueryParam(Context ctx, String name, int defaultValue) {
+        String value = ctx.queryParam(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequestResponse(name + " must be an integer, got " + value);
+        }
+    }
+
+    private static int parsePosition(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequestResponse("Position must be an integer, got " + value);
+        }
+    }
+
+    private void error(Context ctx, HttpStatus status, String message) {
+        ctx.status(status).json(Map.of("error", (message == null) ? status.getMessage() : message));
+    }
+
+    private static final class GsonMapper implements JsonMapper {
+        private final Gson gson;
+
+        GsonMapper(Gson gson) {
+            this.gson = gson;
+        }
+
+        @Override
+        public String toJsonString(Object obj, Type type) {
+            return this.gson.toJson(obj, type);
+        }
+
+        @Override
+        public <T> T fromJsonString(String json, Type targetType) {
+            return this.gson.fromJson(json, targetType);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ControlServer;
+
+public class InvalidRequestException extends Exception {
+	
+	public InvalidRequestException() {
+		super();
+	}
+	
+	public InvalidRequestException(String msg) {
+		super(msg);
+	}
+	
+	public InvalidRequestException(String msg, Exception e) {
+		super(msg, e);
+	}
+}
@@ -0,0 +1,81 @@
+package ControlServer;
+
+import AudioPipeline.AudioPipeline;
+import AudioPipeline.PipelineStats;
+import LevelMeter.LevelMeter;
+
+/**
+ * JSON view of one pipeline's state, built from lock-free reads of its stats and meter.
+ * Levels that are not yet defined (silence, unfilled windows) are sent as null.
+ */
+final class Telemetry {
+
+    static final class Timing {
+        long blocks;
+        long overruns;
+        long lastProcessNanos;
+        long maxProcessNanos;
+        long averageProcessNanos;
+        double load;
+        long bypassedBlocks;
+        long bypassSavedNanos;
+        double bypassSavedRatio;
+    }
+
+    static final class Levels {
+        Double[] peakDbfs;
+        Double[] rmsDbfs;
+        Double momentaryLufs;
+        Double shortTermLufs;
+        Double integratedLufs;
+    }
+
+    String pipeline;
+    boolean running;
+    long timestamp;
+    Timing timing;
+    Levels levels;
+
+    static Telemetry of(String id, AudioPipeline pipeline) {
+        Telemetry telemetry = new Telemetry();
+        telemetry.pipeline = id;
+        telemetry.running = pipeline.isRunning();
+        telemetry.timestamp = System.currentTimeMillis();
+
+        PipelineStats stats = pipeline.getStats();
+        if (stats != null) {
+            Timing timing = new Timing();
+            timing.blocks = stats.getBlocks();
+            timing.overruns = stats.getOverruns();
+            timing.lastProcessNanos = stats.getLastProcessNanos();
+            timing.maxProcessNanos = stats.getMaxProcessNanos();
+            timing.averageProcessNanos = stats.getAverageProcessNanos();
+            timing.load = stats.getLoad();
+            timing.bypassedBlocks = stats.getBypassedBlocks();
+            timing.bypassSavedNanos = stats.getBypassSavedNanos();
+            timing.bypassSavedRatio = stats.getBypassSavedRatio();
+            telemetry.timing = timing;
+        }
+
+        LevelMeter meter = pipeline.getLevelMeter();
+        if (meter != null) {
+            Levels levels = new Levels();
+            int channels = meter.getChannels();
+            levels.peakDbfs = new Double[channels];
+            levels.rmsDbfs = new Double[channels];
+            for (int ch = 0; ch < channels; ch++) {
+                levels.peakDbfs[ch] = finite(meter.getPeakDbfs(ch));
+                levels.rmsDbfs[ch] = finite(meter.getRmsDbfs(ch));
+            }
+            levels.momentaryLufs = finite(meter.getMomentaryLoudness());
+            levels.shortTermLufs = finite(meter.getShortTermLoudness());
+            levels.integratedLufs = finite(meter.getIntegratedLoudness());
+            telemetry.levels = levels;
+        }
+        return telemetry;
+    }
+
+    private static Double finite(double value) {
+        return Double.isFinite(value) ? value : null;
+    }
+}
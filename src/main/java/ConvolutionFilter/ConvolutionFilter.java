@@ -0,0 +1,167 @@
+package ConvolutionFilter;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import AudioProcessingRangler.RackFilterInterface;
+
+/**
+ * FIR / impulse-response filter using partitioned overlap-save convolution.
+ *
+ * Long impulse responses (room correction, speaker FIRs of tens of thousands of taps) are
+ * split into partitions whose spectra are computed once. Each channel keeps a
+ * frequency-domain delay line, so a block costs one forward and one inverse FFT plus a
+ * complex multiply-accumulate per partition, instead of a time-domain dot product per sample.
+ *
+ * Output lags input by one partition ({@link #getLatency()} frames) in both modes.
+ *
+ * {@link Partitioning#Uniform} uses one partition size for the whole response.
+ * {@link Partitioning#NonUniform} keeps the first partitions at {@code partitionSize} and runs
+ * the remainder with partitions {@value #TAIL_PARTITION_FACTOR} times larger, which cuts the
+ * per-block multiply-accumulate work for large responses at the same latency.
+ */
+public class ConvolutionFilter implements RackFilterInterface {
+
+    public static final int MIN_PARTITION_SIZE = 16;
+    public static final int MAX_PARTITION_SIZE = 1 << 16;
+    public static final int TAIL_PARTITION_FACTOR = 8;
+
+    public enum Partitioning {
+        Uniform, NonUniform
+    }
+
+    private final int channels;
+    private final int bufferSize;
+    private final int partitionSize;
+    private final Partitioning partitioning;
+    private final double[][] impulseResponses;
+
+    private final PartitionedConvolver[] head;
+    private final PartitionedConvolver[] tail;
+
+    public int getChannels() { return this.channels; }
+    public int getBufferSize() { return this.bufferSize; }
+    public int getPartitionSize() { return this.partitionSize; }
+    public Partitioning getPartitioning() { return this.partitioning; }
+    public int getLatency() { return this.partitionSize; }
+    public int getImpulseLength(int channel) { return this.impulseResponses[channel].length; }
+    public double[] getImpulseResponse(int channel) { return this.impulseResponses[channel].clone(); }
+
+    public ConvolutionFilter(int channels, int bufferSize, double[] impulseResponse, int partitionSize) throws InvalidFilterParametersException {
+        this(channels, bufferSize, impulseResponse, partitionSize, Partitioning.Uniform);
+    }
+
+    public ConvolutionFilter(int channels, int bufferSize, double[] impulseResponse, int partitionSize, Partitioning partitioning) throws InvalidFilterParametersException {
+        this(channels, bufferSize, sharedResponse(channels, impulseResponse), partitionSize, partitioning);
+    }
+
+    /**
+     * Creates a filter with one impulse response per channel. Channels that pass the same array
+     * share its precomputed spectra.
+     */
+    public ConvolutionFilter(int channels, int bufferSize, double[][] impulseResponses, int partitionSize, Partitioning partitioning) throws InvalidFilterParametersException {
+        if (channels <= 0) {
+            throw new InvalidFilterParametersException("Channel count must be positive.");
+        }
+        if (bufferSize <= 0 || bufferSize % channels != 0) {
+            throw new InvalidFilterParametersException("Buffer size must be a positive multiple of the channel count.");
+        }
+        if (partitionSize < MIN_PARTITION_SIZE || partitionSize > MAX_PARTITION_SIZE || Integer.bitCount(partitionSize) != 1) {
+            throw new InvalidFilterParametersException("Partition size must be a power of 2 between " + MIN_PARTITION_SIZE + " and " + MAX_PARTITION_SIZE + ", got " + partitionSize);
+        }
+        if (impulseResponses == null || impulseResponses.length != channels) {
+            throw new InvalidFilterParametersException("Expected one impulse response per channel.");
+        }
+        for (double[] response : impulseResponses) {
+            if (response == null || response.length == 0) {
+                throw new InvalidFilterParametersException("Impulse response must not be empty.");
+            }
+        }
+
+        this.channels = channels;
+        this.bufferSize = bufferSize;
+        this.partitionSize = partitionSize;
+        this.partitioning = (partitioning == null) ? Partitioning.Uniform : partitioning;
+        this.impulseResponses = new double[channels][];
+        this.head = new PartitionedConvolver[channels];
+        this.tail = new PartitionedConvolver[channels];
+
+        Map<double[], ConvolutionKernel[]> kernels = new IdentityHashMap<>();
+        for (int ch = 0; ch < channels; ch++) {
+            double[] response = impulseResponses[ch];
+            ConvolutionKernel[] pair = kernels.computeIfAbsent(response, this::createKernels);
+            this.impulseResponses[ch] = response.clone();
+            this.head[ch] = new PartitionedConvolver(pair[0]);
+            this.tail[ch] = (pair[1] == null) ? null : new PartitionedConvolver(pair[1]);
+        }
+    }
+
+    private static double[][] sharedResponse(int channels, double[] impulseResponse) {
+        double[][] responses = new double[Math.max(channels, 0)][];
+        Arrays.fill(responses, impulseResponse);
+        return responses;
+    }
+
+    /*
+     * Non-uniform split: the tail runs with block L = TAIL_PARTITION_FACTOR * B and has latency L,
+     * so it takes over at tap L - B, where its output lines up with the head's latency of B.
+     */
+    private ConvolutionKernel[] createKernels(double[] response) {
+        int tailBlock = this.partitionSize * TAIL_PARTITION_FACTOR;
+        int headLength = tailBlock - this.partitionSize;
+
+        if (this.partitioning == Partitioning.NonUniform && response.length > tailBlock) {
+            ConvolutionKernel headKernel = new ConvolutionKernel(response, 0, headLength, this.partitionSize);
+            ConvolutionKernel tailKernel = new ConvolutionKernel(response, headLength, response.length - headLength, tailBlock);
+            return new ConvolutionKernel[] { headKernel, tailKernel };
+        }
+        return new ConvolutionKernel[] { new ConvolutionKernel(response, 0, response.length, this.partitionSize), null };
+    }
+
+    /**
+     * The longest response, plus up to one partly filled input block and one block of output
+     * latency in the largest partition size.
+     */
+    @Override
+    public long getTailFrames() {
+        long tail = 0;
+        for (int ch = 0; ch < this.channels; ch++) {
+            long block = (this.tail[ch] != null) ? this.tail[ch].getLatency() : this.head[ch].getLatency();
+            tail = Math.max(tail, this.impulseResponses[ch].length + 2 * block);
+        }
+        return tail;
+    }
+
+    @Override
+    public void reset() {
+        for (int ch = 0; ch < this.channels; ch++) {
+            this.head[ch].reset();
+            if (this.tail[ch] != null) {
+                this.tail[ch].reset();
+            }
+        }
+    }
+
+    @Override
+    public double[] process(double[] inputBuffer) {
+        if (inputBuffer == null) {
+            throw new IllegalArgumentException("Input buffer must not be null.");
+        }
+        if (inputBuffer.length != this.bufferSize) {
+            throw new IllegalArgumentException("Buffer size mismatch: expected " + this.bufferSize + ", got " + inputBuffer.length);
+        }
+
+        double[] processedBuffer = new double[inputBuffer.length];
+        int frames = inputBuffer.length / this.channels;
+
+        for (int ch = 0; ch < this.channels; ch++) {
+            this.head[ch].process(inputBuffer, processedBuffer, ch, this.channels, frames, false);
+            if (this.tail[ch] != null) {
+                this.tail[ch].process(inputBuffer, processedBuffer, ch, this.channels, frames, true);
+            }
+        }
+
+        return processedBuffer;
+    }
+}
@@ -0,0 +1,40 @@
+package ConvolutionFilter;
+
+import FFT.FFT;
+
+/**
+ * Precomputed spectra of one impulse-response segment, split into equal partitions.
+ *
+ * Partition p holds taps [p * blockSize, (p + 1) * blockSize) of the segment, zero-padded to
+ * twice the block size and transformed once up front into the packed real layout of
+ * {@link FFT#realForward(double[])}. Kernels are immutable and shared by all channels that use
+ * the same impulse response.
+ */
+final class ConvolutionKernel {
+
+    final int blockSize;
+    final int fftSize;
+    final int partitions;
+    final FFT fft;
+
+    // [partition][packed bin]
+    final double[][] spectra;
+
+    ConvolutionKernel(double[] impulseResponse, int offset, int length, int blockSize) {
+        this.blockSize = blockSize;
+        this.fftSize = blockSize * 2;
+        this.partitions = Math.max(1, (length + blockSize - 1) / blockSize);
+        this.fft = FFT.forSize(this.fftSize);
+
+        this.spectra = new double[this.partitions][this.fftSize];
+
+        for (int p = 0; p < this.partitions; p++) {
+            int start = p * blockSize;
+            int taps = Math.min(blockSize, length - start);
+            if (taps > 0) {
+                System.arraycopy(impulseResponse, offset + start, this.spectra[p], 0, taps);
+            }
+            this.fft.realForward(this.spectra[p]);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package ConvolutionFilter;
+
+import java.util.Arrays;
+
+/**
+ * Uniformly partitioned overlap-save convolution of one channel against one kernel.
+ *
+ * Input is gathered into blocks of {@code blockSize} samples. When a block completes it is
+ * transformed once, pushed into a frequency-domain delay line, and multiplied against every
+ * partition spectrum of the kernel; one inverse transform then yields the next block of output.
+ * Output therefore lags input by exactly one block.
+ */
+final class PartitionedConvolver {
+
+    private final ConvolutionKernel kernel;
+    private final int blockSize;
+
+    // Last two input blocks, i.e. the overlap-save frame.
+    private final double[] inputFrame;
+
+    // Frequency-domain delay line: spectra of the most recent input frames.
+    private final double[][] fdl;
+    private int fdlIndex;
+
+    private final double[] accumulator;
+
+    private final double[] outputBlock;
+    private int position;
+
+    PartitionedConvolver(ConvolutionKernel kernel) {
+        this.kernel = kernel;
+        this.blockSize = kernel.blockSize;
+        this.inputFrame = new double[kernel.fftSize];
+        this.fdl = new double[kernel.partitions][kernel.fftSize];
+        this.accumulator = new double[kernel.fftSize];
+        this.outputBlock = new double[this.blockSize];
+    }
+
+    int getLatency() { return this.blockSize; }
+
+    /**
+     * Convolves {@code frames} samples read from {@code input} at {@code offset}, stepping by
+     * {@code stride}, and writes (or adds, if {@code accumulate}) the delayed result to the same
+     * positions of {@code output}.
+     */
+    void process(double[] input, double[] output, int offset, int stride, int frames, boolean accumulate) {
+        int index = offset;
+        for (int frame = 0; frame < frames; frame++) {
+            double sample = input[index];
+            double result = this.outputBlock[this.position];
+            output[index] = accumulate ? output[index] + result : result;
+
+            this.inputFrame[this.blockSize + this.position] = sample;
+            if (++this.position == this.blockSize) {
+                convolveBlock();
+                this.position = 0;
+            }
+            index += stride;
+        }
+    }
+
+    void reset() {
+        Arrays.fill(this.inputFrame, 0.0);
+        for (int p = 0; p < this.kernel.partitions; p++) {
+            Arrays.fill(this.fdl[p], 0.0);
+        }
+        Arrays.fill(this.outputBlock, 0.0);
+        this.fdlIndex = 0;
+        this.position = 0;
+    }
+
+    private void convolveBlock() {
+        int partitions = this.kernel.partitions;
+        int bins = this.kernel.fftSize;
+
+        double[] x = this.fdl[this.fdlIndex];
+        System.arraycopy(this.inputFrame, 0, x, 0, bins);
+        this.kernel.fft.realForward(x);
+
+        double[] y = this.accumulator;
+        Arrays.fill(y, 0.0);
+
+        for (int p = 0; p < partitions; p++) {
+            int slot = this.fdlIndex - p;
+            if (slot < 0) slot += partitions;
+
+            double[] h = this.kernel.spectra[p];
+            double[] s = this.fdl[slot];
+
+            // Packed layout: DC and Nyquist are real, the rest are (re, im) pairs.
+            y[0] += h[0] * s[0];
+            y[1] += h[1] * s[1];
+            for (int k = 2; k < bins; k += 2) {
+                y[k] += h[k] * s[k] - h[k + 1] * s[k + 1];
+                y[k + 1] += h[k] * s[k + 1] + h[k + 1] * s[k];
+            }
+        }
+
+        this.kernel.fft.realInverse(y);
+
+        // Overlap-save: the first half is circular wrap-around, the second half is valid output.
+        System.arraycopy(y, this.blockSize, this.outputBlock, 0, this.blockSize);
+        System.arraycopy(this.inputFrame, this.blockSize, this.inputFrame, 0, this.blockSize);
+
+        if (++this.fdlIndex == partitions) {
+            this.fdlIndex = 0;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package FFT;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-place iterative FFT over primitive {@code double[]} arrays.
+ *
+ * Complex transforms work on interleaved data ({@code re0, im0, re1, im1, ...}, length
+ * {@code 2 * size}) and run mixed radix-2/4 stages: one radix-2 stage when log2(size) is odd,
+ * then radix-2² stages that fuse two butterflies per pass over the data.
+ *
+ * Real transforms take {@code size} real samples, run a complex transform of half the size and
+ * split the result, so they cost roughly half of a complex transform. The spectrum is packed
+ * into the same array:
+ * <pre>
+ *   data[0]      = Re X[0]          (DC, purely real)
+ *   data[1]      = Re X[size / 2]   (Nyquist, purely real)
+ *   data[2k]     = Re X[k]          for 1 <= k < size / 2
+ *   data[2k + 1] = Im X[k]
+ * </pre>
+ *
+ * Bit-reversal and twiddle tables are computed once per size and shared through
+ * {@link #forSize(int)}. Instances are immutable and thread-safe; transforms allocate nothing.
+ * Inverse transforms are scaled by 1/size, so {@code inverse(forward(x)) == x}.
+ */
+public final class FFT {
+
+    private static final ConcurrentHashMap<Integer, FFT> CACHE = new ConcurrentHashMap<>();
+
+    private final int size;
+    private final int[] bitReverse;
+
+    // e^(-2 pi i k / size) for k < size / 2
+    private final double[] cosTable;
+    private final double[] sinTable;
+
+    // Complex transform of size / 2 that backs the real transforms; null for size 1.
+    private final FFT half;
+
+    /**
+     * Returns the shared transform for {@code size}, building its tables on first use.
+     *
+     * @param size a power of 2
+     * @throws IllegalArgumentException if size is not a positive power of 2
+     */
+    public static FFT forSize(int size) {
+        FFT fft = CACHE.get(size);
+        if (fft == null) {
+            // Not computeIfAbsent: the constructor recurses into forSize(size / 2).
+            fft = new FFT(size);
+            FFT existing = CACHE.putIfAbsent(size, fft);
+            if (existing != null) {
+                fft = existing;
+            }
+        }
+        return fft;
+    }
+
+    private FFT(int size) {
+        if (size < 1 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of 2, got " + size);
+        }
+        this.size = size;
+
+        int bits = Integer.numberOfTrailingZeros(size);
+        this.bitReverse = new int[size];
+        for (int i = 1; i < size; i++) {
+            this.bitReverse[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+
+        this.cosTable = new double[Math.max(1, size / 2)];
+        this.sinTable = new double[Math.max(1, size / 2)];
+        for (int k = 0; k < size / 2; k++) {
+            double angle = -2.0 * Math.PI * k / size;
+            this.cosTable[k] = Math.cos(angle);
+            this.sinTable[k] = Math.sin(angle);
+        }
+        this.cosTable[0] = 1.0;
+        this.sinTable[0] = 0.0;
+
+        this.half = (size > 1) ? forSize(size / 2) : null;
+    }
+
+    public int getSize() { return this.size; }
+
+    // --- Complex transforms ---
+
+    /**
+     * Forward complex transform of {@code size} interleaved complex values, in place.
+     */
+    public void forward(double[] data) {
+        checkLength(data, 2 * this.size);
+        transform(data, 1.0);
+    }
+
+    /**
+     * Inverse complex transform of {@code size} interleaved complex values, in place, scaled by 1/size.
+     */
+    public void inverse(double[] data) {
+        checkLength(data, 2 * this.size);
+        transform(data, -1.0);
+        scale(data, 2 * this.size, 1.0 / this.size);
+    }
+
+    // --- Real transforms ---
+
+    /**
+     * Forward transform of {@code size} real samples, in place, into the packed layout
+     * described in the class comment.
+     */
+    public void realForward(double[] data) {
+        checkReal(data);
+        int h = this.size / 2;
+        this.half.transform(data, 1.0);
+
+        double z0r = data[0];
+        double z0i = data[1];
+        data[0] = z0r + z0i;
+        data[1] = z0r - z0i;
+
+        for (int k = 1; k <= h / 2; k++) {
+            int a = 2 * k;
+            int b = 2 * (h - k);
+            double zkr = data[a], zki = data[a + 1];
+            double zjr = data[b], zji = data[b + 1];
+
+            // Fe = (Z[k] + conj Z[h-k]) / 2, Fo = (Z[k] - conj Z[h-k]) / 2i
+            double fer = 0.5 * (zkr + zjr);
+            double fei = 0.5 * (zki - zji);
+            double for_ = 0.5 * (zki + zji);
+            double foi = -0.5 * (zkr - zjr);
+
+            double wr = this.cosTable[k];
+            double wi = this.sinTable[k];
+            double tr = wr * for_ - wi * foi;
+            double ti = wr * foi + wi * for_;
+
+            data[a] = fer + tr;
+            data[a + 1] = fei + ti;
+            data[b] = fer - tr;
+            data[b + 1] = ti - fei;
+        }
+    }
+
+    /**
+     * Inverse of {@link #realForward(double[])}: packed spectrum in, {@code size} real samples out.
+     */
+    public void realInverse(double[] data) {
+        checkReal(data);
+        int h = this.size / 2;
+
+        double x0 = data[0];
+        double xh = data[1];
+        data[0] = 0.5 * (x0 + xh);
+        data[1] = 0.5 * (x0 - xh);
+
+        for (int k = 1; k <= h / 2; k++) {
+            int a = 2 * k;
+            int b = 2 * (h - k);
+            double xkr = data[a], xki = data[a + 1];
+            double xjr = data[b], xji = data[b + 1];
+
+            // Fe = (X[k] + conj X[h-k]) / 2, Fo = (X[k] - conj X[h-k]) * conj(w^k) / 2
+            double fer = 0.5 * (xkr + xjr);
+            double fei = 0.5 * (xki - xji);
+            double dr = 0.5 * (xkr - xjr);
+            double di = 0.5 * (xki + xji);
+
+            double wr = this.cosTable[k];
+            double wi = -this.sinTable[k];
+            double for_ = dr * wr - di * wi;
+            double foi = dr * wi + di * wr;
+
+            // Z[k] = Fe + i Fo, Z[h-k] = conj(Fe) + i conj(Fo)
+            data[a] = fer - foi;
+            data[a + 1] = fei + for_;
+            data[b] = fer + foi;
+            data[b + 1] = for_ - fei;
+        }
+
+        this.half.transform(data, -1.0);
+        scale(data, this.size, 1.0 / h);
+    }
+
+    /**
+     * Writes the magnitudes of the {@code packed.length / 2 + 1} bins of a packed real spectrum
+     * into {@code out}.
+     */
+    public static void magnitude(double[] packed, double[] out) {
+        int h = packed.length / 2;
+        if (out.length < h + 1) {
+            throw new IllegalArgumentException("Output length must be at least " + (h + 1) + ", got " + out.length);
+        }
+        out[0] = Math.abs(packed[0]);
+        out[h] = Math.abs(packed[1]);
+        for (int k = 1; k < h; k++) {
+            double re = packed[2 * k];
+            double im = packed[2 * k + 1];
+            out[k] = Math.sqrt(re * re + im * im);
+        }
+    }
+
+    // --- Kernel ---
+
+    /*
+     * Decimation in time. After bit reversal, each radix-2² pass fuses the stages of span m and
+     * 2m: two length-2m butterflies with twiddle W(2m)^k, then two length-4m butterflies with
+     * W(4m)^k and W(4m)^(k+m) = -i * W(4m)^k (conjugated for the inverse).
+     */
+    private void transform(double[] data, double sign) {
+        int n = this.size;
+        if (n == 1) {
+            return;
+        }
+
+        int[] rev = this.bitReverse;
+        for (int i = 1; i < n; i++) {
+            int j = rev[i];
+            if (j > i) {
+                int a = 2 * i, b = 2 * j;
+                double tr = data[a]; data[a] = data[b]; data[b] = tr;
+                double ti = data[a + 1]; data[a + 1] = data[b + 1]; data[b + 1] = ti;
+            }
+        }
+
+        int m = 1;
+        if ((Integer.numberOfTrailingZeros(n) & 1) != 0) {
+            for (int i = 0; i < 2 * n; i += 4) {
+                double br = data[i + 2], bi = data[i + 3];
+                data[i + 2] = data[i] - br;
+                data[i + 3] = data[i + 1] - bi;
+                data[i] += br;
+                data[i + 1] += bi;
+            }
+            m = 2;
+        }
+
+        double[] cos = this.cosTable;
+        double[] sin = this.sinTable;
+        for (; m < n; m <<= 2) {
+            int step4 = n / (4 * m);
+            int step2 = 2 * step4;
+            for (int start = 0; start < n; start += 4 * m) {
+                for (int k = 0; k < m; k++) {
+                    int i0 = 2 * (start + k);
+                    int i1 = i0 + 2 * m;
+                    int i2 = i1 + 2 * m;
+                    int i3 = i2 + 2 * m;
+
+                    double w2r = cos[k * step2], w2i = sign * sin[k * step2];
+                    double w4r = cos[k * step4], w4i = sign * sin[k * step4];
+
+                    // Span m: (x0, x1) and (x2, x3) with W(2m)^k
+                    double t1r = w2r * data[i1] - w2i * data[i1 + 1];
+                    double t1i = w2r * data[i1 + 1] + w2i * data[i1];
+                    double t3r = w2r * data[i3] - w2i * data[i3 + 1];
+                    double t3i = w2r * data[i3 + 1] + w2i * data[i3];
+
+                    double a0r = data[i0] + t1r, a0i = data[i0 + 1] + t1i;
+                    double a1r = data[i0] - t1r, a1i = data[i0 + 1] - t1i;
+                    double a2r = data[i2] + t3r, a2i = data[i2 + 1] + t3i;
+                    double a3r = data[i2] - t3r, a3i = data[i2 + 1] - t3i;
+
+                    // Span 2m: (A0, A2) with W(4m)^k, (A1, A3) with -i * W(4m)^k
+                    double u2r = w4r * a2r - w4i * a2i;
+                    double u2i = w4r * a2i + w4i * a2r;
+                    double u3r = w4r * a3r - w4i * a3i;
+                    double u3i = w4r * a3i + w4i * a3r;
+                    // multiply by -i (forward) or +i (inverse)
+                    double v3r = sign * u3i;
+                    double v3i = -sign * u3r;
+
+                    data[i0] = a0r + u2r;
+                    data[i0 + 1] = a0i + u2i;
+                    data[i2] = a0r - u2r;
+                    data[i2 + 1] = a0i - u2i;
+                    data[i1] = a1r + v3r;
+                    data[i1 + 1] = a1i + v3i;
+                    data[i3] = a1r - v3r;
+                    data[i3 + 1] = a1i - v3i;
+                }
+            }
+        }
+    }
+
+    private void checkReal(double[] data) {
+        if (this.size < 2) {
+            throw new IllegalStateException("Real transforms need a size of at least 2.");
+        }
+        checkLength(data, this.size);
+    }
+
+    private static void checkLength(double[] data, int expected) {
+        if (data == null) {
+            throw new IllegalArgumentException("Input buffer must not be null.");
+        }
+        if (data.length != expected) {
+            throw new IllegalArgumentException("Buffer size mismatch: expected " + expected + ", got " + data.length);
+        }
+    }
+
+    private static void scale(double[] data, int length, double factor) {
+        for (int i = 0; i < length; i++) {
+            data[i] *= factor;
+        }
+    }
+}
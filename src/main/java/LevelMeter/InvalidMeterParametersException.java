@@ -0,0 +1,16 @@
+package LevelMeter;
+
+public class InvalidMeterParametersException extends Exception {
+	
+	public InvalidMeterParametersException() {
+		super();
+	}
+	
+	public InvalidMeterParametersException(String msg) {
+		super(msg);
+	}
+	
+	public InvalidMeterParametersException(String msg, Exception e) {
+		super(msg, e);
+	}
+}
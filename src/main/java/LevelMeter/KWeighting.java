@@ -0,0 +1,67 @@
+package LevelMeter;
+
+import java.util.Arrays;
+
+/**
+ * ITU-R BS.1770 K-weighting: a high-shelf pre-filter followed by the RLB high-pass, run
+ * incrementally per sample with per-channel transposed direct form II state.
+ *
+ * Coefficients are derived from the analog prototypes so any sample rate is supported; at
+ * 48 kHz they reproduce the tabulated values of the recommendation.
+ */
+final class KWeighting {
+
+    // Stage 1: high shelf (+4 dB above ~1.7 kHz, modelling the head).
+    private static final double SHELF_FREQUENCY = 1681.974450955533;
+    private static final double SHELF_GAIN_DB = 3.999843853973347;
+    private static final double SHELF_Q = 0.7071752369554196;
+
+    // Stage 2: revised low-frequency B-curve high-pass.
+    private static final double HIGHPASS_FREQUENCY = 38.13547087602444;
+    private static final double HIGHPASS_Q = 0.5003270373238773;
+
+    final double b0, b1, b2, a1, a2;
+    final double c1, c2;
+
+    // [channel][state]: two states per stage.
+    private final double[][] state;
+
+    KWeighting(double sampleRate, int channels) {
+        double k = Math.tan(Math.PI * SHELF_FREQUENCY / sampleRate);
+        double vh = Math.pow(10.0, SHELF_GAIN_DB / 20.0);
+        double vb = Math.pow(vh, 0.4996667741545416);
+        double a0 = 1.0 + k / SHELF_Q + k * k;
+        this.b0 = (vh + vb * k / SHELF_Q + k * k) / a0;
+        this.b1 = 2.0 * (k * k - vh) / a0;
+        this.b2 = (vh - vb * k / SHELF_Q + k * k) / a0;
+        this.a1 = 2.0 * (k * k - 1.0) / a0;
+        this.a2 = (1.0 - k / SHELF_Q + k * k) / a0;
+
+        // The high-pass numerator is (1, -2, 1), folded into process().
+        k = Math.tan(Math.PI * HIGHPASS_FREQUENCY / sampleRate);
+        a0 = 1.0 + k / HIGHPASS_Q + k * k;
+        this.c1 = 2.0 * (k * k - 1.0) / a0;
+        this.c2 = (1.0 - k / HIGHPASS_Q + k * k) / a0;
+
+        this.state = new double[channels][4];
+    }
+
+    double process(int channel, double x) {
+        double[] s = this.state[channel];
+
+        double y = this.b0 * x + s[0];
+        s[0] = this.b1 * x - this.a1 * y + s[1];
+        s[1] = this.b2 * x - this.a2 * y;
+
+        double z = y + s[2];
+        s[2] = -2.0 * y - this.c1 * z + s[3];
+        s[3] = y - this.c2 * z;
+        return z;
+    }
+
+    void reset() {
+        for (double[] s : this.state) {
+            Arrays.fill(s, 0.0);
+        }
+    }
+}
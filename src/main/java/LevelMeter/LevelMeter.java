@@ -0,0 +1,263 @@
+package LevelMeter;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Streaming level meter: per-channel sample peak and RMS, plus ITU-R BS.1770 momentary (400 ms),
+ * short-term (3 s) and gated integrated loudness.
+ *
+ * The audio thread feeds every block to {@link #accept(double[])}. Work is incremental: each
+ * sample passes through the K-weighting filters once and is squared into a 100 ms sub-block
+ * accumulator; sub-block energies sit in small rings from which the sliding windows are summed,
+ * and every 400 ms gating block (75% overlap) goes into a fixed-size histogram. Memory is
+ * independent of stream length and nothing is allocated per block.
+ *
+ * The audio thread is the only writer. Values are published through volatile fields and atomic
+ * arrays, so control threads read them at any time without locking. {@link #reset()} only raises
+ * a flag; the state is cleared by the audio thread at the start of its next block.
+ */
+public class LevelMeter {
+
+    public static final double SUB_BLOCK_SECONDS = 0.1;
+    public static final int MOMENTARY_SUB_BLOCKS = 4;
+    public static final int SHORT_TERM_SUB_BLOCKS = 30;
+
+    // Surround channels are weighted +1.5 dB by BS.1770.
+    private static final double SURROUND_WEIGHT = 1.41;
+
+    private final float sampleRate;
+    private final int channels;
+    private final int subBlockLength;
+    private final double[] channelWeights;
+
+    // --- Audio thread state ---
+    private final KWeighting kWeighting;
+    private final LoudnessHistogram histogram = new LoudnessHistogram();
+    private final double[] weightedSums;
+    private final double[] unweightedSums;
+    private final double[] blockPeaks;
+    private final double[][] rmsRing;
+    private final double[] loudnessRing = new double[SHORT_TERM_SUB_BLOCKS];
+    private int subBlockPosition;
+    private long subBlocks;
+
+    // --- Published values ---
+    private final AtomicLongArray peaks;
+    private final AtomicLongArray rms;
+    private volatile double momentaryLoudness = Double.NEGATIVE_INFINITY;
+    private volatile double shortTermLoudness = Double.NEGATIVE_INFINITY;
+    private volatile double integratedLoudness = Double.NEGATIVE_INFINITY;
+    private volatile boolean resetRequested;
+
+    public float getSampleRate() { return this.sampleRate; }
+    public int getChannels() { return this.channels; }
+    public double getChannelWeight(int channel) { return this.channelWeights[channel]; }
+
+    /**
+     * Creates a meter with BS.1770 channel weights: 1.0 for every channel, except that a
+     * six-channel stream is taken as 5.1 (L, R, C, LFE, Ls, Rs) with the LFE excluded and the
+     * surrounds weighted {@value #SURROUND_WEIGHT}.
+     */
+    public LevelMeter(float sampleRate, int channels) throws InvalidMeterParametersException {
+        this(sampleRate, channels, defaultWeights(channels));
+    }
+
+    public LevelMeter(float sampleRate, int channels, double[] channelWeights) throws InvalidMeterParametersException {
+        if (sampleRate <= 0) {
+            throw new InvalidMeterParametersException("Sample rate must be positive.");
+        }
+        if (channels <= 0) {
+            throw new InvalidMeterParametersException("Channel count must be positive.");
+        }
+        if (channelWeights == null || channelWeights.length != channels) {
+            throw new InvalidMeterParametersException("Expected one weight per channel.");
+        }
+        for (double weight : channelWeights) {
+            if (!(weight >= 0.0) || Double.isInfinite(weight)) {
+                throw new InvalidMeterParametersException("Channel weights must be finite and non-negative.");
+            }
+        }
+
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.subBlockLength = Math.max(1, (int) Math.round(sampleRate * SUB_BLOCK_SECONDS));
+        this.channelWeights = channelWeights.clone();
+
+        this.kWeighting = new KWeighting(sampleRate, channels);
+        this.weightedSums = new double[channels];
+        this.unweightedSums = new double[channels];
+        this.blockPeaks = new double[channels];
+        this.rmsRing = new double[channels][MOMENTARY_SUB_BLOCKS];
+
+        this.peaks = new AtomicLongArray(channels);
+        this.rms = new AtomicLongArray(channels);
+    }
+
+    private static double[] defaultWeights(int channels) {
+        double[] weights = new double[Math.max(channels, 0)];
+        Arrays.fill(weights, 1.0);
+        if (channels == 6) {
+            weights[3] = 0.0;
+            weights[4] = SURROUND_WEIGHT;
+            weights[5] = SURROUND_WEIGHT;
+        }
+        return weights;
+    }
+
+    // --- Audio thread ---
+
+    /**
+     * Meters one interleaved block. A trailing partial frame is ignored.
+     */
+    public void accept(double[] samples) {
+        if (samples == null) {
+            return;
+        }
+        if (this.resetRequested) {
+            clear();
+            this.resetRequested = false;
+        }
+
+        int frames = samples.length / this.channels;
+        int index = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            for (int ch = 0; ch < this.channels; ch++) {
+                double x = samples[index++];
+                double magnitude = Math.abs(x);
+                if (magnitude > this.blockPeaks[ch]) {
+                    this.blockPeaks[ch] = magnitude;
+                }
+                this.unweightedSums[ch] += x * x;
+                double y = this.kWeighting.process(ch, x);
+                this.weightedSums[ch] += y * y;
+            }
+            if (++this.subBlockPosition == this.subBlockLength) {
+                closeSubBlock();
+            }
+        }
+
+        for (int ch = 0; ch < this.channels; ch++) {
+            if (this.blockPeaks[ch] > Double.longBitsToDouble(this.peaks.getPlain(ch))) {
+                this.peaks.setRelease(ch, Double.doubleToRawLongBits(this.blockPeaks[ch]));
+            }
+            this.blockPeaks[ch] = 0.0;
+        }
+    }
+
+    private void closeSubBlock() {
+        int rmsSlot = (int) (this.subBlocks % MOMENTARY_SUB_BLOCKS);
+        int loudnessSlot = (int) (this.subBlocks % SHORT_TERM_SUB_BLOCKS);
+        this.subBlocks++;
+
+        // RMS over the momentary window, or what has been seen of it so far.
+        int rmsSubBlocks = (int) Math.min(this.subBlocks, MOMENTARY_SUB_BLOCKS);
+        double weightedEnergy = 0.0;
+        for (int ch = 0; ch < this.channels; ch++) {
+            double[] ring = this.rmsRing[ch];
+            ring[rmsSlot] = this.unweightedSums[ch];
+            double sum = 0.0;
+            for (int i = 0; i < rmsSubBlocks; i++) {
+                sum += ring[i];
+            }
+            this.rms.setRelease(ch, Double.doubleToRawLongBits(Math.sqrt(sum / ((double) rmsSubBlocks * this.subBlockLength))));
+
+            weightedEnergy += this.channelWeights[ch] * this.weightedSums[ch];
+            this.unweightedSums[ch] = 0.0;
+            this.weightedSums[ch] = 0.0;
+        }
+        this.loudnessRing[loudnessSlot] = weightedEnergy;
+        this.subBlockPosition = 0;
+
+        if (this.subBlocks >= MOMENTARY_SUB_BLOCKS) {
+            double energy = windowEnergy(MOMENTARY_SUB_BLOCKS);
+            double loudness = loudness(energy);
+            this.momentaryLoudness = loudness;
+
+            // Each momentary window is also a gating block for integrated loudness.
+            this.histogram.add(loudness, energy);
+            this.integratedLoudness = this.histogram.integratedLoudness();
+        }
+        if (this.subBlocks >= SHORT_TERM_SUB_BLOCKS) {
+            this.shortTermLoudness = loudness(windowEnergy(SHORT_TERM_SUB_BLOCKS));
+        }
+    }
+
+    // Mean-square weighted energy of the most recent sub-blocks.
+    private double windowEnergy(int subBlockCount) {
+        double sum = 0.0;
+        long newest = this.subBlocks - 1;
+        for (int i = 0; i < subBlockCount; i++) {
+            sum += this.loudnessRing[(int) ((newest - i) % SHORT_TERM_SUB_BLOCKS)];
+        }
+        return sum / ((double) subBlockCount * this.subBlockLength);
+    }
+
+    private void clear() {
+        this.kWeighting.reset();
+        this.histogram.reset();
+        Arrays.fill(this.weightedSums, 0.0);
+        Arrays.fill(this.unweightedSums, 0.0);
+        Arrays.fill(this.blockPeaks, 0.0);
+        for (double[] ring : this.rmsRing) {
+            Arrays.fill(ring, 0.0);
+        }
+        Arrays.fill(this.loudnessRing, 0.0);
+        this.subBlockPosition = 0;
+        this.subBlocks = 0;
+
+        for (int ch = 0; ch < this.channels; ch++) {
+            this.peaks.setRelease(ch, 0L);
+            this.rms.setRelease(ch, 0L);
+        }
+        this.momentaryLoudness = Double.NEGATIVE_INFINITY;
+        this.shortTermLoudness = Double.NEGATIVE_INFINITY;
+        this.integratedLoudness = Double.NEGATIVE_INFINITY;
+    }
+
+    static double loudness(double meanSquare) {
+        return -0.691 + 10.0 * Math.log10(meanSquare);
+    }
+
+    // --- Readers ---
+
+    /**
+     * Clears all meters, including the integrated-loudness history, at the next block.
+     */
+    public void reset() {
+        this.resetRequested = true;
+    }
+
+    /** Highest absolute sample value seen on {@code channel} since the last reset. */
+    public double getPeak(int channel) {
+        return Double.longBitsToDouble(this.peaks.getAcquire(channel));
+    }
+
+    /** Unweighted RMS of {@code channel} over the last 400 ms. */
+    public double getRms(int channel) {
+        return Double.longBitsToDouble(this.rms.getAcquire(channel));
+    }
+
+    public double getPeakDbfs(int channel) {
+        return 20.0 * Math.log10(getPeak(channel));
+    }
+
+    public double getRmsDbfs(int channel) {
+        return 20.0 * Math.log10(getRms(channel));
+    }
+
+    /** Loudness over the last 400 ms in LUFS, or negative infinity until 400 ms have been seen. */
+    public double getMomentaryLoudness() {
+        return this.momentaryLoudness;
+    }
+
+    /** Loudness over the last 3 s in LUFS, or negative infinity until 3 s have been seen. */
+    public double getShortTermLoudness() {
+        return this.shortTermLoudness;
+    }
+
+    /** Gated loudness since the last reset in LUFS, or negative infinity if every block was gated. */
+    public double getIntegratedLoudness() {
+        return this.integratedLoudness;
+    }
+}
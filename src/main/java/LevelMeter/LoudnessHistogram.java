@@ -0,0 +1,67 @@
+package LevelMeter;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size histogram of gating-block loudness for BS.1770 integrated loudness.
+ *
+ * Each bin covers {@value #BIN_WIDTH_LU} LU from the absolute gate at {@value #ABSOLUTE_GATE_LUFS}
+ * LUFS upwards and keeps a block count and the sum of the blocks' mean-square energies, so
+ * memory stays constant however long the stream runs. The absolute-gate mean is exact; the
+ * relative gate is applied at bin resolution.
+ */
+final class LoudnessHistogram {
+
+    static final double ABSOLUTE_GATE_LUFS = -70.0;
+    static final double RELATIVE_GATE_LU = -10.0;
+    static final double BIN_WIDTH_LU = 0.1;
+    static final double MAX_LUFS = 30.0;
+
+    private static final int BINS = (int) Math.round((MAX_LUFS - ABSOLUTE_GATE_LUFS) / BIN_WIDTH_LU);
+
+    private final long[] counts = new long[BINS];
+    private final double[] energies = new double[BINS];
+    private long totalCount;
+    private double totalEnergy;
+
+    /**
+     * Adds one gating block; blocks below the absolute gate are ignored.
+     */
+    void add(double loudness, double energy) {
+        if (!(loudness >= ABSOLUTE_GATE_LUFS)) {
+            return;
+        }
+        int bin = Math.min(BINS - 1, (int) ((loudness - ABSOLUTE_GATE_LUFS) / BIN_WIDTH_LU));
+        this.counts[bin]++;
+        this.energies[bin] += energy;
+        this.totalCount++;
+        this.totalEnergy += energy;
+    }
+
+    /**
+     * Integrated loudness in LUFS, or negative infinity if no block passed the absolute gate.
+     */
+    double integratedLoudness() {
+        if (this.totalCount == 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        double relativeGate = LevelMeter.loudness(this.totalEnergy / this.totalCount) + RELATIVE_GATE_LU;
+        int first = (int) Math.ceil((relativeGate - ABSOLUTE_GATE_LUFS) / BIN_WIDTH_LU - 1e-9);
+        first = Math.max(0, Math.min(BINS - 1, first));
+
+        long count = 0;
+        double energy = 0.0;
+        for (int bin = first; bin < BINS; bin++) {
+            count += this.counts[bin];
+            energy += this.energies[bin];
+        }
+        return (count == 0) ? Double.NEGATIVE_INFINITY : LevelMeter.loudness(energy / count);
+    }
+
+    void reset() {
+        Arrays.fill(this.counts, 0L);
+        Arrays.fill(this.energies, 0.0);
+        this.totalCount = 0;
+        this.totalEnergy = 0.0;
+    }
+}
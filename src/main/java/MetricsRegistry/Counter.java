@@ -0,0 +1,28 @@
+package MetricsRegistry;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic count. Increments are striped across cells ({@link LongAdder}), so any number of
+ * threads, including the audio thread, can update it without contending on one cache line.
+ */
+public final class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        this.count.increment();
+    }
+
+    public void add(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Counters only increase, got " + amount);
+        }
+        this.count.add(amount);
+    }
+
+    public long get() { return this.count.sum(); }
+}
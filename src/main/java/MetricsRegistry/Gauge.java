@@ -0,0 +1,31 @@
+package MetricsRegistry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Value that goes up and down. The double is held as raw bits in an {@link AtomicLong}:
+ * {@link #set(double)} is a single release store and {@link #add(double)} a CAS loop, so
+ * neither ever blocks.
+ */
+public final class Gauge {
+
+    private final AtomicLong bits = new AtomicLong(Double.doubleToRawLongBits(0.0));
+
+    Gauge() {
+    }
+
+    public void set(double value) {
+        this.bits.setRelease(Double.doubleToRawLongBits(value));
+    }
+
+    public void add(double delta) {
+        long current;
+        long next;
+        do {
+            current = this.bits.get();
+            next = Double.doubleToRawLongBits(Double.longBitsToDouble(current) + delta);
+        } while (!this.bits.compareAndSet(current, next));
+    }
+
+    public double get() { return Double.longBitsToDouble(this.bits.getAcquire()); }
+}
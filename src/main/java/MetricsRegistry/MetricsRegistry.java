@@ -0,0 +1,149 @@
+package MetricsRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Named counters, gauges and timers, rendered in the Prometheus text exposition format
+ * (version 0.0.4).
+ *
+ * Metrics are looked up once, typically into a {@code static final} field, and updated directly
+ * from then on; the hot path never touches the registry's maps. Asking for the same name and
+ * labels twice returns the same instance, so independent components may share a series.
+ *
+ * <pre>
+ *   private static final Counter BLOCKS = MetricsRegistry.getDefault()
+ *           .counter("earcanvas_blocks_processed_total", "Blocks processed by all pipelines.");
+ * </pre>
+ *
+ * Labels are given as name/value pairs: {@code counter(name, help, "filter", "Limiter")}.
+ */
+public final class MetricsRegistry {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final Pattern METRIC_NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final Pattern LABEL_NAME = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /** Registry shared by the whole process and served by {@code ControlServer} at {@code /metrics}. */
+    public static MetricsRegistry getDefault() { return DEFAULT; }
+
+    public Counter counter(String name, String help, String... labels) {
+        return family(name, help, "counter").series(labels, Counter::new, Counter.class);
+    }
+
+    public Gauge gauge(String name, String help, String... labels) {
+        return family(name, help, "gauge").series(labels, Gauge::new, Gauge.class);
+    }
+
+    public Timer timer(String name, String help, String... labels) {
+        return family(name, help, "summary").series(labels, Timer::new, Timer.class);
+    }
+
+    // --- Exposition ---
+
+    /**
+     * Renders every metric, families sorted by name and series by label set.
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : this.families.values()) {
+            family.writeTo(out);
+        }
+        return out.toString();
+    }
+
+    private Family family(String name, String help, String type) {
+        if (name == null || !METRIC_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid metric name: " + name);
+        }
+        Family family = this.families.computeIfAbsent(name, key -> new Family(key, (help == null) ? "" : help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    private static String labelString(String[] labels) {
+        if (labels == null || labels.length == 0) {
+            return "";
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs.");
+        }
+        StringBuilder out = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (labels[i] == null || !LABEL_NAME.matcher(labels[i]).matches()) {
+                throw new IllegalArgumentException("Invalid label name: " + labels[i]);
+            }
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"");
+            String value = (labels[i + 1] == null) ? "" : labels[i + 1];
+            for (int c = 0; c < value.length(); c++) {
+                char ch = value.charAt(c);
+                switch (ch) {
+                    case '\\': out.append("\\\\"); break;
+                    case '"': out.append("\\\""); break;
+                    case '\n': out.append("\\n"); break;
+                    default: out.append(ch);
+                }
+            }
+            out.append('"');
+        }
+        return out.append('}').toString();
+    }
+
+    static String formatValue(double value) {
+        if (Double.isNaN(value)) return "NaN";
+        if (value == Double.POSITIVE_INFINITY) return "+Inf";
+        if (value == Double.NEGATIVE_INFINITY) return "-Inf";
+        return Double.toString(value);
+    }
+
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final Map<String, Object> series = new ConcurrentSkipListMap<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        <T> T series(String[] labels, Supplier<T> factory, Class<T> kind) {
+            return kind.cast(this.series.computeIfAbsent(labelString(labels), key -> factory.get()));
+        }
+
+        void writeTo(StringBuilder out) {
+            out.append("# HELP ").append(this.name).append(' ')
+               .append(this.help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            out.append("# TYPE ").append(this.name).append(' ').append(this.type).append('\n');
+            for (Map.Entry<String, Object> entry : this.series.entrySet()) {
+                String labels = entry.getKey();
+                Object metric = entry.getValue();
+                if (metric instanceof Counter) {
+                    out.append(this.name).append(labels).append(' ').append(((Counter) metric).get()).append('\n');
+                } else if (metric instanceof Gauge) {
+                    out.append(this.name).append(labels).append(' ').append(formatValue(((Gauge) metric).get())).append('\n');
+                } else {
+                    Timer timer = (Timer) metric;
+                    // Count first: a concurrent record can then only make the sum look slightly ahead.
+                    long count = timer.getCount();
+                    out.append(this.name).append("_sum").append(labels).append(' ')
+                       .append(formatValue(timer.getTotalNanos() / 1e9)).append('\n');
+                    out.append(this.name).append("_count").append(labels).append(' ').append(count).append('\n');
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package MetricsRegistry;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count and total of measured durations, exposed as a Prometheus summary in seconds
+ * ({@code _count} and {@code _sum}). Recording is two striped adds and never allocates.
+ */
+public final class Timer {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    Timer() {
+    }
+
+    public void record(long nanos) {
+        this.count.increment();
+        this.totalNanos.add(nanos);
+    }
+
+    public long getCount() { return this.count.sum(); }
+    public long getTotalNanos() { return this.totalNanos.sum(); }
+}
@@ -2,17 +2,21 @@ package NativeFilter;
 
 import java.util.Arrays;
 
+import MetricsRegistry.Counter;
+
 public class ChannelBalancer implements NativeFilterInterface{
 
     static {
         try {
-            NativeLibLoader.loadLibrary("channelbalancer");
+            NativeLibLoader.loadLibrary(NativeLibLoader.LIBRARY_NAME);
         } catch (UnsatisfiedLinkError e) {
             System.err.println("Limiter: Native code library failed to load.\n" + e);
             throw e;
         }
     }
 
+    private static final Counter JNI_CALLS = NativeLibLoader.jniCalls(ChannelBalancer.class);
+
     private int channels;
     private int bufferSize;
     private double sampleRate;
@@ -42,6 +46,10 @@ public class ChannelBalancer implements NativeFilterInterface{
         this.preference = preference;
     }
 
+    // A per-frame mix with no memory.
+    @Override
+    public long getTailFrames() { return 0; }
+
     private static native void processData(double[] buffer, int channels, int length, double sampleRate, double preference);
 
     public double[] process(double[] inputBuffer) {
@@ -57,6 +65,7 @@ public class ChannelBalancer implements NativeFilterInterface{
 
         double[] processedBuffer = Arrays.copyOf(inputBuffer, inputBuffer.length);
 
+        JNI_CALLS.increment();
         processData(processedBuffer, this.channels, processedBuffer.length, this.sampleRate, this.preference);
 
         return processedBuffer;
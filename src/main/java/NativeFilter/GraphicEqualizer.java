@@ -2,18 +2,21 @@ package NativeFilter;
 
 import java.util.Arrays;
 
+import MetricsRegistry.Counter;
 import StandardFilter.InvalidFilterParametersException;
 
 public class GraphicEqualizer implements NativeFilterInterface{ 
     static {
         try {
-        	NativeLibLoader.loadLibrary("graphic_equalizer");
+        	NativeLibLoader.loadLibrary(NativeLibLoader.LIBRARY_NAME);
         } catch (UnsatisfiedLinkError e) {
             System.err.println("GraphicEqualizer: Native code library failed to load.\n" + e);
             throw e;
         }
     }
 
+    private static final Counter JNI_CALLS = NativeLibLoader.jniCalls(GraphicEqualizer.class);
+
     private int channels;
     private int bufferSize;
     private float sampleRate;
@@ -76,6 +79,10 @@ public class GraphicEqualizer implements NativeFilterInterface{
         this.bandGains = sanitizeGains(bandGains, this.bandCount);
     }
     
+    // The biquads start from rest on every call, so nothing rings past the block.
+    @Override
+    public long getTailFrames() { return 0; }
+
     // --- Native Method ---
     private static native void processData(double[] buffer, int length, int channels, float sampleRate, double[] bandGains, double qFactor);
 
@@ -92,6 +99,7 @@ public class GraphicEqualizer implements NativeFilterInterface{
 
         double[] processedBuffer = Arrays.copyOf(inputBuffer, inputBuffer.length);
         
+        JNI_CALLS.increment();
         processData(processedBuffer, processedBuffer.length, this.channels, this.sampleRate, this.bandGains, this.qFactor);
         
         return processedBuffer;
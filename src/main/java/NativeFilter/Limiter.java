@@ -2,17 +2,32 @@ package NativeFilter;
 
 import java.util.Arrays;
 
+import AudioProcessingRangler.FilterTails;
+import MetricsRegistry.Counter;
+
+/**
+ * Look-ahead peak limiter. The gain and delay lines live in {@link #state}, one array per
+ * instance, so several limiters (for example the old and new rack during a crossfade) never share
+ * state. The array is allocated here, off the audio thread.
+ */
 public class Limiter implements NativeFilterInterface {
 
     static {
         try {
-            NativeLibLoader.loadLibrary("limiter");
+            NativeLibLoader.loadLibrary(NativeLibLoader.LIBRARY_NAME);
         } catch (UnsatisfiedLinkError e) {
             System.err.println("Limiter: Native code library failed to load.\n" + e);
             throw e;
         }
     }
 
+    private static final Counter JNI_CALLS = NativeLibLoader.jniCalls(Limiter.class);
+
+    // Must match NativeFilter_Limiter.c.
+    static final int MAX_CHANNELS = 8;
+    static final int MAX_LOOKAHEAD_SAMPLES = 4096;
+    private static final int STATE_HEADER = 4;
+
     private int channels;
     private int bufferSize;
     private double sampleRate;
@@ -22,6 +37,8 @@ public class Limiter implements NativeFilterInterface {
     private double threshold_dB = -0.1;
     private double lookahead_ms = 100.0;
 
+    private double[] state;
+
     public int getChannels() { return this.channels; }
     public int getBufferSize() { return this.bufferSize; }
     public double getLookahead() { return this.lookahead_ms; } 
@@ -30,7 +47,11 @@ public class Limiter implements NativeFilterInterface {
     public double getAttackTime() { return this.attack_ms; }
     public double getReleaseTime() { return this.release_ms; }
 
-    public void setChannels(int channelCount) { this.channels = channelCount; }
+    public void setChannels(int channelCount) {
+        this.channels = channelCount;
+        this.state = newState(channelCount);
+    }
+
     public void setBufferSize(int bufferSize) { this.bufferSize = bufferSize; }
     public void setSampleRate(double sampleRate) { this.sampleRate = sampleRate; }
     public void setThreshold(double threshold_dB) { this.threshold_dB = threshold_dB; }
@@ -42,6 +63,7 @@ public class Limiter implements NativeFilterInterface {
         this.channels = channels;
         this.bufferSize = bufferSize;
         this.sampleRate = sampleRate;
+        this.state = newState(channels);
     }
 
     public Limiter(int channels, int bufferSize, double sampleRate, double threshold_dB, double attack_ms, double release_ms, double lookahead_ms) {
@@ -52,9 +74,32 @@ public class Limiter implements NativeFilterInterface {
         this.attack_ms = attack_ms;
         this.release_ms = release_ms;
         this.lookahead_ms = lookahead_ms;
+        this.state = newState(channels);
+    }
+
+    /**
+     * Clears the gain and delay lines, as if nothing had been processed yet.
+     */
+    @Override
+    public void reset() {
+        Arrays.fill(this.state, 0.0);
+    }
+
+    private static double[] newState(int channels) {
+        return new double[STATE_HEADER + Math.max(0, Math.min(channels, MAX_CHANNELS)) * MAX_LOOKAHEAD_SAMPLES];
+    }
+
+    /**
+     * The delay lines drain within the lookahead, while the gain releases back to unity over
+     * the release time; both start when the input goes silent.
+     */
+    @Override
+    public long getTailFrames() {
+        long lookahead = Math.max(0, Math.min((long) Math.floor(this.lookahead_ms * this.sampleRate / 1000.0), MAX_LOOKAHEAD_SAMPLES - 1));
+        return Math.max(lookahead, FilterTails.ofTimeConstant(this.release_ms, this.sampleRate));
     }
 
-    private static native void processData(double[] buffer, int channels, int length, double sampleRate, double attack_ms, double release_ms, double threshold_db, double lookahead_ms);
+    private static native void processData(double[] buffer, int channels, int length, double sampleRate, double attack_ms, double release_ms, double threshold_db, double lookahead_ms, double[] state);
 
     public double[] process(double[] inputBuffer) {
         if (inputBuffer == null) {
@@ -69,7 +114,8 @@ public class Limiter implements NativeFilterInterface {
 
         double[] processedBuffer = Arrays.copyOf(inputBuffer, inputBuffer.length);
 
-        processData(processedBuffer, this.channels, processedBuffer.length, this.sampleRate, this.attack_ms, this.release_ms, this.threshold_dB, this.lookahead_ms);
+        JNI_CALLS.increment();
+        processData(processedBuffer, this.channels, processedBuffer.length, this.sampleRate, this.attack_ms, this.release_ms, this.threshold_dB, this.lookahead_ms, this.state);
 
         return processedBuffer;
     }
@@ -1,5 +1,7 @@
 package NativeFilter;
 
-public interface NativeFilterInterface {
+import AudioProcessingRangler.RackFilterInterface;
+
+public interface NativeFilterInterface extends RackFilterInterface {
 
 }
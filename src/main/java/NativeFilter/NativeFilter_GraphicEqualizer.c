@@ -1,6 +1,7 @@
 #include <jni.h>
 #include <stdio.h>
 #include <math.h>
+#include "denormals.h"
 
 #ifndef PI
 #define PI 3.14159265358979323846
@@ -86,7 +87,10 @@ void processGraphicEQ(double* samples, int numSamples, int numChannels, float sa
 
 
     // --- 3. Process Audio Samples ---
-    
+
+    // Quiet passages ring the biquads down into subnormals; flush them to zero instead.
+    denormal_mode mode = denormals_disable();
+
     // Loop through each audio frame (e.g., a left/right pair in stereo).
     for (int s = 0; s < numSamples; s += numChannels) {
         for (int c = 0; c < numChannels; c++) {
@@ -114,6 +118,8 @@ void processGraphicEQ(double* samples, int numSamples, int numChannels, float sa
             samples[s + c] = sample_in;
         }
     }
+
+    denormals_restore(mode);
 }
 
 /**
@@ -3,17 +3,23 @@
 #include <math.h>
 #include <string.h>
 #include <stdbool.h>
+#include "denormals.h"
 
 #define MAX_CHANNELS 8
 #define MAX_LOOKAHEAD_SAMPLES 4096
 
-static double current_gain = 1.0;
-static double delay_buffer[MAX_CHANNELS][MAX_LOOKAHEAD_SAMPLES];
-static int write_pos = 0;
-static int current_lookahead_samples = 0;
-static bool state_initialized = false;
+/*
+ * Per-instance state, owned by the Java Limiter so any number of limiters can run side by side:
+ *   [0] current gain, [1] write position, [2] lookahead in samples, [3] initialized flag,
+ *   then one MAX_LOOKAHEAD_SAMPLES delay line per channel.
+ */
+#define STATE_GAIN 0
+#define STATE_WRITE_POS 1
+#define STATE_LOOKAHEAD 2
+#define STATE_INITIALIZED 3
+#define STATE_HEADER 4
 
-void limiter_processData(double* data, int numChannels, int numSamples, double samplerate, double attack_ms, double release_ms, double threshold_db, double lookahead_ms) {
+void limiter_processData(double* data, int numChannels, int numSamples, double samplerate, double attack_ms, double release_ms, double threshold_db, double lookahead_ms, double* state) {
 
     // --- Parameter & State Validation ---
     if (samplerate <= 0 || release_ms <= 0) {
@@ -27,16 +33,18 @@ void limiter_processData(double* data, int numChannels, int numSamples, double s
     if (new_lookahead_samples < 0) new_lookahead_samples = 0;
     if (new_lookahead_samples >= MAX_LOOKAHEAD_SAMPLES) new_lookahead_samples = MAX_LOOKAHEAD_SAMPLES - 1;
 
-    if (!state_initialized || new_lookahead_samples != current_lookahead_samples) {
-        current_gain = 1.0;
-        write_pos = 0;
-        current_lookahead_samples = new_lookahead_samples;
-        for (int ch = 0; ch < MAX_CHANNELS; ++ch) {
-            memset(delay_buffer[ch], 0, MAX_LOOKAHEAD_SAMPLES * sizeof(double));
-        }
-        state_initialized = true;
+    double* delay_buffer = state + STATE_HEADER;
+    if (state[STATE_INITIALIZED] == 0.0 || new_lookahead_samples != (int)state[STATE_LOOKAHEAD]) {
+        state[STATE_GAIN] = 1.0;
+        state[STATE_WRITE_POS] = 0.0;
+        state[STATE_LOOKAHEAD] = new_lookahead_samples;
+        memset(delay_buffer, 0, (size_t)numChannels * MAX_LOOKAHEAD_SAMPLES * sizeof(double));
+        state[STATE_INITIALIZED] = 1.0;
     }
-    
+    double current_gain = state[STATE_GAIN];
+    int write_pos = (int)state[STATE_WRITE_POS];
+    int current_lookahead_samples = (int)state[STATE_LOOKAHEAD];
+
     // --- Coefficient Calculation ---
     double threshold_linear = pow(10.0, threshold_db / 20.0);
     double attack_coeff = 0.0;
@@ -48,6 +56,9 @@ void limiter_processData(double* data, int numChannels, int numSamples, double s
     double release_coeff = exp(-1.0 / (release_ms * samplerate / 1000.0));
 
     // --- Main Processing Loop ---
+    // The envelope recovers towards unity in silence, but subnormal input still passes through
+    // the delay lines and gain multiply.
+    denormal_mode mode = denormals_disable();
     for (int i = 0; i < numSamples; i += numChannels) {
         double peak_level = 0.0;
         for (int ch = 0; ch < numChannels; ++ch) {
@@ -70,24 +81,45 @@ void limiter_processData(double* data, int numChannels, int numSamples, double s
 
         int read_pos = (write_pos - current_lookahead_samples + MAX_LOOKAHEAD_SAMPLES) % MAX_LOOKAHEAD_SAMPLES;
         for (int ch = 0; ch < numChannels; ++ch) {
-            double delayed_sample = delay_buffer[ch][read_pos];
-            delay_buffer[ch][write_pos] = data[i + ch];
+            double* line = delay_buffer + (size_t)ch * MAX_LOOKAHEAD_SAMPLES;
+            double delayed_sample = line[read_pos];
+            line[write_pos] = data[i + ch];
             double output_sample = delayed_sample * current_gain;
             data[i + ch] = output_sample;
         }
         write_pos = (write_pos + 1) % MAX_LOOKAHEAD_SAMPLES;
     }
+
+    denormals_restore(mode);
+
+    state[STATE_GAIN] = current_gain;
+    state[STATE_WRITE_POS] = write_pos;
 }
 
 JNIEXPORT void JNICALL Java_NativeFilter_Limiter_processData(
     JNIEnv *env, jclass clazz, jdoubleArray data, jint numChannels, jint numSamples,
-    jdouble samplerate, jdouble attack, jdouble release, jdouble threshold, jdouble lookahead)
+    jdouble samplerate, jdouble attack, jdouble release, jdouble threshold, jdouble lookahead, jdoubleArray state)
 {
+    // Guard against the Java side handing over arrays that are too small.
+    if (numChannels <= 0 || numChannels > MAX_CHANNELS ||
+        (*env)->GetArrayLength(env, state) < STATE_HEADER + numChannels * MAX_LOOKAHEAD_SAMPLES ||
+        (*env)->GetArrayLength(env, data) < numSamples) {
+        return;
+    }
+
     jdouble* buffer = (*env)->GetDoubleArrayElements(env, data, NULL);
     if (buffer == NULL) return;
 
+    // Critical access avoids copying the delay lines; no JNI calls are made until it is released.
+    jdouble* nativeState = (*env)->GetPrimitiveArrayCritical(env, state, NULL);
+    if (nativeState == NULL) {
+        (*env)->ReleaseDoubleArrayElements(env, data, buffer, JNI_ABORT);
+        return;
+    }
+
     limiter_processData(buffer, (int)numChannels, (int)numSamples, (double)samplerate,
-                        (double)attack, (double)release, (double)threshold, (double)lookahead);
+                        (double)attack, (double)release, (double)threshold, (double)lookahead, nativeState);
 
+    (*env)->ReleasePrimitiveArrayCritical(env, state, nativeState, 0);
     (*env)->ReleaseDoubleArrayElements(env, data, buffer, 0);
 }
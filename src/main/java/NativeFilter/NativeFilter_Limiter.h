@@ -10,10 +10,10 @@ extern "C" {
 /*
  * Class:     NativeFilter_Limiter
  * Method:    processData
- * Signature: ([DIIDDDDD)V
+ * Signature: ([DIIDDDDD[D)V
  */
 JNIEXPORT void JNICALL Java_NativeFilter_Limiter_processData
-  (JNIEnv *, jclass, jdoubleArray, jint, jint, jdouble, jdouble, jdouble, jdouble, jdouble);
+  (JNIEnv *, jclass, jdoubleArray, jint, jint, jdouble, jdouble, jdouble, jdouble, jdouble, jdoubleArray);
 
 #ifdef __cplusplus
 }
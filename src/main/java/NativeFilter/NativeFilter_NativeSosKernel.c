@@ -0,0 +1,186 @@
+#include "NativeFilter_NativeSosKernel.h"
+#include "denormals.h"
+
+#define COEFFICIENTS_PER_SECTION 5
+#define STATES_PER_SECTION 2
+
+/*
+ * Runs a cascade of second-order sections in transposed direct form II over an interleaved
+ * buffer. Layouts match StandardFilter's Java kernel, so a filter can switch between the two:
+ *
+ * coefficients: {b0, b1, b2, a1, a2} per section (already normalised by a0)
+ * state:        {s1, s2} per section per channel, laid out [channel][section][2]
+ *
+ * Each section's recursion is a chain of dependent multiply-adds. Sections are swept in pairs,
+ * and stereo runs both channels in the same sweep, so two or four independent recursions overlap
+ * in the pipeline instead of one waiting on its own latency.
+ *
+ * Runs with flush-to-zero on and snaps the stored state like the Java kernel (see denormals.h).
+ */
+static void processSingle(double* x, int frames, int stride, const double* c, double* s) {
+    const double b0 = c[0], b1 = c[1], b2 = c[2], a1 = c[3], a2 = c[4];
+    double s1 = s[0], s2 = s[1];
+    for (int frame = 0; frame < frames; frame++) {
+        double in  = *x;
+        double out = b0 * in + s1;
+        s1 = b1 * in - a1 * out + s2;
+        s2 = b2 * in - a2 * out;
+        *x = out;
+        x += stride;
+    }
+    s[0] = snap_denormal(s1);
+    s[1] = snap_denormal(s2);
+}
+
+/* Sections k and k + 1 of one channel; their states are adjacent. */
+static void processPair(double* x, int frames, int stride, const double* c, double* s) {
+    const double p0 = c[0], p1 = c[1], p2 = c[2], pa1 = c[3], pa2 = c[4];
+    const double q0 = c[5], q1 = c[6], q2 = c[7], qa1 = c[8], qa2 = c[9];
+    double ps1 = s[0], ps2 = s[1], qs1 = s[2], qs2 = s[3];
+    for (int frame = 0; frame < frames; frame++) {
+        double in  = *x;
+        double mid = p0 * in + ps1;
+        ps1 = p1 * in - pa1 * mid + ps2;
+        ps2 = p2 * in - pa2 * mid;
+        double out = q0 * mid + qs1;
+        qs1 = q1 * mid - qa1 * out + qs2;
+        qs2 = q2 * mid - qa2 * out;
+        *x = out;
+        x += stride;
+    }
+    s[0] = snap_denormal(ps1);
+    s[1] = snap_denormal(ps2);
+    s[2] = snap_denormal(qs1);
+    s[3] = snap_denormal(qs2);
+}
+
+static void processStereoSingle(double* x, int frames, const double* c, double* left, double* right) {
+    const double b0 = c[0], b1 = c[1], b2 = c[2], a1 = c[3], a2 = c[4];
+    double l1 = left[0], l2 = left[1];
+    double r1 = right[0], r2 = right[1];
+    for (int frame = 0; frame < frames; frame++) {
+        double inL = x[0];
+        double inR = x[1];
+        double outL = b0 * inL + l1;
+        double outR = b0 * inR + r1;
+        l1 = b1 * inL - a1 * outL + l2;
+        r1 = b1 * inR - a1 * outR + r2;
+        l2 = b2 * inL - a2 * outL;
+        r2 = b2 * inR - a2 * outR;
+        x[0] = outL;
+        x[1] = outR;
+        x += 2;
+    }
+    left[0] = snap_denormal(l1);
+    left[1] = snap_denormal(l2);
+    right[0] = snap_denormal(r1);
+    right[1] = snap_denormal(r2);
+}
+
+static void processStereoPair(double* x, int frames, const double* c, double* left, double* right) {
+    const double p0 = c[0], p1 = c[1], p2 = c[2], pa1 = c[3], pa2 = c[4];
+    const double q0 = c[5], q1 = c[6], q2 = c[7], qa1 = c[8], qa2 = c[9];
+    double lp1 = left[0], lp2 = left[1], lq1 = left[2], lq2 = left[3];
+    double rp1 = right[0], rp2 = right[1], rq1 = right[2], rq2 = right[3];
+    for (int frame = 0; frame < frames; frame++) {
+        double inL = x[0];
+        double inR = x[1];
+        double midL = p0 * inL + lp1;
+        double midR = p0 * inR + rp1;
+        lp1 = p1 * inL - pa1 * midL + lp2;
+        rp1 = p1 * inR - pa1 * midR + rp2;
+        lp2 = p2 * inL - pa2 * midL;
+        rp2 = p2 * inR - pa2 * midR;
+        double outL = q0 * midL + lq1;
+        double outR = q0 * midR + rq1;
+        lq1 = q1 * midL - qa1 * outL + lq2;
+        rq1 = q1 * midR - qa1 * outR + rq2;
+        lq2 = q2 * midL - qa2 * outL;
+        rq2 = q2 * midR - qa2 * outR;
+        x[0] = outL;
+        x[1] = outR;
+        x += 2;
+    }
+    left[0] = snap_denormal(lp1);
+    left[1] = snap_denormal(lp2);
+    left[2] = snap_denormal(lq1);
+    left[3] = snap_denormal(lq2);
+    right[0] = snap_denormal(rp1);
+    right[1] = snap_denormal(rp2);
+    right[2] = snap_denormal(rq1);
+    right[3] = snap_denormal(rq2);
+}
+
+void processSosCascade(double* samples, int numSamples, int numChannels,
+                       const double* coefficients, int sections, double* state) {
+    if (numChannels <= 0 || numSamples <= 0 || sections <= 0) {
+        return;
+    }
+
+    int frames = numSamples / numChannels;
+    denormal_mode mode = denormals_disable();
+
+    if (numChannels == 2) {
+        double* right = state + sections * STATES_PER_SECTION;
+        int section = 0;
+        for (; section + 1 < sections; section += 2) {
+            processStereoPair(samples, frames, coefficients + section * COEFFICIENTS_PER_SECTION,
+                              state + section * STATES_PER_SECTION, right + section * STATES_PER_SECTION);
+        }
+        if (section < sections) {
+            processStereoSingle(samples, frames, coefficients + section * COEFFICIENTS_PER_SECTION,
+                                state + section * STATES_PER_SECTION, right + section * STATES_PER_SECTION);
+        }
+        denormals_restore(mode);
+        return;
+    }
+
+    for (int ch = 0; ch < numChannels; ch++) {
+        double* channelState = state + ch * sections * STATES_PER_SECTION;
+        int section = 0;
+        for (; section + 1 < sections; section += 2) {
+            processPair(samples + ch, frames, numChannels, coefficients + section * COEFFICIENTS_PER_SECTION,
+                        channelState + section * STATES_PER_SECTION);
+        }
+        if (section < sections) {
+            processSingle(samples + ch, frames, numChannels, coefficients + section * COEFFICIENTS_PER_SECTION,
+                          channelState + section * STATES_PER_SECTION);
+        }
+    }
+    denormals_restore(mode);
+}
+
+JNIEXPORT void JNICALL Java_NativeFilter_NativeSosKernel_processData
+  (JNIEnv *env, jclass clazz, jdoubleArray buffer, jint length, jint channels,
+   jdoubleArray coefficients, jint sections, jdoubleArray state) {
+
+    // Guard against the Java side handing over arrays that are too small.
+    if ((*env)->GetArrayLength(env, coefficients) < sections * COEFFICIENTS_PER_SECTION ||
+        (*env)->GetArrayLength(env, state) < sections * channels * STATES_PER_SECTION ||
+        (*env)->GetArrayLength(env, buffer) < length) {
+        return;
+    }
+
+    // Critical access avoids copying the arrays; no JNI calls are made until they are released.
+    jdouble* nativeBuffer = (*env)->GetPrimitiveArrayCritical(env, buffer, NULL);
+    if (nativeBuffer == NULL) {
+        return;
+    }
+    jdouble* nativeCoefficients = (*env)->GetPrimitiveArrayCritical(env, coefficients, NULL);
+    if (nativeCoefficients == NULL) {
+        (*env)->ReleasePrimitiveArrayCritical(env, buffer, nativeBuffer, 0);
+        return;
+    }
+    jdouble* nativeState = (*env)->GetPrimitiveArrayCritical(env, state, NULL);
+    if (nativeState == NULL) {
+        (*env)->ReleasePrimitiveArrayCritical(env, coefficients, nativeCoefficients, JNI_ABORT);
+        (*env)->ReleasePrimitiveArrayCritical(env, buffer, nativeBuffer, 0);
+        return;
+    }
+
+    processSosCascade(nativeBuffer, length, channels, nativeCoefficients, sections, nativeState);
+
+    (*env)->ReleasePrimitiveArrayCritical(env, state, nativeState, 0);
+    (*env)->ReleasePrimitiveArrayCritical(env, coefficients, nativeCoefficients, JNI_ABORT);
+    (*env)->ReleasePrimitiveArrayCritical(env, buffer, nativeBuffer, 0);
+}
@@ -0,0 +1,88 @@
+#include "NativeFilter_ParametricEqualizer.h"
+#include "denormals.h"
+
+#define COEFFICIENTS_PER_BAND 5
+#define STATES_PER_BAND 2
+
+/*
+ * Runs a cascade of biquads in transposed direct form II over an interleaved buffer.
+ *
+ * coefficients: {b0, b1, b2, a1, a2} per band (already normalised by a0)
+ * state:        {s1, s2} per band per channel, laid out [band][channel][2]
+ *
+ * Bands are processed one at a time over the whole block so each band's coefficients and
+ * state stay in registers for the inner loop. Cost is O(bands * samples) and nothing is
+ * allocated on the stack per band or channel.
+ *
+ * Silent input leaves each band ringing down; flush-to-zero and state snapping keep the tail
+ * out of the subnormal range (see denormals.h).
+ */
+void processParametricEQ(double* samples, int numSamples, int numChannels,
+                         const double* coefficients, int bands, double* state) {
+    if (numChannels <= 0 || numSamples <= 0 || bands <= 0) {
+        return;
+    }
+
+    int frames = numSamples / numChannels;
+    denormal_mode mode = denormals_disable();
+
+    for (int band = 0; band < bands; band++) {
+        const double* c = coefficients + band * COEFFICIENTS_PER_BAND;
+        const double b0 = c[0], b1 = c[1], b2 = c[2], a1 = c[3], a2 = c[4];
+
+        for (int ch = 0; ch < numChannels; ch++) {
+            double* s = state + (band * numChannels + ch) * STATES_PER_BAND;
+            double s1 = s[0];
+            double s2 = s[1];
+
+            double* x = samples + ch;
+            for (int frame = 0; frame < frames; frame++) {
+                double in  = *x;
+                double out = b0 * in + s1;
+                s1 = b1 * in - a1 * out + s2;
+                s2 = b2 * in - a2 * out;
+                *x = out;
+                x += numChannels;
+            }
+
+            s[0] = snap_denormal(s1);
+            s[1] = snap_denormal(s2);
+        }
+    }
+    denormals_restore(mode);
+}
+
+JNIEXPORT void JNICALL Java_NativeFilter_ParametricEqualizer_processData
+  (JNIEnv *env, jclass clazz, jdoubleArray buffer, jint length, jint channels,
+   jdoubleArray coefficients, jint bands, jdoubleArray state) {
+
+    // Guard against the Java side handing over arrays that are too small.
+    if ((*env)->GetArrayLength(env, coefficients) < bands * COEFFICIENTS_PER_BAND ||
+        (*env)->GetArrayLength(env, state) < bands * channels * STATES_PER_BAND ||
+        (*env)->GetArrayLength(env, buffer) < length) {
+        return;
+    }
+
+    // Critical access avoids copying the arrays; no JNI calls are made until they are released.
+    jdouble* nativeBuffer = (*env)->GetPrimitiveArrayCritical(env, buffer, NULL);
+    if (nativeBuffer == NULL) {
+        return;
+    }
+    jdouble* nativeCoefficients = (*env)->GetPrimitiveArrayCritical(env, coefficients, NULL);
+    if (nativeCoefficients == NULL) {
+        (*env)->ReleasePrimitiveArrayCritical(env, buffer, nativeBuffer, 0);
+        return;
+    }
+    jdouble* nativeState = (*env)->GetPrimitiveArrayCritical(env, state, NULL);
+    if (nativeState == NULL) {
+        (*env)->ReleasePrimitiveArrayCritical(env, coefficients, nativeCoefficients, JNI_ABORT);
+        (*env)->ReleasePrimitiveArrayCritical(env, buffer, nativeBuffer, 0);
+        return;
+    }
+
+    processParametricEQ(nativeBuffer, length, channels, nativeCoefficients, bands, nativeState);
+
+    (*env)->ReleasePrimitiveArrayCritical(env, state, nativeState, 0);
+    (*env)->ReleasePrimitiveArrayCritical(env, coefficients, nativeCoefficients, JNI_ABORT);
+    (*env)->ReleasePrimitiveArrayCritical(env, buffer, nativeBuffer, 0);
+}
@@ -2,32 +2,149 @@ package NativeFilter;
 
 import java.io.*;
 import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Set;
 
+import MetricsRegistry.Counter;
+import MetricsRegistry.MetricsRegistry;
+
+/**
+ * Loads the bundled native DSP kernels.
+ *
+ * All kernels ship in a single {@code earcanvas} library. The library is extracted from the
+ * jar at most once per content hash into a persistent cache directory
+ * ({@code <cache>/<os>-<arch>/<sha256>/}), so repeated JVM starts reuse the same file instead
+ * of copying a fresh one into {@code /tmp}. A cached file is only trusted when its checksum
+ * matches the bundled resource; a truncated or tampered copy is replaced atomically.
+ *
+ * If the library is not bundled (e.g. running from an IDE without resources), or the cache
+ * cannot be written, loading falls back to {@code System.loadLibrary} on {@code java.library.path}.
+ */
 public class NativeLibLoader {
 
-    public static void loadLibrary(String libName) {
+    public static final String LIBRARY_NAME = "earcanvas";
+
+    // Overrides the cache root, e.g. -Dearcanvas.native.cache=/var/cache/earcanvas
+    public static final String CACHE_DIR_PROPERTY = "earcanvas.native.cache";
+
+    private static final Set<String> loadedLibraries = new HashSet<>();
+
+    private static final Counter NATIVE_FALLBACKS = MetricsRegistry.getDefault().counter(
+            "earcanvas_native_fallbacks_total", "Native libraries loaded from java.library.path instead of the bundled copy.");
+
+    public static synchronized void loadLibrary(String libName) {
+        if (loadedLibraries.contains(libName)) {
+            return;
+        }
+
         String os = detectOS();
         String arch = detectArch();
         String mappedName = mapLibraryName(libName, os);
-
         String resourcePath = "/native/" + os + "-" + arch + "/" + mappedName;
 
+        Path cacheRoot = defaultCacheRoot().resolve(os + "-" + arch);
+
+        NativeLibraryLoadEvent event = new NativeLibraryLoadEvent();
+        event.begin();
+        event.library = libName;
+        try {
+            Path cachedLib = extract(resourcePath, mappedName, cacheRoot);
+            event.source = cachedLib.toAbsolutePath().toString();
+            System.load(event.source);
+        } catch (IOException e) {
+            // Not bundled or cache not writable: rely on java.library.path.
+            event.source = "java.library.path";
+            try {
+                System.loadLibrary(libName);
+                NATIVE_FALLBACKS.increment();
+            } catch (UnsatisfiedLinkError linkError) {
+                linkError.addSuppressed(e);
+                event.commit();
+                throw linkError;
+            }
+        } catch (UnsatisfiedLinkError linkError) {
+            event.commit();
+            throw linkError;
+        }
+        event.success = true;
+        event.commit();
+
+        loadedLibraries.add(libName);
+    }
+
+    /**
+     * Counter of native kernel invocations made by {@code filter}, for the filter's process path.
+     */
+    static Counter jniCalls(Class<?> filter) {
+        return MetricsRegistry.getDefault().counter("earcanvas_jni_calls_total",
+                "Calls into native DSP kernels.", "filter", filter.getSimpleName());
+    }
+
+    /**
+     * Copies the resource into {@code cacheRoot/<sha256>/mappedName} unless an identical copy is
+     * already there, and returns the path of the verified library.
+     */
+    static Path extract(String resourcePath, String mappedName, Path cacheRoot) throws IOException {
+        byte[] libraryBytes;
         try (InputStream in = NativeLibLoader.class.getResourceAsStream(resourcePath)) {
             if (in == null) {
-                throw new IOException("Native library not found at: " + resourcePath);
+                throw new FileNotFoundException("Native library not found at: " + resourcePath);
             }
+            libraryBytes = in.readAllBytes();
+        }
 
-            Path tempDir = Files.createTempDirectory("nativeLibs");
-            tempDir.toFile().deleteOnExit();
+        String hash = sha256(libraryBytes);
+        Path libDir = cacheRoot.resolve(hash);
+        Path cachedLib = libDir.resolve(mappedName);
 
-            Path tempLib = tempDir.resolve(mappedName);
-            Files.copy(in, tempLib, StandardCopyOption.REPLACE_EXISTING);
-            tempLib.toFile().deleteOnExit();
+        if (Files.isRegularFile(cachedLib) && hash.equals(sha256(Files.readAllBytes(cachedLib)))) {
+            return cachedLib;
+        }
 
-            System.load(tempLib.toAbsolutePath().toString());
+        Files.createDirectories(libDir);
 
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load native library: " + mappedName, e);
+        // Write next to the target and rename, so a concurrent JVM never loads a partial file.
+        Path tempLib = Files.createTempFile(libDir, mappedName, ".tmp");
+        try {
+            Files.write(tempLib, libraryBytes);
+            try {
+                Files.move(tempLib, cachedLib, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempLib, cachedLib, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempLib);
+        }
+
+        return cachedLib;
+    }
+
+    static Path defaultCacheRoot() {
+        String override = System.getProperty(CACHE_DIR_PROPERTY);
+        if (override != null && !override.isBlank()) {
+            return Paths.get(override);
+        }
+
+        String xdgCache = System.getenv("XDG_CACHE_HOME");
+        if (xdgCache != null && !xdgCache.isBlank()) {
+            return Paths.get(xdgCache, "earcanvas", "native");
+        }
+
+        return Paths.get(System.getProperty("user.home"), ".cache", "earcanvas", "native");
+    }
+
+    static String sha256(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
         }
     }
 
@@ -53,4 +170,3 @@ public class NativeLibLoader {
     }
 
 }
-
@@ -0,0 +1,28 @@
+package NativeFilter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for loading a native library, including extraction to the cache.
+ */
+@Name("earcanvas.NativeLibraryLoad")
+@Label("Native Library Load")
+@Category({"EarCanvas", "Native"})
+@Description("Extraction and loading of a native DSP library")
+@Threshold("0 ms")
+class NativeLibraryLoadEvent extends jdk.jfr.Event {
+
+    @Label("Library")
+    String library;
+
+    @Label("Source")
+    @Description("Bundled cache copy or java.library.path")
+    String source;
+
+    @Label("Success")
+    boolean success;
+}
@@ -0,0 +1,55 @@
+package NativeFilter;
+
+import MetricsRegistry.Counter;
+
+/**
+ * Native transposed direct form II kernel over second-order sections, used as the
+ * {@code Native} backend of {@link StandardFilter.StandardFilter}. Layouts match the Java kernel:
+ * {b0, b1, b2, a1, a2} per section, and {s1, s2} per section per channel, laid out
+ * [channel][section][2].
+ *
+ * Unlike the native filters, a missing library is not fatal here: {@link #isAvailable()} turns
+ * false and callers stay on the Java kernel.
+ */
+public final class NativeSosKernel {
+
+    private static final boolean AVAILABLE = load();
+
+    private static final Counter JNI_CALLS = NativeLibLoader.jniCalls(NativeSosKernel.class);
+
+    private static final int COEFFICIENTS_PER_SECTION = 5;
+    private static final int STATES_PER_SECTION = 2;
+
+    private NativeSosKernel() {
+    }
+
+    private static boolean load() {
+        try {
+            NativeLibLoader.loadLibrary(NativeLibLoader.LIBRARY_NAME);
+            return true;
+        } catch (UnsatisfiedLinkError | UnsupportedOperationException e) {
+            System.err.println("NativeSosKernel: Native code library failed to load, using the Java kernel.\n" + e);
+            return false;
+        }
+    }
+
+    public static boolean isAvailable() { return AVAILABLE; }
+
+    /**
+     * Filters {@code length} interleaved samples of {@code channels} channels in place.
+     */
+    public static void process(double[] samples, int length, int channels, double[] coefficients, int sections, double[] state) {
+        if (!AVAILABLE) {
+            throw new UnsupportedOperationException("Native SOS kernel is not available.");
+        }
+        if (channels <= 0 || length > samples.length || coefficients.length < sections * COEFFICIENTS_PER_SECTION
+                || state.length < channels * sections * STATES_PER_SECTION) {
+            throw new IllegalArgumentException("Buffer, coefficient or state array too small for "
+                    + channels + " channels and " + sections + " sections.");
+        }
+        processData(samples, length, channels, coefficients, sections, state);
+        JNI_CALLS.increment();
+    }
+
+    private static native void processData(double[] samples, int length, int channels, double[] coefficients, int sections, double[] state);
+}
@@ -0,0 +1,310 @@
+package NativeFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import AudioProcessingRangler.FilterTails;
+import MetricsRegistry.Counter;
+
+/**
+ * N-band parametric equalizer.
+ *
+ * Each band is an RBJ biquad (peaking, low/high shelf or notch) with its own frequency, Q and
+ * gain. Coefficients are designed in Java whenever the bands change; the native kernel only runs
+ * the transposed direct form II recursion, band by band over the whole block, so cost grows
+ * linearly with the number of active bands. Bands at 0 dB are identities and are skipped.
+ *
+ * Filter state is held here, sized to (active bands x channels x 2), and survives between calls,
+ * so gain changes on an unchanged band layout do not click.
+ */
+public class ParametricEqualizer implements NativeFilterInterface {
+
+    static {
+        try {
+            NativeLibLoader.loadLibrary(NativeLibLoader.LIBRARY_NAME);
+        } catch (UnsatisfiedLinkError e) {
+            System.err.println("ParametricEqualizer: Native code library failed to load.\n" + e);
+            throw e;
+        }
+    }
+
+    private static final Counter JNI_CALLS = NativeLibLoader.jniCalls(ParametricEqualizer.class);
+
+    // ISO 266 one-third-octave centre frequencies.
+    public static final double[] ISO_THIRD_OCTAVE_FREQUENCIES = {
+            20, 25, 31.5, 40, 50, 63, 80, 100, 125, 160,
+            200, 250, 315, 400, 500, 630, 800, 1000, 1250, 1600,
+            2000, 2500, 3150, 4000, 5000, 6300, 8000, 10000, 12500, 16000,
+            20000
+    };
+
+    // Q giving adjacent one-third-octave bands meeting at their -3 dB points.
+    public static final double THIRD_OCTAVE_Q = 4.318;
+
+    private static final int COEFFICIENTS_PER_BAND = 5;
+    private static final int STATES_PER_BAND = 2;
+
+    public enum BandType {
+        Peaking, LowShelf, HighShelf, Notch
+    }
+
+    public static final class Band {
+        private final BandType type;
+        private final double frequency;
+        private final double q;
+        private final double gainDb;
+
+        public Band(BandType type, double frequency, double q, double gainDb) {
+            this.type = type;
+            this.frequency = frequency;
+            this.q = q;
+            this.gainDb = gainDb;
+        }
+
+        public BandType getType() { return this.type; }
+        public double getFrequency() { return this.frequency; }
+        public double getQ() { return this.q; }
+        public double getGainDb() { return this.gainDb; }
+
+        public Band withGain(double gainDb) { return new Band(this.type, this.frequency, this.q, gainDb); }
+
+        boolean isIdentity() { return this.type != BandType.Notch && this.gainDb == 0.0; }
+    }
+
+    private int channels;
+    private int bufferSize;
+    private double sampleRate;
+
+    private List<Band> bands = Collections.emptyList();
+    private volatile Design design = new Design(new int[0], new double[0], new double[0], 0);
+
+    // Coefficients and state published together, so the native kernel never sees mismatched sizes.
+    private static final class Design {
+        final int[] activeBands;
+        final double[] coefficients; // {b0, b1, b2, a1, a2} per active band
+        final double[] state;        // {s1, s2} per active band per channel
+        final int channels;
+        final long tailFrames;
+
+        Design(int[] activeBands, double[] coefficients, double[] state, int channels) {
+            this.activeBands = activeBands;
+            this.coefficients = coefficients;
+            this.state = state;
+            this.channels = channels;
+            this.tailFrames = FilterTails.ofSections(coefficients, activeBands.length);
+        }
+    }
+
+    public int getChannels() { return this.channels; }
+    public int getBufferSize() { return this.bufferSize; }
+    public double getSampleRate() { return this.sampleRate; }
+    public int getBandCount() { return this.bands.size(); }
+    public int getActiveBandCount() { return this.design.activeBands.length; }
+
+    @Override
+    public long getTailFrames() { return this.design.tailFrames; }
+    public List<Band> getBands() { return this.bands; }
+    public Band getBand(int index) { return this.bands.get(index); }
+
+    public void setBufferSize(int bufferSize) { this.bufferSize = bufferSize; }
+
+    public ParametricEqualizer(int channels, int bufferSize, double sampleRate) {
+        this.channels = channels;
+        this.bufferSize = bufferSize;
+        this.sampleRate = sampleRate;
+    }
+
+    public ParametricEqualizer(int channels, int bufferSize, double sampleRate, List<Band> bands) throws InvalidFilterParametersException {
+        this(channels, bufferSize, sampleRate);
+        setBands(bands);
+    }
+
+    /**
+     * Builds a 31-band ISO graphic equalizer (peaking bands at one-third-octave spacing, all at 0 dB).
+     * Bands at or above Nyquist are left out, so low sample rates yield fewer bands.
+     */
+    public static ParametricEqualizer isoGraphic31(int channels, int bufferSize, double sampleRate) {
+        List<Band> bands = new ArrayList<>();
+        for (double frequency : ISO_THIRD_OCTAVE_FREQUENCIES) {
+            if (frequency < sampleRate / 2.0) {
+                bands.add(new Band(BandType.Peaking, frequency, THIRD_OCTAVE_Q, 0.0));
+            }
+        }
+        try {
+            return new ParametricEqualizer(channels, bufferSize, sampleRate, bands);
+        } catch (InvalidFilterParametersException e) {
+            throw new IllegalStateException("ISO band layout rejected for sample rate " + sampleRate, e);
+        }
+    }
+
+    public void setBands(List<Band> bands) throws InvalidFilterParametersException {
+        if (bands == null) {
+            throw new InvalidFilterParametersException("Band list cannot be null.");
+        }
+        for (int i = 0; i < bands.size(); i++) {
+            validateBand(i, bands.get(i));
+        }
+        this.bands = Collections.unmodifiableList(new ArrayList<>(bands));
+        design();
+    }
+
+    public void setBand(int index, Band band) throws InvalidFilterParametersException {
+        validateBand(index, band);
+        List<Band> updated = new ArrayList<>(this.bands);
+        updated.set(index, band);
+        this.bands = Collections.unmodifiableList(updated);
+        design();
+    }
+
+    public void setGain(int index, double gainDb) throws InvalidFilterParametersException {
+        setBand(index, this.bands.get(index).withGain(gainDb));
+    }
+
+    public void setChannels(int channelCount) {
+        this.channels = channelCount;
+        design();
+    }
+
+    public void setSampleRate(double sampleRate) throws InvalidFilterParametersException {
+        double previous = this.sampleRate;
+        this.sampleRate = sampleRate;
+        try {
+            for (int i = 0; i < this.bands.size(); i++) {
+                validateBand(i, this.bands.get(i));
+            }
+        } catch (InvalidFilterParametersException e) {
+            this.sampleRate = previous;
+            throw e;
+        }
+        design();
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(this.design.state, 0.0);
+    }
+
+    private void validateBand(int index, Band band) throws InvalidFilterParametersException {
+        if (band == null || band.getType() == null) {
+            throw new InvalidFilterParametersException("Band " + index + " must have a type.");
+        }
+        if (!(band.getFrequency() > 0.0) || band.getFrequency() >= this.sampleRate / 2.0) {
+            throw new InvalidFilterParametersException("Band " + index + " frequency must be between 0 and Nyquist, got " + band.getFrequency());
+        }
+        if (!(band.getQ() > 0.0) || Double.isInfinite(band.getQ())) {
+            throw new InvalidFilterParametersException("Band " + index + " Q must be positive, got " + band.getQ());
+        }
+        if (Double.isNaN(band.getGainDb()) || Double.isInfinite(band.getGainDb())) {
+            throw new InvalidFilterParametersException("Band " + index + " gain must be finite.");
+        }
+    }
+
+    private synchronized void design() {
+        int active = 0;
+        for (Band band : this.bands) {
+            if (!band.isIdentity()) active++;
+        }
+
+        int[] newActiveBands = new int[active];
+        double[] newCoefficients = new double[active * COEFFICIENTS_PER_BAND];
+
+        int slot = 0;
+        for (int i = 0; i < this.bands.size(); i++) {
+            Band band = this.bands.get(i);
+            if (band.isIdentity()) continue;
+            newActiveBands[slot] = i;
+            designBand(band, this.sampleRate, newCoefficients, slot * COEFFICIENTS_PER_BAND);
+            slot++;
+        }
+
+        // Keep the running state if the same bands are still active; only their coefficients moved.
+        Design previous = this.design;
+        double[] newState = previous.state;
+        if (!Arrays.equals(newActiveBands, previous.activeBands) || previous.channels != this.channels) {
+            newState = new double[active * Math.max(this.channels, 0) * STATES_PER_BAND];
+        }
+        this.design = new Design(newActiveBands, newCoefficients, newState, this.channels);
+    }
+
+    // RBJ audio EQ cookbook biquads, normalised by a0.
+    static void designBand(Band band, double sampleRate, double[] out, int offset) {
+        double A = Math.pow(10.0, band.getGainDb() / 40.0);
+        double w0 = 2.0 * Math.PI * band.getFrequency() / sampleRate;
+        double cosW0 = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2.0 * band.getQ());
+
+        double b0, b1, b2, a0, a1, a2;
+        switch (band.getType()) {
+            case LowShelf: {
+                double twoSqrtAAlpha = 2.0 * Math.sqrt(A) * alpha;
+                b0 = A * ((A + 1) - (A - 1) * cosW0 + twoSqrtAAlpha);
+                b1 = 2 * A * ((A - 1) - (A + 1) * cosW0);
+                b2 = A * ((A + 1) - (A - 1) * cosW0 - twoSqrtAAlpha);
+                a0 = (A + 1) + (A - 1) * cosW0 + twoSqrtAAlpha;
+                a1 = -2 * ((A - 1) + (A + 1) * cosW0);
+                a2 = (A + 1) + (A - 1) * cosW0 - twoSqrtAAlpha;
+                break;
+            }
+            case HighShelf: {
+                double twoSqrtAAlpha = 2.0 * Math.sqrt(A) * alpha;
+                b0 = A * ((A + 1) + (A - 1) * cosW0 + twoSqrtAAlpha);
+                b1 = -2 * A * ((A - 1) + (A + 1) * cosW0);
+                b2 = A * ((A + 1) + (A - 1) * cosW0 - twoSqrtAAlpha);
+                a0 = (A + 1) - (A - 1) * cosW0 + twoSqrtAAlpha;
+                a1 = 2 * ((A - 1) - (A + 1) * cosW0);
+                a2 = (A + 1) - (A - 1) * cosW0 - twoSqrtAAlpha;
+                break;
+            }
+            case Notch:
+                b0 = 1;
+                b1 = -2 * cosW0;
+                b2 = 1;
+                a0 = 1 + alpha;
+                a1 = -2 * cosW0;
+                a2 = 1 - alpha;
+                break;
+            case Peaking:
+            default:
+                b0 = 1 + alpha * A;
+                b1 = -2 * cosW0;
+                b2 = 1 - alpha * A;
+                a0 = 1 + alpha / A;
+                a1 = -2 * cosW0;
+                a2 = 1 - alpha / A;
+                break;
+        }
+
+        out[offset]     = b0 / a0;
+        out[offset + 1] = b1 / a0;
+        out[offset + 2] = b2 / a0;
+        out[offset + 3] = a1 / a0;
+        out[offset + 4] = a2 / a0;
+    }
+
+    // --- Native Method ---
+    private static native void processData(double[] buffer, int length, int channels, double[] coefficients, int bands, double[] state);
+
+    public double[] process(double[] inputBuffer) {
+        if (inputBuffer == null) {
+            throw new IllegalArgumentException("Input buffer must not be null.");
+        }
+        if (inputBuffer.length != this.bufferSize) {
+            throw new IllegalArgumentException("Buffer size mismatch: expected " + this.bufferSize + ", got " + inputBuffer.length);
+        }
+        if (this.channels <= 0) {
+            throw new IllegalArgumentException("Channel count must be positive.");
+        }
+
+        double[] processedBuffer = Arrays.copyOf(inputBuffer, inputBuffer.length);
+
+        Design current = this.design;
+        if (current.activeBands.length > 0 && current.channels > 0) {
+            JNI_CALLS.increment();
+            processData(processedBuffer, processedBuffer.length, current.channels, current.coefficients, current.activeBands.length, current.state);
+        }
+
+        return processedBuffer;
+    }
+}
@@ -0,0 +1,71 @@
+#ifndef EARCANVAS_DENORMALS_H
+#define EARCANVAS_DENORMALS_H
+
+/*
+ * Denormal protection shared by the native IIR kernels.
+ *
+ * When the input goes silent, recursive state rings down into subnormal doubles, and every
+ * operation on a subnormal costs up to a hundred times more. Kernels therefore:
+ *
+ *   - run with the CPU's flush-to-zero / denormals-are-zero mode on, saving the caller's mode on
+ *     entry and restoring it before returning to the JVM (denormals_disable/denormals_restore);
+ *   - snap persistent state below DENORMAL_SNAP to zero when storing it back, exactly as the
+ *     Java SosKernel does, so the two backends stay interchangeable and the flag-less platforms
+ *     are still covered between blocks.
+ */
+
+/* -400 dBFS: far under any signal, far above the subnormal range. */
+#define DENORMAL_SNAP 1e-20
+
+static inline double snap_denormal(double value) {
+    return (value < DENORMAL_SNAP && value > -DENORMAL_SNAP) ? 0.0 : value;
+}
+
+#if defined(__SSE2__) || defined(_M_X64) || (defined(_M_IX86_FP) && _M_IX86_FP >= 2)
+
+#include <xmmintrin.h>
+
+/* MXCSR bit 15 flushes subnormal results to zero, bit 6 treats subnormal inputs as zero. */
+#define DENORMAL_MXCSR_BITS 0x8040
+
+typedef unsigned int denormal_mode;
+
+static inline denormal_mode denormals_disable(void) {
+    denormal_mode saved = _mm_getcsr();
+    _mm_setcsr(saved | DENORMAL_MXCSR_BITS);
+    return saved;
+}
+
+static inline void denormals_restore(denormal_mode saved) {
+    _mm_setcsr(saved);
+}
+
+#elif defined(__aarch64__)
+
+/* FPCR bit 24 (FZ) flushes subnormal inputs and results to zero. */
+#define DENORMAL_FPCR_FZ (1UL << 24)
+
+typedef unsigned long denormal_mode;
+
+static inline denormal_mode denormals_disable(void) {
+    denormal_mode saved;
+    __asm__ __volatile__("mrs %0, fpcr" : "=r"(saved));
+    __asm__ __volatile__("msr fpcr, %0" : : "r"(saved | DENORMAL_FPCR_FZ));
+    return saved;
+}
+
+static inline void denormals_restore(denormal_mode saved) {
+    __asm__ __volatile__("msr fpcr, %0" : : "r"(saved));
+}
+
+#else
+
+/* No portable flush-to-zero switch: rely on state snapping alone. */
+typedef int denormal_mode;
+
+static inline denormal_mode denormals_disable(void) { return 0; }
+static inline void denormals_restore(denormal_mode saved) { (void)saved; }
+
+#endif
+
+#endif /* EARCANVAS_DENORMALS_H */
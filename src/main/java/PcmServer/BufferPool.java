@@ -0,0 +1,51 @@
+package PcmServer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reuses direct buffers of one size across connections.
+ *
+ * Socket reads and writes into a heap buffer go through a temporary direct copy inside the JDK;
+ * reading into a direct buffer avoids it, but direct buffers are slow to allocate and only freed
+ * by the GC. Connections therefore borrow theirs from here and give them back on close. Up to
+ * {@code retained} idle buffers are kept; beyond that they are left to the GC.
+ */
+final class BufferPool {
+
+    private final int bufferBytes;
+    private final int retained;
+    private final ConcurrentLinkedQueue<ByteBuffer> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    BufferPool(int bufferBytes, int retained) {
+        this.bufferBytes = bufferBytes;
+        this.retained = retained;
+    }
+
+    ByteBuffer acquire() {
+        ByteBuffer buffer = this.idle.poll();
+        if (buffer != null) {
+            this.idleCount.decrementAndGet();
+            return buffer;
+        }
+        this.allocated.incrementAndGet();
+        return ByteBuffer.allocateDirect(this.bufferBytes);
+    }
+
+    void release(ByteBuffer buffer) {
+        buffer.clear();
+        if (this.idleCount.incrementAndGet() <= this.retained) {
+            this.idle.offer(buffer);
+        } else {
+            this.idleCount.decrementAndGet();
+        }
+    }
+
+    int getBufferBytes() { return this.bufferBytes; }
+    /** Buffers created so far; stays flat once the pool has warmed up. */
+    int getAllocated() { return this.allocated.get(); }
+    int getIdle() { return this.idleCount.get(); }
+}
@@ -0,0 +1,160 @@
+package PcmServer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+import AudioPipeline.PcmCodec;
+import AudioProcessingRangler.AudioProcessingRangler;
+import Preset.InvalidPresetException;
+
+/**
+ * One client stream, driven by its event loop: header, then frames in, processed frames out.
+ *
+ * Input accumulates in a pooled direct buffer until a whole block is there; the block is decoded,
+ * run through the connection's own rack and encoded into the output buffer, which is written back
+ * as the socket allows. When the output buffer cannot take another block, the connection stops
+ * reading until the client catches up, so a slow reader holds two buffers and nothing more. Once
+ * the client half-closes, the remaining whole frames go through as a zero-padded last block, and
+ * the connection closes after the output drains.
+ */
+final class Connection {
+
+    private final PcmServer server;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private ByteBuffer in;
+    private ByteBuffer out;
+
+    private StreamHeader header;
+    private PcmCodec codec;
+    private AudioProcessingRangler rack;
+    private double[] samples;
+    private int blockFrames;
+    private int frameSize;
+    private boolean inputClosed;
+    private boolean closed;
+
+    Connection(PcmServer server, SocketChannel channel, SelectionKey key) {
+        this.server = server;
+        this.channel = channel;
+        this.key = key;
+        this.in = server.getPool().acquire();
+        this.out = server.getPool().acquire();
+    }
+
+    StreamHeader getHeader() { return this.header; }
+
+    void ready() throws IOException {
+        if (this.key.isWritable()) {
+            flush();
+        }
+        if (this.key.isReadable()) {
+            int read = this.channel.read(this.in);
+            if (read < 0) {
+                this.inputClosed = true;
+            } else {
+                this.server.countIn(read);
+            }
+        }
+        if (this.header == null && !readHeader()) {
+            updateInterest();
+            return;
+        }
+        pump();
+        flush();
+        updateInterest();
+    }
+
+    void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.key.cancel();
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            // Nothing left to tell the client.
+        }
+        this.server.getPool().release(this.in);
+        this.server.getPool().release(this.out);
+        this.in = null;
+        this.out = null;
+        this.server.closed();
+    }
+
+    private boolean readHeader() throws IOException {
+        if (this.in.position() < StreamHeader.BYTES) {
+            if (this.inputClosed) {
+                throw new IOException("Stream ended before its header.");
+            }
+            return false;
+        }
+        this.in.flip();
+        StreamHeader header = StreamHeader.read(this.in);
+        this.in.compact();
+        try {
+            this.codec = new PcmCodec(header.getBitDepth(), header.getEncoding(), header.isBigEndian());
+            this.rack = this.server.newRack(header);
+        } catch (UnsupportedOperationException | InvalidPresetException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        this.frameSize = header.getFrameSize();
+        this.blockFrames = this.server.getBlockFrames();
+        int blockBytes = this.blockFrames * this.frameSize;
+        if (blockBytes > this.in.capacity() || blockBytes > this.out.capacity()) {
+            throw new IOException("A block of " + this.blockFrames + " frames (" + blockBytes
+                    + " bytes) does not fit the server's " + this.in.capacity() + "-byte buffers.");
+        }
+        this.samples = new double[this.blockFrames * header.getChannels()];
+        this.header = header;
+        return true;
+    }
+
+    // Processes every whole block that has arrived and fits in the output buffer.
+    private void pump() {
+        int channels = this.header.getChannels();
+        int blockBytes = this.blockFrames * this.frameSize;
+        this.in.flip();
+        while (this.out.remaining() >= blockBytes) {
+            int available = this.in.remaining() / this.frameSize;
+            if (available < this.blockFrames && !(this.inputClosed && available > 0)) {
+                break;
+            }
+            int frames = Math.min(available, this.blockFrames);
+            this.codec.decode(this.in, this.samples, 0, frames * channels);
+            Arrays.fill(this.samples, frames * channels, this.samples.length, 0.0);
+            double[] processed = this.rack.processData(this.samples);
+            this.codec.encode(processed, 0, frames * channels, this.out);
+            this.server.countBlock();
+        }
+        this.in.compact();
+    }
+
+    private void flush() throws IOException {
+        if (this.out.position() == 0) {
+            return;
+        }
+        this.out.flip();
+        int written = this.channel.write(this.out);
+        this.out.compact();
+        this.server.countOut(written);
+    }
+
+    private void updateInterest() throws IOException {
+        boolean pending = this.out.position() > 0;
+        if (this.inputClosed && !pending && (this.header == null || this.in.position() < this.frameSize)) {
+            // Everything the client sent has gone back; a trailing partial frame is dropped.
+            this.channel.shutdownOutput();
+            close();
+            return;
+        }
+        int blockBytes = (this.header == null) ? 0 : this.blockFrames * this.frameSize;
+        boolean canRead = !this.inputClosed && this.in.hasRemaining()
+                && (this.header == null || this.out.remaining() >= blockBytes || this.in.position() < blockBytes);
+        this.key.interestOps((canRead ? SelectionKey.OP_READ : 0) | (pending ? SelectionKey.OP_WRITE : 0));
+    }
+}
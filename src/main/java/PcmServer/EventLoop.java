@@ -0,0 +1,118 @@
+package PcmServer;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * One selector thread serving many connections. Connections are handed over from the accepting
+ * loop through a queue and stay on this loop, and its thread, until they close, so their racks
+ * are only ever touched by one thread.
+ */
+final class EventLoop implements Runnable {
+
+    private final PcmServer server;
+    private final Selector selector;
+    private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    EventLoop(PcmServer server, String name) throws IOException {
+        this.server = server;
+        this.selector = Selector.open();
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() { this.thread.start(); }
+
+    void listen(ServerSocketChannel acceptor) throws IOException {
+        acceptor.register(this.selector, SelectionKey.OP_ACCEPT);
+    }
+
+    void adopt(SocketChannel channel) {
+        this.pending.add(channel);
+        this.selector.wakeup();
+    }
+
+    void stop() throws InterruptedException {
+        this.running = false;
+        this.selector.wakeup();
+        this.thread.join();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (this.running) {
+                this.selector.select();
+                register();
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid() && key.isAcceptable()) {
+                        this.server.accept((ServerSocketChannel) key.channel());
+                    } else if (key.isValid()) {
+                        ready((Connection) key.attachment());
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            System.err.println("PcmServer: Event loop failed: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : this.selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    ((Connection) key.attachment()).close();
+                }
+            }
+            SocketChannel channel;
+            while ((channel = this.pending.poll()) != null) {
+                closeQuietly(channel);
+                this.server.closed();
+            }
+            try {
+                this.selector.close();
+            } catch (IOException e) {
+                // Already stopping.
+            }
+        }
+    }
+
+    private void register() {
+        SocketChannel channel;
+        while ((channel = this.pending.poll()) != null) {
+            try {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(this.selector, SelectionKey.OP_READ);
+                key.attach(new Connection(this.server, channel, key));
+            } catch (IOException e) {
+                closeQuietly(channel);
+                this.server.closed();
+            }
+        }
+    }
+
+    private void ready(Connection connection) {
+        try {
+            connection.ready();
+        } catch (IOException | RuntimeException e) {
+            this.server.failed(connection, e);
+            connection.close();
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Never adopted; nothing to clean up.
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package PcmServer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import AudioProcessingRangler.AudioProcessingRangler;
+import MetricsRegistry.Counter;
+import MetricsRegistry.Gauge;
+import MetricsRegistry.MetricsRegistry;
+import Preset.InvalidPresetException;
+import Preset.Preset;
+
+/**
+ * Non-blocking TCP server that runs raw PCM streams through a preset.
+ *
+ * A client connects, sends a {@link StreamHeader} and then interleaved PCM frames, and reads the
+ * processed frames back on the same socket, in the same format. Each connection gets its own
+ * rack built from the preset, so streams never share filter state. Half-closing the socket
+ * flushes the last partial block; the server then closes its side.
+ *
+ * Connections are spread round-robin over a few selector threads ({@link EventLoop}s), one per
+ * core by default, and read into direct buffers from a shared {@link BufferPool}. Blocks are the
+ * preset's buffer size, or {@link #DEFAULT_BLOCK_FRAMES} frames if no filter fixes one, and must
+ * fit in a pool buffer. A stream whose header is invalid, or whose channel count or sample rate
+ * the preset was not built for, is closed without a reply.
+ */
+public final class PcmServer implements AutoCloseable {
+
+    public static final int DEFAULT_BLOCK_FRAMES = 512;
+    public static final int DEFAULT_BUFFER_BYTES = 64 * 1024;
+
+    // Idle buffers kept for reuse: enough for 256 connections (16 MiB at the default size).
+    private static final int RETAINED_BUFFERS = 512;
+
+    private static final Counter ACCEPTED = MetricsRegistry.getDefault().counter("earcanvas_pcm_connections_total",
+            "PCM server connections, by outcome.", "result", "accepted");
+    private static final Counter FAILED = MetricsRegistry.getDefault().counter("earcanvas_pcm_connections_total",
+            "PCM server connections, by outcome.", "result", "failed");
+    private static final Gauge ACTIVE = MetricsRegistry.getDefault().gauge("earcanvas_pcm_connections_active",
+            "Open PCM server connections.");
+    private static final Counter BYTES_IN = MetricsRegistry.getDefault().counter("earcanvas_pcm_bytes_total",
+            "PCM server traffic.", "direction", "in");
+    private static final Counter BYTES_OUT = MetricsRegistry.getDefault().counter("earcanvas_pcm_bytes_total",
+            "PCM server traffic.", "direction", "out");
+
+    private final Preset preset;
+    private final int channels;
+    private final double sampleRate;
+    private final int blockFrames;
+    private final int loopCount;
+    private final BufferPool pool;
+
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong blocks = new AtomicLong();
+
+    private ServerSocketChannel acceptor;
+    private List<EventLoop> loops;
+
+    public PcmServer(Preset preset) throws InvalidPresetException {
+        this(preset, Runtime.getRuntime().availableProcessors(), DEFAULT_BLOCK_FRAMES, DEFAULT_BUFFER_BYTES);
+    }
+
+    /**
+     * @param loops selector threads
+     * @param blockFrames frames per block when no filter in the preset fixes a buffer size
+     * @param bufferBytes size of each pooled buffer; every connection holds two
+     * @throws InvalidPresetException if the preset's filters disagree on channels, buffer size or
+     *         sample rate
+     */
+    public PcmServer(Preset preset, int loops, int blockFrames, int bufferBytes) throws InvalidPresetException {
+        if (loops <= 0 || blockFrames <= 0 || bufferBytes <= StreamHeader.BYTES) {
+            throw new IllegalArgumentException("Loops, block size and buffer size must be positive.");
+        }
+        this.preset = preset;
+        this.channels = preset.getChannels();
+        this.sampleRate = preset.getSampleRate();
+        int bufferSize = preset.getBufferSize();
+        this.blockFrames = (bufferSize > 0) ? bufferSize / Math.max(this.channels, 1) : blockFrames;
+        this.loopCount = loops;
+        this.pool = new BufferPool(bufferBytes, RETAINED_BUFFERS);
+    }
+
+    public int getPort() {
+        return (this.acceptor == null) ? -1 : this.acceptor.socket().getLocalPort();
+    }
+
+    public int getBlockFrames() { return this.blockFrames; }
+    public int getActiveConnections() { return this.active.get(); }
+    public long getAcceptedConnections() { return this.accepted.get(); }
+    public long getFailedConnections() { return this.failed.get(); }
+    public long getBytesIn() { return this.bytesIn.get(); }
+    public long getBytesOut() { return this.bytesOut.get(); }
+    public long getBlocks() { return this.blocks.get(); }
+    BufferPool getPool() { return this.pool; }
+
+    // --- Lifecycle ---
+
+    /**
+     * Starts listening on {@code host:port}; port 0 picks a free port, see {@link #getPort()}.
+     */
+    public synchronized void start(String host, int port) throws IOException {
+        if (this.acceptor != null) {
+            return;
+        }
+        List<EventLoop> loops = new ArrayList<>();
+        ServerSocketChannel acceptor = ServerSocketChannel.open();
+        try {
+            acceptor.bind(new InetSocketAddress(host, port));
+            acceptor.configureBlocking(false);
+            for (int i = 0; i < this.loopCount; i++) {
+                loops.add(new EventLoop(this, "earcanvas-pcm-" + i));
+            }
+            loops.get(0).listen(acceptor);
+        } catch (IOException e) {
+            acceptor.close();
+            throw e;
+        }
+        this.acceptor = acceptor;
+        this.loops = loops;
+        loops.forEach(EventLoop::start);
+    }
+
+    /**
+     * Stops accepting, closes every connection and waits for the loops to exit.
+     */
+    public synchronized void stop() {
+        if (this.acceptor == null) {
+            return;
+        }
+        try {
+            for (EventLoop loop : this.loops) {
+                loop.stop();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            this.acceptor.close();
+        } catch (IOException e) {
+            // The port is released either way.
+        }
+        this.acceptor = null;
+        this.loops = null;
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    // --- Event loop callbacks ---
+
+    // A failed accept costs that one connection, never the event loop: the selector keeps going.
+    void accept(ServerSocketChannel acceptor) {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = acceptor.accept();
+            } catch (IOException e) {
+                acceptFailed(e);
+                return;
+            }
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Never adopted; nothing to clean up.
+                }
+                acceptFailed(e);
+                continue;
+            }
+            this.accepted.incrementAndGet();
+            this.active.incrementAndGet();
+            ACCEPTED.increment();
+            ACTIVE.add(1);
+            this.loops.get(Math.floorMod(this.next.getAndIncrement(), this.loops.size())).adopt(channel);
+        }
+    }
+
+    AudioProcessingRangler newRack(StreamHeader header) throws InvalidPresetException {
+        if (this.channels > 0 && header.getChannels() != this.channels) {
+            throw new InvalidPresetException("Stream has " + header.getChannels() + " channels; the preset expects " + this.channels + ".");
+        }
+        if (this.sampleRate > 0 && header.getSampleRate() != this.sampleRate) {
+            throw new InvalidPresetException("Stream is sampled at " + header.getSampleRate() + " Hz; the preset expects "
+                    + BigDecimal.valueOf(this.sampleRate).stripTrailingZeros().toPlainString() + " Hz.");
+        }
+        AudioProcessingRangler rack = this.preset.toRack();
+        rack.setChannels(header.getChannels());
+        return rack;
+    }
+
+    void closed() {
+        this.active.decrementAndGet();
+        ACTIVE.add(-1);
+    }
+
+    void failed(Connection connection, Exception e) {
+        this.failed.incrementAndGet();
+        FAILED.increment();
+        System.err.println("PcmServer: Closing " + ((connection.getHeader() == null) ? "stream" : connection.getHeader())
+                + ": " + e.getMessage());
+    }
+
+    private void acceptFailed(IOException e) {
+        this.failed.incrementAndGet();
+        FAILED.increment();
+        System.err.println("PcmServer: Could not accept a connection: " + e.getMessage());
+    }
+
+    void countIn(int bytes) {
+        this.bytesIn.addAndGet(bytes);
+        BYTES_IN.add(bytes);
+    }
+
+    void countOut(int bytes) {
+        this.bytesOut.addAndGet(bytes);
+        BYTES_OUT.add(bytes);
+    }
+
+    void countBlock() {
+        this.blocks.incrementAndGet();
+    }
+}
@@ -0,0 +1,124 @@
+package PcmServer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * The fixed 16-byte header a client sends before its PCM frames, big-endian:
+ *
+ * <pre>
+ * 0  int    magic "ECPM"
+ * 4  short  version (1)
+ * 6  byte   encoding: 0 unsigned, 1 signed, 2 float
+ * 7  byte   bits per sample
+ * 8  short  channels
+ * 10 short  flags: bit 0 set if samples are big-endian
+ * 12 int    sample rate in Hz
+ * </pre>
+ *
+ * The processed stream coming back carries no header; it is in the same format.
+ */
+public final class StreamHeader {
+
+    public static final int BYTES = 16;
+    public static final int MAGIC = 0x4543504D; // "ECPM"
+    public static final short VERSION = 1;
+
+    private static final int FLAG_BIG_ENDIAN = 1;
+
+    private final AudioFormat.Encoding encoding;
+    private final int bitDepth;
+    private final int channels;
+    private final boolean bigEndian;
+    private final int sampleRate;
+
+    public StreamHeader(AudioFormat format) {
+        this(format.getEncoding(), format.getSampleSizeInBits(), format.getChannels(), format.isBigEndian(),
+                Math.round(format.getSampleRate()));
+    }
+
+    public StreamHeader(AudioFormat.Encoding encoding, int bitDepth, int channels, boolean bigEndian, int sampleRate) {
+        if (!(AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding) || AudioFormat.Encoding.PCM_SIGNED.equals(encoding)
+                || AudioFormat.Encoding.PCM_FLOAT.equals(encoding))) {
+            throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+        }
+        if (bitDepth <= 0 || bitDepth > 64 || bitDepth % 8 != 0 || channels <= 0 || channels > Short.MAX_VALUE || sampleRate <= 0) {
+            throw new IllegalArgumentException("Invalid stream format: " + bitDepth + " bits, " + channels + " channels, " + sampleRate + " Hz");
+        }
+        this.encoding = encoding;
+        this.bitDepth = bitDepth;
+        this.channels = channels;
+        this.bigEndian = bigEndian;
+        this.sampleRate = sampleRate;
+    }
+
+    public AudioFormat.Encoding getEncoding() { return this.encoding; }
+    public int getBitDepth() { return this.bitDepth; }
+    public int getChannels() { return this.channels; }
+    public boolean isBigEndian() { return this.bigEndian; }
+    public int getSampleRate() { return this.sampleRate; }
+    public int getFrameSize() { return this.channels * (this.bitDepth / 8); }
+
+    public AudioFormat toAudioFormat() {
+        return new AudioFormat(this.encoding, this.sampleRate, this.bitDepth, this.channels, getFrameSize(), this.sampleRate, this.bigEndian);
+    }
+
+    public void write(ByteBuffer target) {
+        ByteBuffer header = target.duplicate().order(ByteOrder.BIG_ENDIAN);
+        header.putInt(MAGIC).putShort(VERSION);
+        header.put((byte) (AudioFormat.Encoding.PCM_FLOAT.equals(this.encoding) ? 2
+                : AudioFormat.Encoding.PCM_SIGNED.equals(this.encoding) ? 1 : 0));
+        header.put((byte) this.bitDepth);
+        header.putShort((short) this.channels);
+        header.putShort((short) (this.bigEndian ? FLAG_BIG_ENDIAN : 0));
+        header.putInt(this.sampleRate);
+        target.position(header.position());
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer bytes = ByteBuffer.allocate(BYTES);
+        write(bytes);
+        return bytes.array();
+    }
+
+    /**
+     * Reads a header from {@code source}'s position, advancing it.
+     *
+     * @throws IOException if the bytes are not a header this version understands
+     */
+    public static StreamHeader read(ByteBuffer source) throws IOException {
+        ByteBuffer header = source.duplicate().order(ByteOrder.BIG_ENDIAN);
+        int magic = header.getInt();
+        short version = header.getShort();
+        int encoding = header.get();
+        int bitDepth = header.get() & 0xFF;
+        int channels = header.getShort();
+        int flags = header.getShort();
+        int sampleRate = header.getInt();
+        source.position(header.position());
+        if (magic != MAGIC) {
+            throw new IOException(String.format("Not a PCM stream header: magic 0x%08X", magic));
+        }
+        if (version != VERSION) {
+            throw new IOException("Unsupported PCM stream version " + version);
+        }
+        if (encoding < 0 || encoding > 2) {
+            throw new IOException("Unknown PCM stream encoding " + encoding);
+        }
+        AudioFormat.Encoding[] encodings = {AudioFormat.Encoding.PCM_UNSIGNED, AudioFormat.Encoding.PCM_SIGNED, AudioFormat.Encoding.PCM_FLOAT};
+        try {
+            return new StreamHeader(encodings[encoding], bitDepth, channels, (flags & FLAG_BIG_ENDIAN) != 0, sampleRate);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.bitDepth + "-bit " + this.encoding + ", " + this.channels + " ch, " + this.sampleRate + " Hz"
+                + (this.bigEndian ? ", big-endian" : "");
+    }
+}
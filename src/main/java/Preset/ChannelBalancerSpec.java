@@ -0,0 +1,59 @@
+package Preset;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import NativeFilter.ChannelBalancer;
+
+/**
+ * {@link ChannelBalancer}: block format and left/right preference (centred when absent).
+ */
+public final class ChannelBalancerSpec extends FilterSpec {
+
+    private final int channels;
+    private final int bufferSize;
+    private final double sampleRate;
+    private final double preference;
+
+    public int getChannels() { return this.channels; }
+    public int getBufferSize() { return this.bufferSize; }
+    public double getSampleRate() { return this.sampleRate; }
+    public double getPreference() { return this.preference; }
+
+    @JsonCreator
+    public ChannelBalancerSpec(@JsonProperty("channels") Integer channels, @JsonProperty("bufferSize") Integer bufferSize,
+            @JsonProperty("sampleRate") Double sampleRate, @JsonProperty("preference") Double preference) throws InvalidPresetException {
+        this.channels = requirePositive(channels, "channels");
+        this.bufferSize = requirePositive(bufferSize, "bufferSize");
+        this.sampleRate = requirePositive(sampleRate, "sampleRate");
+        this.preference = (preference == null) ? 0.0 : requireFinite(preference, "preference");
+    }
+
+    static ChannelBalancerSpec of(ChannelBalancer filter) throws InvalidPresetException {
+        return new ChannelBalancerSpec(filter.getChannels(), filter.getBufferSize(), filter.getSampleRate(), filter.getPreference());
+    }
+
+    @Override
+    public Object toFilter() {
+        return new ChannelBalancer(this.channels, this.bufferSize, this.sampleRate, this.preference);
+    }
+
+    @Override
+    byte tag() { return CHANNEL_BALANCER; }
+
+    @Override
+    void write(DataOutputStream out) throws IOException {
+        out.writeShort(this.channels);
+        out.writeInt(this.bufferSize);
+        out.writeDouble(this.sampleRate);
+        out.writeDouble(this.preference);
+    }
+
+    static ChannelBalancerSpec read(ByteBuffer in) throws InvalidPresetException {
+        return new ChannelBalancerSpec((int) in.getShort(), in.getInt(), in.getDouble(), in.getDouble());
+    }
+}
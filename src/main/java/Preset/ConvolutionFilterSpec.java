@@ -0,0 +1,129 @@
+package Preset;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import ConvolutionFilter.ConvolutionFilter;
+import ConvolutionFilter.ConvolutionFilter.Partitioning;
+
+/**
+ * {@link ConvolutionFilter}: block format, partitioning and either one impulse response shared
+ * by every channel ({@code impulseResponse}) or one per channel ({@code impulseResponses}).
+ */
+public final class ConvolutionFilterSpec extends FilterSpec {
+
+    private final int channels;
+    private final int bufferSize;
+    private final int partitionSize;
+    private final Partitioning partitioning;
+    private final double[] impulseResponse;
+    private final double[][] impulseResponses;
+
+    public int getChannels() { return this.channels; }
+    public int getBufferSize() { return this.bufferSize; }
+    public int getPartitionSize() { return this.partitionSize; }
+    public Partitioning getPartitioning() { return this.partitioning; }
+
+    public double[] getImpulseResponse(int channel) {
+        return ((this.impulseResponse != null) ? this.impulseResponse : this.impulseResponses[channel]).clone();
+    }
+
+    @JsonCreator
+    public ConvolutionFilterSpec(@JsonProperty("channels") Integer channels, @JsonProperty("bufferSize") Integer bufferSize,
+            @JsonProperty("partitionSize") Integer partitionSize, @JsonProperty("partitioning") String partitioning,
+            @JsonProperty("impulseResponse") double[] impulseResponse,
+            @JsonProperty("impulseResponses") double[][] impulseResponses) throws InvalidPresetException {
+        this.channels = requirePositive(channels, "channels");
+        this.bufferSize = requirePositive(bufferSize, "bufferSize");
+        this.partitionSize = requirePositive(partitionSize, "partitionSize");
+        this.partitioning = (partitioning == null) ? Partitioning.Uniform : requireEnum(Partitioning.class, partitioning, "partitioning");
+
+        if ((impulseResponse == null) == (impulseResponses == null)) {
+            throw new InvalidPresetException("Exactly one of impulseResponse and impulseResponses is required.");
+        }
+        if (impulseResponse != null) {
+            this.impulseResponse = impulseResponse.clone();
+            this.impulseResponses = null;
+        } else {
+            if (impulseResponses.length != this.channels) {
+                throw new InvalidPresetException("Expected one impulse response per channel.");
+            }
+            this.impulseResponse = null;
+            this.impulseResponses = new double[this.channels][];
+            for (int ch = 0; ch < this.channels; ch++) {
+                this.impulseResponses[ch] = require(impulseResponses[ch], "impulseResponses").clone();
+            }
+        }
+    }
+
+    static ConvolutionFilterSpec of(ConvolutionFilter filter) throws InvalidPresetException {
+        int channels = filter.getChannels();
+        double[][] responses = new double[channels][];
+        boolean shared = true;
+        for (int ch = 0; ch < channels; ch++) {
+            responses[ch] = filter.getImpulseResponse(ch);
+            shared &= Arrays.equals(responses[ch], responses[0]);
+        }
+        return new ConvolutionFilterSpec(channels, filter.getBufferSize(), filter.getPartitionSize(), filter.getPartitioning().name(),
+                shared ? responses[0] : null, shared ? null : responses);
+    }
+
+    @Override
+    public Object toFilter() throws InvalidPresetException {
+        try {
+            if (this.impulseResponse != null) {
+                return new ConvolutionFilter(this.channels, this.bufferSize, this.impulseResponse, this.partitionSize, this.partitioning);
+            }
+            return new ConvolutionFilter(this.channels, this.bufferSize, this.impulseResponses, this.partitionSize, this.partitioning);
+        } catch (Exception e) {
+            throw invalid("ConvolutionFilter", e);
+        }
+    }
+
+    @Override
+    byte tag() { return CONVOLUTION_FILTER; }
+
+    @Override
+    void write(DataOutputStream out) throws IOException {
+        out.writeShort(this.channels);
+        out.writeInt(this.bufferSize);
+        out.writeInt(this.partitionSize);
+        out.writeByte(this.partitioning.ordinal());
+        if (this.impulseResponse != null) {
+            out.writeByte(0);
+            writeDoubles(out, this.impulseResponse);
+        } else {
+            out.writeByte(1);
+            for (double[] response : this.impulseResponses) {
+                writeDoubles(out, response);
+            }
+        }
+    }
+
+    static ConvolutionFilterSpec read(ByteBuffer in) throws InvalidPresetException {
+        int channels = in.getShort();
+        int bufferSize = in.getInt();
+        int partitionSize = in.getInt();
+        int partitioning = in.get();
+        if (partitioning < 0 || partitioning >= Partitioning.values().length) {
+            throw new InvalidPresetException("Unknown partitioning ordinal: " + partitioning);
+        }
+        String partitioningName = Partitioning.values()[partitioning].name();
+        if (in.get() == 0) {
+            return new ConvolutionFilterSpec(channels, bufferSize, partitionSize, partitioningName, readDoubles(in), null);
+        }
+        if (channels <= 0) {
+            throw new InvalidPresetException("Field channels must be positive, got " + channels);
+        }
+        double[][] responses = new double[channels][];
+        for (int ch = 0; ch < channels; ch++) {
+            responses[ch] = readDoubles(in);
+        }
+        return new ConvolutionFilterSpec(channels, bufferSize, partitionSize, partitioningName, null, responses);
+    }
+}
@@ -0,0 +1,203 @@
+package Preset;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+import ConvolutionFilter.ConvolutionFilter;
+import NativeFilter.ChannelBalancer;
+import NativeFilter.GraphicEqualizer;
+import NativeFilter.Limiter;
+import NativeFilter.ParametricEqualizer;
+import StandardFilter.StandardFilter;
+
+/**
+ * Typed, immutable description of one rack filter: its kind and every parameter needed to
+ * build it. Specs are validated when constructed, so {@link #toFilter()} only fails if the
+ * filter itself rejects the values.
+ *
+ * In JSON the kind is the {@code type} property, named after the filter class:
+ * <pre>
+ * {"type": "StandardFilter", "design": "Butterworth", "order": 4, "sampleRate": 48000,
+ *  "mode": "Lowpass", "cutoff": 1000}
+ * </pre>
+ * In the binary format it is a one-byte tag; see {@link PresetCodec}.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "type")
+@JsonSubTypes({
+    @JsonSubTypes.Type(value = StandardFilterSpec.class, name = "StandardFilter"),
+    @JsonSubTypes.Type(value = ParametricEqualizerSpec.class, name = "ParametricEqualizer"),
+    @JsonSubTypes.Type(value = GraphicEqualizerSpec.class, name = "GraphicEqualizer"),
+    @JsonSubTypes.Type(value = ChannelBalancerSpec.class, name = "ChannelBalancer"),
+    @JsonSubTypes.Type(value = LimiterSpec.class, name = "Limiter"),
+    @JsonSubTypes.Type(value = ConvolutionFilterSpec.class, name = "ConvolutionFilter")
+})
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY,
+        getterVisibility = JsonAutoDetect.Visibility.NONE, isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public abstract class FilterSpec {
+
+    // --- Binary tags; a retired tag must never be reused ---
+    static final byte STANDARD_FILTER = 1;
+    static final byte PARAMETRIC_EQUALIZER = 2;
+    static final byte GRAPHIC_EQUALIZER = 3;
+    static final byte CHANNEL_BALANCER = 4;
+    static final byte LIMITER = 5;
+    static final byte CONVOLUTION_FILTER = 6;
+
+    FilterSpec() {
+    }
+
+    /**
+     * Builds a new filter instance from this spec.
+     */
+    public abstract Object toFilter() throws InvalidPresetException;
+
+    /** Interleaved channels the filter is built for, or 0 if it takes the rack's. */
+    public abstract int getChannels();
+
+    /** Samples per block the filter requires, or 0 if it takes blocks of any size. */
+    public int getBufferSize() { return 0; }
+
+    /** Sample rate the filter is designed for, or 0 if it does not depend on one. */
+    public double getSampleRate() { return 0.0; }
+
+    abstract byte tag();
+
+    abstract void write(DataOutputStream out) throws IOException;
+
+    /**
+     * Describes an existing filter, so a running rack can be saved as a preset.
+     */
+    public static FilterSpec of(Object filter) throws InvalidPresetException {
+        if (filter instanceof StandardFilter) {
+            return StandardFilterSpec.of((StandardFilter) filter);
+        } else if (filter instanceof ParametricEqualizer) {
+            return ParametricEqualizerSpec.of((ParametricEqualizer) filter);
+        } else if (filter instanceof GraphicEqualizer) {
+            return GraphicEqualizerSpec.of((GraphicEqualizer) filter);
+        } else if (filter instanceof ChannelBalancer) {
+            return ChannelBalancerSpec.of((ChannelBalancer) filter);
+        } else if (filter instanceof Limiter) {
+            return LimiterSpec.of((Limiter) filter);
+        } else if (filter instanceof ConvolutionFilter) {
+            return ConvolutionFilterSpec.of((ConvolutionFilter) filter);
+        }
+        throw new InvalidPresetException("Filter cannot be described by a preset: "
+                + ((filter == null) ? "null" : filter.getClass().getName()));
+    }
+
+    static FilterSpec read(byte tag, ByteBuffer in, int version) throws InvalidPresetException {
+        switch (tag) {
+            case STANDARD_FILTER: return StandardFilterSpec.read(in, version);
+            case PARAMETRIC_EQUALIZER: return ParametricEqualizerSpec.read(in);
+            case GRAPHIC_EQUALIZER: return GraphicEqualizerSpec.read(in);
+            case CHANNEL_BALANCER: return ChannelBalancerSpec.read(in);
+            case LIMITER: return LimiterSpec.read(in);
+            case CONVOLUTION_FILTER: return ConvolutionFilterSpec.read(in);
+            default:
+                throw new InvalidPresetException("Unknown filter tag: " + tag);
+        }
+    }
+
+    // --- Validation ---
+
+    static <T> T require(T value, String field) throws InvalidPresetException {
+        if (value == null) {
+            throw new InvalidPresetException("Missing required field: " + field);
+        }
+        return value;
+    }
+
+    static int requirePositive(Integer value, String field) throws InvalidPresetException {
+        if (require(value, field) <= 0) {
+            throw new InvalidPresetException("Field " + field + " must be positive, got " + value);
+        }
+        return value;
+    }
+
+    static double requirePositive(Double value, String field) throws InvalidPresetException {
+        if (!(require(value, field) > 0.0) || value.isInfinite()) {
+            throw new InvalidPresetException("Field " + field + " must be positive, got " + value);
+        }
+        return value;
+    }
+
+    static double requireFinite(Double value, String field) throws InvalidPresetException {
+        if (require(value, field).isNaN() || value.isInfinite()) {
+            throw new InvalidPresetException("Field " + field + " must be finite, got " + value);
+        }
+        return value;
+    }
+
+    static <E extends Enum<E>> E requireEnum(Class<E> type, String value, String field) throws InvalidPresetException {
+        try {
+            return Enum.valueOf(type, require(value, field));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPresetException("Unknown " + field + ": " + value, e);
+        }
+    }
+
+    static InvalidPresetException invalid(String type, Exception cause) {
+        return new InvalidPresetException("Invalid " + type + " parameters: " + cause.getMessage(), cause);
+    }
+
+    // --- Binary helpers ---
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("String too long for preset encoding: " + bytes.length + " bytes");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // A null array is written as length -1.
+    static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.length);
+        for (double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    static double[] readDoubles(ByteBuffer in) throws InvalidPresetException {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if ((long) length * Double.BYTES > in.remaining()) {
+            throw new InvalidPresetException("Truncated preset: array of " + length + " doubles");
+        }
+        double[] values = new double[length];
+        in.asDoubleBuffer().get(values);
+        in.position(in.position() + length * Double.BYTES);
+        return values;
+    }
+
+    // A null Double is written as NaN, which no optional field accepts as a value.
+    static void writeOptional(DataOutputStream out, Double value) throws IOException {
+        out.writeDouble((value == null) ? Double.NaN : value);
+    }
+
+    static Double readOptional(ByteBuffer in) {
+        double value = in.getDouble();
+        return Double.isNaN(value) ? null : value;
+    }
+}
@@ -0,0 +1,80 @@
+package Preset;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import NativeFilter.GraphicEqualizer;
+
+/**
+ * {@link GraphicEqualizer}: block format, band gains (flat when absent) and Q.
+ */
+public final class GraphicEqualizerSpec extends FilterSpec {
+
+    private final int channels;
+    private final int bufferSize;
+    private final double sampleRate;
+    private final double[] gains;
+    private final Double q;
+
+    public int getChannels() { return this.channels; }
+    public int getBufferSize() { return this.bufferSize; }
+    public double getSampleRate() { return this.sampleRate; }
+    public double[] getGains() { return (this.gains == null) ? null : this.gains.clone(); }
+    public Double getQ() { return this.q; }
+
+    @JsonCreator
+    public GraphicEqualizerSpec(@JsonProperty("channels") Integer channels, @JsonProperty("bufferSize") Integer bufferSize,
+            @JsonProperty("sampleRate") Double sampleRate, @JsonProperty("gains") double[] gains,
+            @JsonProperty("q") Double q) throws InvalidPresetException {
+        this.channels = requirePositive(channels, "channels");
+        this.bufferSize = requirePositive(bufferSize, "bufferSize");
+        this.sampleRate = requirePositive(sampleRate, "sampleRate");
+        this.gains = (gains == null) ? null : gains.clone();
+        this.q = (q == null) ? null : requirePositive(q, "q");
+    }
+
+    static GraphicEqualizerSpec of(GraphicEqualizer filter) throws InvalidPresetException {
+        return new GraphicEqualizerSpec(filter.getChannels(), filter.getBufferSize(), (double) filter.getSampleRate(),
+                filter.getGains(), filter.getQ());
+    }
+
+    @Override
+    public Object toFilter() throws InvalidPresetException {
+        try {
+            GraphicEqualizer filter = new GraphicEqualizer(this.channels, this.bufferSize, (float) this.sampleRate);
+            if (this.gains != null) {
+                filter.setGains(this.gains);
+            }
+            if (this.q != null) {
+                filter.setQ(this.q);
+            }
+            return filter;
+        } catch (Exception e) {
+            throw invalid("GraphicEqualizer", e);
+        }
+    }
+
+    @Override
+    byte tag() { return GRAPHIC_EQUALIZER; }
+
+    @Override
+    void write(DataOutputStream out) throws IOException {
+        out.writeShort(this.channels);
+        out.writeInt(this.bufferSize);
+        out.writeDouble(this.sampleRate);
+        writeDoubles(out, this.gains);
+        writeOptional(out, this.q);
+    }
+
+    static GraphicEqualizerSpec read(ByteBuffer in) throws InvalidPresetException {
+        int channels = in.getShort();
+        int bufferSize = in.getInt();
+        double sampleRate = in.getDouble();
+        double[] gains = readDoubles(in);
+        return new GraphicEqualizerSpec(channels, bufferSize, sampleRate, gains, readOptional(in));
+    }
+}
@@ -0,0 +1,16 @@
+package Preset;
+
+public class InvalidPresetException extends Exception {
+	
+	public InvalidPresetException() {
+		super();
+	}
+	
+	public InvalidPresetException(String msg) {
+		super(msg);
+	}
+	
+	public InvalidPresetException(String msg, Exception e) {
+		super(msg, e);
+	}
+}
@@ -0,0 +1,81 @@
+package Preset;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import NativeFilter.Limiter;
+
+/**
+ * {@link Limiter}: block format plus threshold and timing. Absent values keep the limiter's
+ * defaults.
+ */
+public final class LimiterSpec extends FilterSpec {
+
+    private final int channels;
+    private final int bufferSize;
+    private final double sampleRate;
+    private final Double thresholdDb;
+    private final Double attackMs;
+    private final Double releaseMs;
+    private final Double lookaheadMs;
+
+    public int getChannels() { return this.channels; }
+    public int getBufferSize() { return this.bufferSize; }
+    public double getSampleRate() { return this.sampleRate; }
+    public Double getThresholdDb() { return this.thresholdDb; }
+    public Double getAttackMs() { return this.attackMs; }
+    public Double getReleaseMs() { return this.releaseMs; }
+    public Double getLookaheadMs() { return this.lookaheadMs; }
+
+    @JsonCreator
+    public LimiterSpec(@JsonProperty("channels") Integer channels, @JsonProperty("bufferSize") Integer bufferSize,
+            @JsonProperty("sampleRate") Double sampleRate, @JsonProperty("thresholdDb") Double thresholdDb,
+            @JsonProperty("attackMs") Double attackMs, @JsonProperty("releaseMs") Double releaseMs,
+            @JsonProperty("lookaheadMs") Double lookaheadMs) throws InvalidPresetException {
+        this.channels = requirePositive(channels, "channels");
+        this.bufferSize = requirePositive(bufferSize, "bufferSize");
+        this.sampleRate = requirePositive(sampleRate, "sampleRate");
+        this.thresholdDb = (thresholdDb == null) ? null : requireFinite(thresholdDb, "thresholdDb");
+        this.attackMs = (attackMs == null) ? null : requirePositive(attackMs, "attackMs");
+        this.releaseMs = (releaseMs == null) ? null : requirePositive(releaseMs, "releaseMs");
+        this.lookaheadMs = (lookaheadMs == null) ? null : requirePositive(lookaheadMs, "lookaheadMs");
+    }
+
+    static LimiterSpec of(Limiter filter) throws InvalidPresetException {
+        return new LimiterSpec(filter.getChannels(), filter.getBufferSize(), filter.getSampleRate(), filter.getThreshold(),
+                filter.getAttackTime(), filter.getReleaseTime(), filter.getLookahead());
+    }
+
+    @Override
+    public Object toFilter() {
+        Limiter limiter = new Limiter(this.channels, this.bufferSize, this.sampleRate);
+        if (this.thresholdDb != null) limiter.setThreshold(this.thresholdDb);
+        if (this.attackMs != null) limiter.setAttackTime(this.attackMs);
+        if (this.releaseMs != null) limiter.setReleaseTime(this.releaseMs);
+        if (this.lookaheadMs != null) limiter.setLookahead(this.lookaheadMs);
+        return limiter;
+    }
+
+    @Override
+    byte tag() { return LIMITER; }
+
+    @Override
+    void write(DataOutputStream out) throws IOException {
+        out.writeShort(this.channels);
+        out.writeInt(this.bufferSize);
+        out.writeDouble(this.sampleRate);
+        writeOptional(out, this.thresholdDb);
+        writeOptional(out, this.attackMs);
+        writeOptional(out, this.releaseMs);
+        writeOptional(out, this.lookaheadMs);
+    }
+
+    static LimiterSpec read(ByteBuffer in) throws InvalidPresetException {
+        return new LimiterSpec((int) in.getShort(), in.getInt(), in.getDouble(),
+                readOptional(in), readOptional(in), readOptional(in), readOptional(in));
+    }
+}
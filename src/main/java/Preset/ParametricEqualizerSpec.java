@@ -0,0 +1,124 @@
+package Preset;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import NativeFilter.ParametricEqualizer;
+import NativeFilter.ParametricEqualizer.BandType;
+
+/**
+ * {@link ParametricEqualizer}: block format plus an ordered list of bands.
+ */
+public final class ParametricEqualizerSpec extends FilterSpec {
+
+    @JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY,
+            getterVisibility = JsonAutoDetect.Visibility.NONE, isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+    public static final class BandSpec {
+        private final BandType type;
+        private final double frequency;
+        private final double q;
+        private final double gainDb;
+
+        public BandType getType() { return this.type; }
+        public double getFrequency() { return this.frequency; }
+        public double getQ() { return this.q; }
+        public double getGainDb() { return this.gainDb; }
+
+        @JsonCreator
+        public BandSpec(@JsonProperty("type") String type, @JsonProperty("frequency") Double frequency,
+                @JsonProperty("q") Double q, @JsonProperty("gainDb") Double gainDb) throws InvalidPresetException {
+            this.type = requireEnum(BandType.class, type, "bands.type");
+            this.frequency = requirePositive(frequency, "bands.frequency");
+            this.q = requirePositive(q, "bands.q");
+            this.gainDb = (gainDb == null) ? 0.0 : requireFinite(gainDb, "bands.gainDb");
+        }
+    }
+
+    private final int channels;
+    private final int bufferSize;
+    private final double sampleRate;
+    private final List<BandSpec> bands;
+
+    public int getChannels() { return this.channels; }
+    public int getBufferSize() { return this.bufferSize; }
+    public double getSampleRate() { return this.sampleRate; }
+    public List<BandSpec> getBands() { return this.bands; }
+
+    @JsonCreator
+    public ParametricEqualizerSpec(@JsonProperty("channels") Integer channels, @JsonProperty("bufferSize") Integer bufferSize,
+            @JsonProperty("sampleRate") Double sampleRate, @JsonProperty("bands") List<BandSpec> bands) throws InvalidPresetException {
+        this.channels = requirePositive(channels, "channels");
+        this.bufferSize = requirePositive(bufferSize, "bufferSize");
+        this.sampleRate = requirePositive(sampleRate, "sampleRate");
+        List<BandSpec> copy = new ArrayList<>();
+        if (bands != null) {
+            for (BandSpec band : bands) {
+                copy.add(require(band, "bands"));
+            }
+        }
+        this.bands = Collections.unmodifiableList(copy);
+    }
+
+    static ParametricEqualizerSpec of(ParametricEqualizer filter) throws InvalidPresetException {
+        List<BandSpec> bands = new ArrayList<>();
+        for (ParametricEqualizer.Band band : filter.getBands()) {
+            bands.add(new BandSpec(band.getType().name(), band.getFrequency(), band.getQ(), band.getGainDb()));
+        }
+        return new ParametricEqualizerSpec(filter.getChannels(), filter.getBufferSize(), filter.getSampleRate(), bands);
+    }
+
+    @Override
+    public Object toFilter() throws InvalidPresetException {
+        List<ParametricEqualizer.Band> list = new ArrayList<>(this.bands.size());
+        for (BandSpec band : this.bands) {
+            list.add(new ParametricEqualizer.Band(band.type, band.frequency, band.q, band.gainDb));
+        }
+        try {
+            return new ParametricEqualizer(this.channels, this.bufferSize, this.sampleRate, list);
+        } catch (Exception e) {
+            throw invalid("ParametricEqualizer", e);
+        }
+    }
+
+    @Override
+    byte tag() { return PARAMETRIC_EQUALIZER; }
+
+    @Override
+    void write(DataOutputStream out) throws IOException {
+        out.writeShort(this.channels);
+        out.writeInt(this.bufferSize);
+        out.writeDouble(this.sampleRate);
+        out.writeShort(this.bands.size());
+        for (BandSpec band : this.bands) {
+            out.writeByte(band.type.ordinal());
+            out.writeDouble(band.frequency);
+            out.writeDouble(band.q);
+            out.writeDouble(band.gainDb);
+        }
+    }
+
+    static ParametricEqualizerSpec read(ByteBuffer in) throws InvalidPresetException {
+        int channels = in.getShort();
+        int bufferSize = in.getInt();
+        double sampleRate = in.getDouble();
+        int count = in.getShort() & 0xFFFF;
+        BandType[] types = BandType.values();
+        List<BandSpec> bands = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int type = in.get();
+            if (type < 0 || type >= types.length) {
+                throw new InvalidPresetException("Unknown band type ordinal: " + type);
+            }
+            bands.add(new BandSpec(types[type].name(), in.getDouble(), in.getDouble(), in.getDouble()));
+        }
+        return new ParametricEqualizerSpec(channels, bufferSize, sampleRate, bands);
+    }
+}
@@ -0,0 +1,155 @@
+package Preset;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import AudioProcessingRangler.AudioProcessingRangler;
+
+/**
+ * Named, immutable rack description: the {@link FilterSpec}s in processing order.
+ *
+ * <pre>
+ * {"version": 2, "name": "vocal", "filters": [
+ *   {"type": "StandardFilter", "design": "Butterworth", "order": 2, "sampleRate": 48000, "mode": "Highpass", "cutoff": 80, "channels": 2},
+ *   {"type": "Limiter", "channels": 2, "bufferSize": 1440, "sampleRate": 48000, "thresholdDb": -1}]}
+ * </pre>
+ *
+ * {@link #toRack()} builds fresh filters, so one preset can be loaded into any number of racks.
+ * See {@link PresetCodec} for the JSON and binary encodings.
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY,
+        getterVisibility = JsonAutoDetect.Visibility.NONE, isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+@JsonPropertyOrder({"version", "name", "filters"})
+public final class Preset {
+
+    private final int version = PresetCodec.VERSION;
+    private final String name;
+    private final List<FilterSpec> filters;
+
+    public String getName() { return this.name; }
+    public List<FilterSpec> getFilters() { return this.filters; }
+    public int size() { return this.filters.size(); }
+
+    public Preset(String name, List<FilterSpec> filters) throws InvalidPresetException {
+        this(null, name, filters);
+    }
+
+    @JsonCreator
+    Preset(@JsonProperty("version") Integer version, @JsonProperty("name") String name,
+            @JsonProperty("filters") List<FilterSpec> filters) throws InvalidPresetException {
+        if (version != null && (version < 1 || version > PresetCodec.VERSION)) {
+            throw new InvalidPresetException("Unsupported preset version " + version + "; this build reads up to " + PresetCodec.VERSION);
+        }
+        if (name == null || name.isBlank()) {
+            throw new InvalidPresetException("Preset name must not be empty.");
+        }
+        List<FilterSpec> copy = new ArrayList<>();
+        if (filters != null) {
+            for (FilterSpec filter : filters) {
+                copy.add(FilterSpec.require(filter, "filters"));
+            }
+        }
+        this.name = name;
+        this.filters = Collections.unmodifiableList(copy);
+    }
+
+    /**
+     * Describes the filters currently in {@code rack}.
+     */
+    public static Preset of(String name, AudioProcessingRangler rack) throws InvalidPresetException {
+        List<FilterSpec> filters = new ArrayList<>();
+        for (Object filter : rack.getFilters()) {
+            filters.add(FilterSpec.of(filter));
+        }
+        return new Preset(name, filters);
+    }
+
+    /**
+     * The channel count every filter was built for, or 0 if none fixes one.
+     *
+     * @throws InvalidPresetException if the filters disagree
+     */
+    public int getChannels() throws InvalidPresetException {
+        int channels = 0;
+        for (FilterSpec filter : this.filters) {
+            channels = agree("channels", channels, filter.getChannels());
+        }
+        return channels;
+    }
+
+    /**
+     * The interleaved block size the filters process, or 0 if none fixes one.
+     *
+     * @throws InvalidPresetException if the filters disagree, or it is not a whole number of frames
+     */
+    public int getBufferSize() throws InvalidPresetException {
+        int bufferSize = 0;
+        for (FilterSpec filter : this.filters) {
+            bufferSize = agree("buffer size", bufferSize, filter.getBufferSize());
+        }
+        int channels = getChannels();
+        if (bufferSize > 0 && channels > 0 && bufferSize % channels != 0) {
+            throw new InvalidPresetException("Buffer size " + bufferSize + " is not a whole number of " + channels + "-channel frames.");
+        }
+        return bufferSize;
+    }
+
+    /**
+     * The sample rate the filters were designed for, or 0 if none fixes one.
+     *
+     * @throws InvalidPresetException if the filters disagree
+     */
+    public double getSampleRate() throws InvalidPresetException {
+        double sampleRate = 0.0;
+        for (FilterSpec filter : this.filters) {
+            sampleRate = agree("sample rate", sampleRate, filter.getSampleRate());
+        }
+        return sampleRate;
+    }
+
+    /**
+     * Builds every filter, in rack order.
+     */
+    public List<Object> toFilters() throws InvalidPresetException {
+        List<Object> result = new ArrayList<>(this.filters.size());
+        for (FilterSpec filter : this.filters) {
+            result.add(filter.toFilter());
+        }
+        return result;
+    }
+
+    /**
+     * Builds a new rack holding this preset's filters.
+     */
+    public AudioProcessingRangler toRack() throws InvalidPresetException {
+        AudioProcessingRangler rack = new AudioProcessingRangler();
+        List<Object> built = toFilters();
+        for (int i = 0; i < built.size(); i++) {
+            rack.addFilter(built.get(i), i);
+        }
+        return rack;
+    }
+
+    private static int agree(String property, int current, int value) throws InvalidPresetException {
+        return (int) agree(property, (double) current, (double) value);
+    }
+
+    private static double agree(String property, double current, double value) throws InvalidPresetException {
+        if (value <= 0 || value == current) {
+            return current;
+        }
+        if (current > 0) {
+            throw new InvalidPresetException(String.format("Filters disagree on %s: %s and %s.", property,
+                    BigDecimal.valueOf(current).stripTrailingZeros().toPlainString(),
+                    BigDecimal.valueOf(value).stripTrailingZeros().toPlainString()));
+        }
+        return value;
+    }
+}
@@ -0,0 +1,181 @@
+package Preset;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.ValueInstantiationException;
+
+/**
+ * JSON and binary encodings of {@link Preset}s.
+ *
+ * JSON is the editable, interchange form. The binary form is what is stored and loaded at
+ * runtime: fixed-width big-endian fields with no names, decoded from a {@link ByteBuffer} with no
+ * parsing or reflection.
+ *
+ * <pre>
+ *   offset  size  field
+ *   0       4     magic "ECPS"
+ *   4       2     format version ({@value #VERSION})
+ *   6       2     filter count
+ *   8       2+n   preset name, UTF-8 with a u16 length
+ *   then, per filter in rack order:
+ *           1     filter tag (see {@link FilterSpec})
+ *           4     payload length in bytes
+ *           n     payload, the spec's fields in declaration order
+ * </pre>
+ *
+ * Readers reject a newer version. The payload length lets a reader check each record consumed
+ * exactly its own bytes, so a corrupted or mismatched file fails instead of loading wrong values.
+ * Version 2 appends the channel count to StandardFilter records, 0 if the spec leaves it to the
+ * rack; version 1 records read without one.
+ */
+public final class PresetCodec {
+
+    public static final int VERSION = 2;
+    static final int MAGIC = 0x45435053; // "ECPS"
+
+    private static final ObjectMapper JSON = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, true);
+
+    private PresetCodec() {
+    }
+
+    // --- JSON ---
+
+    public static byte[] toJson(Preset preset) throws InvalidPresetException {
+        try {
+            return JSON.writeValueAsBytes(preset);
+        } catch (JsonProcessingException e) {
+            throw new InvalidPresetException("Failed to write preset JSON: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    public static Preset fromJson(byte[] json) throws InvalidPresetException {
+        return readJson(json, Preset.class);
+    }
+
+    public static String filterToJson(FilterSpec filter) throws InvalidPresetException {
+        try {
+            return JSON.writeValueAsString(filter);
+        } catch (JsonProcessingException e) {
+            throw new InvalidPresetException("Failed to write filter JSON: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    public static FilterSpec filterFromJson(String json) throws InvalidPresetException {
+        if (json == null || json.isBlank()) {
+            throw new InvalidPresetException("Filter JSON must not be empty.");
+        }
+        return readJson(json.getBytes(java.nio.charset.StandardCharsets.UTF_8), FilterSpec.class);
+    }
+
+    private static <T> T readJson(byte[] json, Class<T> type) throws InvalidPresetException {
+        try {
+            T value = JSON.readValue(json, type);
+            if (value == null) {
+                throw new InvalidPresetException("Preset JSON must not be null.");
+            }
+            return value;
+        } catch (ValueInstantiationException e) {
+            // A spec constructor rejected the values; surface its message rather than Jackson's.
+            if (e.getCause() instanceof InvalidPresetException) {
+                throw (InvalidPresetException) e.getCause();
+            }
+            throw new InvalidPresetException(e.getOriginalMessage(), e);
+        } catch (IOException e) {
+            throw new InvalidPresetException("Malformed preset JSON: " + ((e instanceof JsonProcessingException)
+                    ? ((JsonProcessingException) e).getOriginalMessage() : e.getMessage()), e);
+        }
+    }
+
+    // --- Binary ---
+
+    public static byte[] encode(Preset preset) throws InvalidPresetException {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(preset.size());
+            FilterSpec.writeString(out, preset.getName());
+
+            ByteArrayOutputStream record = new ByteArrayOutputStream(128);
+            DataOutputStream recordOut = new DataOutputStream(record);
+            for (FilterSpec filter : preset.getFilters()) {
+                record.reset();
+                filter.write(recordOut);
+                recordOut.flush();
+                out.writeByte(filter.tag());
+                out.writeInt(record.size());
+                record.writeTo(out);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new InvalidPresetException("Failed to encode preset: " + e.getMessage(), e);
+        }
+    }
+
+    public static Preset decode(byte[] data) throws InvalidPresetException {
+        return decode(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Decodes the preset starting at the buffer's position and leaves the position after it.
+     * Works on heap, direct and memory-mapped buffers alike.
+     */
+    public static Preset decode(ByteBuffer buffer) throws InvalidPresetException {
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new InvalidPresetException("Not a binary preset.");
+            }
+            int version = in.getShort() & 0xFFFF;
+            if (version < 1 || version > VERSION) {
+                throw new InvalidPresetException("Unsupported preset version " + version + "; this build reads up to " + VERSION);
+            }
+            int count = in.getShort() & 0xFFFF;
+            String name = FilterSpec.readString(in);
+
+            List<FilterSpec> filters = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte tag = in.get();
+                int length = in.getInt();
+                int end = in.position() + length;
+                if (length < 0 || end > in.limit()) {
+                    throw new InvalidPresetException("Truncated preset: filter " + i + " overruns the data.");
+                }
+                filters.add(FilterSpec.read(tag, in, version));
+                if (in.position() != end) {
+                    throw new InvalidPresetException("Corrupt preset: filter " + i + " has " + (in.position() - (end - length))
+                            + " bytes of fields but a " + length + " byte record.");
+                }
+            }
+            buffer.position(in.position());
+            return new Preset(version, name, filters);
+        } catch (BufferUnderflowException e) {
+            throw new InvalidPresetException("Truncated preset.", e);
+        }
+    }
+
+    /** True if {@code data} starts with the binary preset magic. */
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length >= 4 && ByteBuffer.wrap(data).getInt() == MAGIC;
+    }
+
+    /**
+     * Reads either encoding, telling them apart by the magic.
+     */
+    public static Preset read(byte[] data) throws InvalidPresetException {
+        return isBinary(data) ? decode(data) : fromJson(data);
+    }
+}
@@ -0,0 +1,87 @@
+package Preset;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import AudioProcessingRangler.AudioProcessingRangler;
+import AudioProcessingRangler.AudioProcessingRangler.RackSwap;
+
+/**
+ * Loads presets into running racks without glitches.
+ *
+ * Every filter of the new rack, with its designs and native state, is built on the loader's own
+ * thread; the audio thread only swaps a reference at a block boundary, optionally crossfading
+ * from the old rack.
+ *
+ * If the rack is not being processed, nothing would pick the swap up, so after
+ * {@link #DEFAULT_IDLE_TIMEOUT_MS} the loader applies it itself, without a crossfade.
+ */
+public final class PresetLoader implements AutoCloseable {
+
+    public static final long DEFAULT_IDLE_TIMEOUT_MS = 500;
+
+    private final ScheduledExecutorService executor;
+    private final long idleTimeoutMs;
+
+    public PresetLoader() {
+        this(DEFAULT_IDLE_TIMEOUT_MS);
+    }
+
+    public PresetLoader(long idleTimeoutMs) {
+        if (idleTimeoutMs <= 0) {
+            throw new IllegalArgumentException("Idle timeout must be positive.");
+        }
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "earcanvas-preset-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Replaces {@code rack}'s filters with {@code preset}'s, switching straight over.
+     */
+    public CompletableFuture<Preset> load(Preset preset, AudioProcessingRangler rack) {
+        return load(preset, rack, 0, 0);
+    }
+
+    /**
+     * Replaces {@code rack}'s filters with {@code preset}'s, fading over {@code crossfadeFrames}
+     * frames of {@code channels} interleaved channels. The future completes once the new rack is
+     * playing. It fails if the preset cannot be built, in which case the rack is left untouched,
+     * and with a {@link java.util.concurrent.CancellationException} if a later load replaced it
+     * before it played.
+     */
+    public CompletableFuture<Preset> load(Preset preset, AudioProcessingRangler rack, int crossfadeFrames, int channels) {
+        CompletableFuture<Preset> result = new CompletableFuture<>();
+        this.executor.execute(() -> {
+            RackSwap swap;
+            try {
+                swap = rack.swapRack(preset.toFilters(), crossfadeFrames, channels);
+            } catch (InvalidPresetException | RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            swap.applied().whenCompleteAsync((applied, failure) -> {
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                } else {
+                    result.complete(preset);
+                }
+            }, this.executor);
+            this.executor.schedule(() -> rack.applyIdle(swap), this.idleTimeoutMs, TimeUnit.MILLISECONDS);
+        });
+        return result;
+    }
+
+    /**
+     * Stops the loader thread; loads still in progress are abandoned.
+     */
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+    }
+}
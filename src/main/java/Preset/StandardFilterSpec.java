@@ -0,0 +1,147 @@
+package Preset;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import StandardFilter.StandardFilter;
+import StandardFilter.StandardFilter.FilterMode;
+import StandardFilter.StandardFilter.FilterType;
+
+/**
+ * {@link StandardFilter}: an IIR design, its order and one response. Lowpass and highpass use
+ * {@code cutoff}; bandpass and bandstop use {@code center} and {@code width}. {@code channels} is
+ * optional: without it the filter does not fix the preset's channel count, and takes the count of
+ * the rack it runs in (mono until the rack is given one).
+ */
+public final class StandardFilterSpec extends FilterSpec {
+
+    private final FilterType design;
+    private final int order;
+    private final double sampleRate;
+    private final Double rippleDb;
+    private final FilterMode mode;
+    private final Double cutoff;
+    private final Double center;
+    private final Double width;
+    private final Integer channels;
+
+    public FilterType getDesign() { return this.design; }
+    public int getOrder() { return this.order; }
+    public double getSampleRate() { return this.sampleRate; }
+    public Double getRippleDb() { return this.rippleDb; }
+    public FilterMode getMode() { return this.mode; }
+    public Double getCutoff() { return this.cutoff; }
+    public Double getCenter() { return this.center; }
+    public Double getWidth() { return this.width; }
+    /** The channel count the spec fixes, or 0 if it takes the rack's. */
+    public int getChannels() { return (this.channels == null) ? 0 : this.channels; }
+
+    public static StandardFilterSpec lowpass(FilterType design, int order, double sampleRate, double cutoff) throws InvalidPresetException {
+        return new StandardFilterSpec(design.name(), order, sampleRate, null, FilterMode.Lowpass.name(), cutoff, null, null, null);
+    }
+
+    public static StandardFilterSpec highpass(FilterType design, int order, double sampleRate, double cutoff) throws InvalidPresetException {
+        return new StandardFilterSpec(design.name(), order, sampleRate, null, FilterMode.Highpass.name(), cutoff, null, null, null);
+    }
+
+    @JsonCreator
+    public StandardFilterSpec(@JsonProperty("design") String design, @JsonProperty("order") Integer order,
+            @JsonProperty("sampleRate") Double sampleRate, @JsonProperty("rippleDb") Double rippleDb,
+            @JsonProperty("mode") String mode, @JsonProperty("cutoff") Double cutoff,
+            @JsonProperty("center") Double center, @JsonProperty("width") Double width,
+            @JsonProperty("channels") Integer channels) throws InvalidPresetException {
+        this.design = requireEnum(FilterType.class, design, "design");
+        this.order = requirePositive(order, "order");
+        this.sampleRate = requirePositive(sampleRate, "sampleRate");
+        this.rippleDb = (rippleDb == null) ? null : requireFinite(rippleDb, "rippleDb");
+        this.mode = requireEnum(FilterMode.class, mode, "mode");
+        if (this.mode == FilterMode.Lowpass || this.mode == FilterMode.Highpass) {
+            this.cutoff = requirePositive(cutoff, "cutoff");
+            this.center = null;
+            this.width = null;
+        } else {
+            this.cutoff = null;
+            this.center = requirePositive(center, "center");
+            this.width = requirePositive(width, "width");
+        }
+        this.channels = (channels == null) ? null : requirePositive(channels, "channels");
+    }
+
+    static StandardFilterSpec of(StandardFilter filter) throws InvalidPresetException {
+        if (filter.getFilterMode() == null) {
+            throw new InvalidPresetException("StandardFilter has no response designed yet.");
+        }
+        boolean usesRipple = filter.getFilterType() == FilterType.ChebyshevI || filter.getFilterType() == FilterType.ChebyshevII;
+        return new StandardFilterSpec(filter.getFilterType().name(), filter.getOrder(), filter.getSamplerate(),
+                usesRipple ? filter.getRippleDb() : null, filter.getFilterMode().name(),
+                filter.getCutoffFrequnecy(), filter.getCenterFrequnecy(), filter.getFrequencyWidth(), filter.getChannels());
+    }
+
+    @Override
+    public Object toFilter() throws InvalidPresetException {
+        try {
+            StandardFilter filter = new StandardFilter(this.design, this.order, this.sampleRate, Math.max(getChannels(), 1),
+                    Optional.ofNullable(this.rippleDb));
+            switch (this.mode) {
+                case Lowpass:
+                    filter.setLowpass(this.cutoff);
+                    break;
+                case Highpass:
+                    filter.setHighpass(this.cutoff);
+                    break;
+                case Bandpass:
+                    filter.setBandpass(this.center, this.width);
+                    break;
+                case Bandstop:
+                    filter.setBandstop(this.center, this.width);
+                    break;
+            }
+            return filter;
+        } catch (Exception e) {
+            throw invalid("StandardFilter", e);
+        }
+    }
+
+    @Override
+    byte tag() { return STANDARD_FILTER; }
+
+    @Override
+    void write(DataOutputStream out) throws IOException {
+        out.writeByte(this.design.ordinal());
+        out.writeByte(this.mode.ordinal());
+        out.writeShort(this.order);
+        out.writeDouble(this.sampleRate);
+        writeOptional(out, this.rippleDb);
+        writeOptional(out, this.cutoff);
+        writeOptional(out, this.center);
+        writeOptional(out, this.width);
+        out.writeShort(getChannels());
+    }
+
+    static StandardFilterSpec read(ByteBuffer in, int version) throws InvalidPresetException {
+        FilterType design = ordinal(FilterType.values(), in.get(), "design");
+        FilterMode mode = ordinal(FilterMode.values(), in.get(), "mode");
+        int order = in.getShort();
+        double sampleRate = in.getDouble();
+        Double rippleDb = readOptional(in);
+        Double cutoff = readOptional(in);
+        Double center = readOptional(in);
+        Double width = readOptional(in);
+        // 0, and every version 1 record, leaves the channel count to the rack.
+        int channels = (version >= 2) ? in.getShort() : 0;
+        return new StandardFilterSpec(design.name(), order, sampleRate, rippleDb, mode.name(), cutoff, center, width,
+                (channels == 0) ? null : channels);
+    }
+
+    private static <E> E ordinal(E[] values, byte ordinal, String field) throws InvalidPresetException {
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new InvalidPresetException("Unknown " + field + " ordinal: " + ordinal);
+        }
+        return values[ordinal];
+    }
+}
@@ -0,0 +1,115 @@
+package SessionLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Byte ring between the threads that record and a writer thread that drains it to the log file.
+ *
+ * Producers never block on disk and never allocate: a record is copied in whole or not at all.
+ * Producers must be serialized by the caller; positions are free-running counters published
+ * with release/acquire ordering, as in the spectrum analyzer's sample ring.
+ */
+final class LogRing implements Runnable {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final byte[] ring;
+    private final int mask;
+    private final FileChannel file;
+    private final Thread writer;
+
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+    private volatile boolean closing;
+    private volatile IOException failure;
+
+    /** @param capacity ring size in bytes, a power of two */
+    LogRing(int capacity, FileChannel file, String name) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two, got " + capacity);
+        }
+        this.ring = new byte[capacity];
+        this.mask = capacity - 1;
+        this.file = file;
+        this.writer = new Thread(this, name);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    int capacity() { return this.ring.length; }
+
+    /** Bytes handed to the file so far. */
+    long getWritten() { return this.readPosition.get(); }
+
+    /** The error that stopped the writer, if any. */
+    IOException getFailure() { return this.failure; }
+
+    /**
+     * Appends {@code record}'s remaining bytes if they fit, leaving its position unchanged.
+     * Producers only, one at a time.
+     *
+     * @return false if the writer has fallen too far behind, or failed
+     */
+    boolean offer(ByteBuffer record) {
+        int length = record.remaining();
+        long write = this.writePosition.getPlain();
+        if (this.failure != null || length > this.ring.length - (write - this.readPosition.getAcquire())) {
+            return false;
+        }
+        int start = (int) (write & this.mask);
+        int first = Math.min(length, this.ring.length - start);
+        record.get(record.position(), this.ring, start, first);
+        record.get(record.position() + first, this.ring, 0, length - first);
+        this.writePosition.setRelease(write + length);
+        return true;
+    }
+
+    /**
+     * Writes out everything offered so far and stops the writer thread.
+     */
+    void close() throws IOException {
+        this.closing = true;
+        LockSupport.unpark(this.writer);
+        try {
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (this.failure != null) {
+            throw this.failure;
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                boolean last = this.closing;
+                long read = this.readPosition.getPlain();
+                long write = this.writePosition.getAcquire();
+                if (read == write) {
+                    if (last) {
+                        return;
+                    }
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    continue;
+                }
+                int start = (int) (read & this.mask);
+                int length = (int) Math.min(write - read, this.ring.length - start);
+                ByteBuffer chunk = ByteBuffer.wrap(this.ring, start, length);
+                while (chunk.hasRemaining()) {
+                    this.file.write(chunk);
+                }
+                this.readPosition.setRelease(read + length);
+            }
+        } catch (IOException e) {
+            this.failure = e;
+            System.err.println("SessionRecorder: Failed to write session log: " + e.getMessage());
+        }
+    }
+}
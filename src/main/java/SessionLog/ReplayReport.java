@@ -0,0 +1,78 @@
+package SessionLog;
+
+import java.util.Arrays;
+
+/**
+ * Outcome of a replay: per-block processing times, next to the times logged live, and a hash of
+ * the processed audio.
+ */
+public final class ReplayReport {
+
+    private final int blocks;
+    private final long samples;
+    private final int mutations;
+    private final long[] replayNanos;
+    private final long[] liveNanos;
+    private final long wallNanos;
+    private final long maxLagNanos;
+    private final long outputHash;
+    private final boolean truncated;
+
+    ReplayReport(int blocks, long samples, int mutations, long[] replayNanos, long[] liveNanos,
+            long wallNanos, long maxLagNanos, long outputHash, boolean truncated) {
+        this.blocks = blocks;
+        this.samples = samples;
+        this.mutations = mutations;
+        this.replayNanos = replayNanos;
+        this.liveNanos = liveNanos;
+        this.wallNanos = wallNanos;
+        this.maxLagNanos = maxLagNanos;
+        this.outputHash = outputHash;
+        this.truncated = truncated;
+    }
+
+    public int getBlocks() { return this.blocks; }
+    public long getSamples() { return this.samples; }
+    public int getMutations() { return this.mutations; }
+    public long getWallNanos() { return this.wallNanos; }
+    /** How late the latest record was replayed against its logged time; 0 when not paced. */
+    public long getMaxLagNanos() { return this.maxLagNanos; }
+    /** Hash of every processed sample; equal hashes mean the replays produced the same audio. */
+    public long getOutputHash() { return this.outputHash; }
+    /** True if the log ended partway through a record and was replayed up to it. */
+    public boolean isTruncated() { return this.truncated; }
+
+    /** Processing time of each block on replay, in log order. */
+    public long[] getReplayNanos() { return this.replayNanos.clone(); }
+    /** Processing time of each block when it was recorded, in log order. */
+    public long[] getLiveNanos() { return this.liveNanos.clone(); }
+
+    public long getReplayTotalNanos() { return Arrays.stream(this.replayNanos).sum(); }
+    public long getLiveTotalNanos() { return Arrays.stream(this.liveNanos).sum(); }
+
+    /** The {@code quantile} (0 to 1) of the replayed block times. */
+    public long getReplayQuantileNanos(double quantile) { return quantile(this.replayNanos, quantile); }
+    /** The {@code quantile} (0 to 1) of the live block times. */
+    public long getLiveQuantileNanos(double quantile) { return quantile(this.liveNanos, quantile); }
+
+    private static long quantile(long[] nanos, double quantile) {
+        if (nanos.length == 0) {
+            return 0;
+        }
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d blocks, %d mutations%s: replay %.1f ms (p50 %.1f us, p99 %.1f us, max %.1f us), "
+                + "live %.1f ms (p50 %.1f us, p99 %.1f us, max %.1f us), output %016x",
+                this.blocks, this.mutations, this.truncated ? " (truncated)" : "",
+                getReplayTotalNanos() / 1e6, getReplayQuantileNanos(0.5) / 1e3, getReplayQuantileNanos(0.99) / 1e3,
+                getReplayQuantileNanos(1.0) / 1e3,
+                getLiveTotalNanos() / 1e6, getLiveQuantileNanos(0.5) / 1e3, getLiveQuantileNanos(0.99) / 1e3,
+                getLiveQuantileNanos(1.0) / 1e3, this.outputHash);
+    }
+}
@@ -0,0 +1,110 @@
+package SessionLog;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Binary layout of session logs, shared by {@link SessionRecorder} and {@link SessionLogReader}.
+ *
+ * A log is a 16-byte header followed by records, all big-endian:
+ *
+ * <pre>
+ *   header  4  magic "ECRL"
+ *           2  format version ({@value #VERSION})
+ *           2  reserved, 0
+ *           8  wall-clock start, epoch milliseconds
+ *   record  1  type
+ *           8  nanoseconds since the recording started
+ *           4  payload length in bytes
+ *           n  payload:
+ *     BLOCK       8 live processing nanos, 1 sample encoding, 4 sample count, samples
+ *     ADD         4 position, one-filter binary preset
+ *     REMOVE      4 position
+ *     REPLACE     4 position, one-filter binary preset
+ *     PARAMETERS  4 position, one-filter binary preset
+ *     SWAP        4 crossfade frames, 4 channels, binary preset
+ *     APPLY_IDLE  (empty)
+ *     SETTINGS    4 channels, 1 silence bypass, 8 silence threshold dBFS
+ *     RESET       (empty)
+ * </pre>
+ *
+ * Block samples are stored as float32 when that loses nothing, as is the case for any input
+ * decoded from 8- to 24-bit PCM, as float64 otherwise, and not at all for blocks of exact zeros.
+ * Filters are stored in the {@link Preset.PresetCodec} binary form. A log cut short by a crash
+ * reads up to its last whole record.
+ */
+final class SessionLog {
+
+    static final int MAGIC = 0x4543524C; // "ECRL"
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_HEADER_BYTES = 13;
+
+    // --- Record types; a retired type must never be reused ---
+    static final byte BLOCK = 1;
+    static final byte ADD = 2;
+    static final byte REMOVE = 3;
+    static final byte REPLACE = 4;
+    static final byte PARAMETERS = 5;
+    static final byte SWAP = 6;
+    static final byte APPLY_IDLE = 7;
+    static final byte SETTINGS = 8;
+    static final byte RESET = 9;
+
+    // --- Block sample encodings ---
+    static final byte ZERO = 0;
+    static final byte FLOAT32 = 1;
+    static final byte FLOAT64 = 2;
+
+    private SessionLog() {
+    }
+
+    /** Payload bytes of a block record holding {@code samples[0, count)}. */
+    static int blockPayloadBytes(byte encoding, int count) {
+        int width = (encoding == FLOAT64) ? 8 : (encoding == FLOAT32) ? 4 : 0;
+        return 13 + width * count;
+    }
+
+    /**
+     * The most compact encoding that reproduces {@code samples[0, count)} exactly, leaving the
+     * samples narrowed to float in {@code narrowed} when that is FLOAT32.
+     */
+    static byte encode(double[] samples, int count, float[] narrowed) {
+        boolean zero = true;
+        for (int i = 0; i < count; i++) {
+            double sample = samples[i];
+            float single = (float) sample;
+            if (single != sample) {
+                return FLOAT64;
+            }
+            narrowed[i] = single;
+            zero &= Double.doubleToRawLongBits(sample) == 0L;
+        }
+        return zero ? ZERO : FLOAT32;
+    }
+
+    /** Writes the samples {@link #encode} chose an encoding for, in bulk. */
+    static void writeSamples(ByteBuffer out, byte encoding, double[] samples, float[] narrowed, int count) {
+        if (encoding == FLOAT32) {
+            out.asFloatBuffer().put(narrowed, 0, count);
+            out.position(out.position() + 4 * count);
+        } else if (encoding == FLOAT64) {
+            out.asDoubleBuffer().put(samples, 0, count);
+            out.position(out.position() + 8 * count);
+        }
+    }
+
+    static void readSamples(ByteBuffer in, byte encoding, double[] samples, int count) {
+        if (encoding == FLOAT32) {
+            for (int i = 0; i < count; i++) {
+                samples[i] = in.getFloat();
+            }
+        } else if (encoding == FLOAT64) {
+            for (int i = 0; i < count; i++) {
+                samples[i] = in.getDouble();
+            }
+        } else {
+            Arrays.fill(samples, 0, count, 0.0);
+        }
+    }
+}
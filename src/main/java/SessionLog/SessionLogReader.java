@@ -0,0 +1,117 @@
+package SessionLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a session log record by record; see {@link SessionLog} for the layout.
+ */
+final class SessionLogReader implements AutoCloseable {
+
+    private static final int READ_BYTES = 1024 * 1024;
+
+    private final FileChannel file;
+    private final long startMillis;
+    private ByteBuffer buffer = ByteBuffer.allocate(READ_BYTES);
+    private boolean endOfFile;
+    private boolean truncated;
+
+    private byte type;
+    private long nanos;
+    private ByteBuffer payload;
+
+    private SessionLogReader(FileChannel file) throws IOException {
+        this.file = file;
+        this.buffer.flip();
+        if (!fill(SessionLog.HEADER_BYTES)) {
+            throw new IOException("Not a session log: shorter than its header.");
+        }
+        int magic = this.buffer.getInt();
+        int version = this.buffer.getShort() & 0xFFFF;
+        this.buffer.getShort();
+        this.startMillis = this.buffer.getLong();
+        if (magic != SessionLog.MAGIC) {
+            throw new IOException(String.format("Not a session log: magic 0x%08X", magic));
+        }
+        if (version < 1 || version > SessionLog.VERSION) {
+            throw new IOException("Unsupported session log version " + version + "; this build reads up to " + SessionLog.VERSION);
+        }
+    }
+
+    static SessionLogReader open(Path log) throws IOException {
+        FileChannel file = FileChannel.open(log, StandardOpenOption.READ);
+        try {
+            return new SessionLogReader(file);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /** Wall-clock time the recording started, in epoch milliseconds. */
+    long getStartMillis() { return this.startMillis; }
+
+    /** True if the log ended partway through a record, as after a crash. */
+    boolean isTruncated() { return this.truncated; }
+
+    byte getType() { return this.type; }
+
+    /** Nanoseconds from the start of the recording to this record. */
+    long getNanos() { return this.nanos; }
+
+    /** This record's payload, valid until the next call to {@link #next()}. */
+    ByteBuffer getPayload() { return this.payload; }
+
+    /**
+     * Moves to the next whole record.
+     *
+     * @return false at the end of the log
+     */
+    boolean next() throws IOException {
+        if (!fill(SessionLog.RECORD_HEADER_BYTES)) {
+            return false;
+        }
+        byte type = this.buffer.get();
+        long nanos = this.buffer.getLong();
+        int length = this.buffer.getInt();
+        if (length < 0) {
+            throw new IOException("Corrupt session log: record of " + length + " bytes.");
+        }
+        if (!fill(length)) {
+            this.truncated = true;
+            return false;
+        }
+        this.type = type;
+        this.nanos = nanos;
+        this.payload = this.buffer.slice(this.buffer.position(), length);
+        this.buffer.position(this.buffer.position() + length);
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.file.close();
+    }
+
+    // Makes at least bytes readable at the buffer's position, reading more of the file as needed.
+    private boolean fill(int bytes) throws IOException {
+        while (this.buffer.remaining() < bytes && !this.endOfFile) {
+            if (this.buffer.capacity() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(bytes, 2 * this.buffer.capacity()));
+                larger.put(this.buffer).flip();
+                this.buffer = larger;
+            }
+            this.buffer.compact();
+            this.endOfFile = this.file.read(this.buffer) < 0;
+            this.buffer.flip();
+        }
+        if (this.buffer.remaining() < bytes) {
+            this.truncated |= this.buffer.hasRemaining();
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,323 @@
+package SessionLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import AudioProcessingRangler.AudioProcessingRangler;
+import AudioProcessingRangler.EmptyFilterRackException;
+import Preset.FilterSpec;
+import Preset.InvalidPresetException;
+import Preset.Preset;
+import Preset.PresetCodec;
+
+/**
+ * A rack that records everything it is asked to do to a session log, for
+ * {@link SessionReplayer} to play back headless.
+ *
+ * Use it in place of an {@link AudioProcessingRangler} wherever a rack is needed. Each block's
+ * input, arrival time and processing time is logged, and so is every mutation made through the
+ * rack: filters added, removed, replaced, whole-rack swaps, resets and bypass settings. Filters
+ * are logged by their {@link FilterSpec}, so only filters a preset can describe can be recorded.
+ * Parameters changed on a filter in place are not seen by the rack; call
+ * {@link #recordParameters} afterwards to log them.
+ *
+ * Blocks and mutations are ordered by one lock, held by the audio thread for the length of each
+ * block, so a mutation lands between the same two blocks on replay as it did live. The log is
+ * written by a background thread from a preallocated ring; recording a block copies its samples
+ * and allocates nothing. If the writer falls a whole ring behind, or a filter cannot be
+ * described, recording stops with the log ending cleanly before that point, a message on
+ * stderr, and {@link #isRecording()} false; the rack itself carries on.
+ */
+public class SessionRecorder extends AudioProcessingRangler implements AutoCloseable {
+
+    // About 5 s of 8-channel float32 at 48 kHz.
+    public static final int DEFAULT_RING_BYTES = 8 * 1024 * 1024;
+
+    private static final String RECORD_NAME = "session";
+
+    private final Object lock = new Object();
+    private final FileChannel file;
+    private final LogRing ring;
+    private final long startNanos;
+
+    // Guarded by lock.
+    private ByteBuffer record = ByteBuffer.allocate(4096);
+    private double[] input = new double[0];
+    private float[] narrowed = new float[0];
+    private boolean recording = true;
+    private boolean closed;
+    private long records;
+
+    public SessionRecorder(Path log) throws IOException {
+        this(log, DEFAULT_RING_BYTES);
+    }
+
+    /**
+     * @param ringBytes bytes buffered for the writer thread, a power of two; must hold the
+     *        largest block record
+     */
+    public SessionRecorder(Path log, int ringBytes) throws IOException {
+        this.file = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(SessionLog.HEADER_BYTES);
+            header.putInt(SessionLog.MAGIC).putShort(SessionLog.VERSION).putShort((short) 0)
+                    .putLong(System.currentTimeMillis()).flip();
+            while (header.hasRemaining()) {
+                this.file.write(header);
+            }
+            this.ring = new LogRing(ringBytes, this.file, "earcanvas-session-log");
+        } catch (IOException | RuntimeException e) {
+            this.file.close();
+            throw e;
+        }
+        this.startNanos = System.nanoTime();
+        synchronized (this.lock) {
+            recordSettings();
+        }
+    }
+
+    /** False once recording has stopped, by {@link #close()} or because it could not keep up. */
+    public boolean isRecording() {
+        synchronized (this.lock) {
+            return this.recording;
+        }
+    }
+
+    /** Records written to the log so far. */
+    public long getRecords() {
+        synchronized (this.lock) {
+            return this.records;
+        }
+    }
+
+    /**
+     * Stops recording and writes out the log. The rack keeps working, unrecorded. Closing again
+     * does nothing.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this.lock) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            this.recording = false;
+        }
+        try {
+            this.ring.close();
+            this.file.force(false);
+        } finally {
+            this.file.close();
+        }
+    }
+
+    // --- Audio thread ---
+
+    @Override
+    public double[] processData(double[] buffer) {
+        synchronized (this.lock) {
+            if (!this.recording) {
+                return super.processData(buffer);
+            }
+            int count = buffer.length;
+            if (this.input.length < count) {
+                this.input = new double[count];
+                this.narrowed = new float[count];
+            }
+            System.arraycopy(buffer, 0, this.input, 0, count);
+            long arrived = System.nanoTime();
+            double[] processed = super.processData(buffer);
+            long nanos = System.nanoTime() - arrived;
+
+            byte encoding = SessionLog.encode(this.input, count, this.narrowed);
+            ByteBuffer out = begin(SessionLog.BLOCK, arrived, SessionLog.blockPayloadBytes(encoding, count));
+            out.putLong(nanos).put(encoding).putInt(count);
+            SessionLog.writeSamples(out, encoding, this.input, this.narrowed, count);
+            commit();
+            return processed;
+        }
+    }
+
+    // --- Mutations ---
+
+    @Override
+    public void addFilter(Object filter, int rackPosition) {
+        byte[] spec = describe(filter);
+        synchronized (this.lock) {
+            super.addFilter(filter, rackPosition);
+            recordFilter(SessionLog.ADD, rackPosition, spec);
+        }
+    }
+
+    @Override
+    public boolean removeFilter(int filterPosition) throws EmptyFilterRackException, IndexOutOfBoundsException {
+        synchronized (this.lock) {
+            boolean removed = super.removeFilter(filterPosition);
+            if (this.recording) {
+                begin(SessionLog.REMOVE, System.nanoTime(), 4).putInt(filterPosition);
+                commit();
+            }
+            return removed;
+        }
+    }
+
+    @Override
+    public Object replaceFilter(int filterPosition, Object filter) throws EmptyFilterRackException, IndexOutOfBoundsException {
+        byte[] spec = describe(filter);
+        synchronized (this.lock) {
+            Object previous = super.replaceFilter(filterPosition, filter);
+            recordFilter(SessionLog.REPLACE, filterPosition, spec);
+            return previous;
+        }
+    }
+
+    /**
+     * Logs the current parameters of the filter at {@code filterPosition}, after they were
+     * changed on the filter itself. On replay the filter is rebuilt with them at this point, so
+     * its internal state restarts there.
+     */
+    public void recordParameters(int filterPosition) throws EmptyFilterRackException, IndexOutOfBoundsException {
+        synchronized (this.lock) {
+            recordFilter(SessionLog.PARAMETERS, filterPosition, describe(getFilter(filterPosition)));
+        }
+    }
+
+    @Override
+    public RackSwap swapRack(List<Object> filters, int crossfadeFrames, int channels) {
+        byte[] preset = describe(filters);
+        synchronized (this.lock) {
+            RackSwap swap = super.swapRack(filters, crossfadeFrames, channels);
+            if (this.recording && preset == null) {
+                stop("a swapped-in filter cannot be described by a preset");
+            } else if (this.recording) {
+                ByteBuffer out = begin(SessionLog.SWAP, System.nanoTime(), 8 + preset.length);
+                out.putInt(crossfadeFrames).putInt(channels).put(preset);
+                commit();
+            }
+            return swap;
+        }
+    }
+
+    @Override
+    public boolean applyIdle(RackSwap swap) {
+        synchronized (this.lock) {
+            boolean applied = super.applyIdle(swap);
+            if (applied && this.recording) {
+                begin(SessionLog.APPLY_IDLE, System.nanoTime(), 0);
+                commit();
+            }
+            return applied;
+        }
+    }
+
+    @Override
+    public void reset() {
+        synchronized (this.lock) {
+            super.reset();
+            if (this.recording) {
+                begin(SessionLog.RESET, System.nanoTime(), 0);
+                commit();
+            }
+        }
+    }
+
+    @Override
+    public void setChannels(int channels) {
+        synchronized (this.lock) {
+            super.setChannels(channels);
+            recordSettings();
+        }
+    }
+
+    @Override
+    public void setSilenceBypass(boolean enabled) {
+        synchronized (this.lock) {
+            super.setSilenceBypass(enabled);
+            recordSettings();
+        }
+    }
+
+    @Override
+    public void setSilenceThreshold(double dbfs) {
+        synchronized (this.lock) {
+            super.setSilenceThreshold(dbfs);
+            recordSettings();
+        }
+    }
+
+    // --- Helpers ---
+
+    // Called under lock. The settings are read from the rack after the change was applied.
+    private void recordSettings() {
+        if (this.recording) {
+            ByteBuffer out = begin(SessionLog.SETTINGS, System.nanoTime(), 13);
+            out.putInt(getChannels()).put((byte) (isSilenceBypass() ? 1 : 0)).putDouble(getSilenceThreshold());
+            commit();
+        }
+    }
+
+    // Called under lock; spec is null if the filter could not be described.
+    private void recordFilter(byte type, int position, byte[] spec) {
+        if (!this.recording) {
+            return;
+        }
+        if (spec == null) {
+            stop("a filter at position " + position + " cannot be described by a preset");
+            return;
+        }
+        begin(type, System.nanoTime(), 4 + spec.length).putInt(position).put(spec);
+        commit();
+    }
+
+    // Encodes outside the lock, so control threads do not hold up the audio thread doing it.
+    private static byte[] describe(Object filter) {
+        try {
+            return PresetCodec.encode(new Preset(RECORD_NAME, List.of(FilterSpec.of(filter))));
+        } catch (InvalidPresetException e) {
+            return null;
+        }
+    }
+
+    private static byte[] describe(List<Object> filters) {
+        try {
+            List<FilterSpec> specs = new ArrayList<>(filters.size());
+            for (Object filter : filters) {
+                specs.add(FilterSpec.of(filter));
+            }
+            return PresetCodec.encode(new Preset(RECORD_NAME, specs));
+        } catch (InvalidPresetException e) {
+            return null;
+        }
+    }
+
+    // Starts a record in the staging buffer; the caller fills in exactly payloadBytes.
+    private ByteBuffer begin(byte type, long nanos, int payloadBytes) {
+        int size = SessionLog.RECORD_HEADER_BYTES + payloadBytes;
+        if (this.record.capacity() < size) {
+            this.record = ByteBuffer.allocate(Math.max(size, 2 * this.record.capacity()));
+        }
+        this.record.clear();
+        return this.record.put(type).putLong(nanos - this.startNanos).putInt(payloadBytes);
+    }
+
+    private void commit() {
+        this.record.flip();
+        if (this.ring.offer(this.record)) {
+            this.records++;
+        } else {
+            stop((this.ring.getFailure() != null) ? "the log could not be written"
+                    : "the log writer fell " + this.ring.capacity() + " bytes behind");
+        }
+    }
+
+    private void stop(String reason) {
+        this.recording = false;
+        System.err.println("SessionRecorder: Recording stopped after " + this.records + " records: " + reason + ".");
+    }
+}
@@ -0,0 +1,149 @@
+package SessionLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import AudioProcessingRangler.AudioProcessingRangler;
+import AudioProcessingRangler.EmptyFilterRackException;
+import Preset.InvalidPresetException;
+import Preset.PresetCodec;
+
+/**
+ * Plays a session log back through a fresh {@link AudioProcessingRangler}, with no audio device.
+ *
+ * Every logged mutation is applied between the same two blocks as when it was recorded, and
+ * every block is processed from its logged input, so two replays of a log process identical
+ * audio through identical racks and differ only in how long it took. That makes a recording of
+ * a real session a fixed workload to profile, or to bisect a slowdown with: replay the same log
+ * on each build and compare the {@link ReplayReport}s, whose output hash also shows whether the
+ * audio changed.
+ *
+ * {@link Pacing#AsFastAsPossible} processes blocks back to back; {@link Pacing#Recorded} waits
+ * for each record's logged time first, reproducing the live timing for tools that sample
+ * against the wall clock, such as profilers and Flight Recorder.
+ */
+public final class SessionReplayer {
+
+    public enum Pacing {
+        AsFastAsPossible,
+        Recorded
+    }
+
+    private final Path log;
+
+    public SessionReplayer(Path log) {
+        this.log = log;
+    }
+
+    /**
+     * Replays the whole log. A log cut short by a crash is replayed up to its last whole record.
+     *
+     * @throws IOException if the log cannot be read or is not a session log
+     * @throws InvalidPresetException if a logged filter cannot be built in this build
+     */
+    public ReplayReport replay(Pacing pacing) throws IOException, InvalidPresetException {
+        AudioProcessingRangler rack = new AudioProcessingRangler();
+        AudioProcessingRangler.RackSwap swap = null;
+        long[] replayNanos = new long[1024];
+        long[] liveNanos = new long[1024];
+        int blocks = 0;
+        long samples = 0;
+        int mutations = 0;
+        long maxLagNanos = 0;
+        long hash = 0xcbf29ce484222325L;
+        double[] block = new double[0];
+
+        try (SessionLogReader reader = SessionLogReader.open(this.log)) {
+            long start = System.nanoTime();
+            while (reader.next()) {
+                if (pacing == Pacing.Recorded) {
+                    long due = start + reader.getNanos();
+                    long now;
+                    while ((now = System.nanoTime()) < due) {
+                        LockSupport.parkNanos(due - now);
+                    }
+                    maxLagNanos = Math.max(maxLagNanos, now - due);
+                }
+                ByteBuffer in = reader.getPayload();
+                byte type = reader.getType();
+                if (type == SessionLog.BLOCK) {
+                    long live = in.getLong();
+                    byte encoding = in.get();
+                    int count = in.getInt();
+                    if (block.length != count) {
+                        block = new double[count];
+                    }
+                    SessionLog.readSamples(in, encoding, block, count);
+
+                    long begin = System.nanoTime();
+                    double[] processed = rack.processData(block);
+                    long nanos = System.nanoTime() - begin;
+
+                    if (blocks == replayNanos.length) {
+                        replayNanos = Arrays.copyOf(replayNanos, 2 * blocks);
+                        liveNanos = Arrays.copyOf(liveNanos, 2 * blocks);
+                    }
+                    replayNanos[blocks] = nanos;
+                    liveNanos[blocks] = live;
+                    blocks++;
+                    samples += count;
+                    for (double sample : processed) {
+                        hash = (hash ^ Double.doubleToLongBits(sample)) * 0x100000001b3L;
+                    }
+                    continue;
+                }
+                mutations++;
+                try {
+                    switch (type) {
+                        case SessionLog.ADD:
+                            rack.addFilter(filters(in).get(0), in.getInt(0));
+                            break;
+                        case SessionLog.REMOVE:
+                            rack.removeFilter(in.getInt());
+                            break;
+                        case SessionLog.REPLACE:
+                        case SessionLog.PARAMETERS:
+                            rack.replaceFilter(in.getInt(0), filters(in).get(0));
+                            break;
+                        case SessionLog.SWAP:
+                            int crossfadeFrames = in.getInt();
+                            int channels = in.getInt();
+                            swap = rack.swapRack(PresetCodec.decode(in).toFilters(), crossfadeFrames, channels);
+                            break;
+                        case SessionLog.APPLY_IDLE:
+                            if (swap == null) {
+                                throw new IOException("Corrupt session log: a swap applied before any was made.");
+                            }
+                            rack.applyIdle(swap);
+                            break;
+                        case SessionLog.SETTINGS:
+                            rack.setChannels(in.getInt());
+                            rack.setSilenceBypass(in.get() != 0);
+                            rack.setSilenceThreshold(in.getDouble());
+                            break;
+                        case SessionLog.RESET:
+                            rack.reset();
+                            break;
+                        default:
+                            throw new IOException("Corrupt session log: unknown record type " + type + ".");
+                    }
+                } catch (EmptyFilterRackException | IndexOutOfBoundsException e) {
+                    throw new IOException("Corrupt session log: " + e.getMessage(), e);
+                }
+            }
+            long wallNanos = System.nanoTime() - start;
+            return new ReplayReport(blocks, samples, mutations, Arrays.copyOf(replayNanos, blocks),
+                    Arrays.copyOf(liveNanos, blocks), wallNanos, maxLagNanos, hash, reader.isTruncated());
+        }
+    }
+
+    // Builds the filters of the preset following a position field.
+    private static List<Object> filters(ByteBuffer in) throws InvalidPresetException {
+        in.position(4);
+        return PresetCodec.decode(in).toFilters();
+    }
+}
@@ -0,0 +1,16 @@
+package SpectrumAnalyzer;
+
+public class InvalidAnalyzerParametersException extends Exception {
+	
+	public InvalidAnalyzerParametersException() {
+		super();
+	}
+	
+	public InvalidAnalyzerParametersException(String msg) {
+		super(msg);
+	}
+	
+	public InvalidAnalyzerParametersException(String msg, Exception e) {
+		super(msg, e);
+	}
+}
@@ -0,0 +1,81 @@
+package SpectrumAnalyzer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-producer, single-consumer ring of mono samples.
+ *
+ * The producer (the audio thread) never blocks and never allocates: when the consumer falls
+ * behind, samples that do not fit are dropped and counted. Positions are free-running counters
+ * published with release/acquire ordering, so no locks are taken on either side.
+ */
+final class SampleRing {
+
+    private final double[] samples;
+    private final int mask;
+
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+    private final AtomicLong droppedSamples = new AtomicLong();
+
+    SampleRing(int capacity) {
+        this.samples = new double[capacity];
+        this.mask = capacity - 1;
+    }
+
+    int capacity() { return this.samples.length; }
+
+    long getDroppedSamples() { return this.droppedSamples.get(); }
+
+    /**
+     * Mixes {@code interleaved} down to mono and appends as many frames as fit.
+     * Producer thread only.
+     */
+    void write(double[] interleaved, int length, int channels) {
+        long write = this.writePosition.getPlain();
+        long free = this.samples.length - (write - this.readPosition.getAcquire());
+        int frames = length / channels;
+        int accepted = (int) Math.min(frames, free);
+
+        double scale = 1.0 / channels;
+        int index = 0;
+        for (int frame = 0; frame < accepted; frame++) {
+            double sum = 0.0;
+            for (int ch = 0; ch < channels; ch++) {
+                sum += interleaved[index++];
+            }
+            this.samples[(int) (write + frame) & this.mask] = sum * scale;
+        }
+
+        this.writePosition.setRelease(write + accepted);
+        if (accepted < frames) {
+            this.droppedSamples.getAndAdd(frames - accepted);
+        }
+    }
+
+    /**
+     * Number of samples ready to be read. Consumer thread only.
+     */
+    int available() {
+        return (int) (this.writePosition.getAcquire() - this.readPosition.getPlain());
+    }
+
+    /**
+     * Moves {@code count} samples into {@code destination} at {@code offset}. The caller must
+     * have checked {@link #available()}. Consumer thread only.
+     */
+    void read(double[] destination, int offset, int count) {
+        long read = this.readPosition.getPlain();
+        for (int i = 0; i < count; i++) {
+            destination[offset + i] = this.samples[(int) (read + i) & this.mask];
+        }
+        this.readPosition.setRelease(read + count);
+    }
+
+    /**
+     * Discards everything currently buffered. Consumer thread only.
+     */
+    void clear() {
+        this.readPosition.setRelease(this.writePosition.getAcquire());
+    }
+}
@@ -0,0 +1,248 @@
+package SpectrumAnalyzer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import FFT.FFT;
+
+/**
+ * Live magnitude spectrum of the pipeline output, computed off the audio thread.
+ *
+ * The audio thread calls {@link #accept(double[])} with each post-rack block; the samples are
+ * mixed to mono and copied into a lock-free ring, which is all the work done on that thread.
+ * A background thread drains the ring into a sliding frame of {@code fftSize} samples and, every
+ * {@code hopSize} new samples, windows the frame, runs a real FFT and publishes the magnitudes.
+ *
+ * Readers poll the latest spectrum with {@link #getSpectrum(double[])}, which copies into a
+ * caller-owned array without locking or allocating. Magnitudes are amplitude-normalized: a sine
+ * of amplitude A centred on a bin reads A in that bin, whatever the window.
+ */
+public class SpectrumAnalyzer {
+
+    public static final int MIN_FFT_SIZE = 32;
+    public static final int MAX_FFT_SIZE = 1 << 16;
+
+    private static final long MIN_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long JOIN_TIMEOUT_MILLIS = 500;
+
+    public enum Window {
+        Rectangular, Hann, Hamming, BlackmanHarris
+    }
+
+    private final float sampleRate;
+    private final int channels;
+    private final int fftSize;
+    private final int hopSize;
+    private final Window window;
+
+    private final FFT fft;
+    private final double[] windowTable;
+    private final double dcScale;
+    private final double binScale;
+    private final long pollNanos;
+
+    private final SampleRing ring;
+    private final SpectrumSnapshot snapshot;
+
+    // --- Analysis thread state ---
+    private final double[] frame;
+    private final double[] work;
+    private final double[] magnitudes;
+    private int filled;
+    private long frameCount;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public float getSampleRate() { return this.sampleRate; }
+    public int getChannels() { return this.channels; }
+    public int getFftSize() { return this.fftSize; }
+    public int getHopSize() { return this.hopSize; }
+    public Window getWindow() { return this.window; }
+    public int getBinCount() { return this.fftSize / 2 + 1; }
+    public long getDroppedSamples() { return this.ring.getDroppedSamples(); }
+    public boolean isRunning() { return this.running; }
+    int getRingCapacity() { return this.ring.capacity(); }
+
+    public SpectrumAnalyzer(float sampleRate, int channels, int fftSize, int hopSize, Window window) throws InvalidAnalyzerParametersException {
+        if (sampleRate <= 0) {
+            throw new InvalidAnalyzerParametersException("Sample rate must be positive.");
+        }
+        if (channels <= 0) {
+            throw new InvalidAnalyzerParametersException("Channel count must be positive.");
+        }
+        if (fftSize < MIN_FFT_SIZE || fftSize > MAX_FFT_SIZE || Integer.bitCount(fftSize) != 1) {
+            throw new InvalidAnalyzerParametersException("FFT size must be a power of 2 between " + MIN_FFT_SIZE + " and " + MAX_FFT_SIZE + ", got " + fftSize);
+        }
+        if (hopSize <= 0 || hopSize > fftSize) {
+            throw new InvalidAnalyzerParametersException("Hop size must be between 1 and the FFT size, got " + hopSize);
+        }
+
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.fftSize = fftSize;
+        this.hopSize = hopSize;
+        this.window = (window == null) ? Window.Hann : window;
+
+        this.fft = FFT.forSize(fftSize);
+        this.windowTable = createWindow(this.window, fftSize);
+        double windowSum = 0.0;
+        for (double w : this.windowTable) {
+            windowSum += w;
+        }
+        this.dcScale = 1.0 / windowSum;
+        this.binScale = 2.0 / windowSum;
+
+        // Poll at half the hop period so a frame is never more than half a hop late.
+        this.pollNanos = Math.max(MIN_POLL_NANOS, (long) (hopSize * 0.5e9 / sampleRate));
+
+        // At least four frames and one second of headroom before the producer starts dropping.
+        int capacity = Integer.highestOneBit(Math.max(fftSize * 4, (int) sampleRate) - 1) << 1;
+        this.ring = new SampleRing(capacity);
+        this.snapshot = new SpectrumSnapshot(getBinCount());
+
+        this.frame = new double[fftSize];
+        this.work = new double[fftSize];
+        this.magnitudes = new double[getBinCount()];
+    }
+
+    // --- Audio thread ---
+
+    /**
+     * Taps one interleaved block. Never blocks or allocates; if the analysis thread has fallen
+     * behind, frames that do not fit are dropped and counted in {@link #getDroppedSamples()}.
+     */
+    public void accept(double[] samples) {
+        if (samples == null) {
+            return;
+        }
+        this.ring.write(samples, samples.length, this.channels);
+    }
+
+    // --- Readers ---
+
+    /**
+     * Copies the latest spectrum ({@link #getBinCount()} magnitudes, DC to Nyquist) into
+     * {@code destination}.
+     *
+     * @return the frame number of the copied spectrum, increasing by one per published frame,
+     *         or 0 if no frame has been published yet
+     */
+    public long getSpectrum(double[] destination) {
+        if (destination == null) {
+            throw new IllegalArgumentException("Destination buffer must not be null.");
+        }
+        if (destination.length < getBinCount()) {
+            throw new IllegalArgumentException("Buffer size mismatch: expected at least " + getBinCount() + ", got " + destination.length);
+        }
+        return this.snapshot.read(destination);
+    }
+
+    public double getBinFrequency(int bin) {
+        return bin * (double) this.sampleRate / this.fftSize;
+    }
+
+    // --- Lifecycle ---
+
+    public synchronized void start() {
+        if (this.running) {
+            return;
+        }
+        this.running = true;
+        this.worker = new Thread(this::runWorker, "earcanvas-spectrum-analyzer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public synchronized void stop() {
+        if (!this.running) {
+            return;
+        }
+        this.running = false;
+        LockSupport.unpark(this.worker);
+        try {
+            this.worker.join(JOIN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.worker = null;
+    }
+
+    private void runWorker() {
+        // Start from fresh audio rather than whatever piled up while stopped.
+        this.ring.clear();
+        this.filled = 0;
+        while (this.running) {
+            if (!drain()) {
+                LockSupport.parkNanos(this.pollNanos);
+            }
+        }
+    }
+
+    /**
+     * Moves buffered samples into the analysis frame, publishing a spectrum every hop.
+     * Analysis thread only.
+     *
+     * @return true if any samples were consumed
+     */
+    boolean drain() {
+        boolean consumed = false;
+        while (true) {
+            int wanted = this.fftSize - this.filled;
+            int count = Math.min(this.ring.available(), wanted);
+            if (count == 0) {
+                return consumed;
+            }
+            this.ring.read(this.frame, this.filled, count);
+            this.filled += count;
+            consumed = true;
+
+            if (this.filled == this.fftSize) {
+                analyze();
+                int keep = this.fftSize - this.hopSize;
+                System.arraycopy(this.frame, this.hopSize, this.frame, 0, keep);
+                this.filled = keep;
+            }
+        }
+    }
+
+    private void analyze() {
+        for (int i = 0; i < this.fftSize; i++) {
+            this.work[i] = this.frame[i] * this.windowTable[i];
+        }
+        this.fft.realForward(this.work);
+        FFT.magnitude(this.work, this.magnitudes);
+
+        int nyquist = this.fftSize / 2;
+        this.magnitudes[0] *= this.dcScale;
+        this.magnitudes[nyquist] *= this.dcScale;
+        for (int k = 1; k < nyquist; k++) {
+            this.magnitudes[k] *= this.binScale;
+        }
+
+        this.snapshot.publish(this.magnitudes, ++this.frameCount);
+    }
+
+    // Periodic windows, as used for spectral analysis.
+    private static double[] createWindow(Window window, int size) {
+        double[] table = new double[size];
+        for (int i = 0; i < size; i++) {
+            double x = 2.0 * Math.PI * i / size;
+            switch (window) {
+                case Rectangular:
+                    table[i] = 1.0;
+                    break;
+                case Hann:
+                    table[i] = 0.5 - 0.5 * Math.cos(x);
+                    break;
+                case Hamming:
+                    table[i] = 0.54 - 0.46 * Math.cos(x);
+                    break;
+                case BlackmanHarris:
+                    table[i] = 0.35875 - 0.48829 * Math.cos(x) + 0.14128 * Math.cos(2 * x) - 0.01168 * Math.cos(3 * x);
+                    break;
+            }
+        }
+        return table;
+    }
+}
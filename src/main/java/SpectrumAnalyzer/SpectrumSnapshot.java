@@ -0,0 +1,74 @@
+package SpectrumAnalyzer;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Double-buffered magnitude spectrum with a single writer and any number of pollers.
+ *
+ * The writer fills the back buffer and then publishes it as the front with one volatile store,
+ * so it never waits on readers. Readers copy the front buffer into their own array; each buffer
+ * carries a sequence counter (odd while being written) so a reader that races a writer lapping
+ * it retries instead of returning a torn spectrum. Neither side locks or allocates.
+ */
+final class SpectrumSnapshot {
+
+    private static final class Frame {
+        final double[] magnitudes;
+        volatile long sequence;
+        long frameNumber;
+
+        Frame(int bins) {
+            this.magnitudes = new double[bins];
+        }
+    }
+
+    private final Frame[] frames;
+    private volatile Frame front;
+    private int backIndex;
+
+    SpectrumSnapshot(int bins) {
+        this.frames = new Frame[] { new Frame(bins), new Frame(bins) };
+        this.front = this.frames[0];
+        this.backIndex = 1;
+    }
+
+    int bins() { return this.frames[0].magnitudes.length; }
+
+    /**
+     * Publishes {@code magnitudes} as frame {@code frameNumber}. Writer thread only.
+     */
+    void publish(double[] magnitudes, long frameNumber) {
+        Frame back = this.frames[this.backIndex];
+        long sequence = back.sequence;
+
+        back.sequence = sequence + 1;
+        VarHandle.storeStoreFence();
+        System.arraycopy(magnitudes, 0, back.magnitudes, 0, back.magnitudes.length);
+        back.frameNumber = frameNumber;
+        back.sequence = sequence + 2;
+
+        this.front = back;
+        this.backIndex ^= 1;
+    }
+
+    /**
+     * Copies the latest published spectrum into {@code destination} and returns its frame
+     * number, or 0 if nothing has been published yet.
+     */
+    long read(double[] destination) {
+        while (true) {
+            Frame frame = this.front;
+            long before = frame.sequence;
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            System.arraycopy(frame.magnitudes, 0, destination, 0, frame.magnitudes.length);
+            long frameNumber = frame.frameNumber;
+            VarHandle.loadLoadFence();
+            if (frame.sequence == before) {
+                return frameNumber;
+            }
+        }
+    }
+}
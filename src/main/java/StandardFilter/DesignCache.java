@@ -0,0 +1,171 @@
+package StandardFilter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import MetricsRegistry.Counter;
+import MetricsRegistry.MetricsRegistry;
+import StandardFilter.StandardFilter.FilterMode;
+import StandardFilter.StandardFilter.FilterType;
+
+/**
+ * Process-wide, least-recently-used cache of filter designs.
+ *
+ * Many sessions ask for the same few responses, and an iirj pole/zero design costs far more than
+ * a lookup. Designs are keyed by everything that shapes them (type, mode, order, sample rate,
+ * frequencies, ripple) and stored as immutable {@link SosCoefficients}, so every filter with the
+ * same response shares one coefficient set and keeps only its own state.
+ *
+ * Concurrent requests for a design that is not cached yet are deduplicated: the first caller
+ * designs it outside the lock, later callers wait for that result. A failed design is not cached.
+ */
+public final class DesignCache {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    // Overrides the shared cache's capacity, e.g. -Dearcanvas.design.cache.size=4096
+    public static final String CAPACITY_PROPERTY = "earcanvas.design.cache.size";
+
+    private static final DesignCache SHARED = new DesignCache(Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY));
+
+    private static final Counter HITS = MetricsRegistry.getDefault().counter("earcanvas_filter_design_cache_total",
+            "Filter design requests, by cache result.", "result", "hit");
+    private static final Counter MISSES = MetricsRegistry.getDefault().counter("earcanvas_filter_design_cache_total",
+            "Filter design requests, by cache result.", "result", "miss");
+
+    /**
+     * Everything a StandardFilter design depends on. Frequencies a mode does not use, and the
+     * ripple of designs without one, are zero so that equal responses share a key.
+     */
+    static final class Key {
+        final FilterType type;
+        final FilterMode mode;
+        final int order;
+        final double sampleRate;
+        final double frequency;
+        final double width;
+        final double rippleDb;
+
+        Key(FilterType type, FilterMode mode, int order, double sampleRate, double frequency, double width, double rippleDb) {
+            this.type = type;
+            this.mode = mode;
+            this.order = order;
+            this.sampleRate = sampleRate;
+            this.frequency = frequency;
+            this.width = width;
+            this.rippleDb = (type == FilterType.ChebyshevI || type == FilterType.ChebyshevII) ? rippleDb : 0.0;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return this.type == key.type && this.mode == key.mode && this.order == key.order
+                    && Double.compare(this.sampleRate, key.sampleRate) == 0
+                    && Double.compare(this.frequency, key.frequency) == 0
+                    && Double.compare(this.width, key.width) == 0
+                    && Double.compare(this.rippleDb, key.rippleDb) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = this.type.hashCode() * 31 + this.mode.hashCode();
+            hash = hash * 31 + this.order;
+            hash = hash * 31 + Double.hashCode(this.sampleRate);
+            hash = hash * 31 + Double.hashCode(this.frequency);
+            hash = hash * 31 + Double.hashCode(this.width);
+            return hash * 31 + Double.hashCode(this.rippleDb);
+        }
+
+        @Override
+        public String toString() {
+            return this.type + " " + this.mode + " order " + this.order + " at " + this.sampleRate + " Hz";
+        }
+    }
+
+    private final int capacity;
+    private final LinkedHashMap<Key, CompletableFuture<SosCoefficients>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param capacity designs kept; 0 disables caching (and deduplication)
+     */
+    public DesignCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Cache capacity must not be negative.");
+        }
+        this.capacity = capacity;
+    }
+
+    /** The cache every StandardFilter designs through. */
+    public static DesignCache shared() { return SHARED; }
+
+    /**
+     * Returns the cached design for {@code key}, running {@code designer} if there is none. Runtime
+     * exceptions from the designer reach every caller waiting on it.
+     */
+    SosCoefficients get(Key key, Supplier<SosCoefficients> designer) {
+        CompletableFuture<SosCoefficients> design;
+        boolean owner = false;
+        synchronized (this) {
+            design = this.entries.get(key);
+            if (design == null) {
+                design = new CompletableFuture<>();
+                this.entries.put(key, design);
+                this.misses++;
+                owner = true;
+                evict();
+            } else {
+                this.hits++;
+            }
+        }
+
+        if (owner) {
+            MISSES.increment();
+            try {
+                design.complete(designer.get());
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    this.entries.remove(key, design);
+                }
+                design.completeExceptionally(e);
+                throw e;
+            }
+        } else {
+            HITS.increment();
+        }
+
+        try {
+            return design.join();
+        } catch (CompletionException e) {
+            throw (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, CompletableFuture<SosCoefficients>>> eldest = this.entries.entrySet().iterator();
+        while (this.entries.size() > this.capacity && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            this.evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        this.entries.clear();
+    }
+
+    public int getCapacity() { return this.capacity; }
+    public synchronized int size() { return this.entries.size(); }
+    public synchronized long hits() { return this.hits; }
+    public synchronized long misses() { return this.misses; }
+    public synchronized long evictions() { return this.evictions; }
+}
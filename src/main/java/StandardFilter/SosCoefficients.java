@@ -0,0 +1,72 @@
+package StandardFilter;
+
+import java.util.Arrays;
+
+import uk.me.berndporr.iirj.Biquad;
+import uk.me.berndporr.iirj.Cascade;
+
+/**
+ * Immutable second-order-section form of an IIR design: {b0, b1, b2, a1, a2} per section,
+ * normalised so that a0 = 1, in processing order.
+ *
+ * This is the flat layout the {@link SosKernel} and native kernels run on. One instance can be
+ * shared by any number of filters, since the running state is kept elsewhere.
+ */
+public final class SosCoefficients {
+
+    public static final int COEFFICIENTS_PER_SECTION = 5;
+
+    static final SosCoefficients EMPTY = new SosCoefficients(new double[0]);
+
+    private final double[] coefficients;
+
+    private SosCoefficients(double[] coefficients) {
+        this.coefficients = coefficients;
+    }
+
+    /**
+     * Copies the sections out of an iirj design.
+     */
+    public static SosCoefficients of(Cascade cascade) {
+        int sections = cascade.getNumBiquads();
+        double[] coefficients = new double[sections * COEFFICIENTS_PER_SECTION];
+        for (int section = 0; section < sections; section++) {
+            Biquad biquad = cascade.getBiquad(section);
+            double a0 = biquad.getA0();
+            int c = section * COEFFICIENTS_PER_SECTION;
+            coefficients[c] = biquad.getB0() / a0;
+            coefficients[c + 1] = biquad.getB1() / a0;
+            coefficients[c + 2] = biquad.getB2() / a0;
+            coefficients[c + 3] = biquad.getA1() / a0;
+            coefficients[c + 4] = biquad.getA2() / a0;
+        }
+        return new SosCoefficients(coefficients);
+    }
+
+    /**
+     * @param coefficients {b0, b1, b2, a1, a2} per section, already normalised by a0; copied
+     */
+    public static SosCoefficients of(double[] coefficients) {
+        if (coefficients.length % COEFFICIENTS_PER_SECTION != 0) {
+            throw new IllegalArgumentException("Expected 5 coefficients per section, got " + coefficients.length);
+        }
+        return new SosCoefficients(coefficients.clone());
+    }
+
+    public int getSectionCount() { return this.coefficients.length / COEFFICIENTS_PER_SECTION; }
+
+    public double[] toArray() { return this.coefficients.clone(); }
+
+    // Shared, never written: for the kernels only.
+    double[] array() { return this.coefficients; }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SosCoefficients && Arrays.equals(this.coefficients, ((SosCoefficients) other).coefficients);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.coefficients);
+    }
+}
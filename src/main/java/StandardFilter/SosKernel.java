@@ -0,0 +1,162 @@
+package StandardFilter;
+
+/**
+ * Java transposed direct form II kernel over second-order sections, the twin of the native
+ * {@code NativeFilter_NativeSosKernel.c}. Both use the same coefficient and state layouts, so a
+ * filter can switch between them between blocks without losing its history.
+ *
+ * coefficients: {b0, b1, b2, a1, a2} per section (see {@link SosCoefficients})
+ * state:        {s1, s2} per section per channel, laid out [channel][section][2]
+ *
+ * Each section's recursion is a chain of dependent multiply-adds, so one section at a time would
+ * leave the CPU waiting on latency. Sections are therefore swept in pairs, and stereo blocks run
+ * both channels in the same sweep: two or four independent recursions are in flight per sample.
+ *
+ * After a burst, silence leaves each section ringing down towards zero. Left alone the state ends
+ * up subnormal, where every multiply-add costs a hundred times more, exactly when nothing is
+ * playing. Java cannot set the CPU's flush-to-zero mode, so state below {@link #DENORMAL_SNAP}
+ * (-400 dBFS, far under any signal) is snapped to zero at the end of each block. Both kernels
+ * snap the same way.
+ */
+final class SosKernel {
+
+    static final int STATES_PER_SECTION = 2;
+
+    static final double DENORMAL_SNAP = 1e-20;
+
+    private static final int C = SosCoefficients.COEFFICIENTS_PER_SECTION;
+
+    private SosKernel() {
+    }
+
+    static void process(double[] samples, int length, int channels, double[] coefficients, int sections, double[] state) {
+        int frames = length / channels;
+        if (channels == 2) {
+            int section = 0;
+            for (; section + 1 < sections; section += 2) {
+                stereoPair(samples, frames, coefficients, section, sections, state);
+            }
+            if (section < sections) {
+                stereoSingle(samples, frames, coefficients, section, sections, state);
+            }
+            return;
+        }
+        for (int ch = 0; ch < channels; ch++) {
+            int section = 0;
+            for (; section + 1 < sections; section += 2) {
+                pair(samples, frames, channels, ch, coefficients, section, (ch * sections + section) * STATES_PER_SECTION, state);
+            }
+            if (section < sections) {
+                single(samples, frames, channels, ch, coefficients, section, (ch * sections + section) * STATES_PER_SECTION, state);
+            }
+        }
+    }
+
+    private static double snap(double state) {
+        return Math.abs(state) < DENORMAL_SNAP ? 0.0 : state;
+    }
+
+    private static void single(double[] x, int frames, int channels, int ch, double[] coefficients, int section, int s, double[] state) {
+        int c = section * C;
+        double b0 = coefficients[c], b1 = coefficients[c + 1], b2 = coefficients[c + 2];
+        double a1 = coefficients[c + 3], a2 = coefficients[c + 4];
+        double s1 = state[s], s2 = state[s + 1];
+        for (int frame = 0, i = ch; frame < frames; frame++, i += channels) {
+            double in = x[i];
+            double out = b0 * in + s1;
+            s1 = b1 * in - a1 * out + s2;
+            s2 = b2 * in - a2 * out;
+            x[i] = out;
+        }
+        state[s] = snap(s1);
+        state[s + 1] = snap(s2);
+    }
+
+    // Sections k and k + 1 of one channel in one sweep; their states are adjacent.
+    private static void pair(double[] x, int frames, int channels, int ch, double[] coefficients, int section, int s, double[] state) {
+        int c = section * C;
+        double p0 = coefficients[c], p1 = coefficients[c + 1], p2 = coefficients[c + 2];
+        double pa1 = coefficients[c + 3], pa2 = coefficients[c + 4];
+        double q0 = coefficients[c + 5], q1 = coefficients[c + 6], q2 = coefficients[c + 7];
+        double qa1 = coefficients[c + 8], qa2 = coefficients[c + 9];
+        double ps1 = state[s], ps2 = state[s + 1], qs1 = state[s + 2], qs2 = state[s + 3];
+        for (int frame = 0, i = ch; frame < frames; frame++, i += channels) {
+            double in = x[i];
+            double mid = p0 * in + ps1;
+            ps1 = p1 * in - pa1 * mid + ps2;
+            ps2 = p2 * in - pa2 * mid;
+            double out = q0 * mid + qs1;
+            qs1 = q1 * mid - qa1 * out + qs2;
+            qs2 = q2 * mid - qa2 * out;
+            x[i] = out;
+        }
+        state[s] = snap(ps1);
+        state[s + 1] = snap(ps2);
+        state[s + 2] = snap(qs1);
+        state[s + 3] = snap(qs2);
+    }
+
+    private static void stereoSingle(double[] x, int frames, double[] coefficients, int section, int sections, double[] state) {
+        int c = section * C;
+        double b0 = coefficients[c], b1 = coefficients[c + 1], b2 = coefficients[c + 2];
+        double a1 = coefficients[c + 3], a2 = coefficients[c + 4];
+        int l = section * STATES_PER_SECTION;
+        int r = (sections + section) * STATES_PER_SECTION;
+        double l1 = state[l], l2 = state[l + 1];
+        double r1 = state[r], r2 = state[r + 1];
+        for (int i = 0, end = frames * 2; i < end; i += 2) {
+            double inL = x[i];
+            double inR = x[i + 1];
+            double outL = b0 * inL + l1;
+            double outR = b0 * inR + r1;
+            l1 = b1 * inL - a1 * outL + l2;
+            r1 = b1 * inR - a1 * outR + r2;
+            l2 = b2 * inL - a2 * outL;
+            r2 = b2 * inR - a2 * outR;
+            x[i] = outL;
+            x[i + 1] = outR;
+        }
+        state[l] = snap(l1);
+        state[l + 1] = snap(l2);
+        state[r] = snap(r1);
+        state[r + 1] = snap(r2);
+    }
+
+    private static void stereoPair(double[] x, int frames, double[] coefficients, int section, int sections, double[] state) {
+        int c = section * C;
+        double p0 = coefficients[c], p1 = coefficients[c + 1], p2 = coefficients[c + 2];
+        double pa1 = coefficients[c + 3], pa2 = coefficients[c + 4];
+        double q0 = coefficients[c + 5], q1 = coefficients[c + 6], q2 = coefficients[c + 7];
+        double qa1 = coefficients[c + 8], qa2 = coefficients[c + 9];
+        int l = section * STATES_PER_SECTION;
+        int r = (sections + section) * STATES_PER_SECTION;
+        double lp1 = state[l], lp2 = state[l + 1], lq1 = state[l + 2], lq2 = state[l + 3];
+        double rp1 = state[r], rp2 = state[r + 1], rq1 = state[r + 2], rq2 = state[r + 3];
+        for (int i = 0, end = frames * 2; i < end; i += 2) {
+            double inL = x[i];
+            double inR = x[i + 1];
+            double midL = p0 * inL + lp1;
+            double midR = p0 * inR + rp1;
+            lp1 = p1 * inL - pa1 * midL + lp2;
+            rp1 = p1 * inR - pa1 * midR + rp2;
+            lp2 = p2 * inL - pa2 * midL;
+            rp2 = p2 * inR - pa2 * midR;
+            double outL = q0 * midL + lq1;
+            double outR = q0 * midR + rq1;
+            lq1 = q1 * midL - qa1 * outL + lq2;
+            rq1 = q1 * midR - qa1 * outR + rq2;
+            lq2 = q2 * midL - qa2 * outL;
+            rq2 = q2 * midR - qa2 * outR;
+            x[i] = outL;
+            x[i + 1] = outR;
+        }
+        state[l] = snap(lp1);
+        state[l + 1] = snap(lp2);
+        state[l + 2] = snap(lq1);
+        state[l + 3] = snap(lq2);
+        state[r] = snap(rp1);
+        state[r + 1] = snap(rp2);
+        state[r + 2] = snap(rq1);
+        state[r + 3] = snap(rq2);
+    }
+}
@@ -1,63 +1,142 @@
 package StandardFilter;
 
+import java.util.Arrays;
 import java.util.Optional;
 
+import AudioProcessingRangler.FilterTails;
+import AudioProcessingRangler.RackFilterInterface;
+import NativeFilter.NativeSosKernel;
 import uk.me.berndporr.iirj.Bessel;
 import uk.me.berndporr.iirj.Butterworth;
 import uk.me.berndporr.iirj.Cascade;
 import uk.me.berndporr.iirj.ChebyshevI;
 import uk.me.berndporr.iirj.ChebyshevII;
 
-public class StandardFilter implements StandardFilterInterface {
+/**
+ * IIR filter designed by iirj.
+ *
+ * iirj designs the response; processing does not go through {@link Cascade#filter}. Each time a
+ * response is set, the cascade's second-order sections are copied into {@link SosCoefficients},
+ * and {@link #process} runs them in transposed direct form II over interleaved blocks, with one
+ * state per channel. The kernel is the Java {@link SosKernel} or, with {@link Backend#Native},
+ * the native one; both share the same layouts, so the backend can change between blocks.
+ *
+ * Designs are shared process-wide through {@link DesignCache#shared()}: filters with the same
+ * response reuse one immutable coefficient set instead of each running the iirj design.
+ */
+public class StandardFilter implements StandardFilterInterface, RackFilterInterface {
     int order;
 	double sampleRate;
 	double centerFrequnecy;
 	double frequnecyWidth;
     double cutoffFrequnecy;
 	double rippleDb;
+	int channels;
 
     FilterType filterType;
+    FilterMode filterMode;
 	Cascade settings;
+	private volatile Backend backend = Backend.Java;
+
+	// Where set methods take their designs from; tests swap in a private cache.
+	static DesignCache designs = DesignCache.shared();
+	private volatile DesignCache.Key designKey;
+	private DesignCache.Key settingsKey; // The design settings currently holds.
+
+	// Coefficients and state published together, so the kernels never see mismatched sizes.
+	private volatile Design design = new Design(SosCoefficients.EMPTY, new double[0], 1);
+
+	private static final class Design {
+		final SosCoefficients sos;
+		final double[] state; // {s1, s2} per section per channel, laid out [channel][section][2]
+		final int channels;
+		final long tailFrames;
+
+		Design(SosCoefficients sos, double[] state, int channels) {
+			this.sos = sos;
+			this.state = state;
+			this.channels = channels;
+			this.tailFrames = FilterTails.ofSections(sos.array(), sos.getSectionCount());
+		}
+	}
 
     public enum FilterType {
 		Butterworth, Bessel, ChebyshevI, ChebyshevII
 	}
+
+    public enum FilterMode {
+		Lowpass, Highpass, Bandpass, Bandstop
+	}
+
+	/** Which second-order-section kernel {@link #process} runs. */
+	public enum Backend {
+		Java, Native
+	}
 	
+	public FilterType getFilterType() {return this.filterType;}
+	/** The response last designed, or null until one of the set methods has been called. */
+	public FilterMode getFilterMode() {return this.filterMode;}
 	public int getOrder() {return this.order;}
 	public double getSamplerate() {return this.sampleRate;}
 	public double getCenterFrequnecy() {return this.centerFrequnecy;}
 	public double getFrequencyWidth() {return this.frequnecyWidth;}
 	public double getRippleDb() {return this.rippleDb;}
 	public double getCutoffFrequnecy() {return this.cutoffFrequnecy;}
-    public Cascade getSettings() {return this.settings;}
+	public int getChannels() {return this.channels;}
+	/**
+	 * The iirj design. Its own per-sample state is not used by {@link #process}. Designs normally
+	 * come from the {@link DesignCache}, so the cascade is only designed when first asked for here.
+	 */
+    public synchronized Cascade getSettings() {
+		DesignCache.Key key = this.designKey;
+		if (key != null && key != this.settingsKey) {
+			design(this.settings, key);
+			this.settingsKey = key;
+		}
+		return this.settings;
+	}
+	/** The designed response in second-order sections; empty until a set method has been called. */
+	public SosCoefficients getSections() {return this.design.sos;}
+
+	@Override
+	public long getTailFrames() {return this.design.tailFrames;}
+	public Backend getBackend() {return this.backend;}
+
+	/**
+	 * Selects the processing kernel. Takes effect from the next block and keeps the filter's history.
+	 *
+	 * @throws UnsupportedOperationException if {@code Native} is asked for but the native library is not available
+	 */
+	public void setBackend(Backend backend) {
+		if (backend == Backend.Native && !NativeSosKernel.isAvailable()) {
+			throw new UnsupportedOperationException("The native SOS kernel is not available on this platform.");
+		}
+		this.backend = backend;
+	}
 
 	private void setCenterFrequnecy(double centerFrequnecy) {this.centerFrequnecy = centerFrequnecy;}
 	private void setFrequencyWidth(double frequnecyWidth) {this.frequnecyWidth = frequnecyWidth;}
 	private void setCutoffFrequnecy(double cutoffFrequnecy) {this.cutoffFrequnecy = cutoffFrequnecy;}
 
     public StandardFilter(FilterType filterType, int order, double sampleRate, Optional<Double> rippleDb) throws InvalidFilterException {
+        this(filterType, order, sampleRate, 1, rippleDb);
+    }
+
+    /**
+     * @param channels number of interleaved channels in the blocks given to {@link #process}
+     */
+    public StandardFilter(FilterType filterType, int order, double sampleRate, int channels, Optional<Double> rippleDb) throws InvalidFilterException {
+        if (channels < 1) {
+            throw new InvalidFilterException("Channel count must be at least 1, got " + channels);
+        }
         try {
-            switch (filterType) {
-                case Butterworth:
-                    settings = new Butterworth();
-                    break;
-                case Bessel:
-                    settings = new Bessel();
-                    break;
-                case ChebyshevI:
-                    settings = new ChebyshevI();
-                    break;
-                case ChebyshevII:
-                    settings = new ChebyshevII();
-                    break;
-                default:
-                    throw new RuntimeException();
-            }
-            
+            settings = newCascade(filterType);
+
             this.filterType = filterType;
             this.order = order;
             this.sampleRate = sampleRate;
             this.rippleDb = rippleDb.orElse(0.0);
+            this.channels = channels;
             
             } catch (Exception e) {
                     throw new InvalidFilterException("Invalid filter type provided. Please enter (i.e. Butterworth, Bessel, ChebyshevI, ChebyshevII)", e);
@@ -67,87 +146,174 @@ public class StandardFilter implements StandardFilterInterface {
 	public void setBandpass(double centerFrequnecy, double frequnecyWidth) throws UnsupportedOperationException {
         setCenterFrequnecy(centerFrequnecy); 
         setFrequencyWidth(frequnecyWidth);
-
-        switch (filterType) {
-            case Butterworth:
-                ((Butterworth)settings).bandPass(order, sampleRate, centerFrequnecy, frequnecyWidth);
-                break;
-			case Bessel:
-                ((Bessel)settings).bandPass(order, sampleRate, centerFrequnecy, frequnecyWidth);
-                break;
-			case ChebyshevI:
-                ((ChebyshevI)settings).bandPass(order, sampleRate, centerFrequnecy, frequnecyWidth, rippleDb);
-                break;
-			case ChebyshevII:
-                 ((ChebyshevII)settings).bandPass(order, sampleRate, centerFrequnecy, frequnecyWidth, rippleDb);
-                 break;
-			default:
-				throw new UnsupportedOperationException("This filter does not support setting a bandpass.");
-	    }
+        this.filterMode = FilterMode.Bandpass;
+        applyDesign(new DesignCache.Key(filterType, FilterMode.Bandpass, order, sampleRate, centerFrequnecy, frequnecyWidth, rippleDb));
 	}
 
 	public void setBandstop(double centerFrequnecy, double frequnecyWidth) throws UnsupportedOperationException {
         setCenterFrequnecy(centerFrequnecy); 
         setFrequencyWidth(frequnecyWidth);
-
-        switch (filterType) {
-            case Butterworth:
-                ((Butterworth)settings).bandStop(order, sampleRate, centerFrequnecy, frequnecyWidth);
-				break;
-			case Bessel:
-                ((Bessel)settings).bandStop(order, sampleRate, centerFrequnecy, frequnecyWidth);
-				break;
-			case ChebyshevI:
-                ((ChebyshevI)settings).bandStop(order, sampleRate, centerFrequnecy, frequnecyWidth, rippleDb);
-				break;
-			case ChebyshevII:
-                 ((ChebyshevII)settings).bandStop(order, sampleRate, centerFrequnecy, frequnecyWidth, rippleDb);
-				break;
-			default:
-			throw new UnsupportedOperationException("This filter does not support setting a bandstop.");
-		}
+        this.filterMode = FilterMode.Bandstop;
+        applyDesign(new DesignCache.Key(filterType, FilterMode.Bandstop, order, sampleRate, centerFrequnecy, frequnecyWidth, rippleDb));
 	}
 
 	public void setHighpass(double cutoffFrequnecy) throws UnsupportedOperationException {
         setCutoffFrequnecy(cutoffFrequnecy);
+        this.filterMode = FilterMode.Highpass;
+        applyDesign(new DesignCache.Key(filterType, FilterMode.Highpass, order, sampleRate, cutoffFrequnecy, 0.0, rippleDb));
+	}
+	
+	public void setLowpass(double cutoffFrequnecy) throws UnsupportedOperationException {
+        setCutoffFrequnecy(cutoffFrequnecy);
+        this.filterMode = FilterMode.Lowpass;
+        applyDesign(new DesignCache.Key(filterType, FilterMode.Lowpass, order, sampleRate, cutoffFrequnecy, 0.0, rippleDb));
+	}
 
-        switch (filterType) {
-            case Butterworth:
-                ((Butterworth)settings).highPass(order, sampleRate, cutoffFrequnecy);
+	// Runs the iirj design for key into cascade.
+	static void design(Cascade cascade, DesignCache.Key key) throws UnsupportedOperationException {
+		switch (key.mode) {
+			case Bandpass:
+				switch (key.type) {
+					case Butterworth:
+						((Butterworth)cascade).bandPass(key.order, key.sampleRate, key.frequency, key.width);
+						break;
+					case Bessel:
+						((Bessel)cascade).bandPass(key.order, key.sampleRate, key.frequency, key.width);
+						break;
+					case ChebyshevI:
+						((ChebyshevI)cascade).bandPass(key.order, key.sampleRate, key.frequency, key.width, key.rippleDb);
+						break;
+					case ChebyshevII:
+						((ChebyshevII)cascade).bandPass(key.order, key.sampleRate, key.frequency, key.width, key.rippleDb);
+						break;
+					default:
+						throw new UnsupportedOperationException("This filter does not support setting a bandpass.");
+				}
 				break;
-			case Bessel:
-                ((Bessel)settings).highPass(order, sampleRate, cutoffFrequnecy);
+			case Bandstop:
+				switch (key.type) {
+					case Butterworth:
+						((Butterworth)cascade).bandStop(key.order, key.sampleRate, key.frequency, key.width);
+						break;
+					case Bessel:
+						((Bessel)cascade).bandStop(key.order, key.sampleRate, key.frequency, key.width);
+						break;
+					case ChebyshevI:
+						((ChebyshevI)cascade).bandStop(key.order, key.sampleRate, key.frequency, key.width, key.rippleDb);
+						break;
+					case ChebyshevII:
+						((ChebyshevII)cascade).bandStop(key.order, key.sampleRate, key.frequency, key.width, key.rippleDb);
+						break;
+					default:
+						throw new UnsupportedOperationException("This filter does not support setting a bandstop.");
+				}
 				break;
-			case ChebyshevI:
-                ((ChebyshevI)settings).highPass(order, sampleRate, cutoffFrequnecy, rippleDb);
+			case Highpass:
+				switch (key.type) {
+					case Butterworth:
+						((Butterworth)cascade).highPass(key.order, key.sampleRate, key.frequency);
+						break;
+					case Bessel:
+						((Bessel)cascade).highPass(key.order, key.sampleRate, key.frequency);
+						break;
+					case ChebyshevI:
+						((ChebyshevI)cascade).highPass(key.order, key.sampleRate, key.frequency, key.rippleDb);
+						break;
+					case ChebyshevII:
+						((ChebyshevII)cascade).highPass(key.order, key.sampleRate, key.frequency, key.rippleDb);
+						break;
+					default:
+						throw new UnsupportedOperationException("This filter does not support setting a highpass.");
+				}
 				break;
-			case ChebyshevII:
-                 ((ChebyshevII)settings).highPass(order, sampleRate, cutoffFrequnecy, rippleDb);
+			case Lowpass:
+				switch (key.type) {
+					case Butterworth:
+						((Butterworth)cascade).lowPass(key.order, key.sampleRate, key.frequency);
+						break;
+					case Bessel:
+						((Bessel)cascade).lowPass(key.order, key.sampleRate, key.frequency);
+						break;
+					case ChebyshevI:
+						((ChebyshevI)cascade).lowPass(key.order, key.sampleRate, key.frequency, key.rippleDb);
+						break;
+					case ChebyshevII:
+						((ChebyshevII)cascade).lowPass(key.order, key.sampleRate, key.frequency, key.rippleDb);
+						break;
+					default:
+						throw new UnsupportedOperationException("This filter does not support setting a lowpass.");
+				}
 				break;
-			default:
-					throw new UnsupportedOperationException("This filter does not support setting a highpass.");
 		}
 	}
-	
-	public void setLowpass(double cutoffFrequnecy) throws UnsupportedOperationException {
-        setCutoffFrequnecy(cutoffFrequnecy);
 
-        switch (filterType) {
-            case Butterworth:
-                ((Butterworth)settings).lowPass(order, sampleRate, cutoffFrequnecy);
-				break;
+	static Cascade newCascade(FilterType filterType) {
+		switch (filterType) {
+			case Butterworth:
+				return new Butterworth();
 			case Bessel:
-                ((Bessel)settings).lowPass(order, sampleRate, cutoffFrequnecy);
-				break;
+				return new Bessel();
 			case ChebyshevI:
-                ((ChebyshevI)settings).lowPass(order, sampleRate, cutoffFrequnecy, rippleDb);
-				break;
+				return new ChebyshevI();
 			case ChebyshevII:
-                 ((ChebyshevII)settings).lowPass(order, sampleRate, cutoffFrequnecy, rippleDb);
-				break;
+				return new ChebyshevII();
 			default:
-				throw new UnsupportedOperationException("This filter does not support setting a lowpass.");
+				throw new IllegalArgumentException("Unknown filter type: " + filterType);
+		}
+	}
+
+	/**
+	 * Filters an interleaved block in place, each channel through its own state.
+	 */
+	@Override
+	public double[] process(double[] inputBuffer) {
+		Design design = this.design;
+		double[] coefficients = design.sos.array();
+		int sections = design.sos.getSectionCount();
+		if (sections == 0) {
+			return inputBuffer;
+		}
+		if (this.backend == Backend.Native) {
+			NativeSosKernel.process(inputBuffer, inputBuffer.length, design.channels, coefficients, sections, design.state);
+		} else {
+			SosKernel.process(inputBuffer, inputBuffer.length, design.channels, coefficients, sections, design.state);
 		}
+		return inputBuffer;
 	}
 
+	/**
+	 * Sets the number of interleaved channels, each filtered through its own state. Changing it
+	 * clears the filter's history.
+	 *
+	 * @throws IllegalArgumentException if {@code channels} is less than 1
+	 */
+	public void setChannels(int channels) {
+		if (channels < 1) {
+			throw new IllegalArgumentException("Channel count must be at least 1, got " + channels);
+		}
+		Design design = this.design;
+		if (channels == design.channels) {
+			return;
+		}
+		this.channels = channels;
+		this.design = new Design(design.sos, new double[channels * design.sos.getSectionCount() * SosKernel.STATES_PER_SECTION], channels);
+	}
+
+	/** Clears every channel's filter history. */
+	@Override
+	public void reset() {
+		Arrays.fill(this.design.state, 0.0);
+	}
+
+	// Takes the sections from the shared cache; the iirj design only runs on a miss. A new
+	// design starts from silence, as iirj's own cascade does.
+	private void applyDesign(DesignCache.Key key) {
+		SosCoefficients sos = designs.get(key, () -> {
+			Cascade cascade = newCascade(key.type);
+			design(cascade, key);
+			return SosCoefficients.of(cascade);
+		});
+		this.designKey = key;
+		this.design = new Design(sos, new double[channels * sos.getSectionCount() * SosKernel.STATES_PER_SECTION], channels);
+	}
 }
@@ -0,0 +1,258 @@
+package WavFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.sound.sampled.AudioFormat;
+
+import AudioPipeline.PcmCodec;
+
+/**
+ * Reads WAV and RF64 files through memory-mapped windows.
+ *
+ * The sample data is never copied onto the heap: {@link #block} hands out read-only views of the
+ * mapped file, and {@link #read} decodes straight from them with the pipeline's {@link PcmCodec}.
+ * Only one window (64 MiB by default) is mapped at a time, and it moves as the read position
+ * does, so files of any length can be read, and {@link #seek} to any frame costs nothing until
+ * the next read.
+ *
+ * Accepts PCM (8-bit unsigned, 16-, 24- and 32-bit signed) and IEEE float (32- and 64-bit) data,
+ * plain or as WAVE_FORMAT_EXTENSIBLE, in RIFF files and in RF64 files whose ds64 chunk carries
+ * the sizes past 4 GB. Unknown chunks are skipped. A data chunk that claims more than the file
+ * holds, as left by an interrupted recorder, is cut to the whole frames actually present.
+ */
+public final class WavReader implements AutoCloseable {
+
+    public static final long DEFAULT_WINDOW_BYTES = 64L << 20;
+
+    static final int FORMAT_PCM = 0x0001;
+    static final int FORMAT_IEEE_FLOAT = 0x0003;
+    static final int FORMAT_EXTENSIBLE = 0xFFFE;
+    static final long UNKNOWN_SIZE = 0xFFFFFFFFL;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long windowBytes;
+    private AudioFormat format;
+    private PcmCodec codec;
+    private boolean rf64;
+    private long dataOffset;
+    private long frames;
+    private int frameSize;
+
+    private long position;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    private WavReader(Path path, FileChannel channel, long windowBytes) {
+        this.path = path;
+        this.channel = channel;
+        this.windowBytes = windowBytes;
+    }
+
+    public static WavReader open(Path path) throws IOException {
+        return open(path, DEFAULT_WINDOW_BYTES);
+    }
+
+    /**
+     * @param windowBytes the most of the file mapped at once; blocks may not be larger
+     */
+    static WavReader open(Path path, long windowBytes) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        WavReader reader = new WavReader(path, channel, windowBytes);
+        try {
+            reader.parse();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return reader;
+    }
+
+    public Path getPath() { return this.path; }
+    /** Little-endian, as stored; {@link #block} views are in this format. */
+    public AudioFormat getFormat() { return this.format; }
+    public PcmCodec getCodec() { return this.codec; }
+    public int getChannels() { return this.format.getChannels(); }
+    public double getSampleRate() { return this.format.getSampleRate(); }
+    public int getFrameSize() { return this.frameSize; }
+    public long getFrames() { return this.frames; }
+    public boolean isRf64() { return this.rf64; }
+    public long getPosition() { return this.position; }
+
+    public double getSeconds() {
+        return this.frames / getSampleRate();
+    }
+
+    /**
+     * Moves the read position to {@code frame}; {@link #getFrames()} is the end of the data.
+     */
+    public void seek(long frame) {
+        if (frame < 0 || frame > this.frames) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " is outside 0.." + this.frames);
+        }
+        this.position = frame;
+    }
+
+    /**
+     * Returns up to {@code frames} frames from the read position, advancing it, as a read-only,
+     * little-endian view of the mapped file. The view stays valid until the reader is closed, but
+     * its contents are only guaranteed until the next call moves the window. Returns an empty
+     * view at the end of the data.
+     */
+    public ByteBuffer block(int frames) throws IOException {
+        if (frames < 0 || (long) frames * this.frameSize > this.windowBytes) {
+            throw new IllegalArgumentException("Block of " + frames + " frames does not fit a " + this.windowBytes + "-byte window.");
+        }
+        int count = (int) Math.min(frames, this.frames - this.position);
+        if (count == 0) {
+            return ByteBuffer.allocate(0).order(ByteOrder.LITTLE_ENDIAN).asReadOnlyBuffer();
+        }
+        long start = this.position * this.frameSize;
+        int length = count * this.frameSize;
+        if (this.window == null || start < this.windowStart || start + length > this.windowStart + this.window.capacity()) {
+            map(start);
+        }
+        int offset = (int) (start - this.windowStart);
+        ByteBuffer view = this.window.slice(offset, length).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        this.position += count;
+        return view;
+    }
+
+    /**
+     * Decodes up to {@code frames} frames from the read position into {@code target[offset...]},
+     * interleaved, advancing the position. Returns the number of frames read, 0 at the end of the
+     * data.
+     */
+    public int read(double[] target, int offset, int frames) throws IOException {
+        int channels = getChannels();
+        int maxBlock = (int) Math.max(1, Math.min(Integer.MAX_VALUE, this.windowBytes / this.frameSize));
+        int total = 0;
+        while (total < frames && this.position < this.frames) {
+            ByteBuffer block = block(Math.min(frames - total, maxBlock));
+            int count = block.remaining() / this.frameSize;
+            this.codec.decode(block, target, offset + total * channels, count * channels);
+            total += count;
+        }
+        return total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.window = null;
+        this.channel.close();
+    }
+
+    private void map(long start) throws IOException {
+        long wholeFrames = Math.max(this.frameSize, this.windowBytes - this.windowBytes % this.frameSize);
+        long length = Math.min(wholeFrames, this.frames * this.frameSize - start);
+        this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, this.dataOffset + start, length);
+        this.windowStart = start;
+    }
+
+    private void parse() throws IOException {
+        long fileSize = this.channel.size();
+        ByteBuffer header = readAt(0, 12);
+        String riff = fourCc(header, 0);
+        if (!(riff.equals("RIFF") || riff.equals("RF64")) || !fourCc(header, 8).equals("WAVE")) {
+            throw new IOException("Not a WAV file: " + this.path);
+        }
+        this.rf64 = riff.equals("RF64");
+
+        long ds64DataSize = -1;
+        long dataSize = -1;
+        long offset = 12;
+        while (offset + 8 <= fileSize && dataSize < 0) {
+            ByteBuffer chunk = readAt(offset, 8);
+            String id = fourCc(chunk, 0);
+            long size = chunk.getInt(4) & 0xFFFFFFFFL;
+            long body = offset + 8;
+            switch (id) {
+                case "ds64":
+                    ds64DataSize = readAt(body, 16).getLong(8);
+                    break;
+                case "fmt ":
+                    parseFormat(readAt(body, (int) Math.min(size, 40)), (int) size);
+                    break;
+                case "data":
+                    if (this.format == null) {
+                        throw new IOException("WAV data chunk comes before its fmt chunk: " + this.path);
+                    }
+                    this.dataOffset = body;
+                    dataSize = (this.rf64 && size == UNKNOWN_SIZE && ds64DataSize >= 0) ? ds64DataSize : size;
+                    break;
+                default:
+                    break;
+            }
+            offset = body + size + (size & 1);
+        }
+        if (this.format == null) {
+            throw new IOException("WAV file has no fmt chunk: " + this.path);
+        }
+        if (dataSize < 0) {
+            throw new IOException("WAV file has no data chunk: " + this.path);
+        }
+        long available = Math.min(dataSize, fileSize - this.dataOffset);
+        this.frames = available / this.frameSize;
+    }
+
+    private void parseFormat(ByteBuffer fmt, int size) throws IOException {
+        if (size < 16) {
+            throw new IOException("WAV fmt chunk is too short: " + this.path);
+        }
+        int tag = fmt.getShort(0) & 0xFFFF;
+        int channels = fmt.getShort(2) & 0xFFFF;
+        long sampleRate = fmt.getInt(4) & 0xFFFFFFFFL;
+        int blockAlign = fmt.getShort(12) & 0xFFFF;
+        int bits = fmt.getShort(14) & 0xFFFF;
+        if (tag == FORMAT_EXTENSIBLE) {
+            if (size < 40) {
+                throw new IOException("WAV extensible fmt chunk is too short: " + this.path);
+            }
+            // The sub-format GUID starts with the plain format tag.
+            tag = fmt.getShort(24) & 0xFFFF;
+        }
+        if (channels == 0 || sampleRate == 0 || bits == 0 || bits % 8 != 0 || blockAlign != channels * (bits / 8)) {
+            throw new IOException("Malformed WAV fmt chunk: " + channels + " channels, " + bits + " bits, block align "
+                    + blockAlign + ": " + this.path);
+        }
+        AudioFormat.Encoding encoding;
+        if (tag == FORMAT_IEEE_FLOAT) {
+            encoding = AudioFormat.Encoding.PCM_FLOAT;
+        } else if (tag == FORMAT_PCM) {
+            encoding = (bits == 8) ? AudioFormat.Encoding.PCM_UNSIGNED : AudioFormat.Encoding.PCM_SIGNED;
+        } else {
+            throw new IOException(String.format("Unsupported WAV format tag 0x%04X: %s", tag, this.path));
+        }
+        try {
+            this.codec = new PcmCodec(bits, encoding, false);
+        } catch (UnsupportedOperationException e) {
+            throw new IOException(e.getMessage() + " " + this.path, e);
+        }
+        this.format = new AudioFormat(encoding, sampleRate, bits, channels, blockAlign, sampleRate, false);
+        this.frameSize = blockAlign;
+    }
+
+    private ByteBuffer readAt(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (this.channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated WAV header: " + this.path);
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static String fourCc(ByteBuffer buffer, int offset) {
+        char[] id = new char[4];
+        for (int i = 0; i < 4; i++) {
+            id[i] = (char) (buffer.get(offset + i) & 0xFF);
+        }
+        return new String(id);
+    }
+}
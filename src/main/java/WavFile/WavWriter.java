@@ -0,0 +1,203 @@
+package WavFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import javax.sound.sampled.AudioFormat;
+
+import AudioPipeline.PcmCodec;
+
+/**
+ * Writes WAV files of any length through one direct buffer.
+ *
+ * Samples are encoded by the pipeline's {@link PcmCodec} straight into an off-heap buffer
+ * ({@link #DEFAULT_BUFFER_BYTES}), which is written to the file each time it fills. Unlike
+ * {@link WavReader}, the writer does not map the file: a mapping would grow the file a whole
+ * window ahead of the data, and the excess could not be cut off while the window is still
+ * mapped, which Windows refuses. The header reserves a JUNK chunk the size of a ds64 chunk, so
+ * the length need not be known up front: {@link #commit()} fills in the sizes and, if the file
+ * has outgrown the 4 GB RIFF limit, turns it into an RF64 file in place (EBU Tech 3306).
+ *
+ * The file is written beside the target, synced and renamed over it on commit, so a failed or
+ * interrupted write never leaves a truncated output behind; closing without committing discards
+ * it.
+ */
+public final class WavWriter implements AutoCloseable {
+
+    public static final String TEMP_SUFFIX = ".tmp";
+    public static final int DEFAULT_BUFFER_BYTES = 4 << 20;
+
+    // RIFF/WAVE header, JUNK reserved for ds64, 16-byte fmt, data chunk header.
+    static final int HEADER_BYTES = 12 + 36 + 24 + 8;
+    static final long RIFF_LIMIT = 0xFFFFFFFFL;
+
+    private static final int DS64_BYTES = 28;
+
+    private final Path target;
+    private final Path temp;
+    private final AudioFormat format;
+    private final PcmCodec codec;
+    private final int frameSize;
+    private final long riffLimit;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    private long dataBytes;
+    private boolean committed;
+
+    private WavWriter(Path target, AudioFormat format, int bufferBytes, long riffLimit) throws IOException {
+        if (format.getChannels() <= 0 || format.getSampleSizeInBits() % 8 != 0) {
+            throw new IllegalArgumentException("Not a writable WAV format: " + format);
+        }
+        this.target = target;
+        this.temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+        this.codec = new PcmCodec(format.getSampleSizeInBits(), format.getEncoding(), false);
+        this.format = new AudioFormat(format.getEncoding(), format.getSampleRate(), format.getSampleSizeInBits(),
+                format.getChannels(), format.getChannels() * this.codec.getBytesPerSample(), format.getSampleRate(), false);
+        this.frameSize = this.format.getFrameSize();
+        this.buffer = ByteBuffer.allocateDirect(Math.max(this.frameSize, bufferBytes - bufferBytes % this.frameSize));
+        this.riffLimit = riffLimit;
+        this.channel = FileChannel.open(this.temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Starts a file at {@code target} holding {@code format}'s samples, stored little-endian.
+     *
+     * @throws UnsupportedOperationException if {@link PcmCodec} cannot encode the format
+     */
+    public static WavWriter create(Path target, AudioFormat format) throws IOException {
+        return create(target, format, DEFAULT_BUFFER_BYTES, RIFF_LIMIT);
+    }
+
+    static WavWriter create(Path target, AudioFormat format, int bufferBytes, long riffLimit) throws IOException {
+        WavWriter writer = new WavWriter(target, format, bufferBytes, riffLimit);
+        try {
+            writer.writeFully(writer.header(), 0);
+        } catch (IOException e) {
+            writer.close();
+            throw e;
+        }
+        return writer;
+    }
+
+    public Path getTarget() { return this.target; }
+    public AudioFormat getFormat() { return this.format; }
+    public long getFrames() { return this.dataBytes / this.frameSize; }
+
+    /**
+     * Encodes {@code frames} interleaved frames from {@code samples[offset...]}, clamped to
+     * [-1, 1].
+     */
+    public void write(double[] samples, int offset, int frames) throws IOException {
+        int channels = this.format.getChannels();
+        while (frames > 0) {
+            int count = Math.min(frames, reserve());
+            this.codec.encode(samples, offset, count * channels, this.buffer);
+            this.dataBytes += (long) count * this.frameSize;
+            offset += count * channels;
+            frames -= count;
+        }
+    }
+
+    /**
+     * Appends whole frames of already-encoded, little-endian samples.
+     */
+    public void write(ByteBuffer samples) throws IOException {
+        if (samples.remaining() % this.frameSize != 0) {
+            throw new IllegalArgumentException("Data is not a whole number of " + this.frameSize + "-byte frames.");
+        }
+        while (samples.hasRemaining()) {
+            int length = Math.min(samples.remaining(), reserve() * this.frameSize);
+            int limit = samples.limit();
+            samples.limit(samples.position() + length);
+            this.buffer.put(samples);
+            samples.limit(limit);
+            this.dataBytes += length;
+        }
+    }
+
+    /**
+     * Fills in the sizes, moving to RF64 if needed, syncs the file and moves it into place.
+     */
+    public void commit() throws IOException {
+        flush();
+        if ((this.dataBytes & 1) != 0) {
+            // RIFF chunks are padded to an even length.
+            writeFully(ByteBuffer.allocate(1), HEADER_BYTES + this.dataBytes);
+        }
+        writeFully(header(), 0);
+        this.channel.force(true);
+        this.channel.close();
+        Files.move(this.temp, this.target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        this.committed = true;
+    }
+
+    /** Discards the output unless it was committed. */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+        if (!this.committed) {
+            Files.deleteIfExists(this.temp);
+        }
+    }
+
+    // Makes sure the buffer has room for at least one frame and returns how many frames fit.
+    private int reserve() throws IOException {
+        if (!this.buffer.hasRemaining()) {
+            flush();
+        }
+        return this.buffer.remaining() / this.frameSize;
+    }
+
+    private void flush() throws IOException {
+        long position = HEADER_BYTES + this.dataBytes - this.buffer.position();
+        writeFully(this.buffer.flip(), position);
+        this.buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += this.channel.write(buffer, position);
+        }
+    }
+
+    private ByteBuffer header() {
+        long riffSize = HEADER_BYTES - 8 + this.dataBytes + (this.dataBytes & 1);
+        boolean rf64 = riffSize > this.riffLimit;
+        int channels = this.format.getChannels();
+        int sampleRate = Math.round(this.format.getSampleRate());
+        boolean floating = AudioFormat.Encoding.PCM_FLOAT.equals(this.format.getEncoding());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(fourCc(rf64 ? "RF64" : "RIFF")).putInt(rf64 ? (int) RIFF_LIMIT : (int) riffSize).put(fourCc("WAVE"));
+
+        header.put(fourCc(rf64 ? "ds64" : "JUNK")).putInt(DS64_BYTES);
+        if (rf64) {
+            header.putLong(riffSize).putLong(this.dataBytes).putLong(getFrames()).putInt(0);
+        } else {
+            header.put(new byte[DS64_BYTES]);
+        }
+
+        header.put(fourCc("fmt ")).putInt(16);
+        header.putShort((short) (floating ? WavReader.FORMAT_IEEE_FLOAT : WavReader.FORMAT_PCM));
+        header.putShort((short) channels);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * this.frameSize);
+        header.putShort((short) this.frameSize);
+        header.putShort((short) this.format.getSampleSizeInBits());
+
+        header.put(fourCc("data")).putInt(rf64 ? (int) RIFF_LIMIT : (int) this.dataBytes);
+        return header.flip();
+    }
+
+    private static byte[] fourCc(String id) {
+        return new byte[] {(byte) id.charAt(0), (byte) id.charAt(1), (byte) id.charAt(2), (byte) id.charAt(3)};
+    }
+}
@@ -1,6 +1,8 @@
 package AudioPipeline;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
@@ -14,8 +16,15 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.nio.ByteBuffer;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -27,6 +36,11 @@ import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.SourceDataLine;
 import javax.sound.sampled.TargetDataLine;
 
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -37,6 +51,8 @@ import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import AudioProcessingRangler.AudioProcessingRangler;
+import LevelMeter.LevelMeter;
+import SpectrumAnalyzer.SpectrumAnalyzer;
 
 @ExtendWith(MockitoExtension.class)
 class AudioPipelineUnitTest {
@@ -159,6 +175,59 @@ class AudioPipelineUnitTest {
         assertArrayEquals(fakeAudioData, writtenData);
     }
 
+    @Test
+    void testRun_EmitsFlightRecorderEvents() throws Exception {
+        byte[] fakeAudioData = new byte[]{10, 20, 30, 40, 50, 60, 70, 80};
+        final AtomicInteger callCount = new AtomicInteger(0);
+        when(mockTargetLine.read(any(byte[].class), anyInt(), anyInt())).thenAnswer(invocation -> {
+            if (callCount.incrementAndGet() == 1) {
+                byte[] buffer = invocation.getArgument(0);
+                System.arraycopy(fakeAudioData, 0, buffer, 0, fakeAudioData.length);
+                return fakeAudioData.length;
+            }
+            return 0;
+        });
+
+        Path file = Files.createTempFile("earcanvas-pipeline", ".jfr");
+        try (Recording recording = new Recording()) {
+            // Thresholds off: a mocked block is far faster than the production thresholds.
+            recording.enable("earcanvas.BlockProcess").withoutThreshold();
+            recording.enable("earcanvas.BlockWrite").withoutThreshold();
+            recording.start();
+
+            audioPipeline.start();
+            verify(mockSourceLine, timeout(1000).times(1)).write(any(byte[].class), eq(0), eq(fakeAudioData.length));
+            audioPipeline.stop();
+
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            RecordedEvent process = events.stream()
+                    .filter(e -> e.getEventType().getName().equals("earcanvas.BlockProcess")).findFirst().orElse(null);
+            assertNotNull(process, "No block process event was recorded.");
+            assertEquals(2, process.getInt("frames"));
+            assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("earcanvas.BlockWrite")
+                    && e.getInt("bytes") == fakeAudioData.length));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testFlightRecorderProfile_ConfiguresEveryEvent() throws Exception {
+        try (Reader reader = new InputStreamReader(
+                AudioPipeline.class.getResourceAsStream("/jfr/earcanvas.jfc"), StandardCharsets.UTF_8)) {
+            Map<String, String> settings = Configuration.create(reader).getSettings();
+
+            for (String event : List.of("BlockRead", "BlockProcess", "BlockWrite", "FilterProcess", "NativeLibraryLoad", "ConfigIO")) {
+                assertEquals("true", settings.get("earcanvas." + event + "#enabled"), event);
+                assertNotNull(settings.get("earcanvas." + event + "#threshold"), event);
+            }
+            assertEquals("5 ms", settings.get("earcanvas.BlockProcess#threshold"));
+        }
+    }
+
     @Test
     void testRun_UsesEqualizerWhenSet() throws InterruptedException {
         // Setup
@@ -202,6 +271,43 @@ class AudioPipelineUnitTest {
         assertArrayEquals(expectedProcessedBytes, actualWrittenBytes, "Data written to source line was not the processed data.");
     }
 
+    @Test
+    void testRun_TapsProcessedSamplesIntoAnalyzerAndMeter() throws InterruptedException {
+        // Setup
+        SpectrumAnalyzer mockAnalyzer = mock(SpectrumAnalyzer.class);
+        LevelMeter mockMeter = mock(LevelMeter.class);
+        audioPipeline.setEqualizer(mockEqualizer);
+        audioPipeline.setSpectrumAnalyzer(mockAnalyzer);
+        audioPipeline.setLevelMeter(mockMeter);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger callCount = new AtomicInteger(0);
+
+        byte[] originalData = new byte[]{10, 0, 20, 0, 30, 0, 40, 0};
+        double[] processedDoubles = new double[]{0.1, 0.2, 0.3, 0.4};
+
+        when(mockTargetLine.read(any(byte[].class), anyInt(), anyInt())).thenAnswer(invocation -> {
+            if (callCount.incrementAndGet() == 1) {
+                byte[] buffer = invocation.getArgument(0);
+                System.arraycopy(originalData, 0, buffer, 0, originalData.length);
+                latch.countDown();
+                return originalData.length;
+            } else {
+                return 0;
+            }
+        });
+        when(mockEqualizer.isEmpty()).thenReturn(false);
+        when(mockEqualizer.processData(any(double[].class))).thenReturn(processedDoubles);
+
+        // Action
+        audioPipeline.start();
+        boolean completed = latch.await(2, TimeUnit.SECONDS);
+        assertTrue(completed, "The audio processing loop did not read data in time.");
+
+        // Verification: the taps see the post-rack samples, not the raw input.
+        verify(mockAnalyzer, timeout(1000).times(1)).accept(processedDoubles);
+        verify(mockMeter, timeout(1000).times(1)).accept(processedDoubles);
+    }
+
     /**
      * Helper method that matches the toByteArray method in AudioPipeline exactly
      */
@@ -0,0 +1,271 @@
+package AudioPipeline;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioFormat.Encoding;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.Line;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.Port;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.TargetDataLine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+
+/**
+ * Unit tests for FormatNegotiator.
+ */
+class FormatNegotiatorUnitTest {
+
+    private static final float RATE = 48000f;
+    private static final int NS = AudioSystem.NOT_SPECIFIED;
+    private static final boolean NATIVE_BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+    // Four 15 ms blocks of 48 kHz 16-bit stereo.
+    private static final int FOUR_BLOCKS_16 = 4 * 2880;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("A 16-bit default should stay 16-bit in the platform's byte order, with a four-block buffer")
+    void testKeepsCheapestFormat() {
+        List<NegotiatedFormat> ranked = FormatNegotiator.rank(pcm(16, !NATIVE_BIG_ENDIAN),
+                List.of(info(TargetDataLine.class, NS, NS, pcm(16, false), pcm(16, true), pcm(24, false), float32(false))),
+                List.of(info(SourceDataLine.class, NS, NS, pcm(16, false), pcm(16, true), pcm(24, false), float32(false))));
+
+        NegotiatedFormat best = ranked.get(0);
+        assertEquals(16, best.getFormat().getSampleSizeInBits());
+        assertEquals(NATIVE_BIG_ENDIAN, best.getFormat().isBigEndian());
+        assertEquals(RATE, best.getFormat().getSampleRate(), "Unspecified rates take the default's.");
+        assertEquals(FOUR_BLOCKS_16, best.getBufferBytes());
+        assertEquals(60.0, best.getLatencyMillis(), 1e-9);
+        assertEquals(4, ranked.size());
+    }
+
+    @Test
+    @DisplayName("A 24-bit default should move to float32, which keeps its resolution and converts faster")
+    void testPrefersFloatOverPacked24() {
+        List<NegotiatedFormat> ranked = FormatNegotiator.rank(pcm(24, false),
+                List.of(info(TargetDataLine.class, NS, NS, pcm(16, false), pcm(24, false), pcm(32, false), float32(false))),
+                List.of(info(SourceDataLine.class, NS, NS, pcm(16, false), pcm(24, false), pcm(32, false), float32(false))));
+
+        assertEquals(3, ranked.size(), "16-bit would lose resolution.");
+        assertEquals(Encoding.PCM_FLOAT, ranked.get(0).getFormat().getEncoding());
+        assertEquals(32, ranked.get(1).getFormat().getSampleSizeInBits());
+        assertEquals(24, ranked.get(2).getFormat().getSampleSizeInBits());
+    }
+
+    @Test
+    @DisplayName("A format that forces a larger buffer should rank after a slower one that does not")
+    void testLatencyFirst() {
+        DataLine.Info capture16 = info(TargetDataLine.class, 8 * FOUR_BLOCKS_16, NS, pcm(16, NATIVE_BIG_ENDIAN));
+        DataLine.Info capture24 = info(TargetDataLine.class, NS, NS, pcm(24, false));
+        List<NegotiatedFormat> ranked = FormatNegotiator.rank(pcm(16, NATIVE_BIG_ENDIAN), List.of(capture16, capture24),
+                List.of(info(SourceDataLine.class, NS, NS, pcm(16, NATIVE_BIG_ENDIAN), pcm(24, false))));
+
+        assertEquals(24, ranked.get(0).getFormat().getSampleSizeInBits());
+        assertEquals(8 * FOUR_BLOCKS_16, ranked.get(1).getBufferBytes(), "The line's minimum buffer wins over four blocks.");
+    }
+
+    @Test
+    @DisplayName("Formats the pipeline cannot use should be left out, and buffers kept within the lines' limits")
+    void testFilters() {
+        AudioFormat mono = new AudioFormat(RATE, 16, 1, true, false);
+        AudioFormat otherRate = new AudioFormat(44100f, 16, 2, true, false);
+        AudioFormat signed8 = new AudioFormat(RATE, 8, 2, true, false);
+        AudioFormat padded24 = new AudioFormat(Encoding.PCM_SIGNED, RATE, 24, 2, 8, RATE, false);
+        AudioFormat captureOnly = float32(true);
+        List<NegotiatedFormat> ranked = FormatNegotiator.rank(new AudioFormat(RATE, 8, 2, false, false),
+                List.of(info(TargetDataLine.class, NS, 6000, mono, otherRate, signed8, padded24, captureOnly,
+                        new AudioFormat(RATE, 8, 2, false, false), pcm(16, false))),
+                List.of(info(SourceDataLine.class, 1000, 5001, new AudioFormat(RATE, 8, 2, false, false), pcm(16, false))));
+
+        assertEquals(2, ranked.size(), ranked.toString());
+        for (NegotiatedFormat candidate : ranked) {
+            assertEquals(5000, candidate.getBufferBytes(), "The smaller maximum, in whole frames.");
+        }
+    }
+
+    @Test
+    @DisplayName("The negotiated format should be cached per device and reused without opening a line")
+    void testCache() throws Exception {
+        Path cache = directory.resolve("cache/formats");
+        TargetDataLine probe = mock(TargetDataLine.class);
+        when(probe.getFormat()).thenReturn(pcm(16, false));
+        Mixer mixer = mock(Mixer.class);
+        when(mixer.getTargetLineInfo()).thenReturn(new Line.Info[] {info(TargetDataLine.class, NS, NS, pcm(16, false), float32(false))});
+        when(mixer.getSourceLineInfo()).thenReturn(new Line.Info[] {
+                info(SourceDataLine.class, NS, NS, pcm(16, false), float32(false)), new Line.Info(Port.class)});
+
+        try (MockedStatic<AudioSystem> audio = mockStatic(AudioSystem.class)) {
+            audio.when(AudioSystem::getMixerInfo).thenReturn(new Mixer.Info[] {new TestMixerInfo("Card A")});
+            audio.when(() -> AudioSystem.getMixer(any())).thenReturn(mixer);
+            audio.when(() -> AudioSystem.isLineSupported(any(Line.Info.class))).thenReturn(true);
+            audio.when(() -> AudioSystem.getLine(argThat(info -> info instanceof DataLine.Info
+                    && ((DataLine.Info) info).getFormats().length == 0))).thenReturn(probe);
+
+            NegotiatedFormat first = new FormatNegotiator(cache).negotiate();
+            assertFalse(first.isCached());
+            assertEquals(16, first.getFormat().getSampleSizeInBits());
+            assertTrue(Files.isRegularFile(cache));
+
+            NegotiatedFormat second = new FormatNegotiator(cache).negotiate();
+            assertTrue(second.isCached());
+            assertEquals(first.getFormat().toString(), second.getFormat().toString());
+            assertEquals(first.getBufferBytes(), second.getBufferBytes());
+            verify(probe, times(1)).open();
+
+            // Another device probes again, and both are kept.
+            audio.when(AudioSystem::getMixerInfo).thenReturn(new Mixer.Info[] {new TestMixerInfo("Card B")});
+            assertFalse(new FormatNegotiator(cache).negotiate().isCached());
+            verify(probe, times(2)).open();
+            audio.when(AudioSystem::getMixerInfo).thenReturn(new Mixer.Info[] {new TestMixerInfo("Card A")});
+            assertTrue(new FormatNegotiator(cache).negotiate().isCached());
+
+            // A cached format the device no longer supports is probed again.
+            audio.when(() -> AudioSystem.isLineSupported(argThat(info -> info instanceof DataLine.Info
+                    && ((DataLine.Info) info).getFormats().length > 0))).thenReturn(false);
+            audio.when(() -> AudioSystem.isLineSupported(argThat(info -> info instanceof DataLine.Info
+                    && ((DataLine.Info) info).getFormats().length == 0))).thenReturn(true);
+            assertFalse(new FormatNegotiator(cache).negotiate().isCached());
+            verify(probe, times(3)).open();
+
+            // A damaged cache is ignored and replaced.
+            audio.when(() -> AudioSystem.isLineSupported(any(Line.Info.class))).thenReturn(true);
+            Files.write(cache, new byte[] {'E', 'C', 'F', 'N', 0, 1, 0, 9, 0});
+            assertFalse(new FormatNegotiator(cache).negotiate().isCached());
+            assertTrue(new FormatNegotiator(cache).negotiate().isCached());
+            verify(probe, times(4)).close();
+        }
+    }
+
+    @Test
+    @DisplayName("Switching the default capture device to another format should miss the cache")
+    void testCacheKeyedByDefaultFormat() throws Exception {
+        Path cache = directory.resolve("formats");
+        TargetDataLine probe = mock(TargetDataLine.class);
+        when(probe.getFormat()).thenReturn(pcm(16, false));
+        Mixer mixer = mock(Mixer.class);
+        when(mixer.getTargetLineInfo()).thenReturn(new Line.Info[] {info(TargetDataLine.class, NS, NS, pcm(16, false), pcm(24, false))});
+        when(mixer.getSourceLineInfo()).thenReturn(new Line.Info[] {info(SourceDataLine.class, NS, NS, pcm(16, false), pcm(24, false))});
+
+        try (MockedStatic<AudioSystem> audio = mockStatic(AudioSystem.class)) {
+            audio.when(AudioSystem::getMixerInfo).thenReturn(new Mixer.Info[] {new TestMixerInfo("Card A"), new TestMixerInfo("USB")});
+            audio.when(() -> AudioSystem.getMixer(any())).thenReturn(mixer);
+            audio.when(() -> AudioSystem.isLineSupported(any(Line.Info.class))).thenReturn(true);
+            audio.when(() -> AudioSystem.getLine(any(Line.Info.class))).thenReturn(probe);
+
+            assertEquals(16, new FormatNegotiator(cache).negotiate().getFormat().getSampleSizeInBits());
+            assertTrue(new FormatNegotiator(cache).negotiate().isCached());
+
+            when(probe.getFormat()).thenReturn(pcm(24, false));
+            NegotiatedFormat switched = new FormatNegotiator(cache).negotiate();
+            assertFalse(switched.isCached());
+            assertEquals(24, switched.getFormat().getSampleSizeInBits(), "A 24-bit default must not get the 16-bit entry.");
+            verify(probe, times(2)).open();
+            try (Stream<Path> files = Files.list(directory)) {
+                assertEquals(List.of(cache), files.toList(), "No temp file should be left behind.");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Without listed mixers, the default line's format should be used as is and nothing cached")
+    void testNoMixers() throws Exception {
+        Path cache = directory.resolve("formats");
+        TargetDataLine probe = mock(TargetDataLine.class);
+        AudioFormat preferred = new AudioFormat(44100f, 24, 2, true, true);
+        when(probe.getFormat()).thenReturn(preferred);
+
+        try (MockedStatic<AudioSystem> audio = mockStatic(AudioSystem.class)) {
+            audio.when(() -> AudioSystem.isLineSupported(any(Line.Info.class))).thenReturn(true);
+            audio.when(() -> AudioSystem.getLine(any(Line.Info.class))).thenReturn(probe);
+
+            NegotiatedFormat negotiated = new FormatNegotiator(cache).negotiate();
+            assertSame(preferred, negotiated.getFormat());
+            assertEquals(AudioSystem.NOT_SPECIFIED, negotiated.getBufferBytes());
+            assertTrue(Double.isNaN(negotiated.getLatencyMillis()));
+            assertFalse(Files.exists(cache));
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: PcmCodec conversion cost by format")
+    void benchmarkConversionCost() {
+        AudioFormat[] formats = {new AudioFormat(RATE, 8, 2, false, false), pcm(16, false), pcm(16, true), pcm(24, false),
+                pcm(24, true), pcm(32, false), new AudioFormat(Encoding.PCM_FLOAT, RATE, 32, 2, 8, RATE, false),
+                new AudioFormat(Encoding.PCM_FLOAT, RATE, 64, 2, 16, RATE, false)};
+        int samples = 1440;
+        double[] source = new double[samples];
+        double[] decoded = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            source[i] = 0.5 * Math.sin(i * 0.01);
+        }
+        double[] measured = new double[formats.length];
+        for (int round = 0; round < 2; round++) {
+            for (int f = 0; f < formats.length; f++) {
+                PcmCodec codec = new PcmCodec(formats[f]);
+                ByteBuffer bytes = ByteBuffer.allocate(samples * codec.getBytesPerSample());
+                long best = Long.MAX_VALUE;
+                for (int rep = 0; rep < 100; rep++) {
+                    long start = System.nanoTime();
+                    for (int block = 0; block < 20; block++) {
+                        bytes.clear();
+                        codec.encode(source, 0, samples, bytes);
+                        bytes.flip();
+                        codec.decode(bytes, decoded, 0, samples);
+                    }
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                measured[f] = best / 20.0 / samples;
+            }
+        }
+        System.out.printf("PcmCodec decode + encode, ns per sample (measured / FormatNegotiator's table):%n");
+        for (int f = 0; f < formats.length; f++) {
+            System.out.printf("  %-50s %6.2f / %5.1f%n", formats[f], measured[f], FormatNegotiator.conversionNanos(formats[f]));
+        }
+        assertArrayEquals(source, decoded, 1e-3);
+    }
+
+    // === Helper Methods ===
+
+    private static AudioFormat pcm(int bits, boolean bigEndian) {
+        return new AudioFormat(Encoding.PCM_SIGNED, RATE, bits, 2, 2 * bits / 8, RATE, bigEndian);
+    }
+
+    // Lines often leave the rate open.
+    private static AudioFormat float32(boolean bigEndian) {
+        return new AudioFormat(Encoding.PCM_FLOAT, NS, 32, 2, 8, NS, bigEndian);
+    }
+
+    private static DataLine.Info info(Class<?> lineClass, int minBuffer, int maxBuffer, AudioFormat... formats) {
+        return new DataLine.Info(lineClass, formats, minBuffer, maxBuffer);
+    }
+
+    private static final class TestMixerInfo extends Mixer.Info {
+        TestMixerInfo(String name) {
+            super(name, "EarCanvas", "Test mixer", "1.0");
+        }
+    }
+}
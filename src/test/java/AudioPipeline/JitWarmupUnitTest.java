@@ -0,0 +1,202 @@
+package AudioPipeline;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioFormat.Encoding;
+
+import AudioProcessingRangler.AudioProcessingRangler;
+import Preset.ConvolutionFilterSpec;
+import Preset.InvalidPresetException;
+import Preset.LimiterSpec;
+import Preset.ParametricEqualizerSpec;
+import Preset.Preset;
+import Preset.StandardFilterSpec;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for JitWarmup.
+ */
+class JitWarmupUnitTest {
+
+    private static final double SAMPLE_RATE = 48000.0;
+    private static final int CHANNELS = 2;
+    // What AudioPipeline uses: 15 ms of 16-bit stereo.
+    private static final int BLOCK_FRAMES = 720;
+    private static final int BLOCK_BYTES = BLOCK_FRAMES * CHANNELS * 2;
+    private static final AudioFormat FORMAT = new AudioFormat((float) SAMPLE_RATE, 16, CHANNELS, true, false);
+
+    @Test
+    @DisplayName("A block-count warm-up should run exactly that many blocks")
+    void testBlocks() throws Exception {
+        WarmupReport report = JitWarmup.blocks(250).run(rack(), FORMAT, BLOCK_BYTES);
+
+        assertEquals(250, report.getBlocks());
+        assertEquals(WarmupReport.StopReason.Blocks, report.getStopReason());
+        assertTrue(report.getNanos() > 0);
+        assertTrue(report.getFirstBlockNanos() > 0 && report.getLastBlockNanos() > 0);
+        assertEquals(0, report.getCompileMillis(), "Only a quiet-stop warm-up watches the compiler.");
+    }
+
+    @Test
+    @DisplayName("A timed warm-up should stop shortly after its time is up")
+    void testTime() throws Exception {
+        WarmupReport report = JitWarmup.time(Duration.ofMillis(150)).run(rack(), FORMAT, BLOCK_BYTES);
+
+        assertEquals(WarmupReport.StopReason.Time, report.getStopReason());
+        assertTrue(report.getNanos() >= 150_000_000L, report.toString());
+        assertTrue(report.getNanos() < 1_000_000_000L, report.toString());
+    }
+
+    @Test
+    @DisplayName("A quiet-stop warm-up should respect its limits and stop on whichever comes first")
+    void testUntilQuiet() throws Exception {
+        AudioProcessingRangler rack = rack();
+        WarmupReport capped = JitWarmup.untilQuiet(300, Duration.ofSeconds(30)).run(rack, FORMAT, BLOCK_BYTES);
+        assertEquals(300, capped.getBlocks());
+        assertEquals(WarmupReport.StopReason.Blocks, capped.getStopReason());
+
+        // By now the rack's code is compiled, so the compiler should go quiet well within the limits.
+        JitWarmup.time(Duration.ofMillis(500)).run(rack, FORMAT, BLOCK_BYTES);
+        WarmupReport report = JitWarmup.untilQuiet(1_000_000, Duration.ofSeconds(20)).run(rack, FORMAT, BLOCK_BYTES);
+        System.out.println("JitWarmup: " + report);
+        assertNotEquals(WarmupReport.StopReason.Blocks, report.getStopReason());
+        assertTrue(report.getBlocks() >= 1000, report.toString());
+    }
+
+    @Test
+    @DisplayName("A warmed rack should produce exactly what a fresh rack does")
+    void testResetsRack() throws Exception {
+        AudioProcessingRangler warmed = rack();
+        JitWarmup.blocks(400).run(warmed, FORMAT, BLOCK_BYTES);
+        AudioProcessingRangler fresh = rack();
+
+        Random random = new Random(7);
+        for (int block = 0; block < 20; block++) {
+            double[] input = new double[BLOCK_FRAMES * CHANNELS];
+            for (int i = 0; i < input.length; i++) {
+                input[i] = 0.4 * (random.nextDouble() * 2.0 - 1.0);
+            }
+            assertArrayEquals(fresh.processData(input.clone()), warmed.processData(input.clone()), "block " + block);
+        }
+    }
+
+    @Test
+    @DisplayName("Warm-up should accept any format the pipeline can run")
+    void testFormats() throws Exception {
+        AudioFormat[] formats = {
+                new AudioFormat((float) SAMPLE_RATE, 24, CHANNELS, true, true),
+                new AudioFormat(Encoding.PCM_FLOAT, (float) SAMPLE_RATE, 32, CHANNELS, 8, (float) SAMPLE_RATE, false),
+                new AudioFormat((float) SAMPLE_RATE, 8, CHANNELS, false, false)};
+        for (AudioFormat format : formats) {
+            int frameBytes = format.getFrameSize();
+            assertEquals(10, JitWarmup.blocks(10).run(rack(), format, BLOCK_FRAMES * frameBytes).getBlocks(), format.toString());
+        }
+        assertThrows(UnsupportedOperationException.class,
+                () -> JitWarmup.blocks(1).run(rack(), new AudioFormat((float) SAMPLE_RATE, 12, CHANNELS, true, false), BLOCK_BYTES));
+    }
+
+    @Test
+    @DisplayName("Warm-ups without a positive limit should be rejected")
+    void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> JitWarmup.blocks(0));
+        assertThrows(IllegalArgumentException.class, () -> JitWarmup.time(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> JitWarmup.untilQuiet(100, Duration.ofMillis(-1)));
+        assertThrows(IllegalArgumentException.class, () -> JitWarmup.time(null));
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: first blocks of a session, cold vs warmed")
+    void benchmarkFirstBlocks() throws Exception {
+        long[] cold = firstBlocksInFreshJvm(false);
+        long[] warm = firstBlocksInFreshJvm(true);
+        assumeTrue(cold != null && warm != null, "Could not start a child JVM.");
+
+        System.out.printf("First 100 blocks (HPF + PEQ + convolution + limiter, 720 frames stereo), fresh JVM:%n");
+        System.out.printf("  cold:   first %.1f us, worst %.1f us, total %.2f ms%n", cold[0] / 1e3, cold[1] / 1e3, cold[2] / 1e6);
+        System.out.printf("  warmed: first %.1f us, worst %.1f us, total %.2f ms (warm-up took %.0f ms)%n",
+                warm[0] / 1e3, warm[1] / 1e3, warm[2] / 1e6, warm[3] / 1e6);
+    }
+
+    /**
+     * Child JVM entry point for {@link #benchmarkFirstBlocks}: prints the first block's time,
+     * the worst block's, the total for the first 100 blocks and the warm-up's time, in ns.
+     */
+    public static void main(String[] args) throws Exception {
+        AudioProcessingRangler rack = rack();
+        long warmupNanos = 0;
+        if (args.length > 0 && args[0].equals("warm")) {
+            warmupNanos = JitWarmup.untilQuiet().run(rack, FORMAT, BLOCK_BYTES).getNanos();
+        }
+        PcmCodec codec = new PcmCodec(FORMAT);
+        byte[] pcm = new byte[BLOCK_BYTES];
+        new Random(11).nextBytes(pcm);
+        long first = 0;
+        long worst = 0;
+        long total = 0;
+        for (int block = 0; block < 100; block++) {
+            long start = System.nanoTime();
+            AudioPipeline.toByteArray(codec, rack.processData(AudioPipeline.toDoubleArray(codec, pcm, pcm.length)), pcm.length);
+            long nanos = System.nanoTime() - start;
+            first = (block == 0) ? nanos : first;
+            worst = Math.max(worst, nanos);
+            total += nanos;
+        }
+        System.out.println(first + " " + worst + " " + total + " " + warmupNanos);
+    }
+
+    // === Helper Methods ===
+
+    // Surefire may load tests in an isolated class loader, so the child's class path includes its URLs.
+    private static long[] firstBlocksInFreshJvm(boolean warm) throws Exception {
+        StringBuilder classPath = new StringBuilder(System.getProperty("java.class.path"));
+        ClassLoader loader = JitWarmupUnitTest.class.getClassLoader();
+        if (loader instanceof URLClassLoader) {
+            for (URL url : ((URLClassLoader) loader).getURLs()) {
+                classPath.append(File.pathSeparator).append(Path.of(url.toURI()));
+            }
+        }
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        Process process = new ProcessBuilder(java.toString(), "-cp", classPath.toString(),
+                "-Djava.library.path=" + System.getProperty("java.library.path"),
+                JitWarmupUnitTest.class.getName(), warm ? "warm" : "cold")
+                .redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.US_ASCII).trim();
+        if (process.waitFor() != 0 || output.isEmpty()) {
+            return null;
+        }
+        String[] lines = output.split("\\R");
+        return Arrays.stream(lines[lines.length - 1].split(" ")).mapToLong(Long::parseLong).toArray();
+    }
+
+    // Highpass, PEQ, a short reverb and a limiter: every kind of filter that keeps history.
+    private static AudioProcessingRangler rack() throws InvalidPresetException {
+        double[] impulse = new double[2048];
+        Random random = new Random(3);
+        for (int i = 0; i < impulse.length; i++) {
+            impulse[i] = 0.05 * Math.exp(-i / 400.0) * (random.nextDouble() * 2.0 - 1.0);
+        }
+        impulse[0] = 1.0;
+        return new Preset("warm", List.of(
+                new StandardFilterSpec("Butterworth", 4, SAMPLE_RATE, null, "Highpass", 80.0, null, null, CHANNELS),
+                new ParametricEqualizerSpec(CHANNELS, BLOCK_FRAMES * CHANNELS, SAMPLE_RATE, List.of(
+                        new ParametricEqualizerSpec.BandSpec("Peaking", 1000.0, 1.4, 4.0))),
+                new ConvolutionFilterSpec(CHANNELS, BLOCK_FRAMES * CHANNELS, 256, null, impulse, null),
+                new LimiterSpec(CHANNELS, BLOCK_FRAMES * CHANNELS, SAMPLE_RATE, -3.0, null, null, null))).toRack();
+    }
+}
@@ -0,0 +1,116 @@
+package AudioPipeline;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioFormat.Encoding;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PcmCodec.
+ */
+class PcmCodecUnitTest {
+
+    @Test
+    @DisplayName("Decoding then encoding should reproduce the original bytes")
+    void testRoundTrip() {
+        Object[][] formats = {
+                {8, Encoding.PCM_UNSIGNED}, {16, Encoding.PCM_SIGNED}, {24, Encoding.PCM_SIGNED}, {32, Encoding.PCM_SIGNED},
+                {32, Encoding.PCM_FLOAT}, {64, Encoding.PCM_FLOAT}};
+        for (Object[] format : formats) {
+            for (boolean bigEndian : new boolean[] {false, true}) {
+                PcmCodec codec = new PcmCodec((int) format[0], (Encoding) format[1], bigEndian);
+                byte[] original = encoded(codec, 257);
+
+                double[] samples = new double[257];
+                codec.decode(ByteBuffer.wrap(original), samples, 0, samples.length);
+                ByteBuffer again = ByteBuffer.allocate(original.length);
+                codec.encode(samples, 0, samples.length, again);
+
+                assertArrayEquals(original, again.array(), format[0] + "-bit " + format[1] + (bigEndian ? " BE" : " LE"));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("The most negative integer code should come back one step up")
+    void testMostNegativeCode() {
+        Object[][] codes = {
+                {8, Encoding.PCM_UNSIGNED, new byte[] {0x00}, new byte[] {0x01}},
+                {16, Encoding.PCM_SIGNED, new byte[] {(byte) 0x80, 0x00}, new byte[] {(byte) 0x80, 0x01}},
+                {24, Encoding.PCM_SIGNED, new byte[] {(byte) 0x80, 0x00, 0x00}, new byte[] {(byte) 0x80, 0x00, 0x01}},
+                {32, Encoding.PCM_SIGNED, new byte[] {(byte) 0x80, 0x00, 0x00, 0x00}, new byte[] {(byte) 0x80, 0x00, 0x00, 0x01}}};
+        for (Object[] code : codes) {
+            PcmCodec codec = new PcmCodec((int) code[0], (Encoding) code[1], true);
+            double[] decoded = new double[1];
+            codec.decode(ByteBuffer.wrap((byte[]) code[2]), decoded, 0, 1);
+            assertTrue(decoded[0] < -1.0, code[0] + "-bit");
+
+            ByteBuffer again = ByteBuffer.allocate(codec.getBytesPerSample());
+            codec.encode(decoded, 0, 1, again);
+            assertArrayEquals((byte[]) code[3], again.array(), code[0] + "-bit");
+        }
+    }
+
+    @Test
+    @DisplayName("Samples should be scaled to full scale and clamped on the way out")
+    void testScaling() {
+        PcmCodec codec = new PcmCodec(new AudioFormat(48000f, 16, 1, true, true));
+        ByteBuffer bytes = ByteBuffer.allocate(8);
+        codec.encode(new double[] {0.0, 1.0, -1.0, 3.0, -3.0}, 1, 4, bytes);
+        bytes.flip();
+        assertEquals(32767, bytes.getShort());
+        assertEquals(-32767, bytes.getShort());
+        assertEquals(32767, bytes.getShort());
+        assertEquals(-32767, bytes.getShort());
+
+        double[] decoded = new double[3];
+        codec.decode(ByteBuffer.wrap(new byte[] {0x40, 0x00}), decoded, 1, 1);
+        assertEquals(16384 / 32767.0, decoded[1]);
+        assertEquals(0.0, decoded[0]);
+        assertEquals(0.0, decoded[2]);
+    }
+
+    @Test
+    @DisplayName("24-bit samples should be packed into three bytes in either order")
+    void testPacked24Bit() {
+        double sample = -0.5;
+        ByteBuffer little = ByteBuffer.allocate(3);
+        new PcmCodec(24, Encoding.PCM_SIGNED, false).encode(new double[] {sample}, 0, 1, little);
+        assertArrayEquals(new byte[] {0x01, 0x00, (byte) 0xC0}, little.array());
+        ByteBuffer big = ByteBuffer.allocate(3);
+        new PcmCodec(24, Encoding.PCM_SIGNED, true).encode(new double[] {sample}, 0, 1, big);
+        assertArrayEquals(new byte[] {(byte) 0xC0, 0x00, 0x01}, big.array());
+
+        double[] decoded = new double[1];
+        new PcmCodec(24, Encoding.PCM_SIGNED, true).decode(ByteBuffer.wrap(big.array()), decoded, 0, 1);
+        assertEquals(-4194303 / 8388607.0, decoded[0]);
+    }
+
+    @Test
+    @DisplayName("Unsupported layouts should be rejected up front")
+    void testUnsupported() {
+        assertThrows(UnsupportedOperationException.class, () -> new PcmCodec(64, Encoding.PCM_SIGNED, false));
+        assertThrows(UnsupportedOperationException.class, () -> new PcmCodec(12, Encoding.PCM_SIGNED, false));
+        assertEquals(4, new PcmCodec(32, Encoding.PCM_FLOAT, false).getBytesPerSample());
+    }
+
+    // === Helper Methods ===
+
+    // Bytes that any codec can represent exactly: decode arbitrary samples' encodings.
+    private static byte[] encoded(PcmCodec codec, int samples) {
+        Random random = new Random(samples);
+        double[] signal = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            signal[i] = random.nextDouble() * 2.2 - 1.1;
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(samples * codec.getBytesPerSample());
+        codec.encode(signal, 0, samples, bytes);
+        return bytes.array();
+    }
+}
@@ -9,6 +9,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
+import FFT.FFT;
 import StandardFilter.StandardFilter;
 import StandardFilter.InvalidFilterException;
 import java.util.Optional;
@@ -41,8 +42,8 @@ class AudioProcessingRanglerIntegrationTest {
         double[] result = rangler.processData(signal);
 
         // Convert to complex for FFT analysis
-        Complex[] originalSpectrum = performFFTAnalysis(originalSignal);
-        Complex[] resultSpectrum = performFFTAnalysis(result);
+        double[] originalSpectrum = performFFTAnalysis(originalSignal);
+        double[] resultSpectrum = performFFTAnalysis(result);
 
         // Compare total power (Parseval's theorem)
         double originalPower = calculateTotalPower(originalSpectrum);
@@ -68,17 +69,17 @@ class AudioProcessingRanglerIntegrationTest {
         double[] filtered = rangler.processData(signal);
 
         // FFT analysis
-        Complex[] originalSpectrum = performFFTAnalysis(originalSignal);
-        Complex[] filteredSpectrum = performFFTAnalysis(filtered);
+        double[] originalSpectrum = performFFTAnalysis(originalSignal);
+        double[] filteredSpectrum = performFFTAnalysis(filtered);
 
         // Find frequency bins
         int freq500Bin = findFrequencyBin(500.0, 1024, SAMPLE_RATE);
         int freq2000Bin = findFrequencyBin(2000.0, 1024, SAMPLE_RATE);
 
-        double original500Mag = originalSpectrum[freq500Bin].abs();
-        double filtered500Mag = filteredSpectrum[freq500Bin].abs();
-        double original2000Mag = originalSpectrum[freq2000Bin].abs();
-        double filtered2000Mag = filteredSpectrum[freq2000Bin].abs();
+        double original500Mag = originalSpectrum[freq500Bin];
+        double filtered500Mag = filteredSpectrum[freq500Bin];
+        double original2000Mag = originalSpectrum[freq2000Bin];
+        double filtered2000Mag = filteredSpectrum[freq2000Bin];
 
         // Assertions updated for Butterworth filter characteristics
         // 500 Hz should be almost perfectly preserved (>98% of original magnitude)
@@ -108,17 +109,17 @@ class AudioProcessingRanglerIntegrationTest {
         double[] filtered = rangler.processData(signal);
 
         // FFT analysis
-        Complex[] originalSpectrum = performFFTAnalysis(originalSignal);
-        Complex[] filteredSpectrum = performFFTAnalysis(filtered);
+        double[] originalSpectrum = performFFTAnalysis(originalSignal);
+        double[] filteredSpectrum = performFFTAnalysis(filtered);
 
         // Find frequency bins
         int freq500Bin = findFrequencyBin(500.0, 1024, SAMPLE_RATE);
         int freq2000Bin = findFrequencyBin(2000.0, 1024, SAMPLE_RATE);
 
-        double original500Mag = originalSpectrum[freq500Bin].abs();
-        double filtered500Mag = filteredSpectrum[freq500Bin].abs();
-        double original2000Mag = originalSpectrum[freq2000Bin].abs();
-        double filtered2000Mag = filteredSpectrum[freq2000Bin].abs();
+        double original500Mag = originalSpectrum[freq500Bin];
+        double filtered500Mag = filteredSpectrum[freq500Bin];
+        double original2000Mag = originalSpectrum[freq2000Bin];
+        double filtered2000Mag = filteredSpectrum[freq2000Bin];
 
         // Assertions updated for Butterworth filter characteristics
         // 500 Hz should be significantly attenuated (<10% of original magnitude)
@@ -151,20 +152,20 @@ class AudioProcessingRanglerIntegrationTest {
         double[] filtered = rangler.processData(signal);
 
         // FFT analysis
-        Complex[] originalSpectrum = performFFTAnalysis(originalSignal);
-        Complex[] filteredSpectrum = performFFTAnalysis(filtered);
+        double[] originalSpectrum = performFFTAnalysis(originalSignal);
+        double[] filteredSpectrum = performFFTAnalysis(filtered);
 
         // Find frequency bins
         int freq400Bin = findFrequencyBin(400.0, 1024, SAMPLE_RATE);
         int freq1200Bin = findFrequencyBin(1200.0, 1024, SAMPLE_RATE);
         int freq3000Bin = findFrequencyBin(3000.0, 1024, SAMPLE_RATE);
 
-        double original400Mag = originalSpectrum[freq400Bin].abs();
-        double filtered400Mag = filteredSpectrum[freq400Bin].abs();
-        double original1200Mag = originalSpectrum[freq1200Bin].abs();
-        double filtered1200Mag = filteredSpectrum[freq1200Bin].abs();
-        double original3000Mag = originalSpectrum[freq3000Bin].abs();
-        double filtered3000Mag = filteredSpectrum[freq3000Bin].abs();
+        double original400Mag = originalSpectrum[freq400Bin];
+        double filtered400Mag = filteredSpectrum[freq400Bin];
+        double original1200Mag = originalSpectrum[freq1200Bin];
+        double filtered1200Mag = filteredSpectrum[freq1200Bin];
+        double original3000Mag = originalSpectrum[freq3000Bin];
+        double filtered3000Mag = filteredSpectrum[freq3000Bin];
 
         // Assertions updated for Butterworth filter characteristics
         // 400 Hz should be attenuated (below highpass cutoff)
@@ -209,19 +210,27 @@ class AudioProcessingRanglerIntegrationTest {
         return signal;
     }
 
-    private Complex[] performFFTAnalysis(double[] signal) {
+    /**
+     * Returns the magnitude of every bin of the zero-padded FFT, mirrored so the array covers
+     * the full transform length.
+     */
+    private double[] performFFTAnalysis(double[] signal) {
         int fftLength = Integer.highestOneBit(signal.length - 1) << 1;
         if (fftLength < signal.length) fftLength <<= 1;
 
-        Complex[] complexSignal = new Complex[fftLength];
-        for (int i = 0; i < fftLength; i++) {
-            complexSignal[i] = (i < signal.length) ? new Complex(signal[i], 0) : new Complex(0, 0);
+        double[] data = Arrays.copyOf(signal, fftLength);
+        FFT.forSize(fftLength).realForward(data);
+
+        double[] magnitudes = new double[fftLength];
+        FFT.magnitude(data, magnitudes);
+        for (int k = 1; k < fftLength / 2; k++) {
+            magnitudes[fftLength - k] = magnitudes[k];
         }
-        return FFT.fft(complexSignal);
+        return magnitudes;
     }
 
-    private double calculateTotalPower(Complex[] spectrum) {
-        return Arrays.stream(spectrum).mapToDouble(c -> c.abs() * c.abs()).sum();
+    private double calculateTotalPower(double[] magnitudes) {
+        return Arrays.stream(magnitudes).map(m -> m * m).sum();
     }
 
     private int findFrequencyBin(double frequency, int fftSize, double sampleRate) {
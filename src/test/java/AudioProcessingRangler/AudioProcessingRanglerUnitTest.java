@@ -4,17 +4,32 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
 import NativeFilter.GraphicEqualizer;
+import NativeFilter.Limiter;
+import Preset.Preset;
+import Preset.StandardFilterSpec;
 import StandardFilter.StandardFilter;
 import StandardFilter.InvalidFilterException;
 
@@ -134,6 +149,41 @@ class AudioProcessingRanglerUnitTest {
             "Should throw IndexOutOfBoundsException for index >= size");
     }
 
+    @Test
+    @DisplayName("Should replace filters in place")
+    void testReplaceFilter() throws IndexOutOfBoundsException, EmptyFilterRackException {
+        assertThrows(EmptyFilterRackException.class, () -> rangler.replaceFilter(0, testStandardFilter));
+
+        rangler.addFilter(testStandardFilter, 0);
+        assertEquals(testStandardFilter, rangler.replaceFilter(0, mockGraphicEqualizer), "Should return the replaced filter");
+        assertEquals(mockGraphicEqualizer, rangler.getFilter(0), "Replacement should take the same position");
+        assertEquals(1, rangler.size(), "Replacing should not change the rack size");
+
+        assertThrows(IndexOutOfBoundsException.class, () -> rangler.replaceFilter(1, testStandardFilter));
+    }
+
+    @Test
+    @DisplayName("Should tolerate rack changes while processing")
+    void testConcurrentModificationDuringProcessing() throws InterruptedException {
+        double[] buffer = new double[256];
+        Thread mutator = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) {
+                rangler.addFilter(createTestFilter(), 0);
+                try {
+                    rangler.removeFilter(0);
+                } catch (EmptyFilterRackException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        mutator.start();
+        while (mutator.isAlive()) {
+            assertDoesNotThrow(() -> rangler.processData(buffer));
+        }
+        mutator.join();
+        assertTrue(rangler.isEmpty());
+    }
+
     @Test
     @DisplayName("Should process data through StandardFilter correctly")
     void testProcessDataWithStandardFilter() {
@@ -294,6 +344,265 @@ class AudioProcessingRanglerUnitTest {
         assertNotNull(result, "Mixed filter types should work together");
     }
 
+    @Test
+    @DisplayName("Each filter stage should be recorded as a Flight Recorder event")
+    void testFilterProcessEvents() throws Exception {
+        rangler.addFilter(createTestFilter(), 0);
+        rangler.addFilter(createTestFilter(), 1);
+
+        Path file = Files.createTempFile("earcanvas-rack", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("earcanvas.FilterProcess").withoutThreshold();
+            recording.start();
+            rangler.processData(new double[64]);
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertEquals(2, events.size());
+            for (int position = 0; position < 2; position++) {
+                RecordedEvent event = events.get(position);
+                assertEquals("StandardFilter", event.getString("filter"));
+                assertEquals(position, event.getInt("position"));
+                assertEquals(64, event.getInt("samples"));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("swapRack should replace the whole rack at the next block")
+    void testSwapRack() {
+        RackFilterInterface mute = gain(0.0);
+        RackFilterInterface doubler = gain(2.0);
+        rangler.addFilter(mute, 0);
+
+        AudioProcessingRangler.RackSwap swap = rangler.swapRack(List.of(doubler), 0, 2);
+        assertFalse(swap.applied().isDone(), "Nothing changes until the audio thread's next block.");
+        assertSame(mute, rangler.getFilters().get(0));
+
+        double[] output = rangler.processData(ones(64));
+        assertArrayEquals(filled(64, 2.0), output);
+        assertTrue(swap.applied().isDone());
+        assertEquals(List.of(mute), swap.retired().getNow(null));
+        assertEquals(List.of(doubler), rangler.getFilters());
+    }
+
+    @Test
+    @DisplayName("A crossfading swap should ramp linearly from the old rack to the new one")
+    void testSwapRackCrossfade() {
+        rangler.addFilter(gain(0.0), 0);
+        AudioProcessingRangler.RackSwap swap = rangler.swapRack(List.of(gain(1.0)), 100, 2);
+
+        int frames = 32;
+        for (int block = 0; block < 5; block++) {
+            double[] output = rangler.processData(ones(frames * 2));
+            for (int frame = 0; frame < frames; frame++) {
+                double expected = Math.min(1.0, (block * frames + frame + 1) / 100.0);
+                assertEquals(expected, output[frame * 2], 1e-12, "Left, frame " + (block * frames + frame));
+                assertEquals(expected, output[frame * 2 + 1], 1e-12, "Right, frame " + (block * frames + frame));
+            }
+            assertEquals(block >= 3, swap.retired().isDone(), "Old rack should be retired once the fade ends, block " + block);
+        }
+    }
+
+    @Test
+    @DisplayName("A crossfade should time the old and new racks' filters separately")
+    void testCrossfadeKeepsTimingsPerRack() {
+        long slowNanos = TimeUnit.MILLISECONDS.toNanos(20);
+        rangler.addFilter((RackFilterInterface) buffer -> {
+            LockSupport.parkNanos(slowNanos);
+            return buffer;
+        }, 0);
+        rangler.setChannels(2);
+        CountingFilter fast = new CountingFilter(0);
+        rangler.swapRack(List.of(fast), 64, 2);
+
+        int frames = 32;
+        rangler.processData(ones(frames * 2));
+        rangler.processData(ones(frames * 2));
+        rangler.processData(new double[frames * 2]);
+
+        assertEquals(2, fast.blocks);
+        assertEquals(1, rangler.getBypassedFilterBlocks());
+        assertTrue(rangler.getBypassSavedNanos() < slowNanos / 4,
+                "The new filter's estimate should not include the old filter's time: " + rangler.getBypassSavedNanos() + " ns");
+    }
+
+    @Test
+    @DisplayName("A swap replaced before it is applied should hand back its own filters")
+    void testSupersededSwap() {
+        RackFilterInterface first = gain(3.0);
+        RackFilterInterface second = gain(4.0);
+        AudioProcessingRangler.RackSwap superseded = rangler.swapRack(List.of(first), 0, 2);
+        AudioProcessingRangler.RackSwap winner = rangler.swapRack(List.of(second), 0, 2);
+
+        assertEquals(List.of(first), superseded.retired().getNow(null));
+        assertTrue(superseded.applied().isCompletedExceptionally(), "A rack that never played was not applied.");
+        assertThrows(CancellationException.class, () -> superseded.applied().getNow(null));
+        assertArrayEquals(filled(8, 4.0), rangler.processData(ones(8)));
+        assertTrue(winner.applied().isDone());
+        assertFalse(winner.applied().isCompletedExceptionally());
+    }
+
+    @Test
+    @DisplayName("applyIdle should apply a swap the audio thread has not picked up")
+    void testApplyIdle() {
+        RackFilterInterface old = gain(0.5);
+        rangler.addFilter(old, 0);
+        AudioProcessingRangler.RackSwap swap = rangler.swapRack(List.of(gain(2.0)), 64, 2);
+
+        assertTrue(rangler.applyIdle(swap));
+        assertFalse(rangler.applyIdle(swap), "A swap can only be applied once.");
+        assertEquals(List.of(old), swap.retired().getNow(null));
+        assertArrayEquals(filled(8, 2.0), rangler.processData(ones(8)), "No crossfade when applied idle.");
+    }
+
+    @Test
+    @DisplayName("Filters should be skipped once their input has been silent longer than their tail")
+    void testSilenceBypass() {
+        CountingFilter first = new CountingFilter(100);
+        CountingFilter second = new CountingFilter(50);
+        RackFilterInterface unbounded = gain(1.0);
+        rangler.addFilter(first, 0);
+        rangler.addFilter(second, 1);
+        rangler.addFilter(unbounded, 2);
+        rangler.setChannels(2);
+
+        int frames = 32;
+        rangler.processData(ones(frames * 2));
+        for (int block = 0; block < 8; block++) {
+            rangler.processData(new double[frames * 2]);
+        }
+        // Silent frames before each silent block: 0, 32, ..., 224. The first filter runs until 128
+        // frames have passed its tail of 100, the second until 160 have passed both tails.
+        assertEquals(1 + 4, first.blocks);
+        assertEquals(1 + 5, second.blocks);
+        assertEquals(8, rangler.getSilentBlocks());
+        assertEquals(4 + 3, rangler.getBypassedFilterBlocks());
+
+        assertArrayEquals(ones(frames * 2), rangler.processData(ones(frames * 2)), "Signal should resume through every filter.");
+        assertEquals(6, first.blocks);
+        assertEquals(7, second.blocks);
+        rangler.processData(new double[frames * 2]);
+        assertEquals(7, first.blocks, "Silence should start counting again.");
+
+        rangler.setSilenceBypass(false);
+        for (int block = 0; block < 8; block++) {
+            rangler.processData(new double[frames * 2]);
+        }
+        assertEquals(15, first.blocks);
+    }
+
+    @Test
+    @DisplayName("Only blocks at or below the silence threshold should count as silent")
+    void testSilenceThreshold() {
+        CountingFilter filter = new CountingFilter(0);
+        rangler.addFilter(filter, 0);
+        rangler.setChannels(1);
+
+        double[] hiss = filled(16, 1e-7); // -140 dBFS
+        rangler.processData(hiss);
+        rangler.processData(hiss);
+        assertEquals(0, filter.blocks, "Hiss under the default -120 dBFS threshold is silence.");
+
+        rangler.setSilenceThreshold(Double.NEGATIVE_INFINITY);
+        rangler.processData(hiss);
+        assertEquals(1, filter.blocks, "Only digital silence counts at -inf dBFS.");
+        assertThrows(IllegalArgumentException.class, () -> rangler.setSilenceThreshold(6.0));
+
+        double[] corrupt = new double[16];
+        corrupt[3] = Double.NaN;
+        rangler.processData(corrupt);
+        assertEquals(2, filter.blocks, "NaN is not silence.");
+    }
+
+    @Test
+    @DisplayName("A bypassed rack should sound the same as one that runs every block")
+    void testBypassResumesCleanly() throws Exception {
+        AudioProcessingRangler bypassing = rack();
+        AudioProcessingRangler reference = rack();
+        bypassing.setChannels(2);
+
+        int frames = 512;
+        for (int block = 0; block < 300; block++) {
+            // Signal, a few seconds of silence, then signal again.
+            double[] input = (block < 20 || block >= 280) ? noise(frames * 2, block) : new double[frames * 2];
+            double[] expected = reference.processData(input.clone());
+            double[] actual = bypassing.processData(input.clone());
+            assertArrayEquals(expected, actual, 1e-6, "Block " + block);
+        }
+        assertTrue(bypassing.getBypassedFilterBlocks() > 0, "Long silence should have bypassed the rack.");
+        assertEquals(0, reference.getBypassedFilterBlocks(), "No bypass without a channel count.");
+    }
+
+    @Test
+    @DisplayName("Stereo racks of filters built without a channel count should filter left and right separately")
+    void testStandardFiltersAdoptChannels() throws Exception {
+        // An existing preset: its specs, like most JSON presets, give no channel count.
+        AudioProcessingRangler rack = new Preset("stereo", List.of(
+                new StandardFilterSpec("Butterworth", 4, 48000.0, null, "Lowpass", 1000.0, null, null, null))).toRack();
+        rack.setChannels(2);
+        StandardFilter added = new StandardFilter(StandardFilter.FilterType.ChebyshevI, 2, 48000.0, Optional.of(0.5));
+        added.setHighpass(100.0);
+        rack.addFilter(added, 1);
+        assertEquals(2, ((StandardFilter) rack.getFilter(0)).getChannels());
+        assertEquals(2, added.getChannels());
+
+        StandardFilter lowpass = new StandardFilter(StandardFilter.FilterType.Butterworth, 4, 48000.0, Optional.empty());
+        lowpass.setLowpass(1000.0);
+        StandardFilter highpass = new StandardFilter(StandardFilter.FilterType.ChebyshevI, 2, 48000.0, Optional.of(0.5));
+        highpass.setHighpass(100.0);
+
+        int frames = 512;
+        for (int block = 0; block < 4; block++) {
+            double[] left = noise(frames, block);
+            double[] stereo = new double[frames * 2];
+            for (int i = 0; i < frames; i++) {
+                stereo[2 * i] = left[i];
+            }
+            double[] output = rack.processData(stereo);
+            double[] expected = highpass.process(lowpass.process(left));
+            for (int i = 0; i < frames; i++) {
+                assertEquals(expected[i], output[2 * i], 1e-12, "Left, block " + block + " frame " + i);
+                assertEquals(0.0, output[2 * i + 1], "Silent right channel picked up the left's history, block " + block);
+            }
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: rack cost on a mostly silent stream with and without silence bypass")
+    void benchmarkSilenceBypass() throws Exception {
+        int frames = 512;
+        int blocks = 2000;
+        double[][] stream = new double[blocks][];
+        for (int block = 0; block < blocks; block++) {
+            // Two seconds of speech-like bursts in every ten.
+            stream[block] = (block % 940 < 188) ? noise(frames * 2, block) : new double[frames * 2];
+        }
+
+        double[] nanos = new double[2];
+        long saved = 0;
+        for (int pass = 0; pass < 8; pass++) {
+            AudioProcessingRangler rack = rack();
+            boolean bypass = pass % 2 == 1;
+            rack.setChannels(bypass ? 2 : 0);
+            long start = System.nanoTime();
+            for (double[] block : stream) {
+                rack.processData(block.clone());
+            }
+            // The first passes warm up.
+            if (pass >= 6) {
+                nanos[pass % 2] = (System.nanoTime() - start) / (double) blocks;
+                saved = bypass ? rack.getBypassSavedNanos() : saved;
+            }
+        }
+        System.out.printf("Rack of 3 filters, 80%% silent stream: %.1f us/block always on, %.1f us/block with bypass (%.1fx), %.1f ms saved by estimate%n",
+                nanos[0] / 1e3, nanos[1] / 1e3, nanos[0] / nanos[1], saved / 1e6);
+    }
+
     // Helper method to create test StandardFilter
     private StandardFilter createTestFilter() {
         try {
@@ -309,4 +618,63 @@ class AudioProcessingRanglerUnitTest {
             throw new RuntimeException("Failed to create test filter", e);
         }
     }
-}
\ No newline at end of file
+
+    // Highpass, lowpass and a limiter: a typical voice chain.
+    private static AudioProcessingRangler rack() throws Exception {
+        AudioProcessingRangler rack = new AudioProcessingRangler();
+        StandardFilter highpass = new StandardFilter(StandardFilter.FilterType.Butterworth, 4, 48000.0, 2, Optional.empty());
+        highpass.setHighpass(80.0);
+        StandardFilter lowpass = new StandardFilter(StandardFilter.FilterType.ChebyshevI, 8, 48000.0, 2, Optional.of(0.5));
+        lowpass.setLowpass(8000.0);
+        rack.addFilter(highpass, 0);
+        rack.addFilter(lowpass, 1);
+        rack.addFilter(new Limiter(2, 1024, 48000.0, -6.0, 0.1, 50.0, 5.0), 2);
+        return rack;
+    }
+
+    private static final class CountingFilter implements RackFilterInterface {
+        private final long tail;
+        int blocks;
+
+        CountingFilter(long tail) {
+            this.tail = tail;
+        }
+
+        @Override
+        public double[] process(double[] buffer) {
+            this.blocks++;
+            return buffer;
+        }
+
+        @Override
+        public long getTailFrames() { return this.tail; }
+    }
+
+    private static double[] noise(int length, long seed) {
+        Random random = new Random(seed);
+        double[] buffer = new double[length];
+        for (int i = 0; i < length; i++) {
+            buffer[i] = 0.5 * (random.nextDouble() * 2.0 - 1.0);
+        }
+        return buffer;
+    }
+
+    private static RackFilterInterface gain(double gain) {
+        return buffer -> {
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] *= gain;
+            }
+            return buffer;
+        };
+    }
+
+    private static double[] ones(int length) {
+        return filled(length, 1.0);
+    }
+
+    private static double[] filled(int length, double value) {
+        double[] buffer = new double[length];
+        Arrays.fill(buffer, value);
+        return buffer;
+    }
+}
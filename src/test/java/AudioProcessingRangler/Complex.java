@@ -1,27 +0,0 @@
-package AudioProcessingRangler;
-
-public class Complex {
-        public final double re;
-        public final double im;
-
-        public Complex(double re, double im) {
-            this.re = re;
-            this.im = im;
-        }
-
-        public Complex plus(Complex b) {
-            return new Complex(this.re + b.re, this.im + b.im);
-        }
-
-        public Complex minus(Complex b) {
-            return new Complex(this.re - b.re, this.im - b.im);
-        }
-
-        public Complex times(Complex b) {
-            return new Complex(this.re * b.re - this.im * b.im, this.re * b.im + this.im * b.re);
-        }
-
-        public double abs() {
-            return Math.hypot(re, im);
-        }
-    }
@@ -0,0 +1,227 @@
+package BatchRenderer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import AudioProcessingRangler.AudioProcessingRangler;
+import Preset.FilterSpec;
+import Preset.InvalidPresetException;
+import Preset.LimiterSpec;
+import Preset.ParametricEqualizerSpec;
+import Preset.Preset;
+import Preset.StandardFilterSpec;
+import WavFile.WavWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BatchRenderer.
+ * Inputs are generated noise WAVs written with javax.sound into a temporary tree.
+ */
+class BatchRendererUnitTest {
+
+    private static final int CHANNELS = 2;
+    private static final double SAMPLE_RATE = 48000.0;
+    private static final int BUFFER_SIZE = 960;
+
+    @TempDir
+    Path root;
+
+    @Test
+    @DisplayName("Output should not depend on the number of workers")
+    void testDeterministicAcrossParallelism() throws Exception {
+        Path input = root.resolve("in");
+        writeTree(input, 6, 1.5);
+
+        BatchReport serial = new BatchRenderer(preset(), 1, BatchRenderer.DEFAULT_BLOCK_FRAMES).render(input, root.resolve("serial"));
+        BatchReport parallel = new BatchRenderer(preset(), 4, BatchRenderer.DEFAULT_BLOCK_FRAMES).render(input, root.resolve("parallel"));
+
+        assertEquals(6, serial.getRendered());
+        assertEquals(6, parallel.getRendered());
+        for (int i = 0; i < serial.getFiles().size(); i++) {
+            FileReport first = serial.getFiles().get(i);
+            FileReport second = parallel.getFiles().get(i);
+            assertEquals(first.getInput(), second.getInput());
+            assertEquals(-1L, Files.mismatch(first.getOutput(), second.getOutput()),
+                    "Outputs differ for " + first.getInput());
+        }
+    }
+
+    @Test
+    @DisplayName("Rendered files should match running the rack block by block")
+    void testMatchesRack() throws Exception {
+        Path input = root.resolve("in");
+        double[] signal = noise(7, (int) (SAMPLE_RATE * 0.37) * CHANNELS);
+        writeWav(input.resolve("a/b/take.wav"), signal);
+
+        BatchReport report = new BatchRenderer(preset(), 2, BatchRenderer.DEFAULT_BLOCK_FRAMES).render(input, root.resolve("out"));
+        FileReport file = report.getFiles().get(0);
+        assertTrue(file.isRendered(), file.toString());
+        assertEquals(root.resolve("out/a/b/take.wav").toAbsolutePath(), file.getOutput());
+        assertEquals(signal.length / CHANNELS, file.getFrames());
+
+        AudioProcessingRangler rack = preset().toRack();
+        double[] expected = new double[signal.length];
+        for (int offset = 0; offset < signal.length; offset += BUFFER_SIZE) {
+            int count = Math.min(BUFFER_SIZE, signal.length - offset);
+            double[] block = Arrays.copyOfRange(quantize(signal), offset, offset + BUFFER_SIZE);
+            Arrays.fill(block, count, BUFFER_SIZE, 0.0);
+            System.arraycopy(rack.processData(block), 0, expected, offset, count);
+        }
+        assertArrayEquals(quantize(expected), readWav(file.getOutput()), 0.0);
+        assertFalse(Files.exists(root.resolve("out/a/b/take.wav" + WavWriter.TEMP_SUFFIX)));
+    }
+
+    @Test
+    @DisplayName("A preset that leaves the channel count open should filter each of the file's channels separately")
+    void testOpenChannelPreset() throws Exception {
+        Path input = root.resolve("in");
+        double[] signal = noise(5, BUFFER_SIZE * 3);
+        writeWav(input.resolve("take.wav"), signal);
+        Preset open = new Preset("open", List.of(new StandardFilterSpec("Butterworth", 4, SAMPLE_RATE, null, "Lowpass", 2000.0, null, null, null)));
+
+        BatchReport report = new BatchRenderer(open, 1, BUFFER_SIZE / CHANNELS).render(input, root.resolve("out"));
+        assertEquals(1, report.getRendered(), report.getFiles().toString());
+
+        Preset stereo = new Preset("stereo", List.of(new StandardFilterSpec("Butterworth", 4, SAMPLE_RATE, null, "Lowpass", 2000.0, null, null, CHANNELS)));
+        AudioProcessingRangler rack = stereo.toRack();
+        double[] expected = new double[signal.length];
+        double[] quantized = quantize(signal);
+        for (int offset = 0; offset < signal.length; offset += BUFFER_SIZE) {
+            System.arraycopy(rack.processData(Arrays.copyOfRange(quantized, offset, offset + BUFFER_SIZE)), 0, expected, offset, BUFFER_SIZE);
+        }
+        assertArrayEquals(quantize(expected), readWav(report.getFiles().get(0).getOutput()), 0.0);
+    }
+
+    @Test
+    @DisplayName("A file the preset cannot take should fail alone")
+    void testMismatchedFileFails() throws Exception {
+        Path input = root.resolve("in");
+        writeTree(input, 2, 0.2);
+        writeWav(input.resolve("mono.wav"), noise(3, 4800), 1, SAMPLE_RATE);
+        writeWav(input.resolve("slow.wav"), noise(4, 4410 * CHANNELS), CHANNELS, 44100.0);
+        Files.write(input.resolve("broken.wav"), new byte[] {1, 2, 3});
+
+        BatchReport report = new BatchRenderer(preset(), 2, BatchRenderer.DEFAULT_BLOCK_FRAMES).render(input, input.resolve("out"));
+
+        assertEquals(2, report.getRendered());
+        assertEquals(3, report.getFailed());
+        for (FileReport file : report.getFiles()) {
+            String name = file.getInput().getFileName().toString();
+            assertEquals(name.startsWith("take"), file.isRendered(), file.toString());
+            assertEquals(file.isRendered(), Files.exists(file.getOutput()), file.toString());
+        }
+        // Outputs inside the input tree must not be picked up as inputs on the next run.
+        assertEquals(5, new BatchRenderer(preset(), 2, BatchRenderer.DEFAULT_BLOCK_FRAMES).render(input, input.resolve("out")).getFiles().size());
+    }
+
+    @Test
+    @DisplayName("Presets whose filters disagree on the stream format should be rejected")
+    void testInconsistentPreset() throws Exception {
+        List<FilterSpec> filters = new ArrayList<>(preset().getFilters());
+        filters.add(new LimiterSpec(CHANNELS, BUFFER_SIZE * 2, SAMPLE_RATE, -1.0, null, null, null));
+        assertThrows(InvalidPresetException.class, () -> new BatchRenderer(new Preset("mixed", filters)));
+
+        Preset open = new Preset("open", List.of(
+                new StandardFilterSpec("Butterworth", 2, SAMPLE_RATE, null, "Highpass", 80.0, null, null, CHANNELS)));
+        assertEquals(512, new BatchRenderer(open, 1, 512).getBlockFrames());
+        assertEquals(BUFFER_SIZE / CHANNELS, new BatchRenderer(preset(), 1, 512).getBlockFrames());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: batch render throughput in multiples of real time")
+    void benchmarkThroughput() throws Exception {
+        Path input = root.resolve("in");
+        writeTree(input, 8, 10.0);
+        int workers = Runtime.getRuntime().availableProcessors();
+
+        new BatchRenderer(preset(), workers, BatchRenderer.DEFAULT_BLOCK_FRAMES).render(input, root.resolve("warmup"));
+        BatchReport report = new BatchRenderer(preset(), workers, BatchRenderer.DEFAULT_BLOCK_FRAMES).render(input, root.resolve("out"));
+
+        System.out.printf("Batch render (HPF + 2-band PEQ + limiter, stereo 16-bit): %s%n", report);
+        assertEquals(8, report.getRendered());
+    }
+
+    // === Helper Methods ===
+
+    private static Preset preset() throws InvalidPresetException {
+        return new Preset("master", List.of(
+                new StandardFilterSpec("Butterworth", 2, SAMPLE_RATE, null, "Highpass", 40.0, null, null, CHANNELS),
+                new ParametricEqualizerSpec(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, List.of(
+                        new ParametricEqualizerSpec.BandSpec("Peaking", 1000.0, 1.4, 4.0),
+                        new ParametricEqualizerSpec.BandSpec("HighShelf", 8000.0, 0.7, 3.0))),
+                new LimiterSpec(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, -1.0, null, null, null)));
+    }
+
+    private static void writeTree(Path input, int files, double seconds) throws Exception {
+        for (int i = 0; i < files; i++) {
+            Path dir = input.resolve((i % 2 == 0) ? "even" : "odd/nested");
+            writeWav(dir.resolve("take" + i + ".wav"), noise(i, (int) (SAMPLE_RATE * seconds) * CHANNELS + i * 3 * CHANNELS));
+        }
+    }
+
+    private static void writeWav(Path path, double[] samples) throws Exception {
+        writeWav(path, samples, CHANNELS, SAMPLE_RATE);
+    }
+
+    private static void writeWav(Path path, double[] samples, int channels, double sampleRate) throws Exception {
+        Files.createDirectories(path.getParent());
+        ByteBuffer bytes = ByteBuffer.allocate(samples.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (double sample : samples) {
+            bytes.putShort((short) (sample * 32767.0));
+        }
+        AudioFormat format = new AudioFormat((float) sampleRate, 16, channels, true, false);
+        try (AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(bytes.array()), format, samples.length / channels)) {
+            AudioSystem.write(stream, AudioFileFormat.Type.WAVE, new File(path.toString()));
+        }
+    }
+
+    private static double[] readWav(Path path) throws Exception {
+        try (AudioInputStream stream = AudioSystem.getAudioInputStream(path.toFile())) {
+            assertFalse(stream.getFormat().isBigEndian());
+            ByteBuffer bytes = ByteBuffer.wrap(stream.readAllBytes()).order(ByteOrder.LITTLE_ENDIAN);
+            double[] samples = new double[bytes.remaining() / 2];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = bytes.getShort() / 32767.0;
+            }
+            return samples;
+        }
+    }
+
+    // What a 16-bit file holds for each sample.
+    private static double[] quantize(double[] samples) {
+        double[] result = new double[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            result[i] = ((short) (Math.max(-1.0, Math.min(1.0, samples[i])) * 32767.0)) / 32767.0;
+        }
+        return result;
+    }
+
+    private static double[] noise(long seed, int length) {
+        Random random = new Random(seed);
+        double[] signal = new double[length];
+        for (int i = 0; i < length; i++) {
+            signal[i] = 0.5 * (random.nextDouble() * 2.0 - 1.0);
+        }
+        return signal;
+    }
+}
@@ -0,0 +1,371 @@
+package ConfigParser;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import Preset.InvalidPresetException;
+import Preset.Preset;
+import Preset.PresetCodec;
+import Preset.StandardFilterSpec;
+import StandardFilter.StandardFilter.FilterType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ConfigParser and its preset cache.
+ * Each test works in its own temporary directory; external edits are made with java.nio.file
+ * so only the directory watch can tell the parser about them.
+ */
+class ConfigParserUnitTest {
+
+    private static final long WATCH_TIMEOUT_NANOS = 5_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    private ConfigParser parser;
+
+    @BeforeEach
+    void setUp() {
+        parser = new ConfigParser(directory, ConfigParser.DEFAULT_CACHE_BYTES);
+    }
+
+    @AfterEach
+    void tearDown() {
+        parser.close();
+    }
+
+    @Test
+    @DisplayName("Repeated lookups should be served from the cache")
+    void testCacheHits() throws Exception {
+        parser.addConfig(preset(1000.0), Optional.of("warm"));
+        assertTrue(parser.isCaching());
+
+        // The watch may still deliver events for our own write; wait until it stops evicting.
+        awaitTrue(() -> {
+            assertEquals(preset(1000.0), parser.getConfig("warm"));
+            long before = parser.getCache().misses();
+            sleepQuietly(20);
+            parser.getConfig("warm");
+            return parser.getCache().misses() == before;
+        }, "Directory watch never settled.");
+        long misses = parser.getCache().misses();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(preset(1000.0), parser.getConfig("warm"));
+        }
+        assertEquals(misses, parser.getCache().misses());
+        assertTrue(parser.getCache().hits() >= 10);
+        assertEquals(directory.resolve("warm"), parser.findConfig(Paths.get("warm")));
+    }
+
+    @Test
+    @DisplayName("Callers should not be able to corrupt the cache")
+    @SuppressWarnings("unchecked")
+    void testReturnedConfigIsCopy() throws Exception {
+        parser.addConfig(preset(1000.0), Optional.of("shared"));
+        parser.getConfig("shared");
+        ArrayList<Object> first = parser.getConfig("shared");
+        assertThrows(UnsupportedOperationException.class, () -> ((Map<String, Object>) first.get(0)).put("cutoff", -1.0));
+        first.clear();
+
+        assertEquals(preset(1000.0), parser.getConfig("shared"));
+    }
+
+    @Test
+    @DisplayName("External edits and deletes should be picked up through the directory watch")
+    void testExternalChanges() throws Exception {
+        parser.addConfig(preset(1000.0), Optional.of("live"));
+        assertEquals(preset(1000.0), parser.getConfig("live"));
+
+        long start = System.nanoTime();
+        Files.writeString(directory.resolve("live"), "[{\"type\":\"StandardFilter\",\"cutoff\":2000.0}]");
+        awaitTrue(() -> preset(2000.0).equals(parser.getConfig("live")), "External edit was not seen.");
+        System.out.printf("ConfigParser: external edit visible after %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+        Files.delete(directory.resolve("live"));
+        awaitTrue(() -> parser.getConfig("live").isEmpty(), "External delete was not seen.");
+        assertNull(parser.findConfig(Paths.get("live")));
+    }
+
+    @Test
+    @DisplayName("Missing presets should be cached until the file appears")
+    void testNegativeCaching() throws Exception {
+        assertTrue(parser.getConfig("later").isEmpty());
+        assertNull(parser.findConfig(Paths.get("later")));
+        assertFalse(parser.removeConfig("later"));
+
+        Files.writeString(directory.resolve("later"), "[{\"type\":\"StandardFilter\",\"cutoff\":1000.0}]");
+        awaitTrue(() -> parser.findConfig(Paths.get("later")) != null, "Created file was not seen.");
+        assertEquals(preset(1000.0), parser.getConfig("later"));
+
+        assertTrue(parser.removeConfig("later"));
+        assertTrue(parser.getConfig("later").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Typed presets should be saved as binary and loaded from binary or JSON")
+    void testTypedPresets() throws Exception {
+        assertNull(parser.getPreset("vocal"));
+
+        Preset saved = new Preset("vocal", List.of(StandardFilterSpec.highpass(FilterType.Butterworth, 2, 48000.0, 80.0)));
+        Path file = parser.addPreset(saved);
+        assertEquals(directory.resolve("vocal" + ConfigParser.PRESET_EXTENSION), file);
+        assertTrue(PresetCodec.isBinary(Files.readAllBytes(file)));
+
+        Preset loaded = parser.getPreset("vocal");
+        assertEquals(80.0, ((StandardFilterSpec) loaded.getFilters().get(0)).getCutoff());
+        assertSame(loaded, parser.getPreset("vocal"), "Immutable presets should be served from the cache as is.");
+
+        Files.writeString(directory.resolve("drums.json"), "{\"name\": \"drums\", \"filters\": [{\"type\": \"StandardFilter\","
+                + " \"design\": \"Butterworth\", \"order\": 4, \"sampleRate\": 48000, \"mode\": \"Lowpass\", \"cutoff\": 8000}]}");
+        awaitTrue(() -> getPresetQuietly("drums") != null, "Hand-written JSON preset was not seen.");
+        assertEquals(1, parser.getPreset("drums").size());
+
+        Files.writeString(directory.resolve("broken.json"), "{\"name\": \"broken\", \"filters\": [{\"type\": \"Flanger\"}]}");
+        awaitTrue(() -> Files.exists(directory.resolve("broken.json")), "Write did not land.");
+        assertThrows(InvalidPresetException.class, () -> parser.getPreset("broken"));
+    }
+
+    @Test
+    @DisplayName("Queued saves of the same configuration should coalesce into the latest one")
+    void testAsyncWritesCoalesce() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        parser.getWriter().execute(() -> awaitQuietly(release));
+
+        List<CompletableFuture<Path>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(parser.addConfigAsync(preset(100.0 + i), Optional.of("burst")));
+        }
+        CompletableFuture<Path> other = parser.addConfigAsync(preset(1.0), Optional.of("other"));
+        assertFalse(futures.get(0).isDone(), "Saves should not wait for the disk.");
+        for (CompletableFuture<Path> future : futures) {
+            assertSame(futures.get(0), future, "Queued saves of one file should share a write.");
+        }
+        assertNotSame(futures.get(0), other);
+        assertEquals(49, parser.getCoalescedWrites());
+
+        release.countDown();
+        assertEquals(directory.resolve("burst"), futures.get(0).get(5, TimeUnit.SECONDS));
+        other.get(5, TimeUnit.SECONDS);
+        assertEquals(preset(149.0), parser.getConfig("burst"), "The last save should win.");
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of("burst", "other"), files.map(file -> file.getFileName().toString()).sorted().toList(),
+                    "No temporary files should be left behind.");
+        }
+    }
+
+    @Test
+    @DisplayName("A save's future should complete only once the caches have dropped the old entry")
+    void testSaveInvalidatesBeforeCompleting() throws Exception {
+        parser.addConfig(preset(100.0), Optional.of("fresh"));
+        assertEquals(preset(100.0), parser.getConfig("fresh"));
+        parser.addPreset(new Preset("fresh", List.of(StandardFilterSpec.highpass(FilterType.Butterworth, 2, 48000.0, 80.0))));
+        assertNotNull(parser.getPreset("fresh"));
+
+        // Hold the writer so the reads below run on it, the moment each future completes.
+        CountDownLatch release = new CountDownLatch(1);
+        parser.getWriter().execute(() -> awaitQuietly(release));
+        CompletableFuture<ArrayList<Object>> config = parser.addConfigAsync(preset(200.0), Optional.of("fresh"))
+                .thenApply(path -> parser.getConfig("fresh"));
+        CompletableFuture<Preset> typed = parser.addPresetAsync(
+                new Preset("fresh", List.of(StandardFilterSpec.highpass(FilterType.Butterworth, 2, 48000.0, 120.0))))
+                .thenApply(path -> getPresetQuietly("fresh"));
+        // Reads while the saves are queued cache the old contents again.
+        assertEquals(preset(100.0), parser.getConfig("fresh"));
+        assertEquals(80.0, ((StandardFilterSpec) parser.getPreset("fresh").getFilters().get(0)).getCutoff());
+        release.countDown();
+
+        assertEquals(preset(200.0), config.get(5, TimeUnit.SECONDS));
+        assertEquals(120.0, ((StandardFilterSpec) typed.get(5, TimeUnit.SECONDS).getFilters().get(0)).getCutoff());
+    }
+
+    @Test
+    @DisplayName("A failed save should leave the previous file intact")
+    void testFailedWriteKeepsPreviousFile() throws Exception {
+        parser.addConfig(preset(1000.0), Optional.of("safe"));
+        ArrayList<Object> unserializable = new ArrayList<>(List.of(new Object()));
+
+        CompletableFuture<Path> failed = parser.addConfigAsync(unserializable, Optional.of("safe"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+        assertThrows(IOException.class, () -> parser.addConfig(unserializable, Optional.of("safe")));
+        assertEquals(preset(1000.0), parser.getConfig("safe"));
+    }
+
+    @Test
+    @DisplayName("Saving a config should not touch a sibling named like a temp file")
+    void testSaveLeavesTempNamedSiblingAlone() throws Exception {
+        parser.addConfig(preset(1.0), Optional.of("x.tmp"));
+        parser.addConfig(preset(2.0), Optional.of("x"));
+
+        assertEquals(preset(1.0), parser.getConfig("x.tmp"));
+        assertEquals(preset(2.0), parser.getConfig("x"));
+        assertEquals(List.of("x", "x.tmp"), listDirectory());
+    }
+
+    @Test
+    @DisplayName("A save that cannot replace its target should remove its temp file")
+    void testFailedReplaceRemovesTempFile() throws Exception {
+        Path busy = Files.createDirectory(directory.resolve("busy"));
+        Files.writeString(busy.resolve("inside"), "occupied");
+
+        assertThrows(IOException.class, () -> AtomicFiles.write(busy, new byte[] {1, 2, 3}));
+        assertEquals(List.of("busy"), listDirectory());
+    }
+
+    @Test
+    @DisplayName("Saves after close should fail instead of being lost")
+    void testWriteAfterClose() {
+        parser.close();
+        CompletableFuture<Path> late = parser.addConfigAsync(preset(1.0), Optional.of("late"));
+        assertTrue(late.isCompletedExceptionally());
+    }
+
+    @Test
+    @DisplayName("The cache should evict least-recently-used entries by weight and refuse stale loads")
+    void testCacheEvictionAndGenerations() {
+        PresetCache<String> cache = new PresetCache<>(100);
+        long generation = cache.generation();
+        assertTrue(cache.putIfCurrent("a", "A", 40, generation));
+        assertTrue(cache.putIfCurrent("b", "B", 40, generation));
+        cache.get("a");
+        assertTrue(cache.putIfCurrent("c", "C", 40, generation));
+
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"), "Least recently used entry should be evicted.");
+        assertEquals(80, cache.weight());
+        assertFalse(cache.putIfCurrent("huge", "H", 101, generation));
+
+        cache.invalidate("a");
+        assertFalse(cache.putIfCurrent("a", "stale", 10, generation), "Load older than an invalidation must be refused.");
+        assertFalse(cache.contains("a"));
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: blocking vs queued saves")
+    void benchmarkSaves() throws Exception {
+        int saves = 200;
+        long start = System.nanoTime();
+        for (int i = 0; i < saves; i++) {
+            parser.addConfig(preset(100.0 + i), Optional.of("blocking" + (i % 10)));
+        }
+        double blockingMicros = (System.nanoTime() - start) / 1e3 / saves;
+
+        List<CompletableFuture<Path>> futures = new ArrayList<>();
+        start = System.nanoTime();
+        for (int i = 0; i < saves; i++) {
+            futures.add(parser.addConfigAsync(preset(100.0 + i), Optional.of("queued" + (i % 10))));
+        }
+        double queuedMicros = (System.nanoTime() - start) / 1e3 / saves;
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+
+        System.out.printf("ConfigParser save: blocking %.1f us, queued %.1f us per call (%d coalesced)%n",
+                blockingMicros, queuedMicros, parser.getCoalescedWrites());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: cached vs uncached preset lookups")
+    void benchmarkLookups() throws Exception {
+        ArrayList<Object> large = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            large.addAll(preset(100.0 + i));
+        }
+        parser.addConfig(large, Optional.of("large"));
+
+        int iterations = 5_000;
+        ConfigParser uncached = new ConfigParser(directory, 0);
+        try {
+            for (int i = 0; i < iterations; i++) {
+                parser.getConfig("large");
+                uncached.getConfig("large");
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                uncached.getConfig("large");
+            }
+            double uncachedMicros = (System.nanoTime() - start) / 1e3 / iterations;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                parser.getConfig("large");
+            }
+            double cachedMicros = (System.nanoTime() - start) / 1e3 / iterations;
+
+            System.out.printf("ConfigParser lookup (100 filters): uncached %.1f us, cached %.1f us (%.1fx)%n",
+                    uncachedMicros, cachedMicros, uncachedMicros / cachedMicros);
+        } finally {
+            uncached.close();
+        }
+    }
+
+    // === Helper Methods ===
+
+    private List<String> listDirectory() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    private static ArrayList<Object> preset(double cutoff) {
+        Map<String, Object> filter = new LinkedHashMap<>();
+        filter.put("type", "StandardFilter");
+        filter.put("cutoff", cutoff);
+        return new ArrayList<>(List.of(filter));
+    }
+
+    private Preset getPresetQuietly(String name) {
+        try {
+            return parser.getPreset(name);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + WATCH_TIMEOUT_NANOS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, message);
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package ConfigParser;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import Preset.InvalidPresetException;
+import Preset.Preset;
+import Preset.PresetCodec;
+import Preset.StandardFilterSpec;
+import StandardFilter.StandardFilter.FilterType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PresetBank.
+ * Crashes are simulated by opening a second bank on the same files without closing the first,
+ * so its unflushed index changes are lost exactly as they would be on a power cut.
+ */
+class PresetBankUnitTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Presets should be stored, replaced, listed and removed by name")
+    void testPutGetListRemove() throws Exception {
+        try (PresetBank bank = PresetBank.open(directory.resolve("main.ecb"))) {
+            assertNull(bank.get("vocal"));
+            bank.put(preset("vocal/lead", 100.0));
+            bank.put(preset("vocal/backing", 120.0));
+            bank.put(preset("drums/kick", 40.0));
+            bank.put(preset("vocal/lead", 150.0));
+
+            assertEquals(3, bank.size());
+            assertEquals(150.0, cutoff(bank.get("vocal/lead")), "Later put should replace the earlier one.");
+            assertEquals(List.of("vocal/backing", "vocal/lead"), bank.list("vocal/"));
+            assertEquals(List.of("drums/kick", "vocal/backing", "vocal/lead"), bank.list(""));
+
+            assertTrue(bank.remove("vocal/backing"));
+            assertFalse(bank.remove("vocal/backing"));
+            assertFalse(bank.contains("vocal/backing"));
+            assertEquals(2, bank.size());
+        }
+
+        try (PresetBank reopened = PresetBank.open(directory.resolve("main.ecb"))) {
+            assertEquals(List.of("drums/kick", "vocal/lead"), reopened.list(""));
+            assertEquals(150.0, cutoff(reopened.get("vocal/lead")));
+            assertEquals(40.0, cutoff(reopened.get("drums/kick")));
+        }
+    }
+
+    @Test
+    @DisplayName("Writes after the last index update should survive a crash")
+    void testRecoversUnindexedWrites() throws Exception {
+        Path path = directory.resolve("crash.ecb");
+        PresetBank crashed = PresetBank.open(path);
+        crashed.put(preset("indexed", 100.0));
+        crashed.flush();
+        crashed.put(preset("unindexed", 200.0));
+        crashed.remove("indexed");
+
+        try (PresetBank recovered = PresetBank.open(path)) {
+            assertEquals(List.of("unindexed"), recovered.list(""));
+            assertEquals(200.0, cutoff(recovered.get("unindexed")));
+            assertNull(recovered.get("indexed"));
+        }
+        crashed.close();
+    }
+
+    @Test
+    @DisplayName("A torn final record should be discarded on open")
+    void testDiscardsTornRecord() throws Exception {
+        Path path = directory.resolve("torn.ecb");
+        try (PresetBank bank = PresetBank.open(path)) {
+            bank.put(preset("kept", 100.0));
+        }
+        long intact = Files.size(path);
+        Files.write(path, new byte[] {0, 0, 1, 0, 1, 0, 4, 'l', 'o', 's'}, StandardOpenOption.APPEND);
+
+        try (PresetBank bank = PresetBank.open(path)) {
+            assertEquals(List.of("kept"), bank.list(""));
+            assertEquals(intact, Files.size(path), "Torn bytes should be truncated away.");
+            bank.put(preset("after", 300.0));
+            assertEquals(300.0, cutoff(bank.get("after")));
+        }
+    }
+
+    @Test
+    @DisplayName("A corrupt or missing index should be rebuilt from the data file")
+    void testRebuildsIndex() throws Exception {
+        Path path = directory.resolve("rebuild.ecb");
+        try (PresetBank bank = PresetBank.open(path)) {
+            for (int i = 0; i < 10; i++) {
+                bank.put(preset("p" + i, 100.0 + i));
+            }
+        }
+        Path index = directory.resolve("rebuild.ecb" + PresetBank.INDEX_EXTENSION);
+        byte[] bytes = Files.readAllBytes(index);
+        bytes[bytes.length / 2] ^= 0x55;
+        Files.write(index, bytes);
+
+        try (PresetBank bank = PresetBank.open(path)) {
+            assertEquals(10, bank.size());
+            assertEquals(107.0, cutoff(bank.get("p7")));
+        }
+
+        Files.delete(index);
+        try (PresetBank bank = PresetBank.open(path)) {
+            assertEquals(10, bank.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Compaction should drop dead records and keep every live preset")
+    void testCompaction() throws Exception {
+        Path path = directory.resolve("compact.ecb");
+        try (PresetBank bank = PresetBank.open(path)) {
+            for (int round = 0; round < 20; round++) {
+                bank.putAll(List.of(preset("a", 100.0 + round), preset("b", 200.0 + round)));
+            }
+            bank.remove("b");
+            long before = bank.getDataLength();
+            assertTrue(bank.getDeadBytes() > 0);
+
+            bank.compact();
+            assertEquals(0, bank.getDeadBytes());
+            assertTrue(bank.getDataLength() < before / 10, "Only one record should remain.");
+            assertEquals(119.0, cutoff(bank.get("a")));
+            assertEquals(List.of("a"), bank.list(""));
+
+            bank.put(preset("c", 300.0));
+        }
+        try (PresetBank reopened = PresetBank.open(path)) {
+            assertEquals(List.of("a", "c"), reopened.list(""));
+        }
+    }
+
+    @Test
+    @DisplayName("Data files from another bank or format should be refused")
+    void testRejectsForeignFile() throws Exception {
+        Path path = directory.resolve("foreign.ecb");
+        Files.writeString(path, "[{\"type\":\"StandardFilter\"}]");
+        assertThrows(IOException.class, () -> PresetBank.open(path));
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: preset bank vs one file per preset")
+    void benchmarkBankVsDirectory() throws Exception {
+        int presets = 2000;
+        List<Preset> all = new ArrayList<>();
+        for (int i = 0; i < presets; i++) {
+            all.add(preset(String.format("user/%04d", i), 50.0 + i));
+        }
+
+        Path files = Files.createDirectory(directory.resolve("files"));
+        for (Preset preset : all) {
+            Files.write(files.resolve(preset.getName().replace('/', '_') + ".ecp"), PresetCodec.encode(preset));
+        }
+
+        try (PresetBank bank = PresetBank.open(directory.resolve("bench.ecb"))) {
+            bank.putAll(all);
+            bank.flush();
+
+            int lookups = 20_000;
+            for (int i = 0; i < 3 * lookups; i++) {
+                bank.get(all.get(i % presets).getName());
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                bank.get(all.get((i * 7919) % presets).getName());
+            }
+            double bankGetMicros = (System.nanoTime() - start) / 1e3 / lookups;
+
+            int fileLookups = 2_000;
+            start = System.nanoTime();
+            for (int i = 0; i < fileLookups; i++) {
+                PresetCodec.decode(Files.readAllBytes(files.resolve(String.format("user_%04d.ecp", (i * 7919) % presets))));
+            }
+            double fileGetMicros = (System.nanoTime() - start) / 1e3 / fileLookups;
+
+            int searches = 200;
+            start = System.nanoTime();
+            for (int i = 0; i < searches; i++) {
+                bank.list("user/01");
+            }
+            double bankListMicros = (System.nanoTime() - start) / 1e3 / searches;
+
+            start = System.nanoTime();
+            for (int i = 0; i < searches; i++) {
+                try (Stream<Path> listing = Files.list(files)) {
+                    listing.filter(p -> p.getFileName().toString().startsWith("user_01")).count();
+                }
+            }
+            double scanMicros = (System.nanoTime() - start) / 1e3 / searches;
+
+            System.out.printf("Preset bank (%d presets): get %.1f us vs file read %.1f us, prefix search %.1f us vs directory scan %.1f us%n",
+                    presets, bankGetMicros, fileGetMicros, bankListMicros, scanMicros);
+            assertEquals(100, bank.list("user/01").size());
+        }
+    }
+
+    // === Helper Methods ===
+
+    private static Preset preset(String name, double cutoff) throws InvalidPresetException {
+        return new Preset(name, List.of(StandardFilterSpec.lowpass(FilterType.Butterworth, 4, 48000.0, cutoff),
+                StandardFilterSpec.highpass(FilterType.Butterworth, 2, 48000.0, 20.0)));
+    }
+
+    private static double cutoff(Preset preset) {
+        return ((StandardFilterSpec) preset.getFilters().get(0)).getCutoff();
+    }
+}
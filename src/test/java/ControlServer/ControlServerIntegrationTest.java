@@ -0,0 +1,325 @@
+package ControlServer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import AudioPipeline.AudioPipeline;
+import AudioPipeline.PipelineStats;
+import AudioProcessingRangler.AudioProcessingRangler;
+import ConfigParser.ConfigParser;
+import ConvolutionFilter.ConvolutionFilter;
+import LevelMeter.LevelMeter;
+import StandardFilter.StandardFilter;
+
+/**
+ * Integration tests for ControlServer over loopback HTTP and WebSocket.
+ * Pipelines are Mockito mocks so no audio hardware is needed; racks are real and are
+ * processed on a separate "render" thread during the load test.
+ */
+class ControlServerIntegrationTest {
+
+    private static final String LOWPASS = "{\"type\":\"StandardFilter\",\"design\":\"Butterworth\",\"order\":4,"
+            + "\"sampleRate\":48000,\"mode\":\"Lowpass\",\"cutoff\":1000}";
+    private static final String CONVOLUTION = "{\"type\":\"ConvolutionFilter\",\"channels\":2,\"bufferSize\":1440,"
+            + "\"impulseResponse\":[1.0,0.5,0.25],\"partitionSize\":64}";
+
+    private static final long BLOCK_NANOS = 15_000_000L;
+
+    private final Gson gson = new Gson();
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private ControlServer server;
+    private AudioProcessingRangler rack;
+    private AudioPipeline pipeline;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        rack = new AudioProcessingRangler();
+        pipeline = mock(AudioPipeline.class);
+        LevelMeter meter = new LevelMeter(48000f, 2);
+        meter.accept(new double[] {0.5, -0.25});
+        when(pipeline.getStats()).thenReturn(new PipelineStats());
+        when(pipeline.getLevelMeter()).thenReturn(meter);
+
+        server = new ControlServer(20);
+        server.registerRack("main", rack);
+        server.registerPipeline("speakers", pipeline);
+        server.start("127.0.0.1", 0);
+        baseUrl = "http://127.0.0.1:" + server.getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    @DisplayName("Filters should be added, listed, replaced and removed over HTTP")
+    void testRackCrud() throws Exception {
+        assertEquals(201, send("POST", "/racks/main/filters", LOWPASS).statusCode());
+        assertEquals(201, send("POST", "/racks/main/filters?position=0", CONVOLUTION).statusCode());
+        assertEquals(2, rack.size());
+        assertInstanceOf(ConvolutionFilter.class, rack.getFilter(0));
+        assertInstanceOf(StandardFilter.class, rack.getFilter(1));
+
+        JsonArray listing = gson.fromJson(send("GET", "/racks/main/filters", null).body(), JsonArray.class);
+        assertEquals("ConvolutionFilter", listing.get(0).getAsJsonObject().get("type").getAsString());
+
+        HttpResponse<String> replaced = send("PUT", "/racks/main/filters/0", LOWPASS);
+        assertEquals(200, replaced.statusCode());
+        assertInstanceOf(StandardFilter.class, rack.getFilter(0));
+        assertEquals(2, rack.size());
+
+        assertEquals(204, send("DELETE", "/racks/main/filters/1", null).statusCode());
+        assertEquals(1, rack.size());
+    }
+
+    @Test
+    @DisplayName("Bad requests should be rejected without touching the rack")
+    void testErrors() throws Exception {
+        assertEquals(400, send("POST", "/racks/main/filters", "{\"type\":\"Flanger\"}").statusCode());
+        assertEquals(400, send("POST", "/racks/main/filters", "{\"type\":\"StandardFilter\"}").statusCode());
+        assertEquals(400, send("POST", "/racks/main/filters", "{not json").statusCode());
+        assertEquals(404, send("POST", "/racks/other/filters", LOWPASS).statusCode());
+        assertEquals(404, send("POST", "/racks/main/filters?position=3", LOWPASS).statusCode());
+        assertEquals(404, send("DELETE", "/racks/main/filters/0", null).statusCode());
+        assertEquals(400, send("DELETE", "/racks/main/filters/first", null).statusCode());
+        assertEquals(404, send("POST", "/pipelines/headphones/start", null).statusCode());
+        assertTrue(rack.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Pipelines should be started, stopped and reported")
+    void testPipelineControl() throws Exception {
+        assertEquals(200, send("POST", "/pipelines/speakers/start", null).statusCode());
+        verify(pipeline).start();
+        assertEquals(200, send("POST", "/pipelines/speakers/stop", null).statusCode());
+        verify(pipeline).stop();
+
+        JsonObject telemetry = gson.fromJson(send("GET", "/pipelines/speakers", null).body(), JsonObject.class);
+        assertEquals("speakers", telemetry.get("pipeline").getAsString());
+        JsonArray peaks = telemetry.getAsJsonObject("levels").getAsJsonArray("peakDbfs");
+        assertEquals(-6.02, peaks.get(0).getAsDouble(), 0.01);
+        assertTrue(telemetry.getAsJsonObject("levels").get("integratedLufs").isJsonNull(),
+                "Undefined loudness should be sent as null.");
+    }
+
+    @Test
+    @DisplayName("Saving a rack as a preset should be written through the preset store")
+    void testSavePreset(@TempDir Path directory) throws Exception {
+        assertEquals(503, send("PUT", "/racks/main/presets/live", null).statusCode(), "No store configured yet.");
+
+        try (ConfigParser parser = new ConfigParser(directory, ConfigParser.DEFAULT_CACHE_BYTES)) {
+            server.setPresetStore(parser);
+            send("POST", "/racks/main/filters", LOWPASS);
+
+            HttpResponse<String> saved = send("PUT", "/racks/main/presets/live", null);
+            assertEquals(201, saved.statusCode(), saved.body());
+            assertEquals("live.ecp", gson.fromJson(saved.body(), JsonObject.class).get("file").getAsString());
+            assertEquals(1, parser.getPreset("live").size());
+            assertEquals(404, send("PUT", "/racks/missing/presets/live", null).statusCode());
+        }
+    }
+
+    @Test
+    @DisplayName("Loading a saved preset should replace the rack's filters")
+    void testLoadPreset(@TempDir Path directory) throws Exception {
+        assertEquals(503, send("POST", "/racks/main/presets/live/load", null).statusCode(), "No store configured yet.");
+
+        try (ConfigParser parser = new ConfigParser(directory, ConfigParser.DEFAULT_CACHE_BYTES)) {
+            server.setPresetStore(parser);
+            send("POST", "/racks/main/filters", LOWPASS);
+            assertEquals(201, send("PUT", "/racks/main/presets/live", null).statusCode());
+            send("POST", "/racks/main/filters", LOWPASS);
+            assertEquals(2, rack.size());
+
+            HttpResponse<String> loaded = send("POST", "/racks/main/presets/live/load?crossfadeFrames=256", null);
+            assertEquals(200, loaded.statusCode(), loaded.body());
+            assertEquals(1, gson.fromJson(loaded.body(), JsonObject.class).get("filters").getAsInt());
+            assertEquals(1, rack.size());
+
+            assertEquals(404, send("POST", "/racks/main/presets/missing/load", null).statusCode());
+            assertEquals(400, send("POST", "/racks/main/presets/live/load?crossfadeFrames=-1", null).statusCode());
+            assertEquals(400, send("POST", "/racks/main/presets/live/load?channels=two", null).statusCode());
+        }
+    }
+
+    @Test
+    @DisplayName("Metrics should be served in Prometheus text format")
+    void testMetricsEndpoint() throws Exception {
+        send("POST", "/racks/main/filters", LOWPASS);
+        rack.processData(new double[1440]);
+
+        HttpResponse<String> response = send("GET", "/metrics", null);
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain; version=0.0.4"));
+        assertTrue(response.body().contains("# TYPE earcanvas_filter_process_seconds summary\n"), response.body());
+        assertTrue(response.body().contains("earcanvas_filter_process_seconds_count{filter=\"StandardFilter\"} "));
+    }
+
+    @Test
+    @DisplayName("WebSocket clients should receive periodic telemetry")
+    void testTelemetryStream() throws Exception {
+        CountDownLatch messages = new CountDownLatch(3);
+        WebSocket socket = connect(messages);
+
+        assertTrue(messages.await(5, TimeUnit.SECONDS), "Telemetry was not pushed.");
+        socket.sendClose(WebSocket.NORMAL_CLOSURE, "done").join();
+    }
+
+    @Test
+    @DisplayName("Load test: concurrent clients should not disturb rack processing")
+    void testConcurrentClientsLoad() throws Exception {
+        int httpClients = 48;
+        int requestsPerClient = 40;
+        int socketClients = 32;
+
+        // Render thread: processes the live rack every 15 ms, like AudioPipeline.run.
+        AtomicBoolean rendering = new AtomicBoolean(true);
+        AtomicLong blocks = new AtomicLong();
+        AtomicLong maxBlockNanos = new AtomicLong();
+        List<Throwable> renderErrors = new ArrayList<>();
+        Thread render = new Thread(() -> {
+            double[] buffer = new double[1440];
+            while (rendering.get()) {
+                long start = System.nanoTime();
+                try {
+                    rack.processData(buffer.clone());
+                } catch (Throwable t) {
+                    renderErrors.add(t);
+                    return;
+                }
+                long elapsed = System.nanoTime() - start;
+                maxBlockNanos.accumulateAndGet(elapsed, Math::max);
+                blocks.incrementAndGet();
+                LockSupport.parkNanos(BLOCK_NANOS - elapsed);
+            }
+        }, "render");
+        render.start();
+
+        List<WebSocket> sockets = new ArrayList<>();
+        CountDownLatch everyoneHeard = new CountDownLatch(socketClients);
+        for (int i = 0; i < socketClients; i++) {
+            sockets.add(connect(everyoneHeard));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(httpClients);
+        AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int c = 0; c < httpClients; c++) {
+            int clientId = c;
+            futures.add(pool.submit(() -> {
+                for (int r = 0; r < requestsPerClient; r++) {
+                    try {
+                        HttpResponse<String> response;
+                        switch ((clientId + r) % 4) {
+                            case 0:
+                                response = send("POST", "/racks/main/filters?position=0", LOWPASS);
+                                break;
+                            case 1:
+                                response = send("PUT", "/racks/main/filters/0", LOWPASS);
+                                break;
+                            case 2:
+                                response = send("DELETE", "/racks/main/filters/0", null);
+                                break;
+                            default:
+                                response = send("GET", "/pipelines", null);
+                                break;
+                        }
+                        // 404 is expected when a racing client emptied the rack first.
+                        if (response.statusCode() >= 500 || response.statusCode() == 400) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        assertTrue(everyoneHeard.await(5, TimeUnit.SECONDS), "Not every WebSocket client received telemetry.");
+        rendering.set(false);
+        render.join();
+        for (WebSocket socket : sockets) {
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+        }
+
+        int requests = httpClients * requestsPerClient;
+        System.out.printf("ControlServer load: %d requests from %d clients in %.2f s (%.0f req/s), "
+                + "%d WebSocket clients, %d render blocks, max block %.2f ms%n",
+                requests, httpClients, seconds, requests / seconds, socketClients,
+                blocks.get(), maxBlockNanos.get() / 1e6);
+
+        assertEquals(0, failures.get(), "Requests failed under load.");
+        assertTrue(renderErrors.isEmpty(), "Render thread failed: " + renderErrors);
+        assertTrue(blocks.get() > 0);
+    }
+
+    // === Helper Methods ===
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest.BodyPublisher publisher = (body == null)
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(body);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .method(method, publisher)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(10))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private WebSocket connect(CountDownLatch latch) {
+        URI uri = URI.create("ws://127.0.0.1:" + server.getPort() + "/telemetry");
+        return client.newWebSocketBuilder().buildAsync(uri, new WebSocket.Listener() {
+            @Override
+            public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                if (last) {
+                    latch.countDown();
+                }
+                webSocket.request(1);
+                return CompletableFuture.completedFuture(null);
+            }
+        }).join();
+    }
+}
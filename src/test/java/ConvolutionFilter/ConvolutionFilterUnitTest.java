@@ -0,0 +1,186 @@
+package ConvolutionFilter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import AudioProcessingRangler.AudioProcessingRangler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ConvolutionFilter.
+ * Results are compared sample by sample against a direct time-domain
+ * convolution delayed by the filter's one-partition latency.
+ */
+class ConvolutionFilterUnitTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    @DisplayName("Unit impulse should reproduce the input delayed by one partition")
+    void testIdentityImpulse() throws InvalidFilterParametersException {
+        int partition = 64;
+        ConvolutionFilter filter = new ConvolutionFilter(1, 256, new double[] {1.0}, partition);
+
+        double[] input = randomSignal(256 * 4, 1);
+        double[] output = processInBlocks(filter, input, 256);
+
+        assertEquals(partition, filter.getLatency());
+        for (int i = 0; i < input.length; i++) {
+            double expected = (i >= partition) ? input[i - partition] : 0.0;
+            assertEquals(expected, output[i], TOLERANCE);
+        }
+    }
+
+    @Test
+    @DisplayName("Uniform partitioning should match direct convolution")
+    void testUniformMatchesDirectConvolution() throws InvalidFilterParametersException {
+        int partition = 32;
+        double[] response = randomSignal(1000, 2);
+        ConvolutionFilter filter = new ConvolutionFilter(1, 128, response, partition);
+
+        double[] input = randomSignal(128 * 20, 3);
+        assertMatchesDirect(input, processInBlocks(filter, input, 128), response, partition);
+    }
+
+    @Test
+    @DisplayName("Non-uniform partitioning should match direct convolution")
+    void testNonUniformMatchesDirectConvolution() throws InvalidFilterParametersException {
+        int partition = 16;
+        double[] response = randomSignal(3000, 4);
+        ConvolutionFilter filter = new ConvolutionFilter(1, 96, response, partition, ConvolutionFilter.Partitioning.NonUniform);
+
+        double[] input = randomSignal(96 * 60, 5);
+        assertMatchesDirect(input, processInBlocks(filter, input, 96), response, partition);
+    }
+
+    @Test
+    @DisplayName("Non-uniform mode should fall back to uniform for short responses")
+    void testNonUniformShortResponse() throws InvalidFilterParametersException {
+        int partition = 64;
+        double[] response = randomSignal(100, 6);
+        ConvolutionFilter filter = new ConvolutionFilter(1, 64, response, partition, ConvolutionFilter.Partitioning.NonUniform);
+
+        double[] input = randomSignal(64 * 10, 7);
+        assertMatchesDirect(input, processInBlocks(filter, input, 64), response, partition);
+    }
+
+    @Test
+    @DisplayName("Channels should be convolved with their own responses")
+    void testPerChannelResponses() throws InvalidFilterParametersException {
+        int channels = 2;
+        int partition = 32;
+        double[][] responses = { randomSignal(200, 8), randomSignal(150, 9) };
+        ConvolutionFilter filter = new ConvolutionFilter(channels, 64 * channels, responses, partition, ConvolutionFilter.Partitioning.Uniform);
+
+        double[] input = randomSignal(64 * channels * 12, 10);
+        double[] output = processInBlocks(filter, input, 64 * channels);
+
+        for (int ch = 0; ch < channels; ch++) {
+            double[] channelIn = deinterleave(input, channels, ch);
+            double[] channelOut = deinterleave(output, channels, ch);
+            assertMatchesDirect(channelIn, channelOut, responses[ch], partition);
+        }
+    }
+
+    @Test
+    @DisplayName("Block size should not affect the result")
+    void testBlockSizeIndependence() throws InvalidFilterParametersException {
+        double[] response = randomSignal(500, 11);
+        double[] input = randomSignal(480 * 4, 12);
+
+        double[] a = processInBlocks(new ConvolutionFilter(1, 480, response, 64), input, 480);
+        double[] b = processInBlocks(new ConvolutionFilter(1, 40, response, 64), input, 40);
+
+        assertArrayEquals(a, b, TOLERANCE);
+    }
+
+    @Test
+    @DisplayName("reset should clear the delay line")
+    void testReset() throws InvalidFilterParametersException {
+        ConvolutionFilter filter = new ConvolutionFilter(1, 64, randomSignal(300, 13), 32);
+        filter.process(randomSignal(64, 14));
+        filter.reset();
+
+        double[] output = filter.process(new double[64]);
+        for (double sample : output) {
+            assertEquals(0.0, sample);
+        }
+    }
+
+    @Test
+    @DisplayName("Invalid parameters should be rejected")
+    void testValidation() {
+        double[] response = {1.0};
+        assertThrows(InvalidFilterParametersException.class, () -> new ConvolutionFilter(0, 64, response, 64));
+        assertThrows(InvalidFilterParametersException.class, () -> new ConvolutionFilter(2, 63, response, 64));
+        assertThrows(InvalidFilterParametersException.class, () -> new ConvolutionFilter(1, 64, response, 48));
+        assertThrows(InvalidFilterParametersException.class, () -> new ConvolutionFilter(1, 64, response, 8));
+        assertThrows(InvalidFilterParametersException.class, () -> new ConvolutionFilter(1, 64, new double[0], 64));
+        assertThrows(InvalidFilterParametersException.class, () -> new ConvolutionFilter(1, 64, (double[]) null, 64));
+    }
+
+    @Test
+    @DisplayName("process should validate its input buffer")
+    void testProcessValidation() throws InvalidFilterParametersException {
+        ConvolutionFilter filter = new ConvolutionFilter(1, 64, new double[] {1.0}, 64);
+        assertThrows(IllegalArgumentException.class, () -> filter.process(null));
+        assertThrows(IllegalArgumentException.class, () -> filter.process(new double[32]));
+    }
+
+    @Test
+    @DisplayName("Filter should plug into AudioProcessingRangler")
+    void testRanglerIntegration() throws InvalidFilterParametersException {
+        ConvolutionFilter filter = new ConvolutionFilter(1, 128, new double[] {0.5}, 128);
+        AudioProcessingRangler rangler = new AudioProcessingRangler();
+        rangler.addFilter(filter, 0);
+
+        double[] first = rangler.processData(randomSignal(128, 15));
+        double[] second = rangler.processData(new double[128]);
+
+        assertEquals(128, first.length);
+        assertNotEquals(0.0, second[0], "Delayed, scaled input should come out one partition later.");
+    }
+
+    // === Helper Methods ===
+
+    private static double[] processInBlocks(ConvolutionFilter filter, double[] input, int blockLength) {
+        double[] output = new double[input.length];
+        for (int offset = 0; offset < input.length; offset += blockLength) {
+            double[] block = new double[blockLength];
+            System.arraycopy(input, offset, block, 0, blockLength);
+            System.arraycopy(filter.process(block), 0, output, offset, blockLength);
+        }
+        return output;
+    }
+
+    private static void assertMatchesDirect(double[] input, double[] output, double[] response, int latency) {
+        for (int n = 0; n < input.length; n++) {
+            double expected = 0.0;
+            int delayed = n - latency;
+            for (int k = 0; k < response.length && k <= delayed; k++) {
+                expected += response[k] * input[delayed - k];
+            }
+            assertEquals(expected, output[n], TOLERANCE, "Mismatch at sample " + n);
+        }
+    }
+
+    private static double[] deinterleave(double[] buffer, int channels, int channel) {
+        double[] out = new double[buffer.length / channels];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = buffer[i * channels + channel];
+        }
+        return out;
+    }
+
+    private static double[] randomSignal(int length, long seed) {
+        Random random = new Random(seed);
+        double[] signal = new double[length];
+        for (int i = 0; i < length; i++) {
+            signal[i] = random.nextDouble() * 2.0 - 1.0;
+        }
+        return signal;
+    }
+}
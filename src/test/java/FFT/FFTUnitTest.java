@@ -0,0 +1,154 @@
+package FFT;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FFT.
+ * Transforms are compared against a direct O(n²) DFT for every size up to 1024,
+ * covering both the odd and even radix-2/4 stage layouts.
+ */
+class FFTUnitTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    @DisplayName("Complex forward transform should match a direct DFT")
+    void testComplexForwardMatchesDft() {
+        for (int size = 1; size <= 1024; size <<= 1) {
+            double[] input = randomSignal(2 * size, size);
+            double[] expected = dft(input, size);
+
+            double[] data = input.clone();
+            FFT.forSize(size).forward(data);
+
+            assertArrayEquals(expected, data, TOLERANCE * size, "size " + size);
+        }
+    }
+
+    @Test
+    @DisplayName("Complex inverse should undo the forward transform")
+    void testComplexRoundTrip() {
+        for (int size = 1; size <= 1024; size <<= 1) {
+            double[] input = randomSignal(2 * size, size + 1);
+            double[] data = input.clone();
+
+            FFT fft = FFT.forSize(size);
+            fft.forward(data);
+            fft.inverse(data);
+
+            assertArrayEquals(input, data, TOLERANCE, "size " + size);
+        }
+    }
+
+    @Test
+    @DisplayName("Real forward transform should match the complex transform in packed layout")
+    void testRealForwardMatchesDft() {
+        for (int size = 2; size <= 1024; size <<= 1) {
+            double[] input = randomSignal(size, size + 2);
+            double[] complex = new double[2 * size];
+            for (int i = 0; i < size; i++) {
+                complex[2 * i] = input[i];
+            }
+            double[] expected = dft(complex, size);
+
+            double[] data = input.clone();
+            FFT.forSize(size).realForward(data);
+
+            double tolerance = TOLERANCE * size;
+            assertEquals(expected[0], data[0], tolerance, "DC, size " + size);
+            assertEquals(expected[size], data[1], tolerance, "Nyquist, size " + size);
+            for (int k = 1; k < size / 2; k++) {
+                assertEquals(expected[2 * k], data[2 * k], tolerance, "Re bin " + k + ", size " + size);
+                assertEquals(expected[2 * k + 1], data[2 * k + 1], tolerance, "Im bin " + k + ", size " + size);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Real inverse should undo the real forward transform")
+    void testRealRoundTrip() {
+        for (int size = 2; size <= 1024; size <<= 1) {
+            double[] input = randomSignal(size, size + 3);
+            double[] data = input.clone();
+
+            FFT fft = FFT.forSize(size);
+            fft.realForward(data);
+            fft.realInverse(data);
+
+            assertArrayEquals(input, data, TOLERANCE, "size " + size);
+        }
+    }
+
+    @Test
+    @DisplayName("magnitude should find a pure tone in its bin")
+    void testMagnitude() {
+        int size = 256;
+        int bin = 10;
+        double[] data = new double[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = Math.cos(2.0 * Math.PI * bin * i / size);
+        }
+
+        FFT.forSize(size).realForward(data);
+        double[] magnitudes = new double[size / 2 + 1];
+        FFT.magnitude(data, magnitudes);
+
+        assertEquals(size / 2.0, magnitudes[bin], TOLERANCE);
+        for (int k = 0; k < magnitudes.length; k++) {
+            if (k != bin) {
+                assertEquals(0.0, magnitudes[k], TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("forSize should share one instance per size")
+    void testCache() {
+        assertSame(FFT.forSize(512), FFT.forSize(512));
+        assertEquals(512, FFT.forSize(512).getSize());
+    }
+
+    @Test
+    @DisplayName("Invalid sizes and buffers should be rejected")
+    void testValidation() {
+        assertThrows(IllegalArgumentException.class, () -> FFT.forSize(0));
+        assertThrows(IllegalArgumentException.class, () -> FFT.forSize(48));
+        assertThrows(IllegalArgumentException.class, () -> FFT.forSize(64).forward(new double[64]));
+        assertThrows(IllegalArgumentException.class, () -> FFT.forSize(64).realForward(null));
+        assertThrows(IllegalStateException.class, () -> FFT.forSize(1).realForward(new double[1]));
+    }
+
+    // === Helper Methods ===
+
+    private static double[] dft(double[] input, int size) {
+        double[] output = new double[2 * size];
+        for (int k = 0; k < size; k++) {
+            double re = 0.0;
+            double im = 0.0;
+            for (int n = 0; n < size; n++) {
+                double angle = -2.0 * Math.PI * ((long) k * n % size) / size;
+                double c = Math.cos(angle);
+                double s = Math.sin(angle);
+                re += input[2 * n] * c - input[2 * n + 1] * s;
+                im += input[2 * n] * s + input[2 * n + 1] * c;
+            }
+            output[2 * k] = re;
+            output[2 * k + 1] = im;
+        }
+        return output;
+    }
+
+    private static double[] randomSignal(int length, long seed) {
+        Random random = new Random(seed);
+        double[] signal = new double[length];
+        for (int i = 0; i < length; i++) {
+            signal[i] = random.nextDouble() * 2.0 - 1.0;
+        }
+        return signal;
+    }
+}
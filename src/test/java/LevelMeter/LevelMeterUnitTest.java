@@ -0,0 +1,165 @@
+package LevelMeter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LevelMeter.
+ * Loudness expectations follow ITU-R BS.1770: a 997 Hz sine at 0 dBFS in one channel
+ * reads -3.01 LUFS, so the K-weighting gain at 1 kHz cancels the -0.691 offset.
+ */
+class LevelMeterUnitTest {
+
+    private static final float SAMPLE_RATE = 48000f;
+    private static final int BLOCK_FRAMES = 720; // 15 ms, as read by AudioPipeline
+    private static final double LOUDNESS_TOLERANCE = 0.1;
+
+    @Test
+    @DisplayName("K-weighting at 48 kHz should match the BS.1770 coefficients")
+    void testKWeightingCoefficients() {
+        KWeighting k = new KWeighting(48000.0, 1);
+        assertEquals(1.53512485958697, k.b0, 1e-9);
+        assertEquals(-2.69169618940638, k.b1, 1e-9);
+        assertEquals(1.19839281085285, k.b2, 1e-9);
+        assertEquals(-1.69065929318241, k.a1, 1e-9);
+        assertEquals(0.73248077421585, k.a2, 1e-9);
+        assertEquals(-1.99004745483398, k.c1, 1e-9);
+        assertEquals(0.99007225036621, k.c2, 1e-9);
+    }
+
+    @Test
+    @DisplayName("Full-scale 997 Hz sine in one channel should read -3.01 LUFS")
+    void testReferenceLevel() throws InvalidMeterParametersException {
+        LevelMeter meter = new LevelMeter(SAMPLE_RATE, 2);
+        feed(meter, 4.0, new double[] {1.0, 0.0});
+
+        assertEquals(-3.01, meter.getMomentaryLoudness(), LOUDNESS_TOLERANCE);
+        assertEquals(-3.01, meter.getShortTermLoudness(), LOUDNESS_TOLERANCE);
+        assertEquals(-3.01, meter.getIntegratedLoudness(), LOUDNESS_TOLERANCE);
+    }
+
+    @Test
+    @DisplayName("Peak and RMS should track each channel independently")
+    void testPeakAndRms() throws InvalidMeterParametersException {
+        LevelMeter meter = new LevelMeter(SAMPLE_RATE, 2);
+        feed(meter, 1.0, new double[] {0.5, 0.25});
+
+        assertEquals(0.5, meter.getPeak(0), 1e-3);
+        assertEquals(0.25, meter.getPeak(1), 1e-3);
+        assertEquals(0.5 / Math.sqrt(2.0), meter.getRms(0), 1e-3);
+        assertEquals(0.25 / Math.sqrt(2.0), meter.getRms(1), 1e-3);
+        assertEquals(-6.02, meter.getPeakDbfs(0), 0.01);
+    }
+
+    @Test
+    @DisplayName("Windows should stay undefined until they have been filled")
+    void testWindowWarmUp() throws InvalidMeterParametersException {
+        LevelMeter meter = new LevelMeter(SAMPLE_RATE, 1);
+        feed(meter, 0.3, new double[] {0.5});
+        assertEquals(Double.NEGATIVE_INFINITY, meter.getMomentaryLoudness());
+
+        feed(meter, 0.2, new double[] {0.5});
+        assertTrue(Double.isFinite(meter.getMomentaryLoudness()));
+        assertEquals(Double.NEGATIVE_INFINITY, meter.getShortTermLoudness());
+
+        feed(meter, 2.6, new double[] {0.5});
+        assertTrue(Double.isFinite(meter.getShortTermLoudness()));
+    }
+
+    @Test
+    @DisplayName("Integrated loudness should apply the absolute and relative gates")
+    void testGating() throws InvalidMeterParametersException {
+        LevelMeter meter = new LevelMeter(SAMPLE_RATE, 2);
+
+        // -20 LUFS programme, a quiet -40 LUFS passage and digital silence.
+        feed(meter, 10.0, new double[] {0.1, 0.1});
+        feed(meter, 10.0, new double[] {0.01, 0.01});
+        feed(meter, 10.0, new double[] {0.0, 0.0});
+
+        // Ungated this would read about -23 LUFS; gating leaves only the programme.
+        assertEquals(-20.0, meter.getIntegratedLoudness(), 0.2);
+        assertEquals(Double.NEGATIVE_INFINITY, meter.getMomentaryLoudness());
+    }
+
+    @Test
+    @DisplayName("LFE should be excluded and surrounds weighted in 5.1")
+    void testSurroundWeights() throws InvalidMeterParametersException {
+        LevelMeter meter = new LevelMeter(SAMPLE_RATE, 6);
+        assertEquals(0.0, meter.getChannelWeight(3));
+        assertEquals(1.41, meter.getChannelWeight(4));
+
+        feed(meter, 1.0, new double[] {0.0, 0.0, 0.0, 1.0, 0.0, 0.0});
+        assertEquals(Double.NEGATIVE_INFINITY, meter.getMomentaryLoudness());
+    }
+
+    @Test
+    @DisplayName("reset should clear all meters at the next block")
+    void testReset() throws InvalidMeterParametersException {
+        LevelMeter meter = new LevelMeter(SAMPLE_RATE, 1);
+        feed(meter, 1.0, new double[] {0.8});
+        meter.reset();
+        assertTrue(meter.getPeak(0) > 0.0, "Reset is applied by the audio thread, not the caller.");
+
+        meter.accept(new double[BLOCK_FRAMES]);
+        assertEquals(0.0, meter.getPeak(0));
+        assertEquals(Double.NEGATIVE_INFINITY, meter.getIntegratedLoudness());
+    }
+
+    @Test
+    @DisplayName("Invalid parameters should be rejected")
+    void testValidation() {
+        assertThrows(InvalidMeterParametersException.class, () -> new LevelMeter(0f, 2));
+        assertThrows(InvalidMeterParametersException.class, () -> new LevelMeter(SAMPLE_RATE, 0));
+        assertThrows(InvalidMeterParametersException.class, () -> new LevelMeter(SAMPLE_RATE, 2, new double[] {1.0}));
+        assertThrows(InvalidMeterParametersException.class, () -> new LevelMeter(SAMPLE_RATE, 1, new double[] {-1.0}));
+    }
+
+    @Test
+    @DisplayName("Benchmark: metering should use a small fraction of the block budget")
+    void testMeteringCost() throws InvalidMeterParametersException {
+        int channels = 2;
+        LevelMeter meter = new LevelMeter(SAMPLE_RATE, channels);
+        double[] block = new double[BLOCK_FRAMES * channels];
+        for (int i = 0; i < block.length; i++) {
+            block[i] = Math.sin(i * 0.01) * 0.5;
+        }
+
+        for (int i = 0; i < 20_000; i++) {
+            meter.accept(block);
+        }
+
+        int blocks = 4_000; // one minute of audio
+        long start = System.nanoTime();
+        for (int i = 0; i < blocks; i++) {
+            meter.accept(block);
+        }
+        double nanosPerBlock = (System.nanoTime() - start) / (double) blocks;
+        double budgetNanos = BLOCK_FRAMES / (double) SAMPLE_RATE * 1e9;
+        double percent = 100.0 * nanosPerBlock / budgetNanos;
+
+        System.out.printf("LevelMeter: %.1f us per %d-frame stereo block (%.3f%% of budget)%n",
+                nanosPerBlock / 1000.0, BLOCK_FRAMES, percent);
+        assertTrue(percent < 3.0, "Metering took " + percent + "% of the block budget.");
+    }
+
+    // === Helper Methods ===
+
+    // Feeds seconds of a 997 Hz sine with the given per-channel amplitudes, in 15 ms blocks.
+    private static void feed(LevelMeter meter, double seconds, double[] amplitudes) {
+        int channels = amplitudes.length;
+        int blocks = (int) Math.round(seconds * SAMPLE_RATE / BLOCK_FRAMES);
+        double[] block = new double[BLOCK_FRAMES * channels];
+        for (int b = 0; b < blocks; b++) {
+            for (int i = 0; i < BLOCK_FRAMES; i++) {
+                long n = (long) b * BLOCK_FRAMES + i;
+                double s = Math.sin(2 * Math.PI * 997.0 * n / SAMPLE_RATE);
+                for (int ch = 0; ch < channels; ch++) {
+                    block[i * channels + ch] = amplitudes[ch] * s;
+                }
+            }
+            meter.accept(block);
+        }
+    }
+}
@@ -81,4 +81,42 @@ class LimiterUnitTest {
         assertNotSame(originalBuffer, processedBuffer, "The returned buffer should be a new instance.");
         assertArrayEquals(originalBufferCopy, originalBuffer, "The original input buffer should not be modified.");
     }
+
+    @Test
+    @DisplayName("Limiters should keep independent state")
+    void testInstancesDoNotShareState() {
+        Limiter loud = new Limiter(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, -6.0, 1.0, 50.0, 1.0);
+        Limiter reference = new Limiter(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, -6.0, 1.0, 50.0, 1.0);
+        Limiter interleaved = new Limiter(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, -6.0, 1.0, 50.0, 1.0);
+
+        for (int block = 0; block < 4; block++) {
+            double[] input = sine(block, 0.9);
+            loud.process(sine(block, 1.0));
+            assertArrayEquals(reference.process(input), interleaved.process(input), 1e-12,
+                    "Another limiter's blocks must not leak into this one's gain or delay line.");
+        }
+    }
+
+    @Test
+    @DisplayName("reset should return a limiter to its initial state")
+    void testReset() {
+        Limiter limiter = new Limiter(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, -6.0, 1.0, 50.0, 1.0);
+        double[] first = limiter.process(sine(0, 1.0));
+        limiter.process(sine(1, 1.0));
+        limiter.reset();
+        assertArrayEquals(first, limiter.process(sine(0, 1.0)), 1e-12);
+    }
+
+    // === Helper Methods ===
+
+    private static double[] sine(int block, double amplitude) {
+        double[] buffer = new double[BUFFER_SIZE];
+        for (int frame = 0; frame < BUFFER_SIZE / CHANNELS; frame++) {
+            double value = amplitude * Math.sin(2 * Math.PI * 440.0 * (block * (BUFFER_SIZE / CHANNELS) + frame) / SAMPLE_RATE);
+            for (int ch = 0; ch < CHANNELS; ch++) {
+                buffer[frame * CHANNELS + ch] = value;
+            }
+        }
+        return buffer;
+    }
 }
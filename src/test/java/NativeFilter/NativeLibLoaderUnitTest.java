@@ -0,0 +1,80 @@
+package NativeFilter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for NativeLibLoader.
+ * These tests exercise the cached extraction logic against a small classpath
+ * resource, so they do not depend on the compiled native library.
+ */
+class NativeLibLoaderUnitTest {
+
+    private static final String RESOURCE = "/NativeFilter/native-lib-loader-fixture.bin";
+    private static final String MAPPED_NAME = "libfixture.so";
+
+    @TempDir
+    Path cacheRoot;
+
+    @Test
+    @DisplayName("extract should place the library in a directory keyed by its content hash")
+    void testExtractUsesHashDirectory() throws Exception {
+        Path extracted = NativeLibLoader.extract(RESOURCE, MAPPED_NAME, cacheRoot);
+
+        byte[] expected = NativeLibLoader.class.getResourceAsStream(RESOURCE).readAllBytes();
+        assertArrayEquals(expected, Files.readAllBytes(extracted));
+        assertEquals(NativeLibLoader.sha256(expected), extracted.getParent().getFileName().toString());
+        assertEquals(cacheRoot, extracted.getParent().getParent());
+    }
+
+    @Test
+    @DisplayName("extract should reuse an existing verified copy across calls")
+    void testExtractReusesCachedCopy() throws Exception {
+        Path first = NativeLibLoader.extract(RESOURCE, MAPPED_NAME, cacheRoot);
+        long firstModified = Files.getLastModifiedTime(first).toMillis();
+
+        Path second = NativeLibLoader.extract(RESOURCE, MAPPED_NAME, cacheRoot);
+
+        assertEquals(first, second);
+        assertEquals(firstModified, Files.getLastModifiedTime(second).toMillis(), "A verified copy should not be rewritten.");
+        try (var entries = Files.list(first.getParent())) {
+            assertEquals(1, entries.count(), "No temporary files should be left behind.");
+        }
+    }
+
+    @Test
+    @DisplayName("extract should replace a cached copy whose checksum does not match")
+    void testExtractRepairsCorruptedCopy() throws Exception {
+        Path extracted = NativeLibLoader.extract(RESOURCE, MAPPED_NAME, cacheRoot);
+        Files.write(extracted, new byte[] {1, 2, 3});
+
+        Path repaired = NativeLibLoader.extract(RESOURCE, MAPPED_NAME, cacheRoot);
+
+        byte[] expected = NativeLibLoader.class.getResourceAsStream(RESOURCE).readAllBytes();
+        assertEquals(extracted, repaired);
+        assertArrayEquals(expected, Files.readAllBytes(repaired));
+    }
+
+    @Test
+    @DisplayName("extract should report a missing resource")
+    void testExtractMissingResource() {
+        assertThrows(FileNotFoundException.class,
+            () -> NativeLibLoader.extract("/native/does-not-exist.so", MAPPED_NAME, cacheRoot));
+    }
+
+    @Test
+    @DisplayName("loadLibrary should be idempotent for the combined library")
+    void testLoadLibraryTwice() {
+        assertDoesNotThrow(() -> {
+            NativeLibLoader.loadLibrary(NativeLibLoader.LIBRARY_NAME);
+            NativeLibLoader.loadLibrary(NativeLibLoader.LIBRARY_NAME);
+        });
+    }
+}
@@ -0,0 +1,255 @@
+package NativeFilter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ParametricEqualizer class.
+ * Covers band validation and layout, and checks the native kernel's
+ * response against the analytic gain of each band type.
+ */
+class ParametricEqualizerUnitTest {
+
+    private static final int CHANNELS = 2;
+    private static final int FRAMES = 4096;
+    private static final int BUFFER_SIZE = FRAMES * CHANNELS;
+    private static final double SAMPLE_RATE = 48000.0;
+
+    @Test
+    @DisplayName("isoGraphic31 should create 31 flat peaking bands with none active")
+    void testIsoGraphic31Layout() {
+        ParametricEqualizer eq = ParametricEqualizer.isoGraphic31(CHANNELS, BUFFER_SIZE, SAMPLE_RATE);
+
+        assertEquals(31, eq.getBandCount());
+        assertEquals(0, eq.getActiveBandCount(), "Bands at 0 dB should be skipped.");
+        assertEquals(20.0, eq.getBand(0).getFrequency());
+        assertEquals(20000.0, eq.getBand(30).getFrequency());
+        for (ParametricEqualizer.Band band : eq.getBands()) {
+            assertEquals(ParametricEqualizer.BandType.Peaking, band.getType());
+        }
+    }
+
+    @Test
+    @DisplayName("isoGraphic31 should leave out bands above Nyquist")
+    void testIsoGraphic31LowSampleRate() {
+        ParametricEqualizer eq = ParametricEqualizer.isoGraphic31(CHANNELS, BUFFER_SIZE, 32000.0);
+        assertEquals(29, eq.getBandCount(), "16 kHz and 20 kHz bands cannot exist at 32 kHz.");
+    }
+
+    @Test
+    @DisplayName("Only non-zero gain bands and notches should be active")
+    void testActiveBandCount() throws InvalidFilterParametersException {
+        ParametricEqualizer eq = ParametricEqualizer.isoGraphic31(CHANNELS, BUFFER_SIZE, SAMPLE_RATE);
+        eq.setGain(5, 3.0);
+        eq.setGain(20, -4.0);
+        assertEquals(2, eq.getActiveBandCount());
+
+        eq.setGain(5, 0.0);
+        assertEquals(1, eq.getActiveBandCount());
+
+        eq.setBand(0, new ParametricEqualizer.Band(ParametricEqualizer.BandType.Notch, 50.0, 10.0, 0.0));
+        assertEquals(2, eq.getActiveBandCount(), "A notch is never an identity.");
+    }
+
+    @Test
+    @DisplayName("Invalid bands should be rejected")
+    void testBandValidation() {
+        ParametricEqualizer eq = new ParametricEqualizer(CHANNELS, BUFFER_SIZE, SAMPLE_RATE);
+
+        assertThrows(InvalidFilterParametersException.class, () -> eq.setBands(null));
+        assertThrows(InvalidFilterParametersException.class, () -> eq.setBands(List.of(
+            new ParametricEqualizer.Band(ParametricEqualizer.BandType.Peaking, 24000.0, 1.0, 3.0))));
+        assertThrows(InvalidFilterParametersException.class, () -> eq.setBands(List.of(
+            new ParametricEqualizer.Band(ParametricEqualizer.BandType.Peaking, 1000.0, 0.0, 3.0))));
+        assertThrows(InvalidFilterParametersException.class, () -> eq.setBands(List.of(
+            new ParametricEqualizer.Band(null, 1000.0, 1.0, 3.0))));
+        assertThrows(InvalidFilterParametersException.class, () -> eq.setBands(List.of(
+            new ParametricEqualizer.Band(ParametricEqualizer.BandType.LowShelf, 100.0, 0.7, Double.NaN))));
+    }
+
+    @Test
+    @DisplayName("Flat equalizer should return an identical copy")
+    void testFlatPassThrough() {
+        ParametricEqualizer eq = ParametricEqualizer.isoGraphic31(CHANNELS, BUFFER_SIZE, SAMPLE_RATE);
+        double[] input = sine(1000.0, 0.5);
+
+        double[] output = eq.process(input);
+
+        assertNotSame(input, output);
+        assertArrayEquals(input, output);
+    }
+
+    @Test
+    @DisplayName("Peaking band should apply its gain at the centre frequency")
+    void testPeakingGain() throws InvalidFilterParametersException {
+        ParametricEqualizer eq = new ParametricEqualizer(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, List.of(
+            new ParametricEqualizer.Band(ParametricEqualizer.BandType.Peaking, 1000.0, 1.0, 6.0)));
+
+        double[] output = eq.process(sine(1000.0, 0.25));
+
+        assertEquals(0.25 * Math.pow(10, 6.0 / 20.0), steadyStatePeak(output, 0), 0.005);
+        assertEquals(0.25 * Math.pow(10, 6.0 / 20.0), steadyStatePeak(output, 1), 0.005);
+    }
+
+    @Test
+    @DisplayName("Shelf bands should apply their gain well inside the shelf")
+    void testShelfGain() throws InvalidFilterParametersException {
+        ParametricEqualizer eq = new ParametricEqualizer(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, List.of(
+            new ParametricEqualizer.Band(ParametricEqualizer.BandType.LowShelf, 200.0, 0.707, -6.0),
+            new ParametricEqualizer.Band(ParametricEqualizer.BandType.HighShelf, 8000.0, 0.707, 6.0)));
+
+        double low = steadyStatePeak(eq.process(sine(40.0, 0.5)), 0);
+        eq.reset();
+        double high = steadyStatePeak(eq.process(sine(18000.0, 0.25)), 0);
+
+        assertEquals(0.5 * Math.pow(10, -6.0 / 20.0), low, 0.01);
+        assertEquals(0.25 * Math.pow(10, 6.0 / 20.0), high, 0.02);
+    }
+
+    @Test
+    @DisplayName("Notch band should remove its centre frequency")
+    void testNotch() throws InvalidFilterParametersException {
+        ParametricEqualizer eq = new ParametricEqualizer(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, List.of(
+            new ParametricEqualizer.Band(ParametricEqualizer.BandType.Notch, 1000.0, 2.0, 0.0)));
+
+        double[] output = eq.process(sine(1000.0, 0.5));
+
+        assertTrue(steadyStatePeak(output, 0) < 0.01, "1 kHz should be notched out.");
+    }
+
+    @Test
+    @DisplayName("State should carry over between blocks")
+    void testStateContinuity() throws InvalidFilterParametersException {
+        List<ParametricEqualizer.Band> bands = List.of(
+            new ParametricEqualizer.Band(ParametricEqualizer.BandType.Peaking, 300.0, 2.0, 9.0),
+            new ParametricEqualizer.Band(ParametricEqualizer.BandType.HighShelf, 5000.0, 0.7, -3.0));
+        ParametricEqualizer whole = new ParametricEqualizer(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, bands);
+        ParametricEqualizer split = new ParametricEqualizer(CHANNELS, BUFFER_SIZE / 4, SAMPLE_RATE, bands);
+
+        double[] input = sine(300.0, 0.5);
+        double[] expected = whole.process(input);
+
+        for (int block = 0; block < 4; block++) {
+            double[] part = new double[BUFFER_SIZE / 4];
+            System.arraycopy(input, block * part.length, part, 0, part.length);
+            double[] processed = split.process(part);
+            for (int i = 0; i < part.length; i++) {
+                assertEquals(expected[block * part.length + i], processed[i], 1e-12);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Channels should be filtered independently")
+    void testChannelIndependence() throws InvalidFilterParametersException {
+        ParametricEqualizer eq = new ParametricEqualizer(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, List.of(
+            new ParametricEqualizer.Band(ParametricEqualizer.BandType.Peaking, 1000.0, 1.0, 12.0)));
+
+        double[] input = sine(1000.0, 0.5);
+        for (int i = 1; i < input.length; i += CHANNELS) {
+            input[i] = 0.0;
+        }
+
+        double[] output = eq.process(input);
+
+        for (int i = 1; i < output.length; i += CHANNELS) {
+            assertEquals(0.0, output[i], "Silent channel must stay silent.");
+        }
+    }
+
+    @Test
+    @DisplayName("Many bands and channels should process without a stack-sized limit")
+    void testLargeLayout() throws InvalidFilterParametersException {
+        int channels = 64;
+        ParametricEqualizer eq = ParametricEqualizer.isoGraphic31(channels, 256 * channels, SAMPLE_RATE);
+        for (int band = 0; band < eq.getBandCount(); band++) {
+            eq.setGain(band, (band % 2 == 0) ? 1.5 : -1.5);
+        }
+        assertEquals(31, eq.getActiveBandCount());
+
+        double[] output = eq.process(new double[256 * channels]);
+        assertEquals(256 * channels, output.length);
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: per-block cost should stay flat through 10 s of silence after a burst")
+    void benchmarkSilenceAfterBurst() throws InvalidFilterParametersException {
+        int frames = 512;
+        int blocksPerSecond = (int) SAMPLE_RATE / frames;
+        // Broad mid and high bands ring down into the subnormal range within the first second.
+        ParametricEqualizer eq = new ParametricEqualizer(CHANNELS, frames * CHANNELS, SAMPLE_RATE, List.of(
+            new ParametricEqualizer.Band(ParametricEqualizer.BandType.Peaking, 1000.0, 0.7, 6.0),
+            new ParametricEqualizer.Band(ParametricEqualizer.BandType.Peaking, 2500.0, 0.7, -6.0),
+            new ParametricEqualizer.Band(ParametricEqualizer.BandType.Peaking, 5000.0, 0.7, 6.0),
+            new ParametricEqualizer.Band(ParametricEqualizer.BandType.HighShelf, 10000.0, 0.7, -6.0)));
+        double[] burst = new double[frames * CHANNELS];
+        Random random = new Random(7);
+        for (int i = 0; i < burst.length; i++) {
+            burst[i] = random.nextDouble() * 2.0 - 1.0;
+        }
+        double[] silence = new double[frames * CHANNELS];
+        long[] burstNanos = new long[blocksPerSecond];
+        long[] silentNanos = new long[10 * blocksPerSecond];
+
+        // The first pass warms up; the second is timed.
+        for (int pass = 0; pass < 2; pass++) {
+            eq.reset();
+            for (int i = 0; i < burstNanos.length; i++) {
+                long start = System.nanoTime();
+                eq.process(burst);
+                burstNanos[i] = System.nanoTime() - start;
+            }
+            for (int i = 0; i < silentNanos.length; i++) {
+                long start = System.nanoTime();
+                double[] output = eq.process(silence);
+                silentNanos[i] = System.nanoTime() - start;
+                for (double sample : output) {
+                    assertFalse(sample != 0.0 && Math.abs(sample) < Double.MIN_NORMAL, "Tail went subnormal.");
+                }
+            }
+        }
+
+        long burstMedian = median(burstNanos, 0, burstNanos.length);
+        long worstSilence = 0;
+        for (int from = 0; from < silentNanos.length; from += blocksPerSecond) {
+            worstSilence = Math.max(worstSilence, median(silentNanos, from, from + blocksPerSecond));
+        }
+        double ratio = (double) worstSilence / burstMedian;
+        System.out.printf("ParametricEqualizer, 4 bands, %d ch x %d frames: burst %.1f us/block, worst second of silence %.1f us/block (%.2fx)%n",
+                CHANNELS, frames, burstMedian / 1e3, worstSilence / 1e3, ratio);
+    }
+
+    private static double[] sine(double frequency, double amplitude) {
+        double[] buffer = new double[BUFFER_SIZE];
+        for (int frame = 0; frame < FRAMES; frame++) {
+            double value = amplitude * Math.sin(2 * Math.PI * frequency * frame / SAMPLE_RATE);
+            for (int ch = 0; ch < CHANNELS; ch++) {
+                buffer[frame * CHANNELS + ch] = value;
+            }
+        }
+        return buffer;
+    }
+
+    private static long median(long[] values, int from, int to) {
+        long[] window = Arrays.copyOfRange(values, from, to);
+        Arrays.sort(window);
+        return window[window.length / 2];
+    }
+
+    // Peak of the last half of a channel, after the filter transient has settled.
+    private static double steadyStatePeak(double[] buffer, int channel) {
+        double peak = 0.0;
+        for (int frame = FRAMES / 2; frame < FRAMES; frame++) {
+            peak = Math.max(peak, Math.abs(buffer[frame * CHANNELS + channel]));
+        }
+        return peak;
+    }
+}
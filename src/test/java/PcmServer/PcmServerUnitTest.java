@@ -0,0 +1,371 @@
+package PcmServer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.sound.sampled.AudioFormat;
+
+import AudioPipeline.PcmCodec;
+import AudioProcessingRangler.AudioProcessingRangler;
+import Preset.InvalidPresetException;
+import Preset.LimiterSpec;
+import Preset.ParametricEqualizerSpec;
+import Preset.Preset;
+import Preset.StandardFilterSpec;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PcmServer over loopback TCP.
+ * Clients are blocking SocketChannels: a writer thread sends the header and frames and half-closes,
+ * while the test thread reads the processed stream to the end.
+ */
+class PcmServerUnitTest {
+
+    private static final int CHANNELS = 2;
+    private static final int SAMPLE_RATE = 48000;
+    private static final int BUFFER_SIZE = 960;
+
+    private static final StreamHeader PCM16 = new StreamHeader(AudioFormat.Encoding.PCM_SIGNED, 16, CHANNELS, false, SAMPLE_RATE);
+    private static final StreamHeader FLOAT32 = new StreamHeader(AudioFormat.Encoding.PCM_FLOAT, 32, CHANNELS, false, SAMPLE_RATE);
+    private static final StreamHeader PCM24_BE = new StreamHeader(AudioFormat.Encoding.PCM_SIGNED, 24, CHANNELS, true, SAMPLE_RATE);
+
+    private PcmServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (this.server != null) {
+            this.server.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Header should round-trip and reject foreign bytes")
+    void testStreamHeader() throws Exception {
+        StreamHeader header = StreamHeader.read(ByteBuffer.wrap(PCM24_BE.toBytes()));
+        assertEquals(AudioFormat.Encoding.PCM_SIGNED, header.getEncoding());
+        assertEquals(24, header.getBitDepth());
+        assertEquals(CHANNELS, header.getChannels());
+        assertTrue(header.isBigEndian());
+        assertEquals(SAMPLE_RATE, header.getSampleRate());
+        assertEquals(6, header.getFrameSize());
+
+        byte[] wav = PCM16.toBytes();
+        System.arraycopy("RIFF".getBytes(), 0, wav, 0, 4);
+        assertThrows(IOException.class, () -> StreamHeader.read(ByteBuffer.wrap(wav)));
+        assertThrows(IllegalArgumentException.class, () -> new StreamHeader(AudioFormat.Encoding.ULAW, 8, 1, false, 8000));
+    }
+
+    @Test
+    @DisplayName("Processed stream should match running the rack block by block")
+    void testMatchesRack() throws Exception {
+        start(2);
+        // Not a whole number of blocks, so the last one is zero-padded.
+        byte[] pcm = encode(PCM16, noise(3, (SAMPLE_RATE / 3 + 17) * CHANNELS));
+
+        byte[] processed = stream(PCM16, pcm);
+
+        assertArrayEquals(expected(PCM16, pcm), processed);
+        assertEquals(BUFFER_SIZE / CHANNELS, this.server.getBlockFrames());
+        awaitIdle();
+        assertEquals(1, this.server.getAcceptedConnections());
+        assertEquals(0, this.server.getFailedConnections());
+        assertEquals(StreamHeader.BYTES + pcm.length, this.server.getBytesIn());
+        assertEquals(pcm.length, this.server.getBytesOut());
+    }
+
+    @Test
+    @DisplayName("A preset that leaves the channel count open should filter each of the stream's channels separately")
+    void testOpenChannelPreset() throws Exception {
+        this.server = new PcmServer(new Preset("open", List.of(
+                new StandardFilterSpec("Butterworth", 4, (double) SAMPLE_RATE, null, "Lowpass", 2000.0, null, null, null))),
+                1, PcmServer.DEFAULT_BLOCK_FRAMES, PcmServer.DEFAULT_BUFFER_BYTES);
+        this.server.start("127.0.0.1", 0);
+        byte[] pcm = encode(PCM16, noise(8, SAMPLE_RATE / 10 * CHANNELS));
+
+        Preset stereo = new Preset("stereo", List.of(
+                new StandardFilterSpec("Butterworth", 4, (double) SAMPLE_RATE, null, "Lowpass", 2000.0, null, null, CHANNELS)));
+        assertArrayEquals(expected(PCM16, pcm, stereo), stream(PCM16, pcm));
+    }
+
+    @Test
+    @DisplayName("Concurrent streams in different formats should each get their own rack")
+    void testConcurrentFormats() throws Exception {
+        start(2);
+        StreamHeader[] headers = {PCM16, FLOAT32, PCM24_BE};
+        ExecutorService clients = Executors.newFixedThreadPool(12);
+        try {
+            List<byte[]> inputs = new ArrayList<>();
+            List<Future<byte[]>> outputs = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                StreamHeader header = headers[i % headers.length];
+                byte[] pcm = encode(header, noise(i, (SAMPLE_RATE / 4 + i * 31) * CHANNELS));
+                inputs.add(pcm);
+                outputs.add(clients.submit(() -> stream(header, pcm)));
+            }
+            for (int i = 0; i < outputs.size(); i++) {
+                assertArrayEquals(expected(headers[i % headers.length], inputs.get(i)), outputs.get(i).get(), "Stream " + i);
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        awaitIdle();
+        assertEquals(12, this.server.getAcceptedConnections());
+        assertTrue(this.server.getPool().getAllocated() <= 2 * 12, "Connections should share pooled buffers.");
+
+        int allocated = this.server.getPool().getAllocated();
+        for (int i = 0; i < 4; i++) {
+            stream(PCM16, encode(PCM16, noise(i, 4800 * CHANNELS)));
+        }
+        awaitIdle();
+        assertEquals(allocated, this.server.getPool().getAllocated(), "Sequential connections should reuse idle buffers.");
+    }
+
+    @Test
+    @DisplayName("Bad headers should close only the offending connection")
+    void testRejectsBadStreams() throws Exception {
+        start(1);
+        byte[] foreign = PCM16.toBytes();
+        foreign[0] = 'R';
+        StreamHeader mono = new StreamHeader(AudioFormat.Encoding.PCM_SIGNED, 16, 1, false, SAMPLE_RATE);
+        StreamHeader wrongRate = new StreamHeader(AudioFormat.Encoding.PCM_SIGNED, 16, CHANNELS, false, 44100);
+
+        byte[] pcm = encode(PCM16, noise(1, 9600 * CHANNELS));
+        assertEquals(0, send(foreign, pcm).length);
+        assertEquals(0, stream(mono, pcm).length);
+        assertEquals(0, stream(wrongRate, pcm).length);
+        assertArrayEquals(expected(PCM16, pcm), stream(PCM16, pcm), "A good stream after bad ones should still be served.");
+
+        awaitIdle();
+        assertEquals(4, this.server.getAcceptedConnections());
+        assertEquals(3, this.server.getFailedConnections());
+    }
+
+    @Test
+    @DisplayName("A slow reader should stall its stream without losing or reordering frames")
+    void testBackpressure() throws Exception {
+        this.server = new PcmServer(preset(), 1, PcmServer.DEFAULT_BLOCK_FRAMES, 8 * 1024);
+        this.server.start("127.0.0.1", 0);
+        // Several times what the server and the socket buffers can hold between them.
+        byte[] pcm = encode(PCM16, noise(5, SAMPLE_RATE * 10 * CHANNELS));
+
+        byte[] processed;
+        try (SocketChannel channel = connect()) {
+            Thread writer = writer(channel, PCM16.toBytes(), pcm);
+            ByteArrayOutputStream received = new ByteArrayOutputStream();
+            ByteBuffer chunk = ByteBuffer.allocate(4096);
+            int reads = 0;
+            while (channel.read(chunk.clear()) >= 0) {
+                received.write(chunk.array(), 0, chunk.position());
+                if (++reads % 64 == 0) {
+                    Thread.sleep(5);
+                }
+            }
+            writer.join();
+            processed = received.toByteArray();
+        }
+
+        assertArrayEquals(expected(PCM16, pcm), processed);
+        awaitIdle();
+        assertEquals(2, this.server.getPool().getAllocated());
+    }
+
+    @Test
+    @DisplayName("Stopping should close open connections")
+    void testStopClosesConnections() throws Exception {
+        start(2);
+        try (SocketChannel channel = connect()) {
+            channel.write(ByteBuffer.wrap(PCM16.toBytes()));
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (this.server.getActiveConnections() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, this.server.getActiveConnections());
+
+            this.server.stop();
+
+            assertEquals(0, this.server.getActiveConnections());
+            assertEquals(-1, channel.read(ByteBuffer.allocate(16)));
+            assertEquals(-1, this.server.getPort());
+        }
+    }
+
+    @Test
+    @DisplayName("A failed accept should cost only that connection")
+    void testFailedAccept() throws Exception {
+        start(1);
+        SocketChannel broken = mock(SocketChannel.class);
+        when(broken.setOption(eq(StandardSocketOptions.TCP_NODELAY), any())).thenThrow(new IOException("Connection reset"));
+        ServerSocketChannel acceptor = mock(ServerSocketChannel.class);
+        when(acceptor.accept()).thenReturn(broken).thenThrow(new IOException("Too many open files"));
+
+        this.server.accept(acceptor);
+
+        verify(broken).close();
+        assertEquals(2, this.server.getFailedConnections());
+        assertEquals(0, this.server.getAcceptedConnections());
+        assertEquals(0, this.server.getActiveConnections());
+
+        byte[] pcm = encode(PCM16, noise(5, BUFFER_SIZE * 4));
+        assertEquals(pcm.length, stream(PCM16, pcm).length, "The server should keep serving.");
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: concurrent connections on localhost")
+    void benchmarkConcurrentConnections() throws Exception {
+        int connections = 32;
+        double seconds = 5.0;
+        start(Runtime.getRuntime().availableProcessors());
+        byte[] pcm = encode(PCM16, noise(11, (int) (SAMPLE_RATE * seconds) * CHANNELS));
+
+        ExecutorService clients = Executors.newFixedThreadPool(connections);
+        try {
+            runConcurrently(clients, 4, pcm);
+            long start = System.nanoTime();
+            runConcurrently(clients, connections, pcm);
+            double elapsed = (System.nanoTime() - start) / 1e9;
+
+            double realTime = connections * seconds / elapsed;
+            System.out.printf("PcmServer (%d connections, stereo 16-bit, HPF + 2-band PEQ + limiter): %.2f s, "
+                    + "%.1fx real time, %.1f MB/s each way, %d pooled buffers%n",
+                    connections, elapsed, realTime, connections * pcm.length / elapsed / 1e6,
+                    this.server.getPool().getAllocated());
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    // === Helper Methods ===
+
+    private void start(int loops) throws Exception {
+        this.server = new PcmServer(preset(), loops, PcmServer.DEFAULT_BLOCK_FRAMES, PcmServer.DEFAULT_BUFFER_BYTES);
+        this.server.start("127.0.0.1", 0);
+    }
+
+    private static Preset preset() throws InvalidPresetException {
+        return new Preset("stream", List.of(
+                new StandardFilterSpec("Butterworth", 2, (double) SAMPLE_RATE, null, "Highpass", 40.0, null, null, CHANNELS),
+                new ParametricEqualizerSpec(CHANNELS, BUFFER_SIZE, (double) SAMPLE_RATE, List.of(
+                        new ParametricEqualizerSpec.BandSpec("Peaking", 1000.0, 1.4, 4.0),
+                        new ParametricEqualizerSpec.BandSpec("HighShelf", 8000.0, 0.7, 3.0))),
+                new LimiterSpec(CHANNELS, BUFFER_SIZE, (double) SAMPLE_RATE, -1.0, null, null, null)));
+    }
+
+    private void runConcurrently(ExecutorService clients, int connections, byte[] pcm) throws Exception {
+        List<Future<byte[]>> outputs = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            outputs.add(clients.submit(() -> stream(PCM16, pcm)));
+        }
+        for (Future<byte[]> output : outputs) {
+            assertEquals(pcm.length, output.get().length);
+        }
+    }
+
+    private byte[] stream(StreamHeader header, byte[] pcm) throws Exception {
+        return send(header.toBytes(), pcm);
+    }
+
+    private byte[] send(byte[] header, byte[] pcm) throws Exception {
+        try (SocketChannel channel = connect()) {
+            Thread writer = writer(channel, header, pcm);
+            ByteArrayOutputStream received = new ByteArrayOutputStream();
+            ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+            try {
+                while (channel.read(chunk.clear()) >= 0) {
+                    received.write(chunk.array(), 0, chunk.position());
+                }
+            } catch (IOException e) {
+                // Reset by a server that rejected the stream.
+            }
+            writer.join();
+            return received.toByteArray();
+        }
+    }
+
+    private SocketChannel connect() throws IOException {
+        return SocketChannel.open(new InetSocketAddress("127.0.0.1", this.server.getPort()));
+    }
+
+    private static Thread writer(SocketChannel channel, byte[] header, byte[] pcm) {
+        Thread writer = new Thread(() -> {
+            try {
+                channel.write(ByteBuffer.wrap(header));
+                ByteBuffer frames = ByteBuffer.wrap(pcm);
+                while (frames.hasRemaining()) {
+                    channel.write(frames);
+                }
+                channel.shutdownOutput();
+            } catch (IOException e) {
+                // The server closed a rejected stream.
+            }
+        }, "pcm-client-writer");
+        writer.start();
+        return writer;
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (this.server.getActiveConnections() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, this.server.getActiveConnections());
+    }
+
+    // What the server should send back: the rack run offline over blocks of the same size.
+    private byte[] expected(StreamHeader header, byte[] pcm) throws Exception {
+        return expected(header, pcm, preset());
+    }
+
+    private byte[] expected(StreamHeader header, byte[] pcm, Preset preset) throws Exception {
+        PcmCodec codec = new PcmCodec(header.getBitDepth(), header.getEncoding(), header.isBigEndian());
+        AudioProcessingRangler rack = preset.toRack();
+        int blockSamples = this.server.getBlockFrames() * CHANNELS;
+        ByteBuffer in = ByteBuffer.wrap(pcm);
+        ByteBuffer out = ByteBuffer.allocate(pcm.length);
+        double[] block = new double[blockSamples];
+        while (in.hasRemaining()) {
+            int samples = Math.min(blockSamples, in.remaining() / codec.getBytesPerSample());
+            codec.decode(in, block, 0, samples);
+            Arrays.fill(block, samples, blockSamples, 0.0);
+            codec.encode(rack.processData(block), 0, samples, out);
+        }
+        return out.array();
+    }
+
+    private static byte[] encode(StreamHeader header, double[] samples) {
+        PcmCodec codec = new PcmCodec(header.getBitDepth(), header.getEncoding(), header.isBigEndian());
+        ByteBuffer bytes = ByteBuffer.allocate(samples.length * codec.getBytesPerSample());
+        codec.encode(samples, 0, samples.length, bytes);
+        return bytes.array();
+    }
+
+    private static double[] noise(long seed, int length) {
+        Random random = new Random(seed);
+        double[] samples = new double[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = 0.5 * (random.nextDouble() * 2.0 - 1.0);
+        }
+        return samples;
+    }
+}
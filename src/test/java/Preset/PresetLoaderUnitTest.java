@@ -0,0 +1,140 @@
+package Preset;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import AudioProcessingRangler.AudioProcessingRangler;
+import AudioProcessingRangler.RackFilterInterface;
+import NativeFilter.Limiter;
+import StandardFilter.StandardFilter;
+import StandardFilter.StandardFilter.FilterType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PresetLoader.
+ * A "render" thread stands in for the audio thread where a test needs the swap to happen at a
+ * block boundary; other tests rely on the idle fallback.
+ */
+class PresetLoaderUnitTest {
+
+    private static final int CHANNELS = 2;
+    private static final int FRAMES = 256;
+    private static final double SAMPLE_RATE = 48000.0;
+
+    private PresetLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        loader = new PresetLoader(50);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loader.close();
+    }
+
+    @Test
+    @DisplayName("A preset should be swapped into a running rack, built off the audio thread")
+    void testLoadIntoRunningRack() throws Exception {
+        AudioProcessingRangler rack = new AudioProcessingRangler();
+        PassThroughFilter old = new PassThroughFilter();
+        rack.addFilter(old, 0);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Thread> loaderThread = new AtomicReference<>();
+        Thread render = new Thread(() -> {
+            while (running.get()) {
+                rack.processData(new double[FRAMES * CHANNELS]);
+                sleepQuietly(2);
+            }
+        }, "render");
+        render.start();
+        try {
+            Preset preset = new Preset("live", List.of(StandardFilterSpec.lowpass(FilterType.Butterworth, 4, SAMPLE_RATE, 2000.0),
+                    new LimiterSpec(CHANNELS, FRAMES * CHANNELS, SAMPLE_RATE, -1.0, null, null, null)));
+            assertSame(preset, loader.load(preset, rack, 512, CHANNELS)
+                    .whenComplete((loaded, failure) -> loaderThread.set(Thread.currentThread()))
+                    .get(5, TimeUnit.SECONDS));
+
+            assertEquals(2, rack.size());
+            assertInstanceOf(StandardFilter.class, rack.getFilter(0));
+            assertInstanceOf(Limiter.class, rack.getFilter(1));
+            assertFalse(rack.getFilters().contains(old));
+            assertNotEquals("render", loaderThread.get().getName());
+        } finally {
+            running.set(false);
+            render.join();
+        }
+    }
+
+    @Test
+    @DisplayName("A rack that is not being processed should still receive the preset")
+    void testLoadIntoIdleRack() throws Exception {
+        AudioProcessingRangler rack = new AudioProcessingRangler();
+        rack.addFilter(new PassThroughFilter(), 0);
+
+        Preset preset = new Preset("idle", List.of(new ChannelBalancerSpec(CHANNELS, FRAMES * CHANNELS, SAMPLE_RATE, 0.5)));
+        loader.load(preset, rack, 256, CHANNELS).get(5, TimeUnit.SECONDS);
+        assertEquals(1, rack.size());
+        assertEquals(0.5, ((NativeFilter.ChannelBalancer) rack.getFilter(0)).getPreference());
+    }
+
+    @Test
+    @DisplayName("A preset that cannot be built should leave the rack untouched")
+    void testFailedLoadKeepsRack() throws Exception {
+        AudioProcessingRangler rack = new AudioProcessingRangler();
+        PassThroughFilter current = new PassThroughFilter();
+        rack.addFilter(current, 0);
+
+        // Partition size must be a power of two, which only the filter itself checks.
+        Preset broken = new Preset("broken", List.of(new ConvolutionFilterSpec(CHANNELS, FRAMES * CHANNELS, 100, null,
+                new double[] {1.0}, null)));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> loader.load(broken, rack).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(InvalidPresetException.class, e.getCause());
+        assertEquals(List.of(current), rack.getFilters());
+    }
+
+    @Test
+    @DisplayName("A load replaced by a quicker second one should fail instead of reporting a preset that never played")
+    void testSupersededLoad() throws Exception {
+        AudioProcessingRangler rack = new AudioProcessingRangler();
+        Preset first = new Preset("first", List.of(StandardFilterSpec.lowpass(FilterType.Butterworth, 4, SAMPLE_RATE, 2000.0)));
+        Preset second = new Preset("second", List.of(new ChannelBalancerSpec(CHANNELS, FRAMES * CHANNELS, SAMPLE_RATE, 0.25)));
+
+        CompletableFuture<Preset> replaced = loader.load(first, rack);
+        CompletableFuture<Preset> loaded = loader.load(second, rack);
+
+        assertSame(second, loaded.get(5, TimeUnit.SECONDS));
+        assertThrows(CancellationException.class, () -> replaced.get(5, TimeUnit.SECONDS));
+        assertEquals(1, rack.size());
+        assertInstanceOf(NativeFilter.ChannelBalancer.class, rack.getFilter(0));
+    }
+
+    // === Helper Methods ===
+
+    private static final class PassThroughFilter implements RackFilterInterface {
+        @Override
+        public double[] process(double[] inputBuffer) {
+            return inputBuffer;
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package Preset;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import AudioProcessingRangler.AudioProcessingRangler;
+import NativeFilter.ChannelBalancer;
+import NativeFilter.Limiter;
+import NativeFilter.ParametricEqualizer;
+import StandardFilter.StandardFilter;
+import StandardFilter.StandardFilter.FilterType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the typed preset model and its JSON and binary codecs.
+ * Round trips are compared through their JSON form, which covers every field of every spec.
+ */
+class PresetUnitTest {
+
+    private static final int CHANNELS = 2;
+    private static final int BUFFER_SIZE = 1024;
+    private static final double SAMPLE_RATE = 48000.0;
+
+    @Test
+    @DisplayName("JSON and binary encodings should round-trip every filter type")
+    void testRoundTrip() throws Exception {
+        Preset preset = mixedPreset("mixed", 1);
+        String json = json(preset);
+
+        Preset fromJson = PresetCodec.fromJson(json.getBytes(StandardCharsets.UTF_8));
+        assertEquals(json, json(fromJson));
+
+        byte[] binary = PresetCodec.encode(preset);
+        assertTrue(PresetCodec.isBinary(binary));
+        assertFalse(PresetCodec.isBinary(json.getBytes(StandardCharsets.UTF_8)));
+        Preset fromBinary = PresetCodec.decode(binary);
+        assertEquals(json, json(fromBinary));
+        assertEquals(json, json(PresetCodec.read(binary)), "read() should detect the binary form.");
+        assertTrue(binary.length < json.length(), "Binary form should be smaller than JSON.");
+    }
+
+    @Test
+    @DisplayName("Decoding from a direct buffer should advance past exactly one preset")
+    void testDecodeDirectBuffer() throws Exception {
+        byte[] first = PresetCodec.encode(mixedPreset("first", 1));
+        byte[] second = PresetCodec.encode(mixedPreset("second", 2));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(first.length + second.length);
+        buffer.put(first).put(second).flip();
+
+        assertEquals("first", PresetCodec.decode(buffer).getName());
+        assertEquals(first.length, buffer.position());
+        assertEquals("second", PresetCodec.decode(buffer).getName());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    @DisplayName("Preset.of should describe a rack that toRack rebuilds")
+    void testRackRoundTrip() throws Exception {
+        AudioProcessingRangler rack = new AudioProcessingRangler();
+        StandardFilter lowpass = new StandardFilter(FilterType.Butterworth, 4, SAMPLE_RATE, Optional.empty());
+        lowpass.setLowpass(2000.0);
+        rack.addFilter(lowpass, 0);
+        rack.addFilter(new ChannelBalancer(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, 0.25), 1);
+        Limiter limiter = new Limiter(CHANNELS, BUFFER_SIZE, SAMPLE_RATE);
+        limiter.setThreshold(-3.0);
+        rack.addFilter(limiter, 2);
+
+        Preset preset = Preset.of("captured", rack);
+        AudioProcessingRangler rebuilt = PresetCodec.decode(PresetCodec.encode(preset)).toRack();
+
+        assertEquals(3, rebuilt.size());
+        assertInstanceOf(StandardFilter.class, rebuilt.getFilter(0));
+        assertEquals(StandardFilter.FilterMode.Lowpass, ((StandardFilter) rebuilt.getFilter(0)).getFilterMode());
+        assertEquals(0.25, ((ChannelBalancer) rebuilt.getFilter(1)).getPreference());
+        assertEquals(-3.0, ((Limiter) rebuilt.getFilter(2)).getThreshold());
+        assertEquals(json(preset), json(Preset.of("captured", rebuilt)));
+    }
+
+    @Test
+    @DisplayName("A rack built from a preset should process like one built by hand")
+    void testPresetRackProcessesLikeManualRack() throws Exception {
+        AudioProcessingRangler manual = new AudioProcessingRangler();
+        StandardFilter highpass = new StandardFilter(FilterType.Butterworth, 2, SAMPLE_RATE, Optional.empty());
+        highpass.setHighpass(120.0);
+        manual.addFilter(highpass, 0);
+        manual.addFilter(new ParametricEqualizer(CHANNELS, BUFFER_SIZE, SAMPLE_RATE,
+                List.of(new ParametricEqualizer.Band(ParametricEqualizer.BandType.Peaking, 1000.0, 1.0, 6.0))), 1);
+
+        Preset preset = PresetCodec.fromJson(("{\"name\": \"hand\", \"filters\": ["
+                + "{\"type\": \"StandardFilter\", \"design\": \"Butterworth\", \"order\": 2, \"sampleRate\": 48000, \"mode\": \"Highpass\", \"cutoff\": 120},"
+                + "{\"type\": \"ParametricEqualizer\", \"channels\": 2, \"bufferSize\": 1024, \"sampleRate\": 48000,"
+                + " \"bands\": [{\"type\": \"Peaking\", \"frequency\": 1000, \"q\": 1.0, \"gainDb\": 6}]}]}")
+                .getBytes(StandardCharsets.UTF_8));
+        AudioProcessingRangler loaded = preset.toRack();
+
+        for (int block = 0; block < 4; block++) {
+            double[] expected = noise(block);
+            double[] actual = expected.clone();
+            manual.processData(expected);
+            loaded.processData(actual);
+            assertArrayEquals(expected, actual, 1e-12, "Block " + block + " differs.");
+        }
+    }
+
+    @Test
+    @DisplayName("Stream parameters should come from the filters that fix them")
+    void testStreamParameters() throws Exception {
+        Preset preset = new Preset("stereo", List.of(
+                new StandardFilterSpec("Butterworth", 2, SAMPLE_RATE, null, "Highpass", 40.0, null, null, CHANNELS),
+                new LimiterSpec(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, -1.0, null, null, null)));
+        assertEquals(CHANNELS, preset.getChannels());
+        assertEquals(BUFFER_SIZE, preset.getBufferSize());
+        assertEquals(SAMPLE_RATE, preset.getSampleRate());
+
+        Preset open = new Preset("open", List.of(StandardFilterSpec.highpass(FilterType.Butterworth, 2, SAMPLE_RATE, 40.0)));
+        assertEquals(0, open.getBufferSize());
+        assertEquals(0, open.getChannels(), "A StandardFilter without channels should not pin the preset to mono.");
+        assertEquals(0, PresetCodec.decode(PresetCodec.encode(open)).getChannels());
+        assertFalse(new String(PresetCodec.toJson(open), StandardCharsets.UTF_8).contains("channels"));
+
+        Preset withLimiter = new Preset("with limiter", List.of(StandardFilterSpec.highpass(FilterType.Butterworth, 2, SAMPLE_RATE, 40.0),
+                new LimiterSpec(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, -1.0, null, null, null)));
+        assertEquals(CHANNELS, withLimiter.getChannels());
+
+        Preset mismatched = new Preset("mismatched", List.of(
+                new ChannelBalancerSpec(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, 0.0),
+                new LimiterSpec(CHANNELS, BUFFER_SIZE, 44100.0, -1.0, null, null, null)));
+        InvalidPresetException e = assertThrows(InvalidPresetException.class, mismatched::getSampleRate);
+        assertTrue(e.getMessage().contains("44100"), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("Invalid specs should be rejected with the offending field")
+    void testValidation() {
+        InvalidPresetException missing = assertThrows(InvalidPresetException.class, () -> PresetCodec.filterFromJson(
+                "{\"type\": \"StandardFilter\", \"design\": \"Butterworth\", \"order\": 2, \"sampleRate\": 48000, \"mode\": \"Lowpass\"}"));
+        assertTrue(missing.getMessage().contains("cutoff"), missing.getMessage());
+
+        InvalidPresetException design = assertThrows(InvalidPresetException.class, () -> PresetCodec.filterFromJson(
+                "{\"type\": \"StandardFilter\", \"design\": \"Elliptic\", \"order\": 2, \"sampleRate\": 48000, \"mode\": \"Lowpass\", \"cutoff\": 1}"));
+        assertTrue(design.getMessage().contains("Elliptic"), design.getMessage());
+
+        assertThrows(InvalidPresetException.class, () -> PresetCodec.filterFromJson("{\"type\": \"Flanger\"}"));
+        assertThrows(InvalidPresetException.class, () -> PresetCodec.filterFromJson("{not json"));
+        assertThrows(InvalidPresetException.class, () -> PresetCodec.filterFromJson(" "));
+        assertThrows(InvalidPresetException.class, () -> new ChannelBalancerSpec(CHANNELS, -1, SAMPLE_RATE, null));
+        assertThrows(InvalidPresetException.class, () -> new LimiterSpec(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, Double.NaN, null, null, null));
+        assertThrows(InvalidPresetException.class, () -> new Preset(" ", List.of()));
+        assertThrows(InvalidPresetException.class, () -> FilterSpec.of(new Object()));
+    }
+
+    @Test
+    @DisplayName("Unsupported versions, unknown tags and truncated data should fail to decode")
+    void testCorruptBinary() throws Exception {
+        byte[] binary = PresetCodec.encode(mixedPreset("corrupt", 1));
+
+        byte[] newer = binary.clone();
+        ByteBuffer.wrap(newer).putShort(4, (short) (PresetCodec.VERSION + 1));
+        InvalidPresetException version = assertThrows(InvalidPresetException.class, () -> PresetCodec.decode(newer));
+        assertTrue(version.getMessage().contains("version"), version.getMessage());
+
+        byte[] unknownTag = binary.clone();
+        int firstTag = 8 + 2 + "corrupt".length();
+        unknownTag[firstTag] = 99;
+        assertThrows(InvalidPresetException.class, () -> PresetCodec.decode(unknownTag));
+
+        for (int length : new int[] {3, 9, firstTag + 3, binary.length / 2, binary.length - 1}) {
+            assertThrows(InvalidPresetException.class, () -> PresetCodec.decode(Arrays.copyOf(binary, length)),
+                    "Truncated to " + length + " bytes.");
+        }
+
+        assertThrows(InvalidPresetException.class, () -> PresetCodec.fromJson(
+                "{\"version\": 99, \"name\": \"future\", \"filters\": []}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    @DisplayName("Version 1 StandardFilter records should decode without a channel count")
+    void testReadsVersion1() throws Exception {
+        Preset preset = new Preset("old", List.of(StandardFilterSpec.lowpass(FilterType.Butterworth, 4, SAMPLE_RATE, 1000.0)));
+        byte[] current = PresetCodec.encode(preset);
+
+        // Rewrite as version 1: same record without the trailing channel count.
+        ByteBuffer v1 = ByteBuffer.allocate(current.length - 2);
+        v1.put(current, 0, current.length - 2);
+        v1.putShort(4, (short) 1);
+        int lengthAt = 8 + 2 + "old".length() + 1;
+        v1.putInt(lengthAt, v1.getInt(lengthAt) - 2);
+
+        StandardFilterSpec spec = (StandardFilterSpec) PresetCodec.decode(v1.array()).getFilters().get(0);
+        assertEquals(0, spec.getChannels());
+        assertEquals(1000.0, spec.getCutoff());
+        assertEquals(1, ((StandardFilter) spec.toFilter()).getChannels(), "Mono until a rack sets its channels.");
+    }
+
+    @Test
+    @DisplayName("Benchmark: 100-filter preset load from JSON vs binary")
+    void testBenchmarkJsonVsBinary() throws Exception {
+        Preset preset = largePreset();
+        byte[] json = PresetCodec.toJson(preset);
+        byte[] binary = PresetCodec.encode(preset);
+
+        int iterations = 2000;
+        for (int i = 0; i < iterations; i++) {
+            PresetCodec.fromJson(json);
+            PresetCodec.decode(binary);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            PresetCodec.fromJson(json);
+        }
+        double jsonMicros = (System.nanoTime() - start) / 1e3 / iterations;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            PresetCodec.decode(binary);
+        }
+        double binaryMicros = (System.nanoTime() - start) / 1e3 / iterations;
+
+        int racks = 200;
+        for (int i = 0; i < racks; i++) {
+            preset.toRack();
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < racks; i++) {
+            preset.toRack();
+        }
+        double rackMicros = (System.nanoTime() - start) / 1e3 / racks;
+
+        System.out.printf("Preset load (%d filters): JSON %,d bytes %.1f us, binary %,d bytes %.1f us (%.1fx), rack build %.1f us%n",
+                preset.size(), json.length, jsonMicros, binary.length, binaryMicros, jsonMicros / binaryMicros, rackMicros);
+        assertTrue(binaryMicros < jsonMicros, "Binary decode should be faster than JSON.");
+    }
+
+    // === Helper Methods ===
+
+    private static String json(Preset preset) throws InvalidPresetException {
+        return new String(PresetCodec.toJson(preset), StandardCharsets.UTF_8);
+    }
+
+    private static Preset mixedPreset(String name, int seed) throws InvalidPresetException {
+        List<FilterSpec> filters = new ArrayList<>();
+        filters.add(StandardFilterSpec.highpass(FilterType.Butterworth, 2, SAMPLE_RATE, 40.0 * seed));
+        filters.add(new StandardFilterSpec("ChebyshevI", 4, SAMPLE_RATE, 0.5, "Bandpass", null, 1000.0, 200.0, 2));
+        filters.add(new ParametricEqualizerSpec(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, List.of(
+                new ParametricEqualizerSpec.BandSpec("Peaking", 1000.0, 1.4, -3.0),
+                new ParametricEqualizerSpec.BandSpec("HighShelf", 8000.0, 0.7, 2.0 * seed))));
+        filters.add(new GraphicEqualizerSpec(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, new double[] {1.0, -2.0, 0.5}, null));
+        filters.add(new ChannelBalancerSpec(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, -0.5));
+        filters.add(new LimiterSpec(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, -1.0, null, 50.0, null));
+        filters.add(new ConvolutionFilterSpec(CHANNELS, BUFFER_SIZE, 256, "Uniform", new double[] {1.0, 0.5, 0.25}, null));
+        filters.add(new ConvolutionFilterSpec(CHANNELS, BUFFER_SIZE, 256, null, null,
+                new double[][] {{1.0}, {0.0, 1.0}}));
+        return new Preset(name, filters);
+    }
+
+    // 100 filters in the proportions of a typical mastering chain.
+    private static Preset largePreset() throws InvalidPresetException {
+        List<FilterSpec> filters = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            switch (i % 4) {
+                case 0:
+                    filters.add(StandardFilterSpec.lowpass(FilterType.Butterworth, 4, SAMPLE_RATE, 1000.0 + i * 100));
+                    break;
+                case 1:
+                    filters.add(new ParametricEqualizerSpec(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, List.of(
+                            new ParametricEqualizerSpec.BandSpec("LowShelf", 100.0, 0.7, 1.0),
+                            new ParametricEqualizerSpec.BandSpec("Peaking", 100.0 + i * 50, 1.0, -2.0),
+                            new ParametricEqualizerSpec.BandSpec("HighShelf", 10000.0, 0.7, 1.5))));
+                    break;
+                case 2:
+                    filters.add(new ChannelBalancerSpec(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, (i % 10) / 10.0));
+                    break;
+                default:
+                    filters.add(new LimiterSpec(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, -1.0, 1.0, 50.0, 2.0));
+                    break;
+            }
+        }
+        return new Preset("mastering", filters);
+    }
+
+    private static double[] noise(int seed) {
+        java.util.Random random = new java.util.Random(seed);
+        double[] buffer = new double[BUFFER_SIZE];
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = random.nextDouble() * 2.0 - 1.0;
+        }
+        return buffer;
+    }
+}
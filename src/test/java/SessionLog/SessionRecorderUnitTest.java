@@ -0,0 +1,314 @@
+package SessionLog;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import AudioProcessingRangler.AudioProcessingRangler;
+import AudioProcessingRangler.RackFilterInterface;
+import NativeFilter.Limiter;
+import Preset.InvalidPresetException;
+import Preset.LimiterSpec;
+import Preset.ParametricEqualizerSpec;
+import Preset.StandardFilterSpec;
+import StandardFilter.StandardFilter.FilterType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SessionRecorder and SessionReplayer.
+ * Sessions are driven by hand, block by block, and compared with their replay through output
+ * hashes computed the same way the replayer computes them.
+ */
+class SessionRecorderUnitTest {
+
+    private static final int CHANNELS = 2;
+    private static final int BUFFER_SIZE = 960;
+    private static final double SAMPLE_RATE = 48000.0;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Replay should reproduce the live output of a session with mutations")
+    void testReplayMatchesLive() throws Exception {
+        Path log = dir.resolve("session.ecrl");
+        long liveHash = OFFSET_BASIS;
+        try (SessionRecorder rack = new SessionRecorder(log)) {
+            rack.setChannels(CHANNELS);
+            rack.addFilter(highpass(40.0), 0);
+            rack.addFilter(limiter(-1.0), 1);
+            for (int block = 0; block < 120; block++) {
+                if (block == 20) {
+                    rack.addFilter(peq(3.0), 1);
+                } else if (block == 40) {
+                    rack.replaceFilter(0, highpass(80.0));
+                } else if (block == 60) {
+                    rack.swapRack(List.of(highpass(30.0), peq(-2.0), limiter(-3.0)), 3000, CHANNELS);
+                } else if (block == 90) {
+                    rack.removeFilter(1);
+                    rack.setSilenceThreshold(-90.0);
+                }
+                liveHash = hash(liveHash, rack.processData(input(block)));
+            }
+            assertTrue(rack.isRecording());
+        }
+
+        ReplayReport report = new SessionReplayer(log).replay(SessionReplayer.Pacing.AsFastAsPossible);
+
+        assertEquals(120, report.getBlocks());
+        assertEquals(120L * BUFFER_SIZE, report.getSamples());
+        // Settings on creation, setChannels, three adds, replace, swap, remove, setSilenceThreshold.
+        assertEquals(9, report.getMutations());
+        assertEquals(liveHash, report.getOutputHash());
+        assertFalse(report.isTruncated());
+        assertTrue(report.getLiveTotalNanos() > 0);
+    }
+
+    @Test
+    @DisplayName("Mutations racing the audio thread should land between the same blocks on replay")
+    void testConcurrentMutations() throws Exception {
+        Path log = dir.resolve("racing.ecrl");
+        long liveHash = OFFSET_BASIS;
+        try (SessionRecorder rack = new SessionRecorder(log)) {
+            rack.addFilter(highpass(40.0), 0);
+            rack.addFilter(limiter(-1.0), 1);
+            AtomicBoolean running = new AtomicBoolean(true);
+            Thread control = new Thread(() -> {
+                Random random = new Random(3);
+                try {
+                    while (running.get()) {
+                        rack.replaceFilter(random.nextInt(2), (random.nextBoolean())
+                                ? highpass(20.0 + random.nextInt(200)) : limiter(-random.nextInt(12)));
+                        Thread.yield();
+                    }
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            });
+            control.start();
+            for (int block = 0; block < 1500; block++) {
+                liveHash = hash(liveHash, rack.processData(input(block)));
+            }
+            running.set(false);
+            control.join();
+            assertTrue(rack.isRecording());
+        }
+
+        ReplayReport report = new SessionReplayer(log).replay(SessionReplayer.Pacing.AsFastAsPossible);
+        assertTrue(report.getMutations() > 3, "The control thread should have interleaved with the blocks.");
+        assertEquals(liveHash, report.getOutputHash());
+    }
+
+    @Test
+    @DisplayName("In-place parameter changes should be replayed once recorded")
+    void testRecordParameters() throws Exception {
+        Path log = dir.resolve("parameters.ecrl");
+        try (SessionRecorder rack = new SessionRecorder(log)) {
+            Limiter limiter = (Limiter) limiter(-1.0);
+            rack.addFilter(limiter, 0);
+            for (int block = 0; block < 10; block++) {
+                rack.processData(input(block));
+            }
+            limiter.setThreshold(-12.0);
+            rack.recordParameters(0);
+            for (int block = 10; block < 20; block++) {
+                rack.processData(input(block));
+            }
+        }
+
+        ReplayReport first = new SessionReplayer(log).replay(SessionReplayer.Pacing.AsFastAsPossible);
+        ReplayReport second = new SessionReplayer(log).replay(SessionReplayer.Pacing.AsFastAsPossible);
+        assertEquals(3, first.getMutations());
+        assertEquals(first.getOutputHash(), second.getOutputHash(), "Replays of one log should be identical.");
+    }
+
+    @Test
+    @DisplayName("Blocks should be stored as compactly as their samples allow")
+    void testCompactSamples() throws Exception {
+        Path log = dir.resolve("compact.ecrl");
+        double[] pcm16 = input(0);
+        double[] silence = new double[BUFFER_SIZE];
+        double[] precise = input(1);
+        precise[7] = 0.1;
+        try (SessionRecorder rack = new SessionRecorder(log)) {
+            rack.processData(pcm16);
+            rack.processData(silence);
+            rack.processData(precise);
+        }
+
+        long records = SessionLog.HEADER_BYTES + SessionLog.RECORD_HEADER_BYTES * 4L + 13;
+        long payloads = 3 * 13L + 4L * BUFFER_SIZE + 8L * BUFFER_SIZE;
+        assertEquals(records + payloads, Files.size(log));
+        assertEquals(3, new SessionReplayer(log).replay(SessionReplayer.Pacing.AsFastAsPossible).getBlocks());
+    }
+
+    @Test
+    @DisplayName("A log cut short should replay up to its last whole record")
+    void testTruncatedLog() throws Exception {
+        Path log = dir.resolve("crashed.ecrl");
+        try (SessionRecorder rack = new SessionRecorder(log)) {
+            rack.addFilter(highpass(40.0), 0);
+            for (int block = 0; block < 8; block++) {
+                rack.processData(input(block));
+            }
+        }
+        try (FileChannel file = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            file.truncate(file.size() - 100);
+        }
+
+        ReplayReport report = new SessionReplayer(log).replay(SessionReplayer.Pacing.AsFastAsPossible);
+        assertEquals(7, report.getBlocks());
+        assertTrue(report.isTruncated());
+    }
+
+    @Test
+    @DisplayName("Recording should stop cleanly on a filter it cannot describe or a full ring")
+    void testStopsRecording() throws Exception {
+        Path opaque = dir.resolve("opaque.ecrl");
+        try (SessionRecorder rack = new SessionRecorder(opaque)) {
+            rack.addFilter(highpass(40.0), 0);
+            rack.processData(input(0));
+            rack.addFilter((RackFilterInterface) buffer -> buffer, 1);
+            assertFalse(rack.isRecording());
+            rack.processData(input(1));
+            assertEquals(2, rack.size());
+        }
+        assertEquals(1, new SessionReplayer(opaque).replay(SessionReplayer.Pacing.AsFastAsPossible).getBlocks());
+
+        Path overrun = dir.resolve("overrun.ecrl");
+        double[] precise = input(0);
+        precise[0] = 0.1;
+        try (SessionRecorder rack = new SessionRecorder(overrun, 4096)) {
+            rack.processData(precise);
+            assertFalse(rack.isRecording(), "A block larger than the ring cannot be recorded.");
+        }
+        assertEquals(0, new SessionReplayer(overrun).replay(SessionReplayer.Pacing.AsFastAsPossible).getBlocks());
+    }
+
+    @Test
+    @DisplayName("Closing a recorder twice should leave the log as the first close wrote it")
+    void testCloseTwice() throws Exception {
+        Path log = dir.resolve("twice.ecrl");
+        SessionRecorder rack = new SessionRecorder(log);
+        rack.addFilter(highpass(40.0), 0);
+        rack.processData(input(0));
+        rack.close();
+        long size = Files.size(log);
+
+        rack.close();
+        assertFalse(rack.isRecording());
+        assertEquals(size, Files.size(log));
+        assertEquals(1, new SessionReplayer(log).replay(SessionReplayer.Pacing.AsFastAsPossible).getBlocks());
+    }
+
+    @Test
+    @DisplayName("Paced replay should follow the recorded timing")
+    void testRecordedPacing() throws Exception {
+        Path log = dir.resolve("paced.ecrl");
+        try (SessionRecorder rack = new SessionRecorder(log)) {
+            rack.addFilter(highpass(40.0), 0);
+            for (int block = 0; block < 20; block++) {
+                rack.processData(input(block));
+                Thread.sleep(10);
+            }
+        }
+
+        ReplayReport paced = new SessionReplayer(log).replay(SessionReplayer.Pacing.Recorded);
+        ReplayReport fast = new SessionReplayer(log).replay(SessionReplayer.Pacing.AsFastAsPossible);
+        assertTrue(paced.getWallNanos() >= 190_000_000L, "Paced replay took " + paced.getWallNanos() / 1e6 + " ms");
+        assertTrue(fast.getWallNanos() < paced.getWallNanos());
+        assertEquals(paced.getOutputHash(), fast.getOutputHash());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: recording overhead per block")
+    void benchmarkRecordingOverhead() throws Exception {
+        int blocks = 20000;
+        double[][] inputs = new double[16][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = input(i);
+        }
+        AudioProcessingRangler plain = new AudioProcessingRangler();
+        plain.addFilter(highpass(40.0), 0);
+        plain.addFilter(peq(3.0), 1);
+        plain.addFilter(limiter(-1.0), 2);
+        long plainNanos = run(plain, inputs, blocks);
+        plainNanos = Math.min(plainNanos, run(plain, inputs, blocks));
+
+        Path log = dir.resolve("benchmark.ecrl");
+        long recordedNanos;
+        try (SessionRecorder recorder = new SessionRecorder(log)) {
+            recorder.addFilter(highpass(40.0), 0);
+            recorder.addFilter(peq(3.0), 1);
+            recorder.addFilter(limiter(-1.0), 2);
+            run(recorder, inputs, blocks / 4);
+            recordedNanos = run(recorder, inputs, blocks);
+        }
+        ReplayReport replay = new SessionReplayer(log).replay(SessionReplayer.Pacing.AsFastAsPossible);
+
+        System.out.printf("Session recording (HPF + PEQ + limiter, %d-sample blocks): %.2f us/block plain, "
+                + "%.2f us/block recorded (%+.2f us), log %.1f MB; replay %s%n",
+                BUFFER_SIZE, plainNanos / 1e3 / blocks, recordedNanos / 1e3 / blocks,
+                (recordedNanos - plainNanos) / 1e3 / blocks, Files.size(log) / 1e6, replay);
+        assertEquals(blocks / 4 + blocks, replay.getBlocks());
+    }
+
+    // === Helper Methods ===
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    // The replayer's output hash, applied to live output.
+    private static long hash(long hash, double[] samples) {
+        for (double sample : samples) {
+            hash = (hash ^ Double.doubleToLongBits(sample)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long run(AudioProcessingRangler rack, double[][] inputs, int blocks) {
+        double[] block = new double[BUFFER_SIZE];
+        long start = System.nanoTime();
+        for (int i = 0; i < blocks; i++) {
+            System.arraycopy(inputs[i % inputs.length], 0, block, 0, BUFFER_SIZE);
+            rack.processData(block);
+        }
+        return System.nanoTime() - start;
+    }
+
+    // 16-bit noise, so it is stored as float32, with a silent stretch every tenth block.
+    private static double[] input(int block) {
+        double[] samples = new double[BUFFER_SIZE];
+        if (block % 10 == 9) {
+            return samples;
+        }
+        Random random = new Random(block);
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (random.nextInt(65536) - 32768) / 32768.0 * 0.5;
+        }
+        return samples;
+    }
+
+    private static Object highpass(double cutoff) throws InvalidPresetException {
+        return new StandardFilterSpec(FilterType.Butterworth.name(), 2, SAMPLE_RATE, null, "Highpass", cutoff, null, null, CHANNELS).toFilter();
+    }
+
+    private static Object peq(double gainDb) throws InvalidPresetException {
+        return new ParametricEqualizerSpec(CHANNELS, BUFFER_SIZE, SAMPLE_RATE,
+                List.of(new ParametricEqualizerSpec.BandSpec("Peaking", 1000.0, 1.4, gainDb))).toFilter();
+    }
+
+    private static Object limiter(double thresholdDb) throws InvalidPresetException {
+        return new LimiterSpec(CHANNELS, BUFFER_SIZE, SAMPLE_RATE, thresholdDb, null, null, null).toFilter();
+    }
+}
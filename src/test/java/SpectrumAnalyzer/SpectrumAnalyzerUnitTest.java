@@ -0,0 +1,173 @@
+package SpectrumAnalyzer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SpectrumAnalyzer.
+ * Most tests drive the analysis step directly through drain() so results are deterministic;
+ * one test runs the background thread end to end.
+ */
+class SpectrumAnalyzerUnitTest {
+
+    private static final float SAMPLE_RATE = 48000f;
+    private static final double TOLERANCE = 1e-6;
+
+    @Test
+    @DisplayName("A bin-centred sine should read its amplitude in that bin")
+    void testToneAmplitude() throws InvalidAnalyzerParametersException {
+        int fftSize = 1024;
+        int bin = 64;
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(SAMPLE_RATE, 1, fftSize, fftSize, SpectrumAnalyzer.Window.Hann);
+
+        double frequency = analyzer.getBinFrequency(bin);
+        analyzer.accept(sine(fftSize, 1, frequency, 0.5));
+        analyzer.drain();
+
+        double[] spectrum = new double[analyzer.getBinCount()];
+        assertEquals(1, analyzer.getSpectrum(spectrum));
+        assertEquals(0.5, spectrum[bin], TOLERANCE);
+        assertEquals(0.0, spectrum[bin + 4], TOLERANCE, "Hann leakage should not reach four bins away.");
+    }
+
+    @Test
+    @DisplayName("Frames should be published every hop once the first frame is full")
+    void testHopScheduling() throws InvalidAnalyzerParametersException {
+        int fftSize = 256;
+        int hop = 64;
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(SAMPLE_RATE, 1, fftSize, hop, SpectrumAnalyzer.Window.Hann);
+        double[] spectrum = new double[analyzer.getBinCount()];
+
+        analyzer.accept(new double[fftSize - 1]);
+        analyzer.drain();
+        assertEquals(0, analyzer.getSpectrum(spectrum), "No frame before fftSize samples.");
+
+        analyzer.accept(new double[1 + hop * 3]);
+        analyzer.drain();
+        assertEquals(4, analyzer.getSpectrum(spectrum));
+    }
+
+    @Test
+    @DisplayName("Interleaved channels should be mixed to mono")
+    void testStereoDownmix() throws InvalidAnalyzerParametersException {
+        int fftSize = 512;
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(SAMPLE_RATE, 2, fftSize, fftSize, SpectrumAnalyzer.Window.Rectangular);
+
+        // Left and right in antiphase cancel out; a DC offset on both remains.
+        double[] block = new double[fftSize * 2];
+        for (int i = 0; i < fftSize; i++) {
+            double s = Math.sin(2 * Math.PI * 1000.0 * i / SAMPLE_RATE);
+            block[2 * i] = 0.25 + s;
+            block[2 * i + 1] = 0.25 - s;
+        }
+        analyzer.accept(block);
+        analyzer.drain();
+
+        double[] spectrum = new double[analyzer.getBinCount()];
+        analyzer.getSpectrum(spectrum);
+        assertEquals(0.25, spectrum[0], TOLERANCE);
+        for (int k = 1; k < spectrum.length; k++) {
+            assertEquals(0.0, spectrum[k], TOLERANCE);
+        }
+    }
+
+    @Test
+    @DisplayName("A full ring should drop samples instead of blocking the producer")
+    void testOverrunDropsSamples() throws InvalidAnalyzerParametersException {
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(SAMPLE_RATE, 1, 1024, 512, SpectrumAnalyzer.Window.Hann);
+        int capacity = analyzer.getRingCapacity();
+
+        analyzer.accept(new double[capacity]);
+        assertEquals(0, analyzer.getDroppedSamples());
+
+        analyzer.accept(new double[100]);
+        assertEquals(100, analyzer.getDroppedSamples());
+    }
+
+    @Test
+    @DisplayName("Background thread should publish spectra while running")
+    void testBackgroundThread() throws Exception {
+        int fftSize = 256;
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(SAMPLE_RATE, 1, fftSize, fftSize / 2, SpectrumAnalyzer.Window.BlackmanHarris);
+        double[] spectrum = new double[analyzer.getBinCount()];
+
+        analyzer.start();
+        try {
+            long deadline = System.nanoTime() + 2_000_000_000L;
+            while (analyzer.getSpectrum(spectrum) < 3 && System.nanoTime() < deadline) {
+                analyzer.accept(sine(fftSize / 4, 1, 3000.0, 1.0));
+                Thread.sleep(2);
+            }
+            assertTrue(analyzer.getSpectrum(spectrum) >= 3, "Analyzer thread did not publish in time.");
+        } finally {
+            analyzer.stop();
+        }
+        assertFalse(analyzer.isRunning());
+    }
+
+    @Test
+    @DisplayName("Readers should never observe a partially written snapshot")
+    void testSnapshotConsistency() throws Exception {
+        int bins = 513;
+        SpectrumSnapshot snapshot = new SpectrumSnapshot(bins);
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            double[] copy = new double[bins];
+            while (!done.get()) {
+                long frame = snapshot.read(copy);
+                for (double value : copy) {
+                    if (value != frame) {
+                        failure.set("Torn read: frame " + frame + " contained " + value);
+                        return;
+                    }
+                }
+            }
+        });
+        reader.start();
+
+        double[] magnitudes = new double[bins];
+        for (long frame = 1; frame <= 200_000; frame++) {
+            Arrays.fill(magnitudes, frame);
+            snapshot.publish(magnitudes, frame);
+        }
+        done.set(true);
+        reader.join();
+
+        assertNull(failure.get(), failure.get());
+    }
+
+    @Test
+    @DisplayName("Invalid parameters should be rejected")
+    void testValidation() throws InvalidAnalyzerParametersException {
+        assertThrows(InvalidAnalyzerParametersException.class, () -> new SpectrumAnalyzer(0f, 1, 1024, 256, null));
+        assertThrows(InvalidAnalyzerParametersException.class, () -> new SpectrumAnalyzer(SAMPLE_RATE, 0, 1024, 256, null));
+        assertThrows(InvalidAnalyzerParametersException.class, () -> new SpectrumAnalyzer(SAMPLE_RATE, 1, 1000, 256, null));
+        assertThrows(InvalidAnalyzerParametersException.class, () -> new SpectrumAnalyzer(SAMPLE_RATE, 1, 16, 8, null));
+        assertThrows(InvalidAnalyzerParametersException.class, () -> new SpectrumAnalyzer(SAMPLE_RATE, 1, 1024, 2048, null));
+
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(SAMPLE_RATE, 1, 1024, 256, null);
+        assertEquals(SpectrumAnalyzer.Window.Hann, analyzer.getWindow());
+        assertThrows(IllegalArgumentException.class, () -> analyzer.getSpectrum(new double[10]));
+    }
+
+    // === Helper Methods ===
+
+    private static double[] sine(int frames, int channels, double frequency, double amplitude) {
+        double[] block = new double[frames * channels];
+        for (int i = 0; i < frames; i++) {
+            double value = amplitude * Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE);
+            for (int ch = 0; ch < channels; ch++) {
+                block[i * channels + ch] = value;
+            }
+        }
+        return block;
+    }
+}
@@ -0,0 +1,235 @@
+package StandardFilter;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import StandardFilter.StandardFilter.FilterMode;
+import StandardFilter.StandardFilter.FilterType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DesignCache.
+ * Each test gives StandardFilter a private cache, so counts are not disturbed by other tests.
+ */
+class DesignCacheUnitTest {
+
+    private static final double SAMPLE_RATE = 48000.0;
+
+    private DesignCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new DesignCache(64);
+        StandardFilter.designs = cache;
+    }
+
+    @AfterEach
+    void tearDown() {
+        StandardFilter.designs = DesignCache.shared();
+    }
+
+    @Test
+    @DisplayName("Filters with the same response should share one coefficient set")
+    void testSharedDesign() throws Exception {
+        StandardFilter first = lowpass(FilterType.Butterworth, 2000.0);
+        StandardFilter second = lowpass(FilterType.Butterworth, 2000.0);
+        StandardFilter other = lowpass(FilterType.Butterworth, 2500.0);
+
+        assertSame(first.getSections(), second.getSections());
+        assertNotSame(first.getSections(), other.getSections());
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+
+        // Ripple is not part of a Butterworth design, so it must not split the key.
+        StandardFilter rippled = new StandardFilter(FilterType.Butterworth, 4, SAMPLE_RATE, Optional.of(3.0));
+        rippled.setLowpass(2000.0);
+        assertSame(first.getSections(), rippled.getSections());
+
+        // State stays per filter: processing one must not move the other.
+        first.process(impulse(16));
+        double[] fresh = lowpass(FilterType.Butterworth, 2000.0).process(impulse(16));
+        assertArrayEquals(fresh, second.process(impulse(16)));
+    }
+
+    @Test
+    @DisplayName("A cached design should still expose a designed iirj cascade")
+    void testLazyCascade() throws Exception {
+        lowpass(FilterType.ChebyshevI, 1000.0);
+        StandardFilter cached = lowpass(FilterType.ChebyshevI, 1000.0);
+        assertEquals(1, cache.hits());
+
+        double[] signal = impulse(256);
+        double[] expected = new double[signal.length];
+        for (int i = 0; i < signal.length; i++) {
+            expected[i] = cached.getSettings().filter(signal[i]);
+        }
+        assertArrayEquals(expected, cached.process(signal), 1e-9);
+    }
+
+    @Test
+    @DisplayName("The least recently used design should be evicted first")
+    void testLruEviction() {
+        DesignCache small = new DesignCache(2);
+        AtomicInteger designs = new AtomicInteger();
+        DesignCache.Key a = key(100.0), b = key(200.0), c = key(300.0);
+
+        small.get(a, () -> design(designs));
+        small.get(b, () -> design(designs));
+        small.get(a, () -> design(designs));
+        small.get(c, () -> design(designs));
+        assertEquals(2, small.size());
+        assertEquals(1, small.evictions());
+
+        small.get(a, () -> design(designs));
+        assertEquals(3, designs.get(), "Recently used design should have survived.");
+        small.get(b, () -> design(designs));
+        assertEquals(4, designs.get(), "Least recently used design should have been evicted.");
+    }
+
+    @Test
+    @DisplayName("Concurrent requests for one design should run it once")
+    void testConcurrentDeduplication() throws Exception {
+        int threads = 8;
+        AtomicInteger designs = new AtomicInteger();
+        CountDownLatch waiting = new CountDownLatch(threads - 1);
+        CountDownLatch start = new CountDownLatch(1);
+        DesignCache.Key key = key(1000.0);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<SosCoefficients>> results = new ArrayList<>();
+            results.add(pool.submit(() -> cache.get(key, () -> {
+                start.countDown();
+                // Hold the design until every other thread has asked for it.
+                awaitQuietly(waiting);
+                return design(designs);
+            })));
+            assertTrue(start.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < threads; i++) {
+                results.add(pool.submit(() -> {
+                    waiting.countDown();
+                    return cache.get(key, () -> design(designs));
+                }));
+            }
+
+            SosCoefficients first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<SosCoefficients> result : results) {
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, designs.get());
+            assertEquals(1, cache.misses());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("A failed design should not be cached")
+    void testFailedDesignNotCached() {
+        DesignCache.Key key = key(500.0);
+        assertThrows(IllegalStateException.class, () -> cache.get(key, () -> {
+            throw new IllegalStateException("design failed");
+        }));
+        assertEquals(0, cache.size());
+        AtomicInteger designs = new AtomicInteger();
+        assertNotNull(cache.get(key, () -> design(designs)));
+        assertEquals(1, designs.get());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: session spin-up with and without the design cache")
+    void benchmarkSessionSpinUp() throws Exception {
+        int sessions = 500;
+
+        StandardFilter.designs = new DesignCache(0);
+        spinUp(sessions);
+        long start = System.nanoTime();
+        spinUp(sessions);
+        double uncachedMicros = (System.nanoTime() - start) / 1e3 / sessions;
+
+        StandardFilter.designs = cache;
+        spinUp(sessions);
+        start = System.nanoTime();
+        spinUp(sessions);
+        double cachedMicros = (System.nanoTime() - start) / 1e3 / sessions;
+
+        System.out.printf("Session spin-up (8 StandardFilters, stereo): %.1f us uncached vs %.1f us cached (%.1fx), %d designs cached%n",
+                uncachedMicros, cachedMicros, uncachedMicros / cachedMicros, cache.size());
+    }
+
+    // === Helper Methods ===
+
+    private static StandardFilter lowpass(FilterType type, double cutoff) throws InvalidFilterException {
+        StandardFilter filter = new StandardFilter(type, 4, SAMPLE_RATE, Optional.of(1.0));
+        filter.setLowpass(cutoff);
+        return filter;
+    }
+
+    // A typical per-session chain: rumble and air filters, a de-esser notch and band splits.
+    private static List<StandardFilter> spinUp(int sessions) throws InvalidFilterException {
+        List<StandardFilter> last = null;
+        for (int session = 0; session < sessions; session++) {
+            List<StandardFilter> chain = new ArrayList<>();
+            StandardFilter highpass = new StandardFilter(FilterType.Butterworth, 4, SAMPLE_RATE, 2, Optional.empty());
+            highpass.setHighpass(80.0);
+            chain.add(highpass);
+            StandardFilter lowpass = new StandardFilter(FilterType.Butterworth, 8, SAMPLE_RATE, 2, Optional.empty());
+            lowpass.setLowpass(16000.0);
+            chain.add(lowpass);
+            StandardFilter hum = new StandardFilter(FilterType.ChebyshevII, 4, SAMPLE_RATE, 2, Optional.of(40.0));
+            hum.setBandstop(50.0, 10.0);
+            chain.add(hum);
+            StandardFilter deEsser = new StandardFilter(FilterType.ChebyshevI, 4, SAMPLE_RATE, 2, Optional.of(0.5));
+            deEsser.setBandstop(6500.0, 2000.0);
+            chain.add(deEsser);
+            for (double split : new double[] {250.0, 2000.0}) {
+                StandardFilter low = new StandardFilter(FilterType.Butterworth, 4, SAMPLE_RATE, 2, Optional.empty());
+                low.setLowpass(split);
+                chain.add(low);
+                StandardFilter high = new StandardFilter(FilterType.Butterworth, 4, SAMPLE_RATE, 2, Optional.empty());
+                high.setHighpass(split);
+                chain.add(high);
+            }
+            last = chain;
+        }
+        return last;
+    }
+
+    private static DesignCache.Key key(double frequency) {
+        return new DesignCache.Key(FilterType.Butterworth, FilterMode.Lowpass, 4, SAMPLE_RATE, frequency, 0.0, 0.0);
+    }
+
+    private static SosCoefficients design(AtomicInteger designs) {
+        designs.incrementAndGet();
+        return SosCoefficients.of(new double[] {1.0, 0.0, 0.0, 0.0, 0.0});
+    }
+
+    private static double[] impulse(int length) {
+        double[] signal = new double[length];
+        signal[0] = 1.0;
+        return signal;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package StandardFilter;
 
-import AudioProcessingRangler.Complex;
-import AudioProcessingRangler.FFT;
+import FFT.FFT;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
@@ -33,16 +32,16 @@ class StandardFilterIntegrationTest {
         double[] processedSignal = processSignal(signal, filter);
 
         // 3. Verification: Analyze with FFT
-        Complex[] originalSpectrum = performFFTAnalysis(signal);
-        Complex[] processedSpectrum = performFFTAnalysis(processedSignal);
+        double[] originalSpectrum = performFFTAnalysis(signal);
+        double[] processedSpectrum = performFFTAnalysis(processedSignal);
 
         int passBin = findFrequencyBin(500, SIGNAL_LENGTH, SAMPLE_RATE);
         int attenuateBin = findFrequencyBin(2000, SIGNAL_LENGTH, SAMPLE_RATE);
 
-        double originalPassMag = originalSpectrum[passBin].abs();
-        double processedPassMag = processedSpectrum[passBin].abs();
-        double originalAttenuateMag = originalSpectrum[attenuateBin].abs();
-        double processedAttenuateMag = processedSpectrum[attenuateBin].abs();
+        double originalPassMag = originalSpectrum[passBin];
+        double processedPassMag = processedSpectrum[passBin];
+        double originalAttenuateMag = originalSpectrum[attenuateBin];
+        double processedAttenuateMag = processedSpectrum[attenuateBin];
 
         // Verify the 500 Hz signal passed through with minimal change
         assertTrue(processedPassMag > originalPassMag * 0.95, "Pass-band frequency (500 Hz) should be preserved.");
@@ -63,16 +62,16 @@ class StandardFilterIntegrationTest {
         double[] processedSignal = processSignal(signal, filter);
 
         // 3. Verification: Analyze with FFT
-        Complex[] originalSpectrum = performFFTAnalysis(signal);
-        Complex[] processedSpectrum = performFFTAnalysis(processedSignal);
+        double[] originalSpectrum = performFFTAnalysis(signal);
+        double[] processedSpectrum = performFFTAnalysis(processedSignal);
 
         int attenuateBin = findFrequencyBin(500, SIGNAL_LENGTH, SAMPLE_RATE);
         int passBin = findFrequencyBin(2000, SIGNAL_LENGTH, SAMPLE_RATE);
 
-        double originalAttenuateMag = originalSpectrum[attenuateBin].abs();
-        double processedAttenuateMag = processedSpectrum[attenuateBin].abs();
-        double originalPassMag = originalSpectrum[passBin].abs();
-        double processedPassMag = processedSpectrum[passBin].abs();
+        double originalAttenuateMag = originalSpectrum[attenuateBin];
+        double processedAttenuateMag = processedSpectrum[attenuateBin];
+        double originalPassMag = originalSpectrum[passBin];
+        double processedPassMag = processedSpectrum[passBin];
 
         // Verify the 500 Hz signal was significantly attenuated
         assertTrue(processedAttenuateMag < originalAttenuateMag * 0.1, "Stop-band frequency (500 Hz) should be attenuated.");
@@ -93,19 +92,19 @@ class StandardFilterIntegrationTest {
         double[] processedSignal = processSignal(signal, filter);
 
         // 3. Verification: Analyze with FFT
-        Complex[] originalSpectrum = performFFTAnalysis(signal);
-        Complex[] processedSpectrum = performFFTAnalysis(processedSignal);
+        double[] originalSpectrum = performFFTAnalysis(signal);
+        double[] processedSpectrum = performFFTAnalysis(processedSignal);
 
         int lowAttenuateBin = findFrequencyBin(500, SIGNAL_LENGTH, SAMPLE_RATE);
         int passBin = findFrequencyBin(1000, SIGNAL_LENGTH, SAMPLE_RATE);
         int highAttenuateBin = findFrequencyBin(2000, SIGNAL_LENGTH, SAMPLE_RATE);
 
         // Verify the 1000 Hz signal passed through
-        assertTrue(processedSpectrum[passBin].abs() > originalSpectrum[passBin].abs() * 0.9, "Center frequency (1000 Hz) should pass.");
+        assertTrue(processedSpectrum[passBin] > originalSpectrum[passBin] * 0.9, "Center frequency (1000 Hz) should pass.");
 
         // Verify the outer-band frequencies were attenuated
-        assertTrue(processedSpectrum[lowAttenuateBin].abs() < originalSpectrum[lowAttenuateBin].abs() * 0.1, "Low frequency (500 Hz) should be attenuated.");
-        assertTrue(processedSpectrum[highAttenuateBin].abs() < originalSpectrum[highAttenuateBin].abs() * 0.1, "High frequency (2000 Hz) should be attenuated.");
+        assertTrue(processedSpectrum[lowAttenuateBin] < originalSpectrum[lowAttenuateBin] * 0.1, "Low frequency (500 Hz) should be attenuated.");
+        assertTrue(processedSpectrum[highAttenuateBin] < originalSpectrum[highAttenuateBin] * 0.1, "High frequency (2000 Hz) should be attenuated.");
     }
 
     @Test
@@ -120,19 +119,19 @@ class StandardFilterIntegrationTest {
         double[] processedSignal = processSignal(signal, filter);
 
         // 3. Verification: Analyze with FFT
-        Complex[] originalSpectrum = performFFTAnalysis(signal);
-        Complex[] processedSpectrum = performFFTAnalysis(processedSignal);
+        double[] originalSpectrum = performFFTAnalysis(signal);
+        double[] processedSpectrum = performFFTAnalysis(processedSignal);
 
         int lowPassBin = findFrequencyBin(500, SIGNAL_LENGTH, SAMPLE_RATE);
         int attenuateBin = findFrequencyBin(1000, SIGNAL_LENGTH, SAMPLE_RATE);
         int highPassBin = findFrequencyBin(2000, SIGNAL_LENGTH, SAMPLE_RATE);
 
         // Verify the 1000 Hz signal was attenuated
-        assertTrue(processedSpectrum[attenuateBin].abs() < originalSpectrum[attenuateBin].abs() * 0.1, "Center frequency (1000 Hz) should be attenuated.");
+        assertTrue(processedSpectrum[attenuateBin] < originalSpectrum[attenuateBin] * 0.1, "Center frequency (1000 Hz) should be attenuated.");
 
         // Verify the outer-band frequencies passed through
-        assertTrue(processedSpectrum[lowPassBin].abs() > originalSpectrum[lowPassBin].abs() * 0.9, "Low frequency (500 Hz) should pass.");
-        assertTrue(processedSpectrum[highPassBin].abs() > originalSpectrum[highPassBin].abs() * 0.9, "High frequency (2000 Hz) should pass.");
+        assertTrue(processedSpectrum[lowPassBin] > originalSpectrum[lowPassBin] * 0.9, "Low frequency (500 Hz) should pass.");
+        assertTrue(processedSpectrum[highPassBin] > originalSpectrum[highPassBin] * 0.9, "High frequency (2000 Hz) should pass.");
     }
 
 
@@ -163,14 +162,14 @@ class StandardFilterIntegrationTest {
     }
 
     /**
-     * Performs FFT on a signal.
+     * Performs FFT on a signal and returns the magnitude of each bin up to Nyquist.
      */
-    private Complex[] performFFTAnalysis(double[] signal) {
-        Complex[] complexSignal = new Complex[signal.length];
-        for (int i = 0; i < signal.length; i++) {
-            complexSignal[i] = new Complex(signal[i], 0);
-        }
-        return FFT.fft(complexSignal);
+    private double[] performFFTAnalysis(double[] signal) {
+        double[] data = signal.clone();
+        FFT.forSize(data.length).realForward(data);
+        double[] magnitudes = new double[data.length / 2 + 1];
+        FFT.magnitude(data, magnitudes);
+        return magnitudes;
     }
 
     /**
@@ -1,10 +1,16 @@
 package StandardFilter;
 
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import uk.me.berndporr.iirj.*;
 
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import NativeFilter.NativeSosKernel;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -120,4 +126,256 @@ class StandardFilterUnitTest {
         filter.setBandstop(1000.0, 200.0);
         assertEquals(ripple, filter.getRippleDb());
     }
+
+    @Test
+    @DisplayName("Both SOS backends should match iirj's per-sample cascade")
+    void testMatchesCascade() throws InvalidFilterException {
+        for (StandardFilter.Backend backend : availableBackends()) {
+            for (StandardFilter.FilterType type : StandardFilter.FilterType.values()) {
+                StandardFilter filter = new StandardFilter(type, ORDER, SAMPLE_RATE, Optional.of(1.0));
+                StandardFilter reference = new StandardFilter(type, ORDER, SAMPLE_RATE, Optional.of(1.0));
+                filter.setBandpass(1000.0, 400.0);
+                reference.setBandpass(1000.0, 400.0);
+                filter.setBackend(backend);
+                assertEquals(ORDER, filter.getSections().getSectionCount(), "A bandpass doubles the order into sections.");
+
+                double[] signal = noise(4096, 7);
+                double[] expected = new double[signal.length];
+                for (int i = 0; i < signal.length; i++) {
+                    expected[i] = reference.getSettings().filter(signal[i]);
+                }
+                // Uneven block sizes check that state carries across calls.
+                for (int from = 0, size = 1; from < signal.length; from += size, size = size * 2 + 1) {
+                    int to = Math.min(signal.length, from + size);
+                    double[] block = Arrays.copyOfRange(signal, from, to);
+                    System.arraycopy(filter.process(block), 0, signal, from, to - from);
+                }
+                assertArrayEquals(expected, signal, 1e-9, type + " output of the " + backend + " backend differs from Cascade.filter");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Each interleaved channel should be filtered through its own state")
+    void testChannelsAreIndependent() throws InvalidFilterException {
+        StandardFilter stereo = new StandardFilter(StandardFilter.FilterType.Butterworth, ORDER, SAMPLE_RATE, 2, Optional.empty());
+        StandardFilter left = new StandardFilter(StandardFilter.FilterType.Butterworth, ORDER, SAMPLE_RATE, Optional.empty());
+        StandardFilter right = new StandardFilter(StandardFilter.FilterType.Butterworth, ORDER, SAMPLE_RATE, Optional.empty());
+        stereo.setLowpass(2000.0);
+        left.setLowpass(2000.0);
+        right.setLowpass(2000.0);
+        assertEquals(2, stereo.getChannels());
+
+        double[] l = noise(1024, 1);
+        double[] r = new double[1024]; // Silent right channel must stay silent.
+        double[] interleaved = new double[2048];
+        for (int i = 0; i < 1024; i++) {
+            interleaved[2 * i] = l[i];
+            interleaved[2 * i + 1] = r[i];
+        }
+        stereo.process(interleaved);
+        left.process(l);
+        right.process(r);
+        for (int i = 0; i < 1024; i++) {
+            assertEquals(l[i], interleaved[2 * i], 1e-12);
+            assertEquals(0.0, interleaved[2 * i + 1]);
+        }
+
+        stereo.reset();
+        double[] impulse = new double[8];
+        impulse[0] = 1.0;
+        assertEquals(0.0, stereo.process(impulse)[1], "Reset should clear the left channel's tail.");
+        assertThrows(InvalidFilterException.class,
+                () -> new StandardFilter(StandardFilter.FilterType.Butterworth, ORDER, SAMPLE_RATE, 0, Optional.empty()));
+    }
+
+    @Test
+    @DisplayName("Backends should agree on multichannel blocks and can be switched mid-stream")
+    void testBackendSwitch() throws InvalidFilterException {
+        if (!NativeSosKernel.isAvailable()) {
+            assertThrows(UnsupportedOperationException.class, () -> new StandardFilter(StandardFilter.FilterType.Butterworth,
+                    ORDER, SAMPLE_RATE, Optional.empty()).setBackend(StandardFilter.Backend.Native));
+            return;
+        }
+        for (int channels : new int[] {1, 2, 3}) {
+            StandardFilter java = new StandardFilter(StandardFilter.FilterType.ChebyshevII, 12, SAMPLE_RATE, channels, Optional.of(60.0));
+            StandardFilter switching = new StandardFilter(StandardFilter.FilterType.ChebyshevII, 12, SAMPLE_RATE, channels, Optional.of(60.0));
+            java.setHighpass(300.0);
+            switching.setHighpass(300.0);
+
+            for (int block = 0; block < 8; block++) {
+                switching.setBackend(block % 2 == 0 ? StandardFilter.Backend.Native : StandardFilter.Backend.Java);
+                double[] expected = java.process(noise(256 * channels, block));
+                double[] actual = switching.process(noise(256 * channels, block));
+                assertArrayEquals(expected, actual, 1e-12, channels + " channels, block " + block);
+            }
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: SOS kernels vs per-sample Cascade.filter, orders 2-16")
+    void benchmarkSosBackends() throws InvalidFilterException {
+        int channels = 2;
+        int frames = 1024;
+        int blocks = 1000;
+        double[] block = noise(frames * channels, 3);
+
+        for (int order = 2; order <= 16; order += 2) {
+            StandardFilter filter = new StandardFilter(StandardFilter.FilterType.Butterworth, order, SAMPLE_RATE, channels, Optional.empty());
+            filter.setLowpass(2000.0);
+            Cascade cascade = filter.getSettings();
+
+            double cascadeNanos = nanosPerSample(block, blocks, b -> {
+                for (int j = 0; j < b.length; j++) {
+                    b[j] = cascade.filter(b[j]);
+                }
+            });
+            double javaNanos = nanosPerSample(block, blocks, filter::process);
+            String nativeResult = "n/a";
+            if (NativeSosKernel.isAvailable()) {
+                filter.setBackend(StandardFilter.Backend.Native);
+                double nativeNanos = nanosPerSample(block, blocks, filter::process);
+                nativeResult = String.format("%.2f ns (%.1fx)", nativeNanos, cascadeNanos / nativeNanos);
+                filter.setBackend(StandardFilter.Backend.Java);
+            }
+            System.out.printf("StandardFilter order %2d, %d ch x %d frames, per sample: Cascade.filter %.2f ns, Java SOS %.2f ns (%.1fx), native SOS %s%n",
+                    order, channels, frames, cascadeNanos, javaNanos, cascadeNanos / javaNanos, nativeResult);
+        }
+        assertTrue(Double.isFinite(block[0]));
+    }
+
+    @Test
+    @DisplayName("The reported tail should cover the impulse response down to -120 dB")
+    void testTailFrames() throws InvalidFilterException {
+        StandardFilter highpass = new StandardFilter(StandardFilter.FilterType.Butterworth, 4, SAMPLE_RATE, Optional.empty());
+        highpass.setHighpass(40.0);
+        StandardFilter bandpass = new StandardFilter(StandardFilter.FilterType.ChebyshevI, 6, SAMPLE_RATE, Optional.of(1.0));
+        bandpass.setBandpass(1000.0, 100.0);
+
+        for (StandardFilter filter : new StandardFilter[] {highpass, bandpass}) {
+            long tail = filter.getTailFrames();
+            assertTrue(tail > 0 && tail < 10 * (long) SAMPLE_RATE, "Tail of " + tail + " frames");
+            double[] response = new double[(int) tail + 4096];
+            response[0] = 1.0;
+            filter.process(response);
+            double peak = 0.0, after = 0.0;
+            for (int i = 0; i < response.length; i++) {
+                if (i < tail) {
+                    peak = Math.max(peak, Math.abs(response[i]));
+                } else {
+                    after = Math.max(after, Math.abs(response[i]));
+                }
+            }
+            assertTrue(after <= 1e-6 * peak, filter.getFilterMode() + " rings at " + after + " after its tail, peak " + peak);
+        }
+        assertEquals(0, new StandardFilter(StandardFilter.FilterType.Bessel, 2, SAMPLE_RATE, Optional.empty()).getTailFrames(),
+                "An undesigned filter passes samples straight through.");
+    }
+
+    @Test
+    @DisplayName("Decaying tails should snap to zero instead of going subnormal")
+    void testTailsNeverGoSubnormal() throws InvalidFilterException {
+        for (StandardFilter.Backend backend : availableBackends()) {
+            StandardFilter filter = new StandardFilter(StandardFilter.FilterType.ChebyshevI, 8, SAMPLE_RATE, 2, Optional.of(1.0));
+            filter.setLowpass(500.0);
+            filter.setBackend(backend);
+            filter.process(noise(2048, 4));
+
+            double[] block = new double[1024];
+            for (int i = 0; i < (int) SAMPLE_RATE / 512; i++) {
+                Arrays.fill(block, 0.0);
+                filter.process(block);
+                for (double sample : block) {
+                    assertFalse(sample != 0.0 && Math.abs(sample) < Double.MIN_NORMAL, backend + " backend produced a subnormal sample");
+                }
+            }
+            assertArrayEquals(new double[block.length], block, backend + " backend tail should have reached exact silence");
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: per-block cost should stay flat through 10 s of silence after a burst")
+    void benchmarkSilenceAfterBurst() throws InvalidFilterException {
+        for (StandardFilter.Backend backend : availableBackends()) {
+            StandardFilter filter = new StandardFilter(StandardFilter.FilterType.Butterworth, 8, SAMPLE_RATE, 2, Optional.empty());
+            filter.setLowpass(1000.0);
+            filter.setBackend(backend);
+            silenceAfterBurst("StandardFilter " + backend, filter::process, filter::reset, 2, SAMPLE_RATE);
+        }
+    }
+
+    // === Helper Methods ===
+
+    private static StandardFilter.Backend[] availableBackends() {
+        return NativeSosKernel.isAvailable() ? StandardFilter.Backend.values() : new StandardFilter.Backend[] {StandardFilter.Backend.Java};
+    }
+
+    // Warms the path up on the same block, then times it.
+    private static double nanosPerSample(double[] block, int blocks, Consumer<double[]> path) {
+        for (int i = 0; i < 3 * blocks; i++) {
+            path.accept(block);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < blocks; i++) {
+            path.accept(block);
+        }
+        return (double) (System.nanoTime() - start) / ((long) blocks * block.length);
+    }
+
+    /**
+     * Feeds a one-second burst of noise and then ten seconds of silence through {@code path} in
+     * 512-frame blocks, after one untimed pass to warm it up. Prints and returns the slowest
+     * one-second window of silence, by median block cost, relative to the median burst block.
+     */
+    static double silenceAfterBurst(String name, Consumer<double[]> path, Runnable reset, int channels, double sampleRate) {
+        int frames = 512;
+        int blocksPerSecond = (int) (sampleRate / frames);
+        double[] burst = noise(frames * channels, 5);
+        double[] block = new double[frames * channels];
+        long[] burstNanos = new long[blocksPerSecond];
+        long[] silentNanos = new long[10 * blocksPerSecond];
+
+        for (int pass = 0; pass < 2; pass++) {
+            reset.run();
+            for (int i = 0; i < burstNanos.length; i++) {
+                System.arraycopy(burst, 0, block, 0, block.length);
+                long start = System.nanoTime();
+                path.accept(block);
+                burstNanos[i] = System.nanoTime() - start;
+            }
+            for (int i = 0; i < silentNanos.length; i++) {
+                Arrays.fill(block, 0.0);
+                long start = System.nanoTime();
+                path.accept(block);
+                silentNanos[i] = System.nanoTime() - start;
+            }
+        }
+
+        long burstMedian = median(burstNanos, 0, burstNanos.length);
+        long worstSilence = 0;
+        for (int from = 0; from < silentNanos.length; from += blocksPerSecond) {
+            worstSilence = Math.max(worstSilence, median(silentNanos, from, from + blocksPerSecond));
+        }
+        double ratio = (double) worstSilence / burstMedian;
+        System.out.printf("%s, %d ch x %d frames: burst %.1f us/block, worst second of silence %.1f us/block (%.2fx)%n",
+                name, channels, frames, burstMedian / 1e3, worstSilence / 1e3, ratio);
+        return ratio;
+    }
+
+    private static long median(long[] values, int from, int to) {
+        long[] window = Arrays.copyOfRange(values, from, to);
+        Arrays.sort(window);
+        return window[window.length / 2];
+    }
+
+    private static double[] noise(int length, long seed) {
+        Random random = new Random(seed);
+        double[] signal = new double[length];
+        for (int i = 0; i < length; i++) {
+            signal[i] = random.nextDouble() * 2.0 - 1.0;
+        }
+        return signal;
+    }
 }
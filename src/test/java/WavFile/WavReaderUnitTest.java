@@ -0,0 +1,254 @@
+package WavFile;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioFormat.Encoding;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import AudioPipeline.PcmCodec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for WavReader.
+ * Files are written with javax.sound, or byte by byte where javax.sound cannot produce them.
+ */
+class WavReaderUnitTest {
+
+    private static final float SAMPLE_RATE = 48000f;
+
+    @TempDir
+    Path root;
+
+    @Test
+    @DisplayName("Samples should match javax.sound's reading of the same file")
+    void testMatchesAudioSystem() throws Exception {
+        Object[][] formats = {
+                {8, Encoding.PCM_UNSIGNED}, {16, Encoding.PCM_SIGNED}, {24, Encoding.PCM_SIGNED},
+                {32, Encoding.PCM_SIGNED}, {32, Encoding.PCM_FLOAT}};
+        for (Object[] layout : formats) {
+            int bits = (int) layout[0];
+            AudioFormat format = new AudioFormat((Encoding) layout[1], SAMPLE_RATE, bits, 3, 3 * bits / 8, SAMPLE_RATE, false);
+            Path path = root.resolve(bits + "-" + layout[1] + ".wav");
+            writeWithAudioSystem(path, format, noise(bits, 3 * 1001));
+
+            double[] expected = readWithAudioSystem(path);
+            try (WavReader reader = WavReader.open(path)) {
+                assertEquals(3, reader.getChannels());
+                assertEquals(SAMPLE_RATE, reader.getSampleRate());
+                assertEquals(1001, reader.getFrames());
+                assertFalse(reader.isRf64());
+                double[] actual = new double[expected.length + 3];
+                assertEquals(1001, reader.read(actual, 0, 2000));
+                assertEquals(0, reader.read(actual, 0, 10));
+                assertArrayEquals(expected, Arrays.copyOf(actual, expected.length), 0.0, bits + "-bit " + layout[1]);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Reads across window boundaries and seeks should return the same samples")
+    void testWindowsAndSeeking() throws Exception {
+        AudioFormat format = new AudioFormat(SAMPLE_RATE, 24, 2, true, false);
+        Path path = root.resolve("long.wav");
+        writeWithAudioSystem(path, format, noise(1, 2 * 5000));
+        double[] whole = readWithAudioSystem(path);
+
+        // 1000-byte windows hold 166 six-byte frames, so most reads straddle a boundary.
+        try (WavReader reader = WavReader.open(path, 1000)) {
+            double[] pieces = new double[whole.length];
+            int frames = 0, read;
+            while ((read = reader.read(pieces, frames * 2, 97)) > 0) {
+                frames += read;
+            }
+            assertEquals(5000, frames);
+            assertArrayEquals(whole, pieces, 0.0);
+
+            Random random = new Random(5);
+            double[] block = new double[2 * 150];
+            for (int i = 0; i < 50; i++) {
+                int frame = random.nextInt(5001);
+                reader.seek(frame);
+                int count = reader.read(block, 0, 150);
+                assertEquals(Math.min(150, 5000 - frame), count);
+                assertEquals(frame + count, reader.getPosition());
+                assertArrayEquals(Arrays.copyOfRange(whole, frame * 2, (frame + count) * 2), Arrays.copyOf(block, count * 2), 0.0);
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.seek(5001));
+            assertThrows(IllegalArgumentException.class, () -> reader.block(167));
+        }
+    }
+
+    @Test
+    @DisplayName("Blocks should be read-only views of the file's bytes")
+    void testBlockViews() throws Exception {
+        AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, 2, true, false);
+        Path path = root.resolve("views.wav");
+        writeWithAudioSystem(path, format, noise(2, 2 * 300));
+        byte[] file = Files.readAllBytes(path);
+        int dataOffset = file.length - 300 * 4;
+
+        try (WavReader reader = WavReader.open(path)) {
+            reader.seek(100);
+            ByteBuffer block = reader.block(50);
+            assertTrue(block.isReadOnly());
+            assertTrue(block.isDirect(), "Blocks should come straight from the mapping.");
+            assertEquals(ByteOrder.LITTLE_ENDIAN, block.order());
+            byte[] bytes = new byte[block.remaining()];
+            block.get(bytes);
+            assertArrayEquals(Arrays.copyOfRange(file, dataOffset + 400, dataOffset + 600), bytes);
+
+            reader.seek(290);
+            assertEquals(40, reader.block(50).remaining());
+            assertEquals(0, reader.block(50).remaining());
+        }
+    }
+
+    @Test
+    @DisplayName("Extensible formats, extra chunks and short data chunks should be handled")
+    void testChunkLayouts() throws Exception {
+        ByteBuffer samples = ByteBuffer.allocate(4 * 10).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 10; i++) {
+            samples.putFloat(i / 10f);
+        }
+
+        ByteBuffer file = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+        file.put(ascii("RIFF")).putInt(0).put(ascii("WAVE"));
+        file.put(ascii("LIST")).putInt(5).put(new byte[] {1, 2, 3, 4, 5, 0});
+        file.put(ascii("fmt ")).putInt(40).putShort((short) 0xFFFE).putShort((short) 2).putInt(44100)
+                .putInt(44100 * 8).putShort((short) 8).putShort((short) 32)
+                .putShort((short) 22).putShort((short) 32).putInt(3).putShort((short) 3).put(new byte[14]);
+        // Claims 64 bytes, as a recorder that died before fixing the header would.
+        file.put(ascii("data")).putInt(64).put(samples.array(), 0, 36);
+        Path path = root.resolve("extensible.wav");
+        Files.write(path, Arrays.copyOf(file.array(), file.position()));
+
+        try (WavReader reader = WavReader.open(path)) {
+            assertEquals(Encoding.PCM_FLOAT, reader.getFormat().getEncoding());
+            assertEquals(44100.0, reader.getSampleRate());
+            assertEquals(4, reader.getFrames(), "Only whole frames present in the file should be read.");
+            double[] actual = new double[8];
+            reader.read(actual, 0, 4);
+            for (int i = 0; i < 8; i++) {
+                assertEquals(i / 10f, actual[i], 0.0);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Files that are not readable WAVs should be rejected")
+    void testInvalidFiles() throws Exception {
+        Path text = root.resolve("text.wav");
+        Files.writeString(text, "definitely not a RIFF file");
+        assertThrows(IOException.class, () -> WavReader.open(text));
+
+        Path mp3 = root.resolve("mp3.wav");
+        ByteBuffer file = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        file.put(ascii("RIFF")).putInt(36).put(ascii("WAVE"));
+        file.put(ascii("fmt ")).putInt(16).putShort((short) 0x0055).putShort((short) 2).putInt(44100)
+                .putInt(16000).putShort((short) 4).putShort((short) 16);
+        file.put(ascii("data")).putInt(0);
+        Files.write(mp3, file.array());
+        IOException error = assertThrows(IOException.class, () -> WavReader.open(mp3));
+        assertTrue(error.getMessage().contains("0x0055"), error.getMessage());
+
+        Path noData = root.resolve("nodata.wav");
+        Files.write(noData, Arrays.copyOf(file.array(), 36));
+        assertThrows(IOException.class, () -> WavReader.open(noData));
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Benchmark: decoding a large file, mapped versus AudioInputStream")
+    void benchmarkMappedRead() throws Exception {
+        int channels = 8, frames = (int) SAMPLE_RATE * 60;
+        AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, channels, true, false);
+        Path path = root.resolve("large.wav");
+        try (WavWriter writer = WavWriter.create(path, format)) {
+            double[] block = noise(3, channels * 4800);
+            for (int written = 0; written < frames; written += 4800) {
+                writer.write(block, 0, 4800);
+            }
+            writer.commit();
+        }
+        double megabytes = Files.size(path) / 1e6;
+        double[] samples = new double[channels * 4096];
+
+        double streamed = Double.MAX_VALUE, mapped = Double.MAX_VALUE;
+        for (int pass = 0; pass < 5; pass++) {
+            long start = System.nanoTime();
+            try (AudioInputStream stream = AudioSystem.getAudioInputStream(path.toFile())) {
+                PcmCodec codec = new PcmCodec(stream.getFormat());
+                byte[] bytes = new byte[samples.length * 2];
+                int read;
+                while ((read = stream.readNBytes(bytes, 0, bytes.length)) > 0) {
+                    codec.decode(ByteBuffer.wrap(bytes, 0, read), samples, 0, read / 2);
+                }
+            }
+            streamed = Math.min(streamed, (System.nanoTime() - start) / 1e9);
+
+            start = System.nanoTime();
+            try (WavReader reader = WavReader.open(path)) {
+                while (reader.read(samples, 0, 4096) > 0) {
+                    // Decoding is the work.
+                }
+            }
+            mapped = Math.min(mapped, (System.nanoTime() - start) / 1e9);
+        }
+
+        System.out.printf("Decode %.0f MB (8 ch, 16-bit): AudioInputStream %.0f MB/s, mapped %.0f MB/s (%.2fx)%n",
+                megabytes, megabytes / streamed, megabytes / mapped, streamed / mapped);
+    }
+
+    // === Helper Methods ===
+
+    private static void writeWithAudioSystem(Path path, AudioFormat format, double[] samples) throws Exception {
+        PcmCodec codec = new PcmCodec(format);
+        ByteBuffer bytes = ByteBuffer.allocate(samples.length * codec.getBytesPerSample());
+        codec.encode(samples, 0, samples.length, bytes);
+        long frames = samples.length / format.getChannels();
+        try (AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(bytes.array()), format, frames)) {
+            AudioSystem.write(stream, AudioFileFormat.Type.WAVE, new File(path.toString()));
+        }
+    }
+
+    static double[] readWithAudioSystem(Path path) throws Exception {
+        try (AudioInputStream stream = AudioSystem.getAudioInputStream(path.toFile())) {
+            PcmCodec codec = new PcmCodec(stream.getFormat());
+            byte[] bytes = stream.readAllBytes();
+            double[] samples = new double[bytes.length / codec.getBytesPerSample()];
+            codec.decode(ByteBuffer.wrap(bytes), samples, 0, samples.length);
+            return samples;
+        }
+    }
+
+    static double[] noise(long seed, int length) {
+        Random random = new Random(seed);
+        double[] signal = new double[length];
+        for (int i = 0; i < length; i++) {
+            signal[i] = random.nextDouble() * 1.8 - 0.9;
+        }
+        return signal;
+    }
+
+    private static byte[] ascii(String id) {
+        return id.getBytes(StandardCharsets.US_ASCII);
+    }
+}
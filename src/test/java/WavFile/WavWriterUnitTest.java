@@ -0,0 +1,144 @@
+package WavFile;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioFormat.Encoding;
+import javax.sound.sampled.AudioSystem;
+
+import AudioPipeline.PcmCodec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for WavWriter.
+ * Written files are checked against javax.sound and WavReader.
+ */
+class WavWriterUnitTest {
+
+    private static final float SAMPLE_RATE = 48000f;
+
+    @TempDir
+    Path root;
+
+    @Test
+    @DisplayName("Written files should read back identically through javax.sound")
+    void testReadableByAudioSystem() throws Exception {
+        for (AudioFormat format : new AudioFormat[] {
+                new AudioFormat(SAMPLE_RATE, 16, 2, true, false),
+                new AudioFormat(SAMPLE_RATE, 24, 6, true, true),
+                new AudioFormat(Encoding.PCM_FLOAT, SAMPLE_RATE, 32, 2, 8, SAMPLE_RATE, false)}) {
+            int channels = format.getChannels();
+            double[] samples = WavReaderUnitTest.noise(channels, channels * 2000);
+            Path path = root.resolve(format.getSampleSizeInBits() + "x" + channels + ".wav");
+            try (WavWriter writer = WavWriter.create(path, format)) {
+                writer.write(samples, 0, 1500);
+                writer.write(samples, 1500 * channels, 500);
+                assertEquals(2000, writer.getFrames());
+                writer.commit();
+            }
+
+            assertEquals(format.getEncoding(), AudioSystem.getAudioFileFormat(path.toFile()).getFormat().getEncoding());
+            assertArrayEquals(quantize(samples, format), WavReaderUnitTest.readWithAudioSystem(path), 0.0, format.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Writes spanning many small buffers should produce the same file, never longer than its data")
+    void testWindows() throws Exception {
+        AudioFormat format = new AudioFormat(SAMPLE_RATE, 24, 2, true, false);
+        double[] samples = WavReaderUnitTest.noise(9, 2 * 3000);
+
+        Path whole = root.resolve("whole.wav");
+        try (WavWriter writer = WavWriter.create(whole, format)) {
+            writer.write(samples, 0, 3000);
+            writer.commit();
+        }
+        Path pieces = root.resolve("pieces.wav");
+        try (WavWriter writer = WavWriter.create(pieces, format, 1000, WavWriter.RIFF_LIMIT)) {
+            for (int frame = 0; frame < 3000; frame += 250) {
+                writer.write(samples, frame * 2, 200);
+                ByteBuffer encoded = ByteBuffer.allocate(50 * 6);
+                new PcmCodec(format).encode(samples, (frame + 200) * 2, 100, encoded);
+                writer.write(encoded.flip());
+            }
+            assertTrue(Files.size(root.resolve("pieces.wav" + WavWriter.TEMP_SUFFIX)) <= WavWriter.HEADER_BYTES + 3000 * 6);
+            writer.commit();
+        }
+        assertEquals(-1L, Files.mismatch(whole, pieces));
+        assertEquals(WavWriter.HEADER_BYTES + 3000 * 6, Files.size(whole));
+    }
+
+    @Test
+    @DisplayName("Files past the RIFF size limit should become RF64")
+    void testRf64() throws Exception {
+        AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, 2, true, false);
+        double[] samples = WavReaderUnitTest.noise(4, 2 * 1000);
+        Path path = root.resolve("big.wav");
+        try (WavWriter writer = WavWriter.create(path, format, WavWriter.DEFAULT_BUFFER_BYTES, 2000)) {
+            writer.write(samples, 0, 1000);
+            writer.commit();
+        }
+
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals("RF64", new String(header.array(), 0, 4, StandardCharsets.US_ASCII));
+        assertEquals(-1, header.getInt(4));
+        assertEquals("ds64", new String(header.array(), 12, 4, StandardCharsets.US_ASCII));
+        assertEquals(WavWriter.HEADER_BYTES - 8 + 4000, header.getLong(20));
+        assertEquals(4000, header.getLong(28));
+        assertEquals(1000, header.getLong(36));
+
+        try (WavReader reader = WavReader.open(path)) {
+            assertTrue(reader.isRf64());
+            assertEquals(1000, reader.getFrames());
+            double[] actual = new double[samples.length];
+            reader.read(actual, 0, 1000);
+            assertArrayEquals(quantize(samples, format), actual, 0.0);
+        }
+    }
+
+    @Test
+    @DisplayName("Odd-length data should be padded and uncommitted files discarded")
+    void testPaddingAndDiscard() throws Exception {
+        AudioFormat format = new AudioFormat(SAMPLE_RATE, 8, 1, false, false);
+        Path path = root.resolve("odd.wav");
+        try (WavWriter writer = WavWriter.create(path, format)) {
+            writer.write(new double[] {0.0, 0.5, -0.5}, 0, 3);
+            writer.commit();
+        }
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(WavWriter.HEADER_BYTES + 4, file.capacity());
+        assertEquals(file.capacity() - 8, file.getInt(4));
+        assertEquals(3, file.getInt(WavWriter.HEADER_BYTES - 4));
+        try (WavReader reader = WavReader.open(path)) {
+            assertEquals(3, reader.getFrames());
+        }
+
+        Path abandoned = root.resolve("abandoned.wav");
+        try (WavWriter writer = WavWriter.create(abandoned, format)) {
+            writer.write(new double[] {0.1, 0.2}, 0, 2);
+        }
+        assertFalse(Files.exists(abandoned));
+        assertFalse(Files.exists(root.resolve("abandoned.wav" + WavWriter.TEMP_SUFFIX)));
+    }
+
+    // === Helper Methods ===
+
+    // What a file in this format holds for each sample.
+    private static double[] quantize(double[] samples, AudioFormat format) {
+        PcmCodec codec = new PcmCodec(format);
+        ByteBuffer bytes = ByteBuffer.allocate(samples.length * codec.getBytesPerSample());
+        codec.encode(samples, 0, samples.length, bytes);
+        double[] result = new double[samples.length];
+        codec.decode(bytes.flip(), result, 0, result.length);
+        return result;
+    }
+}